@@ -0,0 +1,458 @@
+package com.wepay.waltz.benchmark;
+
+import com.wepay.waltz.client.Serializer;
+import com.wepay.waltz.client.Transaction;
+import com.wepay.waltz.client.TransactionBuilder;
+import com.wepay.waltz.client.TransactionContext;
+import com.wepay.waltz.client.WaltzClient;
+import com.wepay.waltz.client.WaltzClientCallbacks;
+import com.wepay.waltz.client.WaltzClientConfig;
+import com.wepay.waltz.common.util.Cli;
+import com.wepay.waltz.exception.SubCommandFailedException;
+import com.wepay.waltz.storage.WaltzStorage;
+import com.wepay.waltz.test.util.IntegrationTestHelper;
+import com.wepay.waltz.test.util.WaltzStorageRunner;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An end-to-end benchmark which runs ZooKeeper, storage nodes and a server in process, and drives them with
+ * open-loop producers and a consumer through {@link WaltzClient}s.
+ * <p>
+ * Producers submit transactions at a fixed rate regardless of how fast transactions complete. Latencies are measured
+ * from the time a transaction was scheduled to be submitted, not from the time it was actually submitted, so stalls
+ * of the producers are not hidden from the results (coordinated omission). The following latencies are recorded.
+ * </p>
+ * <ul>
+ *     <li>append-to-commit: from the scheduled submission to the completion of the append</li>
+ *     <li>commit-to-feed: from the completion of the append to the arrival of the transaction at the consumer</li>
+ *     <li>feed-to-data: from the arrival of the transaction at the consumer to the arrival of its data</li>
+ *     <li>end-to-end: from the scheduled submission to the arrival of the data at the consumer</li>
+ * </ul>
+ * A new cluster is created for each combination of the number of partitions and the transaction size.
+ * With multiple replicas, one of them can be made slow by delaying its fsyncs to measure how a slow replica affects
+ * the quorum writes.
+ */
+public final class ClusterBenchmark extends Cli {
+
+    private static final String NAME = "cluster-benchmark";
+    private static final String DESCRIPTION = "Measures end-to-end latency percentiles of an in-process Waltz cluster";
+
+    private static final String ZNODE_PATH = "/waltz/benchmark";
+    private static final int ZK_SESSION_TIMEOUT = 30000;
+    private static final long COMPLETION_TIMEOUT_SECS = 60;
+    private static final double NANOS_IN_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double BYTES_IN_MEGABYTE = 1024 * 1024;
+
+    private static final String DEFAULT_PARTITIONS = "1,4";
+    private static final String DEFAULT_TXN_SIZES = "128,1024";
+    private static final int DEFAULT_RATE = 1000;
+    private static final int DEFAULT_NUM_TXNS = 30000;
+    private static final int DEFAULT_WARMUP_TXNS = 1000;
+    private static final int DEFAULT_NUM_PRODUCERS = 2;
+    private static final int DEFAULT_NUM_REPLICAS = 1;
+    private static final long DEFAULT_SLOW_REPLICA_FSYNC_DELAY_MS = 0L;
+
+    private int[] partitions;
+    private int[] txnSizes;
+    private int rate;
+    private int numTxns;
+    private int warmupTxns;
+    private int numProducers;
+    private int numReplicas;
+    private long slowReplicaFsyncDelayMs;
+
+    private ClusterBenchmark(String[] args) {
+        super(args);
+    }
+
+    @Override
+    protected void configureOptions(Options options) {
+        Option partitionsOption = Option.builder("p")
+                .longOpt("partitions")
+                .desc(String.format("Specify comma separated numbers of partitions to run with. Default to %s", DEFAULT_PARTITIONS))
+                .hasArg()
+                .build();
+        Option txnSizesOption = Option.builder("s")
+                .longOpt("txn-sizes")
+                .desc(String.format("Specify comma separated sizes of transactions to run with. Default to %s", DEFAULT_TXN_SIZES))
+                .hasArg()
+                .build();
+        Option rateOption = Option.builder("r")
+                .longOpt("rate")
+                .desc(String.format("Specify number of transactions per second submitted by all producers. Default to %d", DEFAULT_RATE))
+                .hasArg()
+                .build();
+        Option numTxnsOption = Option.builder("n")
+                .longOpt("num-txns")
+                .desc(String.format("Specify number of transactions to measure in each run. Default to %d", DEFAULT_NUM_TXNS))
+                .hasArg()
+                .build();
+        Option warmupTxnsOption = Option.builder("w")
+                .longOpt("warmup-txns")
+                .desc(String.format("Specify number of transactions submitted before measurement in each run. Default to %d", DEFAULT_WARMUP_TXNS))
+                .hasArg()
+                .build();
+        Option numProducersOption = Option.builder("t")
+                .longOpt("num-producers")
+                .desc(String.format("Specify number of producer clients. Default to %d", DEFAULT_NUM_PRODUCERS))
+                .hasArg()
+                .build();
+
+        Option numReplicasOption = Option.builder("rp")
+                .longOpt("num-replicas")
+                .desc(String.format("Specify number of storage nodes, each holding a replica of all partitions. Default to %d", DEFAULT_NUM_REPLICAS))
+                .hasArg()
+                .build();
+        Option slowReplicaFsyncDelayOption = Option.builder("fd")
+                .longOpt("slow-replica-fsync-delay-ms")
+                .desc(String.format("Specify delay in milliseconds added to every fsync of one of the replicas to emulate a slow disk. "
+                        + "Default to %d", DEFAULT_SLOW_REPLICA_FSYNC_DELAY_MS))
+                .hasArg()
+                .build();
+
+        options.addOption(partitionsOption);
+        options.addOption(txnSizesOption);
+        options.addOption(rateOption);
+        options.addOption(numTxnsOption);
+        options.addOption(warmupTxnsOption);
+        options.addOption(numProducersOption);
+        options.addOption(numReplicasOption);
+        options.addOption(slowReplicaFsyncDelayOption);
+    }
+
+    @Override
+    protected void processCmd(CommandLine cmd) throws SubCommandFailedException {
+        try {
+            partitions = positives(cmd, "partitions", DEFAULT_PARTITIONS);
+            txnSizes = positives(cmd, "txn-sizes", DEFAULT_TXN_SIZES);
+            rate = positive(cmd, "rate", DEFAULT_RATE);
+            numTxns = positive(cmd, "num-txns", DEFAULT_NUM_TXNS);
+            warmupTxns = Integer.parseInt(cmd.getOptionValue("warmup-txns", Integer.toString(DEFAULT_WARMUP_TXNS)));
+            if (warmupTxns < 0) {
+                throw new IllegalArgumentException("Found negative: warmup-txns must be greater or equals to 0");
+            }
+            numProducers = positive(cmd, "num-producers", DEFAULT_NUM_PRODUCERS);
+            numReplicas = positive(cmd, "num-replicas", DEFAULT_NUM_REPLICAS);
+            slowReplicaFsyncDelayMs = Long.parseLong(
+                cmd.getOptionValue("slow-replica-fsync-delay-ms", Long.toString(DEFAULT_SLOW_REPLICA_FSYNC_DELAY_MS))
+            );
+            if (slowReplicaFsyncDelayMs < 0) {
+                throw new IllegalArgumentException("Found negative: slow-replica-fsync-delay-ms must be greater or equals to 0");
+            }
+
+            for (int numPartitions : partitions) {
+                for (int txnSize : txnSizes) {
+                    new Run(numPartitions, txnSize).run();
+                }
+            }
+        } catch (Exception e) {
+            throw new SubCommandFailedException(String.format("Failed to run cluster benchmark: %s", e.getMessage()));
+        }
+    }
+
+    @Override
+    protected String getUsage() {
+        return buildUsage(NAME, DESCRIPTION, getOptions());
+    }
+
+    private static int positive(CommandLine cmd, String name, int defaultValue) {
+        int value = Integer.parseInt(cmd.getOptionValue(name, Integer.toString(defaultValue)));
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be greater than 0");
+        }
+        return value;
+    }
+
+    private static int[] positives(CommandLine cmd, String name, String defaultValue) {
+        int[] values = Arrays.stream(cmd.getOptionValue(name, defaultValue).split(","))
+            .mapToInt(s -> Integer.parseInt(s.trim()))
+            .toArray();
+        if (values.length == 0 || Arrays.stream(values).anyMatch(n -> n <= 0)) {
+            throw new IllegalArgumentException(name + " must be greater than 0");
+        }
+        return values;
+    }
+
+    /**
+     * A single benchmark run against a new cluster. The header of each transaction is its index in the run,
+     * which is used to match the events of the transaction observed by the producers and the consumer.
+     */
+    private final class Run {
+
+        private final int numPartitions;
+        private final int txnSize;
+        private final int totalTxns;
+        private final byte[] data;
+        private final long intervalNanos;
+
+        private final long[] scheduledNanos;
+        private final long[] committedNanos;
+        private final long[] fedNanos;
+        private final long[] fetchedNanos;
+
+        private final CountDownLatch allCommitted;
+        private final CountDownLatch allFetched;
+        private final AtomicInteger numFailures = new AtomicInteger(0);
+
+        private volatile long startNanos;
+
+        Run(int numPartitions, int txnSize) {
+            this.numPartitions = numPartitions;
+            this.txnSize = txnSize;
+            this.totalTxns = warmupTxns + numTxns;
+            this.data = new byte[txnSize];
+            this.intervalNanos = (long) (NANOS_IN_SECOND / rate);
+
+            this.scheduledNanos = new long[totalTxns];
+            this.committedNanos = new long[totalTxns];
+            this.fedNanos = new long[totalTxns];
+            this.fetchedNanos = new long[totalTxns];
+
+            this.allCommitted = new CountDownLatch(totalTxns);
+            this.allFetched = new CountDownLatch(totalTxns);
+
+            new Random().nextBytes(data);
+        }
+
+        void run() throws Exception {
+            Properties props = new Properties();
+            props.setProperty(IntegrationTestHelper.Config.ZNODE_PATH, ZNODE_PATH);
+            props.setProperty(IntegrationTestHelper.Config.NUM_PARTITIONS, Integer.toString(numPartitions));
+            props.setProperty(IntegrationTestHelper.Config.ZK_SESSION_TIMEOUT, Integer.toString(ZK_SESSION_TIMEOUT));
+            props.setProperty(IntegrationTestHelper.Config.NUM_STORAGES, Integer.toString(numReplicas));
+
+            IntegrationTestHelper helper = new IntegrationTestHelper(props);
+            List<WaltzClient> clients = new ArrayList<>();
+            try {
+                helper.startZooKeeperServer();
+                for (int i = 0; i < numReplicas; i++) {
+                    WaltzStorageRunner storageRunner = helper.getWaltzStorageRunner(i);
+                    storageRunner.startAsync();
+                    WaltzStorage storage = storageRunner.awaitStart();
+                    helper.setWaltzStorageAssignmentWithIndex(i, true);
+
+                    // The last replica is the slow one
+                    if (i == numReplicas - 1) {
+                        storage.getFaultInjector().setFsyncDelay(slowReplicaFsyncDelayMs, TimeUnit.MILLISECONDS);
+                    }
+                }
+                helper.startWaltzServer(true);
+
+                WaltzClientConfig config = clientConfig(helper);
+
+                clients.add(new WaltzClient(new Callbacks(true), config));
+
+                List<Thread> producers = new ArrayList<>();
+                for (int i = 0; i < numProducers; i++) {
+                    WaltzClient client = new WaltzClient(new Callbacks(false), config);
+                    clients.add(client);
+                    producers.add(new Thread(new Producer(client, i), "benchmark-producer-" + i));
+                }
+
+                startNanos = System.nanoTime() + intervalNanos;
+                producers.forEach(Thread::start);
+
+                long timeoutSecs = totalTxns / rate + COMPLETION_TIMEOUT_SECS;
+                if (!allCommitted.await(timeoutSecs, TimeUnit.SECONDS) || !allFetched.await(COMPLETION_TIMEOUT_SECS, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException(String.format(
+                        "timed out: committed=%d fetched=%d of %d", totalTxns - allCommitted.getCount(), totalTxns - allFetched.getCount(), totalTxns
+                    ));
+                }
+                for (Thread producer : producers) {
+                    producer.join();
+                }
+
+                report();
+
+            } finally {
+                for (WaltzClient client : clients) {
+                    client.close();
+                }
+                helper.closeAll();
+            }
+        }
+
+        private WaltzClientConfig clientConfig(IntegrationTestHelper helper) {
+            Map<Object, Object> props = new HashMap<>();
+            props.put(WaltzClientConfig.ZOOKEEPER_CONNECT_STRING, helper.getZkConnectString());
+            props.put(WaltzClientConfig.ZOOKEEPER_SESSION_TIMEOUT, helper.getZkSessionTimeout());
+            props.put(WaltzClientConfig.CLUSTER_ROOT, helper.getZnodePath());
+
+            Properties sslProps = new Properties();
+            helper.getSslSetup().setConfigParams(sslProps, WaltzClientConfig.CLIENT_SSL_CONFIG_PREFIX);
+            props.putAll(sslProps);
+
+            return new WaltzClientConfig(props);
+        }
+
+        private void report() {
+            LatencyRecorder appendToCommit = new LatencyRecorder();
+            LatencyRecorder commitToFeed = new LatencyRecorder();
+            LatencyRecorder feedToData = new LatencyRecorder();
+            LatencyRecorder endToEnd = new LatencyRecorder();
+
+            long endNanos = scheduledNanos[totalTxns - 1];
+
+            for (int i = warmupTxns; i < totalTxns; i++) {
+                if (committedNanos[i] != 0L) {
+                    appendToCommit.record(committedNanos[i] - scheduledNanos[i]);
+                    // The consumer may see the transaction before the producer sees the completion
+                    commitToFeed.record(Math.max(0L, fedNanos[i] - committedNanos[i]));
+                    feedToData.record(fetchedNanos[i] - fedNanos[i]);
+                    endToEnd.record(fetchedNanos[i] - scheduledNanos[i]);
+                    endNanos = Math.max(endNanos, fetchedNanos[i]);
+                }
+            }
+
+            double secs = (endNanos - scheduledNanos[warmupTxns]) / NANOS_IN_SECOND;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("partitions=%d txn-size=%d rate=%d/sec producers=%d replicas=%d slow-replica-fsync-delay-ms=%d%n",
+                numPartitions, txnSize, rate, numProducers, numReplicas, slowReplicaFsyncDelayMs));
+            sb.append(String.format("  %d transactions in %.2f secs, transactions/sec=%.1f MB/sec=%.3f failures=%d%n",
+                numTxns, secs, numTxns / secs, (double) numTxns * txnSize / BYTES_IN_MEGABYTE / secs, numFailures.get()));
+            sb.append(String.format("  append-to-commit: %s%n", appendToCommit.summary()));
+            sb.append(String.format("  commit-to-feed:   %s%n", commitToFeed.summary()));
+            sb.append(String.format("  feed-to-data:     %s%n", feedToData.summary()));
+            sb.append(String.format("  end-to-end:       %s", endToEnd.summary()));
+            System.out.println(sb);
+        }
+
+        /**
+         * Submits every {@code numProducers}-th transaction at its scheduled time without waiting for completions.
+         */
+        private final class Producer implements Runnable {
+
+            private final WaltzClient client;
+            private final int producerIndex;
+
+            Producer(WaltzClient client, int producerIndex) {
+                this.client = client;
+                this.producerIndex = producerIndex;
+            }
+
+            @Override
+            public void run() {
+                for (int i = producerIndex; i < totalTxns; i += numProducers) {
+                    final int index = i;
+                    final long scheduled = startNanos + intervalNanos * index;
+
+                    long now = System.nanoTime();
+                    while (now < scheduled) {
+                        LockSupport.parkNanos(scheduled - now);
+                        now = System.nanoTime();
+                    }
+                    scheduledNanos[index] = scheduled;
+
+                    client.submitAsync(new BenchmarkTxnContext(index)).whenComplete((success, exception) -> {
+                        if (exception != null || !success) {
+                            // The transaction never reaches the consumer
+                            numFailures.incrementAndGet();
+                            allFetched.countDown();
+                        } else {
+                            committedNanos[index] = System.nanoTime();
+                        }
+                        allCommitted.countDown();
+                    });
+                }
+            }
+
+        }
+
+        private final class BenchmarkTxnContext extends TransactionContext {
+
+            private final int index;
+
+            BenchmarkTxnContext(int index) {
+                this.index = index;
+            }
+
+            @Override
+            public int partitionId(int numPartitions) {
+                return index % numPartitions;
+            }
+
+            @Override
+            public boolean execute(TransactionBuilder builder) {
+                builder.setHeader(index);
+                builder.setTransactionData(data, ByteArraySerializer.INSTANCE);
+                return true;
+            }
+
+        }
+
+        /**
+         * Client callbacks which keep the client high-water marks. The consumer also records when transactions
+         * and their data arrive.
+         */
+        private final class Callbacks implements WaltzClientCallbacks {
+
+            private final boolean consumer;
+            private final Map<Integer, Long> clientHighWaterMarks = new ConcurrentHashMap<>();
+
+            Callbacks(boolean consumer) {
+                this.consumer = consumer;
+            }
+
+            @Override
+            public long getClientHighWaterMark(int partitionId) {
+                return clientHighWaterMarks.getOrDefault(partitionId, -1L);
+            }
+
+            @Override
+            public void applyTransaction(Transaction transaction) {
+                if (consumer) {
+                    int index = transaction.getHeader();
+                    fedNanos[index] = System.nanoTime();
+                    transaction.getTransactionData(ByteArraySerializer.INSTANCE);
+                    fetchedNanos[index] = System.nanoTime();
+                    allFetched.countDown();
+                }
+                clientHighWaterMarks.put(transaction.reqId.partitionId(), transaction.transactionId);
+            }
+
+            @Override
+            public void uncaughtException(int partitionId, long transactionId, Throwable exception) {
+                exception.printStackTrace();
+            }
+
+        }
+
+    }
+
+    private static final class ByteArraySerializer implements Serializer<byte[]> {
+
+        static final ByteArraySerializer INSTANCE = new ByteArraySerializer();
+
+        @Override
+        public byte[] serialize(byte[] data) {
+            return data;
+        }
+
+        @Override
+        public byte[] deserialize(byte[] bytes) {
+            return bytes;
+        }
+
+    }
+
+    public static void main(String[] args) {
+        new ClusterBenchmark(args).processCmd();
+    }
+
+}
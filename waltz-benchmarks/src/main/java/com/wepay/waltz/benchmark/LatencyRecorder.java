@@ -0,0 +1,114 @@
+package com.wepay.waltz.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records latencies of operations in nanoseconds and computes exact percentiles.
+ * All recorded values are kept, so this is meant for benchmark runs of a bounded number of operations.
+ * This class is thread-safe.
+ */
+public class LatencyRecorder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final double[] PERCENTILES = new double[] {50.0, 90.0, 99.0, 99.9};
+
+    private long[] latencies = new long[INITIAL_CAPACITY];
+    private int count = 0;
+    private boolean sorted = true;
+
+    /**
+     * Records a latency.
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        synchronized (this) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            sorted = false;
+        }
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     * @return the number of recorded latencies
+     */
+    public int count() {
+        synchronized (this) {
+            return count;
+        }
+    }
+
+    /**
+     * Returns the latency at the specified percentile.
+     * @param percentile the percentile (0.0 - 100.0)
+     * @return the latency in nanoseconds, or zero if nothing is recorded
+     */
+    public long percentile(double percentile) {
+        synchronized (this) {
+            if (count == 0) {
+                return 0L;
+            }
+            sort();
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return latencies[Math.max(0, Math.min(index, count - 1))];
+        }
+    }
+
+    /**
+     * Returns the max latency.
+     * @return the latency in nanoseconds, or zero if nothing is recorded
+     */
+    public long max() {
+        return percentile(100.0);
+    }
+
+    /**
+     * Returns the mean latency.
+     * @return the latency in nanoseconds, or zero if nothing is recorded
+     */
+    public double mean() {
+        synchronized (this) {
+            if (count == 0) {
+                return 0.0;
+            }
+            double sum = 0.0;
+            for (int i = 0; i < count; i++) {
+                sum += latencies[i];
+            }
+            return sum / count;
+        }
+    }
+
+    /**
+     * Returns a summary of the latency distribution in milliseconds.
+     * @return a summary string
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("mean=%.3fms", mean() / TimeUnit.MILLISECONDS.toNanos(1)));
+        for (double percentile : PERCENTILES) {
+            sb.append(String.format(" p%s=%.3fms", format(percentile), millis(percentile(percentile))));
+        }
+        sb.append(String.format(" max=%.3fms", millis(max())));
+        return sb.toString();
+    }
+
+    private void sort() {
+        if (!sorted) {
+            Arrays.sort(latencies, 0, count);
+            sorted = true;
+        }
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+
+    private static double millis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.wepay.waltz.common.message;
+
+import com.wepay.riff.message.ByteArrayMessageAttributeReader;
+import com.wepay.riff.message.ByteArrayMessageAttributeWriter;
+import com.wepay.riff.network.Message;
+import com.wepay.riff.network.MessageCodec;
+import com.wepay.waltz.common.util.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the client-server message codecs and the record serialization.
+ * Run with {@code -prof gc} to see the allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+    private static final MessageCodec[] CODECS = new MessageCodec[] {
+        MessageCodecV0.INSTANCE,
+        MessageCodecV1.INSTANCE,
+        MessageCodecV2.INSTANCE,
+        MessageCodecV3.INSTANCE,
+        MessageCodecV4.INSTANCE,
+        MessageCodecV5.INSTANCE,
+        MessageCodecV6.INSTANCE
+    };
+
+    @Param({"0", "4", "6"})
+    protected int codecVersion;
+
+    @Param({"64", "1024", "8192", "65536"})
+    protected int payloadSize;
+
+    private MessageCodec codec;
+    private AppendRequest appendRequest;
+    private FeedData feedData;
+    private TransactionDataResponse transactionDataResponse;
+    private Record record;
+    private RecordHeader recordHeader;
+
+    private byte[] encodedAppendRequest;
+    private byte[] encodedFeedData;
+    private byte[] encodedTransactionDataResponse;
+    private byte[] encodedRecord;
+    private byte[] encodedRecordHeader;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(payloadSize);
+        byte[] data = new byte[payloadSize];
+        random.nextBytes(data);
+        int checksum = Utils.checksum(data);
+        ReqId reqId = new ReqId(random.nextLong(), random.nextLong());
+        int[] locks = new int[] {random.nextInt(), random.nextInt()};
+
+        codec = CODECS[codecVersion];
+        appendRequest = new AppendRequest(reqId, random.nextInt(), locks, new int[0], new int[0], random.nextInt(), data, checksum);
+        feedData = new FeedData(reqId, random.nextInt(), random.nextInt());
+        transactionDataResponse = new TransactionDataResponse(reqId, random.nextInt(), data, checksum);
+        record = new Record(random.nextInt(), reqId, random.nextInt(), data, checksum);
+        recordHeader = new RecordHeader(record.transactionId, reqId, record.header);
+
+        encodedAppendRequest = encode(appendRequest).toByteArray();
+        encodedFeedData = encode(feedData).toByteArray();
+        encodedTransactionDataResponse = encode(transactionDataResponse).toByteArray();
+
+        ByteArrayMessageAttributeWriter writer = new ByteArrayMessageAttributeWriter();
+        record.writeTo(writer);
+        encodedRecord = writer.toByteArray();
+
+        writer = new ByteArrayMessageAttributeWriter();
+        recordHeader.writeTo(writer);
+        encodedRecordHeader = writer.toByteArray();
+    }
+
+    @Benchmark
+    public Object encodeAppendRequest() {
+        return encode(appendRequest);
+    }
+
+    @Benchmark
+    public Message decodeAppendRequest() {
+        return codec.decode(new ByteArrayMessageAttributeReader(encodedAppendRequest));
+    }
+
+    @Benchmark
+    public Object encodeFeedData() {
+        return encode(feedData);
+    }
+
+    @Benchmark
+    public Message decodeFeedData() {
+        return codec.decode(new ByteArrayMessageAttributeReader(encodedFeedData));
+    }
+
+    @Benchmark
+    public Object encodeTransactionDataResponse() {
+        return encode(transactionDataResponse);
+    }
+
+    @Benchmark
+    public Message decodeTransactionDataResponse() {
+        return codec.decode(new ByteArrayMessageAttributeReader(encodedTransactionDataResponse));
+    }
+
+    @Benchmark
+    public Object writeRecord() {
+        ByteArrayMessageAttributeWriter writer = new ByteArrayMessageAttributeWriter();
+        record.writeTo(writer);
+        return writer;
+    }
+
+    @Benchmark
+    public Record readRecord() {
+        return Record.readFrom(new ByteArrayMessageAttributeReader(encodedRecord));
+    }
+
+    @Benchmark
+    public Object writeRecordHeader() {
+        ByteArrayMessageAttributeWriter writer = new ByteArrayMessageAttributeWriter();
+        recordHeader.writeTo(writer);
+        return writer;
+    }
+
+    @Benchmark
+    public RecordHeader readRecordHeader() {
+        return RecordHeader.readFrom(new ByteArrayMessageAttributeReader(encodedRecordHeader));
+    }
+
+    private ByteArrayMessageAttributeWriter encode(Message message) {
+        ByteArrayMessageAttributeWriter writer = new ByteArrayMessageAttributeWriter();
+        codec.encode(message, writer);
+        return writer;
+    }
+
+}
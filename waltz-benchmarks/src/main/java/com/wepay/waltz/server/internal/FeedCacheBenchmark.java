@@ -0,0 +1,138 @@
+package com.wepay.waltz.server.internal;
+
+import com.wepay.waltz.common.message.FeedData;
+import com.wepay.waltz.common.message.ReqId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the feed cache. Each benchmark thread owns a partition, so contended variants measure the contention
+ * on the shared pool of {@link FeedCache}. Reads of recent transactions are served by the partition local pool,
+ * reads over the whole history go to the shared pool and may miss depending on {@code feedCacheSize}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedCacheBenchmark {
+
+    private static final int NUM_PREPOPULATED_TRANSACTIONS = 1000000;
+    private static final int RECENT_WINDOW = FeedCacheBlock.NUM_TRANSACTIONS;
+
+    @Param({"1048576", "67108864"})
+    protected int feedCacheSize;
+
+    private FeedCache feedCache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        feedCache = new FeedCache(feedCacheSize, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        feedCache.close();
+    }
+
+    /**
+     * A feed cache partition owned by a benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class PartitionState {
+
+        private final Random random = new Random(Thread.currentThread().getId());
+
+        private int partitionId;
+        private int sharedPoolPartitionId;
+        private FeedCachePartition partition;
+        private ReqId reqId;
+        private long nextTransactionId;
+
+        @Setup(Level.Trial)
+        public void setup(FeedCacheBenchmark benchmark, ThreadParams threadParams) {
+            partitionId = threadParams.getThreadIndex();
+            // Blocks of a partition which does not exist live only in the shared pool
+            sharedPoolPartitionId = -2 - partitionId;
+            partition = benchmark.feedCache.getPartition(partitionId);
+            reqId = new ReqId(1, 0, partitionId, 0);
+
+            for (nextTransactionId = 0; nextTransactionId < NUM_PREPOPULATED_TRANSACTIONS; nextTransactionId++) {
+                partition.add(nextTransactionId, reqId, 0);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            partition.close();
+        }
+
+        long recentTransactionId() {
+            return nextTransactionId - 1 - random.nextInt(RECENT_WINDOW);
+        }
+
+        long anyTransactionId() {
+            return (long) (random.nextDouble() * nextTransactionId);
+        }
+
+    }
+
+    @Benchmark
+    public long add(PartitionState state) {
+        long transactionId = state.nextTransactionId++;
+        state.partition.add(transactionId, state.reqId, 0);
+        return transactionId;
+    }
+
+    @Benchmark
+    public FeedData getRecent(PartitionState state) {
+        return state.partition.get(state.recentTransactionId());
+    }
+
+    @Benchmark
+    public FeedData getAny(PartitionState state) {
+        return state.partition.get(state.anyTransactionId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public FeedData getAnyContended(PartitionState state) {
+        return state.partition.get(state.anyTransactionId());
+    }
+
+    @Benchmark
+    public Object checkOut(PartitionState state) {
+        return checkOutAndIn(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object checkOutContended(PartitionState state) {
+        return checkOutAndIn(state);
+    }
+
+    private FeedCacheBlock checkOutAndIn(PartitionState state) {
+        FeedCacheBlockKey key = FeedCacheBlockKey.get(state.sharedPoolPartitionId, state.anyTransactionId());
+        FeedCacheBlock block = feedCache.checkOut(key);
+        feedCache.checkIn(key, block);
+        return block;
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.wepay.waltz.server.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks of the optimistic lock table. The contention is controlled by {@code lockSpace}, the number of distinct
+ * locks the requests are drawn from. A small lock space makes {@link Locks#begin(Locks.LockRequest)} fail often.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocksBenchmark {
+
+    private static final int NUM_HASH_FUNCS = 3;
+    private static final int NUM_REQUESTS = 1024;
+
+    @Param({"1000", "30000", "1000000"})
+    protected int lockTableSize;
+
+    @Param({"1", "8"})
+    protected int locksPerRequest;
+
+    @Param({"16", "1000000"})
+    protected int lockSpace;
+
+    private Locks locks;
+    private final AtomicLong transactionId = new AtomicLong(0L);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        locks = new Locks(lockTableSize, NUM_HASH_FUNCS, -1L);
+        transactionId.set(0L);
+    }
+
+    /**
+     * Pre-generated lock requests for each benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+
+        private Locks.LockRequest[] requests;
+        private int next = 0;
+
+        @Setup(Level.Trial)
+        public void setup(LocksBenchmark benchmark) {
+            Random random = new Random(Thread.currentThread().getId());
+
+            requests = new Locks.LockRequest[NUM_REQUESTS];
+            for (int i = 0; i < NUM_REQUESTS; i++) {
+                int[] writeLocks = new int[benchmark.locksPerRequest];
+                int[] readLocks = new int[benchmark.locksPerRequest];
+                for (int j = 0; j < benchmark.locksPerRequest; j++) {
+                    writeLocks[j] = random.nextInt(benchmark.lockSpace);
+                    readLocks[j] = random.nextInt(benchmark.lockSpace);
+                }
+                requests[i] = Locks.createRequest(writeLocks, readLocks, new int[0]);
+            }
+        }
+
+        Locks.LockRequest next() {
+            Locks.LockRequest request = requests[next];
+            next = (next + 1) % NUM_REQUESTS;
+            return request;
+        }
+
+    }
+
+    @Benchmark
+    public boolean beginCommitEnd(Requests requests) {
+        return beginCommitEnd(requests.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean beginCommitEndContended(Requests requests) {
+        return beginCommitEnd(requests.next());
+    }
+
+    @Benchmark
+    public long getLockHighWaterMark(Requests requests) {
+        return locks.getLockHighWaterMark(requests.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long getLockHighWaterMarkContended(Requests requests) {
+        return locks.getLockHighWaterMark(requests.next());
+    }
+
+    private boolean beginCommitEnd(Locks.LockRequest request) {
+        // Mimics the append path in Partition: check the lock high-water mark, acquire, commit and release
+        locks.getLockHighWaterMark(request);
+        if (locks.begin(request)) {
+            try {
+                locks.commit(request, transactionId.incrementAndGet());
+            } finally {
+                locks.end(request);
+            }
+            return true;
+        }
+        return false;
+    }
+
+}
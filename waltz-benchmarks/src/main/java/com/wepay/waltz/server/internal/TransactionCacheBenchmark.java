@@ -0,0 +1,106 @@
+package com.wepay.waltz.server.internal;
+
+import com.wepay.waltz.common.util.Utils;
+import com.wepay.waltz.server.WaltzServerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks of the transaction data cache. Reads are drawn from the most recent {@code NUM_HOT_TRANSACTIONS}
+ * transactions which are always in the cache, like transaction data requests from clients catching up with the feed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionCacheBenchmark {
+
+    private static final int PARTITION_ID = 0;
+    private static final int NUM_HOT_TRANSACTIONS = 256;
+
+    @Param({"128", "8192", "65536"})
+    protected int payloadSize;
+
+    @Param({"heap", "direct"})
+    protected String allocation;
+
+    private TransactionCache cache;
+    private TransactionData data;
+    private final AtomicLong highWaterMark = new AtomicLong(-1L);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int cacheSize = WaltzServerConfig.DEFAULT_TRANSACTION_DATA_CACHE_SIZE;
+        cache = new TransactionCache(cacheSize, cacheSize / 4, allocation.equals("direct"), null);
+
+        byte[] payload = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(payload);
+        data = new TransactionData(payload, Utils.checksum(payload));
+
+        highWaterMark.set(-1L);
+        for (int i = 0; i < NUM_HOT_TRANSACTIONS; i++) {
+            put();
+        }
+    }
+
+    /**
+     * Per-thread random source for choosing transactions to read.
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+
+        private final Random random = new Random(Thread.currentThread().getId());
+
+        long nextTransactionId(long highWaterMark) {
+            return highWaterMark - random.nextInt(NUM_HOT_TRANSACTIONS);
+        }
+
+    }
+
+    @Benchmark
+    public long put() {
+        long transactionId = highWaterMark.incrementAndGet();
+        cache.put(new TransactionKey(PARTITION_ID, transactionId), data);
+        return transactionId;
+    }
+
+    @Benchmark
+    public TransactionData get(Reader reader) {
+        return cache.get(new TransactionKey(PARTITION_ID, reader.nextTransactionId(highWaterMark.get())));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TransactionData getContended(Reader reader) {
+        return cache.get(new TransactionKey(PARTITION_ID, reader.nextTransactionId(highWaterMark.get())));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object putAndGetContended(Reader reader) {
+        // Mixed workload: one write for every four reads on average
+        if (reader.random.nextInt(4) == 0) {
+            return put();
+        } else {
+            return cache.get(new TransactionKey(PARTITION_ID, reader.nextTransactionId(highWaterMark.get())));
+        }
+    }
+
+}
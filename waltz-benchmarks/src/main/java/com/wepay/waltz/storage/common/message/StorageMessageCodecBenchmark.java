@@ -0,0 +1,132 @@
+package com.wepay.waltz.storage.common.message;
+
+import com.wepay.riff.message.ByteArrayMessageAttributeReader;
+import com.wepay.riff.message.ByteArrayMessageAttributeWriter;
+import com.wepay.riff.network.Message;
+import com.wepay.riff.network.MessageCodec;
+import com.wepay.waltz.common.message.Record;
+import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.common.util.Utils;
+import com.wepay.waltz.storage.common.message.admin.AdminMessageCodecV0;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the server-storage and admin message codecs for messages carrying records.
+ * Messages are created from record lists for each encode, like the server does.
+ * Run with {@code -prof gc} to see the allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageMessageCodecBenchmark {
+
+    private static final MessageCodec[] CODECS = new MessageCodec[] {
+        StorageMessageCodecV0.INSTANCE,
+        StorageMessageCodecV1.INSTANCE
+    };
+
+    private static final long SESSION_ID = 1L;
+    private static final int PARTITION_ID = 0;
+
+    @Param({"0", "1"})
+    protected int codecVersion;
+
+    @Param({"64", "1024", "8192"})
+    protected int payloadSize;
+
+    @Param({"1", "16", "256"})
+    protected int batchSize;
+
+    private MessageCodec codec;
+    private ArrayList<Record> records;
+    private long seqNum = 0L;
+
+    private byte[] encodedAppendRequest;
+    private byte[] encodedRecordListResponse;
+    private byte[] encodedAdminRecordListResponse;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(payloadSize);
+
+        codec = CODECS[codecVersion];
+        records = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            byte[] data = new byte[payloadSize];
+            random.nextBytes(data);
+            ReqId reqId = new ReqId(random.nextLong(), random.nextLong());
+            records.add(new Record(i, reqId, random.nextInt(), data, Utils.checksum(data)));
+        }
+
+        encodedAppendRequest = encode(codec, new AppendRequest(SESSION_ID, seqNum, PARTITION_ID, records)).toByteArray();
+        encodedRecordListResponse = encode(codec, new RecordListResponse(SESSION_ID, seqNum, PARTITION_ID, records)).toByteArray();
+        encodedAdminRecordListResponse = encode(
+            AdminMessageCodecV0.INSTANCE,
+            new com.wepay.waltz.storage.common.message.admin.RecordListResponse(seqNum, PARTITION_ID, records)
+        ).toByteArray();
+    }
+
+    @Benchmark
+    public Object encodeAppendRequest() {
+        return encode(codec, new AppendRequest(SESSION_ID, seqNum++, PARTITION_ID, records));
+    }
+
+    @Benchmark
+    public Message decodeAppendRequest() {
+        return codec.decode(new ByteArrayMessageAttributeReader(encodedAppendRequest));
+    }
+
+    @Benchmark
+    public ArrayList<Record> decodeAppendRequestRecords() {
+        // Includes the conversion of a record batch to records when the codec does not produce them directly
+        return ((AppendRequest) codec.decode(new ByteArrayMessageAttributeReader(encodedAppendRequest))).records();
+    }
+
+    @Benchmark
+    public Object encodeRecordListResponse() {
+        return encode(codec, new RecordListResponse(SESSION_ID, seqNum++, PARTITION_ID, records));
+    }
+
+    @Benchmark
+    public ArrayList<Record> decodeRecordListResponseRecords() {
+        return ((RecordListResponse) codec.decode(new ByteArrayMessageAttributeReader(encodedRecordListResponse))).records();
+    }
+
+    @Benchmark
+    public Object encodeAdminRecordListResponse() {
+        return encode(
+            AdminMessageCodecV0.INSTANCE,
+            new com.wepay.waltz.storage.common.message.admin.RecordListResponse(seqNum++, PARTITION_ID, records)
+        );
+    }
+
+    @Benchmark
+    public Message decodeAdminRecordListResponse() {
+        return AdminMessageCodecV0.INSTANCE.decode(new ByteArrayMessageAttributeReader(encodedAdminRecordListResponse));
+    }
+
+    private static ByteArrayMessageAttributeWriter encode(MessageCodec codec, Message message) {
+        ByteArrayMessageAttributeWriter writer = new ByteArrayMessageAttributeWriter();
+        codec.encode(message, writer);
+        return writer;
+    }
+
+}
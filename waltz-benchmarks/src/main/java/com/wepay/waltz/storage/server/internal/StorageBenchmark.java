@@ -0,0 +1,464 @@
+package com.wepay.waltz.storage.server.internal;
+
+import com.wepay.riff.metrics.core.MetricGroup;
+import com.wepay.riff.metrics.core.MetricRegistry;
+import com.wepay.riff.network.Message;
+import com.wepay.waltz.benchmark.LatencyRecorder;
+import com.wepay.waltz.common.message.Record;
+import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.common.util.Cli;
+import com.wepay.waltz.common.util.Utils;
+import com.wepay.waltz.exception.SubCommandFailedException;
+import com.wepay.waltz.storage.WaltzStorageConfig;
+import com.wepay.waltz.storage.common.message.AppendRequest;
+import com.wepay.waltz.storage.common.message.FailureResponse;
+import com.wepay.waltz.storage.common.message.MaxTransactionIdRequest;
+import com.wepay.waltz.storage.common.message.MaxTransactionIdResponse;
+import com.wepay.waltz.storage.common.message.RecordHeaderListRequest;
+import com.wepay.waltz.storage.common.message.RecordHeaderListResponse;
+import com.wepay.waltz.storage.common.message.RecordListRequest;
+import com.wepay.waltz.storage.common.message.RecordListResponse;
+import com.wepay.waltz.storage.common.message.RecordRequest;
+import com.wepay.waltz.storage.common.message.RecordResponse;
+import com.wepay.waltz.storage.common.message.SetLowWaterMarkRequest;
+import com.wepay.waltz.storage.common.message.StorageMessage;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A benchmark driver for the storage engine. It runs workloads directly against {@link Partition}s of a
+ * {@link StorageManager} in a local directory, bypassing the network, and reports throughput and latency percentiles.
+ * <ul>
+ *     <li>appends of record batches of varying sizes</li>
+ *     <li>random reads of single records</li>
+ *     <li>sequential reads of record lists</li>
+ *     <li>sequential reads of record header lists</li>
+ *     <li>appends with frequent segment roll-overs</li>
+ *     <li>recovery of a partition after an unclean shutdown</li>
+ * </ul>
+ * Fsyncs are the calls of {@code FileChannel.force()} on segment and index files, counted from the
+ * {@link SegmentMetrics} of the partition. Every append batch forces the segment file.
+ */
+public final class StorageBenchmark extends Cli {
+
+    private static final String NAME = "storage-benchmark";
+    private static final String DESCRIPTION = "Measures throughput and latency of the storage engine on local disk";
+
+    private static final int PARTITION_ID = 0;
+    private static final int NUM_PARTITIONS = 1;
+    private static final long SESSION_ID = 1L;
+    private static final long REQUEST_TIMEOUT_SECS = 60;
+    private static final double BYTES_IN_MEGABYTE = 1024 * 1024;
+    private static final double NANOS_IN_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final String METRICS_GROUP = String.format("%s.partition-%d", MetricGroup.WALTZ_STORAGE_METRIC_GROUP, PARTITION_ID);
+
+    private static final int DEFAULT_TXN_SIZE = 1024;
+    private static final int DEFAULT_NUM_TXNS = 100000;
+    private static final String DEFAULT_BATCH_SIZES = "1,16,256";
+    private static final int DEFAULT_NUM_READS = 10000;
+    private static final int DEFAULT_READ_BATCH_SIZE = 100;
+    private static final long DEFAULT_ROLL_OVER_SEGMENT_SIZE = 1024 * 1024;
+    private static final int DEFAULT_LOW_WATER_MARK_INTERVAL = 0;
+    private static final long DEFAULT_FSYNC_DELAY_MS = 0L;
+
+    private final UUID key = UUID.randomUUID();
+    private final Random random = new Random();
+    private final StorageFaultInjector faultInjector = new StorageFaultInjector();
+
+    private Path directory;
+    private int txnSize;
+    private int numTxns;
+    private int[] batchSizes;
+    private int numReads;
+    private int readBatchSize;
+    private long segmentSize;
+    private long rollOverSegmentSize;
+    private int lowWaterMarkInterval;
+    private byte[] data;
+    private int checksum;
+
+    private StorageBenchmark(String[] args) {
+        super(args);
+    }
+
+    @Override
+    protected void configureOptions(Options options) {
+        Option directoryOption = Option.builder("d")
+                .longOpt("directory")
+                .desc("Specify the directory to run the benchmark in. Default to a temporary directory which is deleted afterwards")
+                .hasArg()
+                .build();
+        Option txnSizeOption = Option.builder("s")
+                .longOpt("txn-size")
+                .desc(String.format("Specify size of each transaction. Default to %d", DEFAULT_TXN_SIZE))
+                .hasArg()
+                .build();
+        Option numTxnsOption = Option.builder("n")
+                .longOpt("num-txns")
+                .desc(String.format("Specify number of transactions to append in each append workload. Default to %d", DEFAULT_NUM_TXNS))
+                .hasArg()
+                .build();
+        Option batchSizesOption = Option.builder("b")
+                .longOpt("batch-sizes")
+                .desc(String.format("Specify comma separated numbers of transactions per append request. Default to %s", DEFAULT_BATCH_SIZES))
+                .hasArg()
+                .build();
+        Option numReadsOption = Option.builder("r")
+                .longOpt("num-reads")
+                .desc(String.format("Specify number of read requests in each read workload. Default to %d", DEFAULT_NUM_READS))
+                .hasArg()
+                .build();
+        Option readBatchSizeOption = Option.builder("rb")
+                .longOpt("read-batch-size")
+                .desc(String.format("Specify max number of records per list read request. Default to %d", DEFAULT_READ_BATCH_SIZE))
+                .hasArg()
+                .build();
+        Option segmentSizeOption = Option.builder("g")
+                .longOpt("segment-size")
+                .desc(String.format("Specify segment size threshold. Default to %d", WaltzStorageConfig.DEFAULT_SEGMENT_SIZE_THRESHOLD))
+                .hasArg()
+                .build();
+        Option rollOverSegmentSizeOption = Option.builder("rg")
+                .longOpt("roll-over-segment-size")
+                .desc(String.format("Specify segment size threshold of the roll-over workload. Default to %d", DEFAULT_ROLL_OVER_SEGMENT_SIZE))
+                .hasArg()
+                .build();
+        Option lowWaterMarkIntervalOption = Option.builder("l")
+                .longOpt("low-water-mark-interval")
+                .desc(String.format("Specify number of append requests between low-water mark updates, which add forces of segments."
+                        + " No updates when 0. Default to %d", DEFAULT_LOW_WATER_MARK_INTERVAL))
+                .hasArg()
+                .build();
+        Option fsyncDelayOption = Option.builder("fd")
+                .longOpt("fsync-delay-ms")
+                .desc(String.format("Specify delay in milliseconds added to every fsync to emulate a slow disk. Default to %d", DEFAULT_FSYNC_DELAY_MS))
+                .hasArg()
+                .build();
+
+        options.addOption(directoryOption);
+        options.addOption(txnSizeOption);
+        options.addOption(numTxnsOption);
+        options.addOption(batchSizesOption);
+        options.addOption(numReadsOption);
+        options.addOption(readBatchSizeOption);
+        options.addOption(segmentSizeOption);
+        options.addOption(rollOverSegmentSizeOption);
+        options.addOption(lowWaterMarkIntervalOption);
+        options.addOption(fsyncDelayOption);
+    }
+
+    @Override
+    protected void processCmd(CommandLine cmd) throws SubCommandFailedException {
+        try {
+            directory = cmd.hasOption("directory") ? Paths.get(cmd.getOptionValue("directory")) : null;
+            txnSize = positive(cmd, "txn-size", DEFAULT_TXN_SIZE);
+            numTxns = positive(cmd, "num-txns", DEFAULT_NUM_TXNS);
+            batchSizes = Arrays.stream(cmd.getOptionValue("batch-sizes", DEFAULT_BATCH_SIZES).split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim()))
+                .toArray();
+            if (Arrays.stream(batchSizes).anyMatch(n -> n <= 0)) {
+                throw new IllegalArgumentException("batch-sizes must be greater than 0");
+            }
+            numReads = positive(cmd, "num-reads", DEFAULT_NUM_READS);
+            readBatchSize = positive(cmd, "read-batch-size", DEFAULT_READ_BATCH_SIZE);
+            segmentSize = Long.parseLong(cmd.getOptionValue("segment-size", Long.toString(WaltzStorageConfig.DEFAULT_SEGMENT_SIZE_THRESHOLD)));
+            rollOverSegmentSize = Long.parseLong(cmd.getOptionValue("roll-over-segment-size", Long.toString(DEFAULT_ROLL_OVER_SEGMENT_SIZE)));
+            lowWaterMarkInterval = Integer.parseInt(cmd.getOptionValue("low-water-mark-interval", Integer.toString(DEFAULT_LOW_WATER_MARK_INTERVAL)));
+            if (lowWaterMarkInterval < 0) {
+                throw new IllegalArgumentException("Found negative: low-water-mark-interval must be greater or equals to 0");
+            }
+            long fsyncDelayMs = Long.parseLong(cmd.getOptionValue("fsync-delay-ms", Long.toString(DEFAULT_FSYNC_DELAY_MS)));
+            if (fsyncDelayMs < 0) {
+                throw new IllegalArgumentException("Found negative: fsync-delay-ms must be greater or equals to 0");
+            }
+            faultInjector.setFsyncDelay(fsyncDelayMs, TimeUnit.MILLISECONDS);
+
+            data = new byte[txnSize];
+            random.nextBytes(data);
+            checksum = Utils.checksum(data);
+
+            Path root = directory != null ? Files.createDirectories(directory) : Files.createTempDirectory("waltz-storage-benchmark-");
+            try {
+                Path dataDir = null;
+                for (int batchSize : batchSizes) {
+                    dataDir = root.resolve("append-" + batchSize);
+                    runAppends("append batch-size=" + batchSize, dataDir, segmentSize, batchSize);
+                }
+
+                runRandomRecordReads(dataDir);
+                runRecordListReads(dataDir);
+                runRecordHeaderListReads(dataDir);
+
+                Path rollOverDir = root.resolve("roll-over");
+                runAppends("roll-over segment-size=" + rollOverSegmentSize, rollOverDir, rollOverSegmentSize, batchSizes[batchSizes.length - 1]);
+                runRecovery(rollOverDir, rollOverSegmentSize);
+
+            } finally {
+                if (directory == null) {
+                    Utils.removeDirectory(root.toFile());
+                }
+            }
+        } catch (Exception e) {
+            throw new SubCommandFailedException(String.format("Failed to run storage benchmark: %s", e.getMessage()));
+        }
+    }
+
+    @Override
+    protected String getUsage() {
+        return buildUsage(NAME, DESCRIPTION, getOptions());
+    }
+
+    private void runAppends(String name, Path dir, long segmentSizeThreshold, int batchSize) throws Exception {
+        LatencyRecorder latencies = new LatencyRecorder();
+
+        try (BenchmarkStorage storage = new BenchmarkStorage(dir, segmentSizeThreshold)) {
+            long transactionId = 0;
+            long startFsyncs = numFsyncs();
+            long start = System.nanoTime();
+
+            while (transactionId < numTxns) {
+                ArrayList<Record> records = makeRecords(transactionId, (int) Math.min(batchSize, numTxns - transactionId));
+
+                long requestStart = System.nanoTime();
+                storage.call(new AppendRequest(SESSION_ID, storage.nextSeqNum(), PARTITION_ID, records));
+                latencies.record(System.nanoTime() - requestStart);
+
+                transactionId += records.size();
+
+                if (lowWaterMarkInterval > 0 && latencies.count() % lowWaterMarkInterval == 0) {
+                    storage.call(new SetLowWaterMarkRequest(SESSION_ID, storage.nextSeqNum(), PARTITION_ID, transactionId - 1));
+                }
+            }
+
+            long elapsed = System.nanoTime() - start;
+            long numSegments = storage.numSegments();
+            long numFsyncs = numFsyncs() - startFsyncs;
+
+            report(name, numTxns, latencies, (long) numTxns * txnSize, elapsed);
+            System.out.println(String.format(
+                "  fsyncs/sec=%.2f fsyncs/append=%.2f segments=%d",
+                numFsyncs * NANOS_IN_SECOND / elapsed, (double) numFsyncs / latencies.count(), numSegments
+            ));
+        }
+    }
+
+    // The number of forces of segment and index files of the partition so far
+    private static long numFsyncs() {
+        MetricRegistry registry = MetricRegistry.getInstance();
+        return registry.histogram(METRICS_GROUP, SegmentMetrics.SEGMENT_FORCE_LATENCY).getCount()
+            + registry.histogram(METRICS_GROUP, SegmentMetrics.INDEX_FORCE_LATENCY).getCount();
+    }
+
+    private void runRandomRecordReads(Path dir) throws Exception {
+        LatencyRecorder latencies = new LatencyRecorder();
+        long numBytes = 0;
+
+        try (BenchmarkStorage storage = new BenchmarkStorage(dir, segmentSize)) {
+            long start = System.nanoTime();
+
+            for (int i = 0; i < numReads; i++) {
+                long transactionId = (long) (random.nextDouble() * numTxns);
+
+                long requestStart = System.nanoTime();
+                RecordResponse response = (RecordResponse) storage.call(
+                    new RecordRequest(SESSION_ID, storage.nextSeqNum(), PARTITION_ID, transactionId)
+                );
+                latencies.record(System.nanoTime() - requestStart);
+
+                numBytes += response.record.data.length;
+            }
+
+            report("random getRecord", numReads, latencies, numBytes, System.nanoTime() - start);
+        }
+    }
+
+    private void runRecordListReads(Path dir) throws Exception {
+        LatencyRecorder latencies = new LatencyRecorder();
+        long numRecords = 0;
+        long numBytes = 0;
+
+        try (BenchmarkStorage storage = new BenchmarkStorage(dir, segmentSize)) {
+            long start = System.nanoTime();
+
+            for (int i = 0; i < numReads; i++) {
+                long transactionId = ((long) i * readBatchSize) % numTxns;
+
+                long requestStart = System.nanoTime();
+                RecordListResponse response = (RecordListResponse) storage.call(
+                    new RecordListRequest(SESSION_ID, storage.nextSeqNum(), PARTITION_ID, transactionId, readBatchSize)
+                );
+                latencies.record(System.nanoTime() - requestStart);
+
+                numRecords += response.recordBatch().numRecords();
+                numBytes += response.recordBatch().bytes().length;
+            }
+
+            report("sequential getRecords batch-size=" + readBatchSize, numRecords, latencies, numBytes, System.nanoTime() - start);
+        }
+    }
+
+    private void runRecordHeaderListReads(Path dir) throws Exception {
+        LatencyRecorder latencies = new LatencyRecorder();
+        long numRecordHeaders = 0;
+
+        try (BenchmarkStorage storage = new BenchmarkStorage(dir, segmentSize)) {
+            long start = System.nanoTime();
+
+            for (int i = 0; i < numReads; i++) {
+                long transactionId = ((long) i * readBatchSize) % numTxns;
+
+                long requestStart = System.nanoTime();
+                RecordHeaderListResponse response = (RecordHeaderListResponse) storage.call(
+                    new RecordHeaderListRequest(SESSION_ID, storage.nextSeqNum(), PARTITION_ID, transactionId, readBatchSize)
+                );
+                latencies.record(System.nanoTime() - requestStart);
+
+                numRecordHeaders += response.recordHeaders.size();
+            }
+
+            report("sequential getRecordHeaders batch-size=" + readBatchSize, numRecordHeaders, latencies, 0L, System.nanoTime() - start);
+        }
+    }
+
+    private void runRecovery(Path dir, long segmentSizeThreshold) throws Exception {
+        // Simulate a torn write at the end of the last segment
+        Path lastSegment;
+        try (Stream<Path> stream = Files.list(dir.resolve(Integer.toString(PARTITION_ID)))) {
+            lastSegment = stream.filter(path -> path.toString().endsWith(".seg")).max(Path::compareTo).orElse(null);
+        }
+        if (lastSegment == null) {
+            throw new IllegalStateException("no segment found: " + dir);
+        }
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(data, 0, Math.max(1, txnSize / 2)));
+        }
+
+        long start = System.nanoTime();
+        try (BenchmarkStorage storage = new BenchmarkStorage(dir, segmentSizeThreshold)) {
+            long elapsed = System.nanoTime() - start;
+
+            MaxTransactionIdResponse response = (MaxTransactionIdResponse) storage.call(
+                new MaxTransactionIdRequest(SESSION_ID, storage.nextSeqNum(), PARTITION_ID)
+            );
+            if (response.transactionId != numTxns - 1) {
+                throw new IllegalStateException("unexpected max transaction id after recovery: " + response.transactionId);
+            }
+
+            System.out.println(String.format(
+                "recover: %.3f secs segments=%d transactions=%d", elapsed / NANOS_IN_SECOND, storage.numSegments(), numTxns
+            ));
+        }
+    }
+
+    private void report(String name, long numOps, LatencyRecorder latencies, long numBytes, long elapsed) {
+        double secs = elapsed / NANOS_IN_SECOND;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s: %d ops in %d requests, %.3f secs%n", name, numOps, latencies.count(), secs));
+        sb.append(String.format("  ops/sec=%.1f requests/sec=%.1f MB/sec=%.3f%n", numOps / secs, latencies.count() / secs, numBytes / BYTES_IN_MEGABYTE / secs));
+        sb.append(String.format("  latency: %s", latencies.summary()));
+        System.out.println(sb);
+    }
+
+    private ArrayList<Record> makeRecords(long firstTransactionId, int numRecords) {
+        ArrayList<Record> records = new ArrayList<>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            long transactionId = firstTransactionId + i;
+            records.add(new Record(transactionId, new ReqId(random.nextLong(), random.nextLong()), 0, data, checksum));
+        }
+        return records;
+    }
+
+    private static int positive(CommandLine cmd, String name, int defaultValue) {
+        int value = Integer.parseInt(cmd.getOptionValue(name, Integer.toString(defaultValue)));
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be greater than 0");
+        }
+        return value;
+    }
+
+    /**
+     * A storage directory with a single assigned partition. Requests are sent directly to the partition.
+     */
+    private final class BenchmarkStorage implements PartitionClient, AutoCloseable {
+
+        private final Path dir;
+        private final StorageManager storageManager;
+        private final Partition partition;
+        private final Map<Long, CompletableFuture<Message>> pendingRequests = new ConcurrentHashMap<>();
+
+        private long seqNum = 0;
+
+        BenchmarkStorage(Path dir, long segmentSizeThreshold) throws Exception {
+            this.dir = Files.createDirectories(dir);
+            this.storageManager = new StorageManager(
+                dir.toString(), segmentSizeThreshold, NUM_PARTITIONS, key, WaltzStorageConfig.DEFAULT_STORAGE_SEGMENT_CACHE_CAPACITY, faultInjector
+            );
+            this.storageManager.open(key, NUM_PARTITIONS);
+            this.storageManager.setPartitionAssignment(Collections.singletonList(PARTITION_ID), true, false);
+            this.storageManager.setPartitionAvailable(Collections.singletonList(PARTITION_ID), true);
+            this.partition = storageManager.getPartition(PARTITION_ID);
+        }
+
+        long nextSeqNum() {
+            return seqNum++;
+        }
+
+        Message call(StorageMessage request) throws Exception {
+            CompletableFuture<Message> future = new CompletableFuture<>();
+            pendingRequests.put(request.seqNum, future);
+            partition.receiveMessage(request, this);
+
+            Message response = future.get(REQUEST_TIMEOUT_SECS, TimeUnit.SECONDS);
+            if (response instanceof FailureResponse) {
+                throw new IllegalStateException("request failed: type=" + request.type(), ((FailureResponse) response).exception);
+            }
+            return response;
+        }
+
+        long numSegments() throws IOException {
+            try (Stream<Path> stream = Files.list(dir.resolve(Integer.toString(PARTITION_ID)))) {
+                return stream.filter(path -> path.toString().endsWith(".seg")).count();
+            }
+        }
+
+        @Override
+        public boolean sendMessage(Message msg, boolean flush) {
+            CompletableFuture<Message> future = pendingRequests.remove(((StorageMessage) msg).seqNum);
+            if (future != null) {
+                future.complete(msg);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            storageManager.close();
+        }
+
+    }
+
+    public static void main(String[] args) {
+        new StorageBenchmark(args).processCmd();
+    }
+
+}
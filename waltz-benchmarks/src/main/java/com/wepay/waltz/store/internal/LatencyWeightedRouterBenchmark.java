@@ -0,0 +1,96 @@
+package com.wepay.waltz.store.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the latency weighted router which chooses a replica to read transaction data from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyWeightedRouterBenchmark {
+
+    @Param({"1", "3", "5"})
+    protected int numRoutes;
+
+    private LatencyWeightedRouter<Route> router;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<Route> routes = new ArrayList<>();
+        for (int i = 0; i < numRoutes; i++) {
+            routes.add(new Route());
+        }
+        router = new LatencyWeightedRouter<>(routes);
+    }
+
+    /**
+     * Per-thread random source for simulated latencies.
+     */
+    @State(Scope.Thread)
+    public static class Latencies {
+
+        private final Random random = new Random(Thread.currentThread().getId());
+
+        long next() {
+            return 1L + random.nextInt((int) LatencyWeightedRouter.DEFAULT_LATENCY * 2);
+        }
+
+    }
+
+    @Benchmark
+    public Object getRoute() {
+        return router.getRoute();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object getRouteContended() {
+        return router.getRoute();
+    }
+
+    @Benchmark
+    public Object getRouteAndUpdateLatency(Latencies latencies) {
+        Route route = router.getRoute();
+        route.updateExpectedLatency(latencies.next());
+        return route;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object getRouteAndUpdateLatencyContended(Latencies latencies) {
+        Route route = router.getRoute();
+        route.updateExpectedLatency(latencies.next());
+        return route;
+    }
+
+    private static final class Route extends LatencyWeightedRoute {
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+    }
+
+}
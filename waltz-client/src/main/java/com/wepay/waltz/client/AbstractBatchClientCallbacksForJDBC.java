@@ -0,0 +1,36 @@
+package com.wepay.waltz.client;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * A variant of {@link AbstractClientCallbacksForJDBC} which applies a batch of consecutive transactions of a partition
+ * in a single database transaction with a single high-water mark update (group commit).
+ * This reduces the number of database commits when the application is bound by the commit latency.
+ * The batch size is controlled by {@link WaltzClientConfig#MAX_APPLY_BATCH_SIZE} and {@link WaltzClientConfig#APPLY_BATCH_LINGER_TIME}.
+ * The client database must have the same high-water mark table as {@link AbstractClientCallbacksForJDBC}.
+ */
+public abstract class AbstractBatchClientCallbacksForJDBC extends AbstractClientCallbacksForJDBC implements WaltzBatchClientCallbacks {
+
+    /**
+     * Class Constructor.
+     *
+     * @param dataSource the {@link DataSource} to communicate with the underlying Sql database.
+     * @param clientHighWaterMarkTableName the client high-water mark table name.
+     */
+    public AbstractBatchClientCallbacksForJDBC(DataSource dataSource, String clientHighWaterMarkTableName) {
+        super(dataSource, clientHighWaterMarkTableName);
+    }
+
+    /**
+     * Applies the transactions in a single database transaction. If the database transaction fails,
+     * the transactions are applied one by one to isolate the failing transaction.
+     *
+     * @param transactions the committed transactions.
+     */
+    @Override
+    public void applyTransactions(List<Transaction> transactions) {
+        applyTransactionGroup(transactions);
+    }
+
+}
@@ -21,6 +21,7 @@ import java.sql.SQLXML;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Struct;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
@@ -54,6 +55,11 @@ public abstract class AbstractClientCallbacksForJDBC implements WaltzClientCallb
         "UPDATE %s SET HIGH_WATER_MARK = HIGH_WATER_MARK + 1 "
             + "WHERE PARTITION_ID = ? AND HIGH_WATER_MARK = ?";
 
+    // Sets the specified partition's high-water mark only when we are at the expected high-water mark
+    private static final String SET_HIGH_WATER_MARK =
+        "UPDATE %s SET HIGH_WATER_MARK = ? "
+            + "WHERE PARTITION_ID = ? AND HIGH_WATER_MARK = ?";
+
     // Insert the specified partition's initial high-water mark (-1L) to the table
     private static final String INSERT_HIGH_WATER_MARK =
         "INSERT INTO %s (PARTITION_ID, HIGH_WATER_MARK) VALUES (?, -1)";
@@ -62,6 +68,7 @@ public abstract class AbstractClientCallbacksForJDBC implements WaltzClientCallb
 
     private final String selectHighWaterMark;
     private final String updateHighWaterMark;
+    private final String setHighWaterMark;
     private final String insertHighWaterMark;
 
     private final ConcurrentHashMap<Integer, HighWaterMark> highWaterMarkCache = new ConcurrentHashMap<>();
@@ -78,6 +85,7 @@ public abstract class AbstractClientCallbacksForJDBC implements WaltzClientCallb
 
         this.selectHighWaterMark = String.format(SELECT_HIGH_WATER_MARK, clientHighWaterMarkTableName);
         this.updateHighWaterMark = String.format(UPDATE_HIGH_WATER_MARK, clientHighWaterMarkTableName);
+        this.setHighWaterMark = String.format(SET_HIGH_WATER_MARK, clientHighWaterMarkTableName);
         this.insertHighWaterMark = String.format(INSERT_HIGH_WATER_MARK, clientHighWaterMarkTableName);
     }
 
@@ -209,6 +217,100 @@ public abstract class AbstractClientCallbacksForJDBC implements WaltzClientCallb
         }
     }
 
+    /**
+     * Applies a run of consecutive transactions of a partition in a single database transaction with
+     * {@link Connection#TRANSACTION_SERIALIZABLE} isolation and autoCommit as false:
+     *      1. Calls {@link #applyTransaction(Transaction, Connection)} for each transaction not applied yet.
+     *      2. Updates the high-water mark once to the last transaction id.
+     *
+     * Transaction data of the run are prefetched before the database transaction begins.
+     * If the database transaction fails, it is rolled back and the transactions are applied one by one
+     * using {@link #applyTransaction(Transaction)} to isolate the failing transaction.
+     *
+     * @param transactions the committed transactions in ascending order of transaction ids.
+     */
+    void applyTransactionGroup(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+
+        final int partitionId = transactions.get(0).reqId.partitionId();
+        final long firstTransactionId = transactions.get(0).transactionId;
+        final long lastTransactionId = firstTransactionId + transactions.size() - 1;
+
+        final HighWaterMark highWaterMark = highWaterMarkCache.get(partitionId);
+
+        for (Transaction transaction : transactions) {
+            transaction.prefetchTransactionData();
+        }
+
+        synchronized (highWaterMark) {
+            while (firstTransactionId - 1 <= highWaterMark.get() && highWaterMark.get() < lastTransactionId) {
+                // Skip transactions already applied (by some other process)
+                List<Transaction> run = transactions.subList((int) (highWaterMark.get() + 1 - firstTransactionId), transactions.size());
+
+                try {
+                    Connection connection = dataSource.getConnection();
+                    try {
+                        connection.setAutoCommit(false);
+                        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+
+                        PreparedStatement stmt = connection.prepareStatement(setHighWaterMark);
+                        try {
+                            stmt.setLong(1, lastTransactionId);
+                            stmt.setInt(2, partitionId);
+                            stmt.setLong(3, highWaterMark.get());
+                            stmt.execute();
+
+                            if (stmt.getUpdateCount() == 1) {
+                                // Successfully updated the partition's high-water mark. We are holding the write lock.
+                                // Apply the transactions.
+                                Connection wrapper = new ConnectionWrapper(connection);
+                                for (Transaction transaction : run) {
+                                    applyTransaction(transaction, wrapper);
+                                }
+                                connection.commit();
+
+                                // Update the high-water mark cache
+                                highWaterMark.trySet(lastTransactionId);
+
+                            } else {
+                                // Some transactions were applied by some other process.
+                                // Read the high-water mark from database and update the cache.
+                                selectHighWaterMark(partitionId, connection);
+                                connection.commit();
+                            }
+
+                        } finally {
+                            closeSafely(stmt);
+                        }
+
+                    } catch (Throwable ex) {
+                        try {
+                            connection.rollback();
+                        } catch (SQLException rollbackerror) {
+                            logger.debug("failed to rollback", rollbackerror);
+                        }
+                        throw ex;
+
+                    } finally {
+                        closeSafely(connection);
+                    }
+
+                } catch (Throwable ex) {
+                    logger.debug("failed to apply transactions in a group, applying one by one: partitionId=" + partitionId, ex);
+
+                    // Fall back to per-transaction application. A failing transaction throws an exception here
+                    // after preceding transactions are committed.
+                    for (Transaction transaction : run) {
+                        applyTransaction(transaction);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
     private void insert(int partitionId, Connection connection) throws SQLException {
         PreparedStatement stmt = connection.prepareStatement(insertHighWaterMark);
         try {
@@ -0,0 +1,40 @@
+package com.wepay.waltz.client;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An interface for converting objects to bytes and vice-versa through {@link ByteBuffer}s.
+ * Unlike {@link Serializer}, the serializer writes into the heap buffer which becomes the transaction payload,
+ * and the de-serializer reads from a read-only view of the received payload, so the serializer does not create
+ * intermediate arrays. This is not zero-copy: the payload is still copied to and from the network buffers.
+ *
+ * @param <T> Type to be serialized from/de-serialized to.
+ */
+public interface BufferSerializer<T> {
+
+    /**
+     * Returns the number of bytes {@link #serialize(Object, ByteBuffer)} writes for {@code data}.
+     * An upper bound is allowed, but an exact size avoids copying the payload.
+     *
+     * @param data the typed data to serialize.
+     * @return the serialized size in bytes.
+     */
+    int serializedSize(T data);
+
+    /**
+     * Writes {@code data} into {@code buffer} starting at the current position of the buffer.
+     *
+     * @param data the typed data to serialize.
+     * @param buffer the buffer to write to.
+     */
+    void serialize(T data, ByteBuffer buffer);
+
+    /**
+     * Converts the remaining bytes of {@code buffer} to an object of type {@code T}.
+     *
+     * @param buffer a read-only buffer to de-serialize.
+     * @return the de-serialized object of type {@code T}.
+     */
+    T deserialize(ByteBuffer buffer);
+
+}
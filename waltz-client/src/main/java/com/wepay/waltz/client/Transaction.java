@@ -4,11 +4,19 @@ import com.wepay.riff.util.Logging;
 import com.wepay.waltz.client.internal.RpcClient;
 import com.wepay.waltz.common.message.ReqId;
 import com.wepay.waltz.common.util.BackoffTimer;
+import com.wepay.waltz.common.util.DaemonThreadFactory;
 import com.wepay.waltz.exception.PartitionNotFoundException;
 import com.wepay.waltz.exception.RpcException;
 import org.slf4j.Logger;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * A class that represents a committed transaction.
@@ -25,6 +33,9 @@ public class Transaction {
 
     private final RpcClient rpcClient;
     private final int header;
+    private final Executor executor;
+
+    private volatile Future<byte[]> prefetched = null;
 
     /**
      * Class Constructor.
@@ -35,10 +46,40 @@ public class Transaction {
      * @param rpcClient a {@code RpcClient} instance which will be used to get transaction data from a Waltz server over the network.
      */
     public Transaction(long transactionId, int header, ReqId reqId, RpcClient rpcClient) {
+        this(transactionId, header, reqId, rpcClient, null);
+    }
+
+    /**
+     * Class Constructor.
+     *
+     * @param transactionId the id of the transaction.
+     * @param header the header of the transaction.
+     * @param reqId the req Id of the transaction.
+     * @param rpcClient a {@code RpcClient} instance which will be used to get transaction data from a Waltz server over the network.
+     * @param prefetched a {@code Future} of the transaction data already requested, or {@code null}.
+     */
+    public Transaction(long transactionId, int header, ReqId reqId, RpcClient rpcClient, Future<byte[]> prefetched) {
+        this(transactionId, header, reqId, rpcClient, prefetched, null);
+    }
+
+    /**
+     * Class Constructor.
+     *
+     * @param transactionId the id of the transaction.
+     * @param header the header of the transaction.
+     * @param reqId the req Id of the transaction.
+     * @param rpcClient a {@code RpcClient} instance which will be used to get transaction data from a Waltz server over the network.
+     * @param prefetched a {@code Future} of the transaction data already requested, or {@code null}.
+     * @param executor the {@code Executor} which de-serializes and retries asynchronous retrievals of the transaction data,
+     *                 or {@code null} to use a shared background thread pool.
+     */
+    public Transaction(long transactionId, int header, ReqId reqId, RpcClient rpcClient, Future<byte[]> prefetched, Executor executor) {
         this.reqId = reqId;
         this.transactionId = transactionId;
         this.header = header;
         this.rpcClient = rpcClient;
+        this.prefetched = prefetched;
+        this.executor = executor != null ? executor : DefaultExecutor.INSTANCE;
     }
 
     /**
@@ -48,6 +89,23 @@ public class Transaction {
         return header;
     }
 
+    /**
+     * Starts retrieving the transaction data from a Waltz server without waiting for it.
+     * A subsequent call of {@link #getTransactionData(Serializer)} uses the retrieved data.
+     * This allows an application to overlap network round trips when it processes multiple transactions at once.
+     */
+    public void prefetchTransactionData() {
+        if (prefetched == null && rpcClient != null) {
+            try {
+                prefetched = rpcClient.getTransactionData(reqId.partitionId(), transactionId);
+
+            } catch (PartitionNotFoundException ex) {
+                // Ignore. The data will be fetched by getTransactionData.
+                logger.debug("failed to prefetch transaction data", ex);
+            }
+        }
+    }
+
     /**
      * Returns the transaction data. This call retrieves the transaction data from a Waltz server over the network.
      *
@@ -61,6 +119,93 @@ public class Transaction {
         return getTransactionData(serializer, INITIAL_RETRY_INTERVAL, MAX_RETRY_INTERVAL);
     }
 
+    /**
+     * Returns the transaction data. This call retrieves the transaction data from a Waltz server over the network.
+     * The serializer reads from a read-only view of the received data instead of a copy of it.
+     *
+     * @param serializer the serializer for decoding the transaction data.
+     * @param <T> the type of the object to de-serialize to.
+     * @return the transaction data.
+     * @throws WaltzClientRuntimeException will be thrown when Waltz client failed to fetch the transaction data.
+     *                                     This exception should not be caught by an application code in general.
+     */
+    public <T> T getTransactionData(BufferSerializer<T> serializer) {
+        return fetchTransactionData(data -> deserialize(data, serializer), INITIAL_RETRY_INTERVAL, MAX_RETRY_INTERVAL);
+    }
+
+    /**
+     * Returns the transaction data asynchronously. Unlike {@link #getTransactionData(Serializer)}, this call does not
+     * block the calling thread while the transaction data is retrieved from a Waltz server.
+     * The data is de-serialized in the executor of the client, not in a network thread. If the retrieval fails with
+     * a retriable error, it is retried with backoff in the same executor.
+     *
+     * @param serializer the serializer for decoding the transaction data.
+     * @param <T> the type of the object to de-serialize to.
+     * @return a {@link CompletableFuture} which completes with the transaction data, or exceptionally with
+     *         {@link WaltzClientRuntimeException} when Waltz client failed to fetch the transaction data.
+     */
+    public <T> CompletableFuture<T> getTransactionDataAsync(Serializer<T> serializer) {
+        return fetchTransactionDataAsync(serializer::deserialize);
+    }
+
+    /**
+     * Returns the transaction data asynchronously. This is same as {@link #getTransactionDataAsync(Serializer)}
+     * except that the serializer reads from a read-only view of the received data instead of a copy of it.
+     *
+     * @param serializer the serializer for decoding the transaction data.
+     * @param <T> the type of the object to de-serialize to.
+     * @return a {@link CompletableFuture} which completes with the transaction data, or exceptionally with
+     *         {@link WaltzClientRuntimeException} when Waltz client failed to fetch the transaction data.
+     */
+    public <T> CompletableFuture<T> getTransactionDataAsync(BufferSerializer<T> serializer) {
+        return fetchTransactionDataAsync(data -> deserialize(data, serializer));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> fetchTransactionDataAsync(Function<byte[], T> decoder) {
+        Future<byte[]> future = prefetched;
+        if (future != null) {
+            prefetched = null;
+        } else {
+            try {
+                future = rpcClient.getTransactionData(reqId.partitionId(), transactionId);
+            } catch (PartitionNotFoundException ex) {
+                future = null;
+            }
+        }
+
+        if (!(future instanceof CompletableFuture)) {
+            // Fall back to the blocking call with retries
+            return CompletableFuture.supplyAsync(() -> fetchTransactionData(decoder, INITIAL_RETRY_INTERVAL, MAX_RETRY_INTERVAL), executor);
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ((CompletableFuture<byte[]>) future).whenCompleteAsync((data, exception) -> {
+            if (exception == null) {
+                try {
+                    result.complete(decoder.apply(data));
+                } catch (Throwable ex) {
+                    result.completeExceptionally(ex);
+                }
+            } else {
+                Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+                if (cause instanceof RpcException) {
+                    // Retry with the blocking call. This is already running in the executor.
+                    logger.warn("failed to get transaction data, retrying...", cause);
+                    try {
+                        result.complete(fetchTransactionData(decoder, INITIAL_RETRY_INTERVAL, MAX_RETRY_INTERVAL));
+                    } catch (Throwable ex) {
+                        result.completeExceptionally(ex);
+                    }
+                } else {
+                    result.completeExceptionally(new WaltzClientRuntimeException("failed to get transaction data", cause));
+                }
+            }
+        }, executor);
+
+        return result;
+    }
+
     /**
      * Functionally similar to {@link Transaction#getTransactionData(Serializer)},
      * but retries until the transaction data is fetched or an exception is thrown.
@@ -73,13 +218,23 @@ public class Transaction {
      * @throws WaltzClientRuntimeException This exception should not be caught by an application code in general.
      */
     public <T> T getTransactionData(Serializer<T> serializer, final long initialRetryInterval, final long maxRetryInterval) {
+        return fetchTransactionData(serializer::deserialize, initialRetryInterval, maxRetryInterval);
+    }
+
+    private <T> T fetchTransactionData(Function<byte[], T> decoder, final long initialRetryInterval, final long maxRetryInterval) {
         long retryInterval = initialRetryInterval;
         BackoffTimer backoffTimer = null;
         byte[] data = null;
 
         while (data == null) {
             try {
-                data = rpcClient.getTransactionData(reqId.partitionId(), transactionId).get();
+                Future<byte[]> future = prefetched;
+                if (future != null) {
+                    prefetched = null;
+                } else {
+                    future = rpcClient.getTransactionData(reqId.partitionId(), transactionId);
+                }
+                data = future.get();
 
             } catch (ExecutionException ex) {
                 // Retry if RpcException
@@ -104,7 +259,16 @@ public class Transaction {
             }
         }
 
-        return serializer.deserialize(data);
+        return decoder.apply(data);
+    }
+
+    private static <T> T deserialize(byte[] data, BufferSerializer<T> serializer) {
+        return serializer.deserialize(ByteBuffer.wrap(data).asReadOnlyBuffer());
+    }
+
+    // The executor of transactions created without one. Threads are created on demand.
+    private static final class DefaultExecutor {
+        static final Executor INSTANCE = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
     }
 
 }
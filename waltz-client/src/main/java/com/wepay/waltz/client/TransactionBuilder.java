@@ -1,5 +1,7 @@
 package com.wepay.waltz.client;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -23,6 +25,33 @@ public interface TransactionBuilder {
      */
     <T> void setTransactionData(T transactionData, Serializer<T> serializer);
 
+    /**
+     * Sets the transaction data. The serializer writes into a heap buffer which becomes the transaction payload.
+     * The default implementation serializes into a new buffer and passes its content to
+     * {@link #setTransactionData(Object, Serializer)}.
+     *
+     * @param transactionData the transaction data of type {@code T}.
+     * @param serializer the {@code BufferSerializer} to serialize transaction data.
+     * @param <T> the type of the transaction data.
+     */
+    default <T> void setTransactionData(T transactionData, BufferSerializer<T> serializer) {
+        ByteBuffer buffer = ByteBuffer.allocate(serializer.serializedSize(transactionData));
+        serializer.serialize(transactionData, buffer);
+
+        byte[] bytes = buffer.position() == buffer.capacity() ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.position());
+        setTransactionData(bytes, new Serializer<byte[]>() {
+            @Override
+            public byte[] serialize(byte[] data) {
+                return data;
+            }
+
+            @Override
+            public byte[] deserialize(byte[] data) {
+                return data;
+            }
+        });
+    }
+
     /**
      * Sets optimistic write locks.
      *
@@ -0,0 +1,35 @@
+package com.wepay.waltz.client;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The interface for Waltz client callback methods which apply committed transactions in batches.
+ * When the callbacks implement this interface, {@link WaltzClient} accumulates consecutive transactions of a partition
+ * up to {@link WaltzClientConfig#MAX_APPLY_BATCH_SIZE} transactions or {@link WaltzClientConfig#APPLY_BATCH_LINGER_TIME}
+ * milliseconds, and passes them to {@link #applyTransactions(List)} at once. The client high-water mark advances
+ * by the size of the batch after the batch is applied successfully.
+ */
+public interface WaltzBatchClientCallbacks extends WaltzClientCallbacks {
+
+    /**
+     * Applies committed transactions to the client application.
+     * The transactions belong to the same partition and have consecutive transaction ids in ascending order.
+     * The batch must be applied atomically. If this method throws an exception, none of the transactions are regarded
+     * as applied, and the whole batch will be passed again.
+     *
+     * @param transactions a list of committed transactions.
+     */
+    void applyTransactions(List<Transaction> transactions);
+
+    /**
+     * Applies a committed transaction to the client application as a batch of one transaction.
+     *
+     * @param transaction a committed transaction.
+     */
+    @Override
+    default void applyTransaction(Transaction transaction) {
+        applyTransactions(Collections.singletonList(transaction));
+    }
+
+}
@@ -5,19 +5,28 @@ import com.wepay.riff.metrics.core.MetricGroup;
 import com.wepay.riff.metrics.core.MetricRegistry;
 import com.wepay.riff.metrics.jmx.JmxReporter;
 import com.wepay.riff.util.Logging;
+import com.wepay.waltz.client.internal.AsyncTransactionQueue;
 import com.wepay.waltz.client.internal.RpcClient;
 import com.wepay.waltz.client.internal.StreamClient;
 import com.wepay.waltz.client.internal.TransactionBuilderImpl;
 import com.wepay.waltz.client.internal.TransactionRetryQueue;
 import com.wepay.waltz.client.internal.WaltzClientDriver;
 import com.wepay.waltz.client.internal.WaltzClientDriverImpl;
+import com.wepay.waltz.client.internal.WorkloadCapture;
 import com.wepay.waltz.common.message.AppendRequest;
 import com.wepay.waltz.common.util.DaemonThreadFactory;
+import com.wepay.waltz.exception.SubmissionQueueFullException;
 import com.wepay.zktools.clustermgr.ClusterManager;
 import com.wepay.zktools.clustermgr.ManagedClient;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -41,7 +50,9 @@ public class WaltzClient {
     private final Object lock = new Object();
 
     private final TransactionRetryQueue transactionRetryQueue;
+    private final AsyncTransactionQueue asyncTransactionQueue;
     private final ScheduledExecutorService scheduledExecutorService;
+    private final WorkloadCapture workloadCapture;
 
     /**
      * Class Constructor.
@@ -54,7 +65,10 @@ public class WaltzClient {
         this(
             getWaltzClientDriver(callbacks, config),
             (int) config.get(WaltzClientConfig.NUM_TRANSACTION_RETRY_THREADS),
-            (long) config.get(WaltzClientConfig.LONG_WAIT_THRESHOLD)
+            (long) config.get(WaltzClientConfig.LONG_WAIT_THRESHOLD),
+            (int) config.get(WaltzClientConfig.NUM_ASYNC_SUBMIT_THREADS),
+            (long) config.get(WaltzClientConfig.MAX_ASYNC_QUEUE_BYTES),
+            getWorkloadCapture(config)
         );
     }
 
@@ -66,6 +80,52 @@ public class WaltzClient {
      * @param longWaitThreshold How long to wait before nudging waiting transactions
      */
     public WaltzClient(WaltzClientDriver driver, int numTransactionRetryThreads, long longWaitThreshold) {
+        this(
+            driver,
+            numTransactionRetryThreads,
+            longWaitThreshold,
+            WaltzClientConfig.DEFAULT_NUM_ASYNC_SUBMIT_THREADS,
+            WaltzClientConfig.DEFAULT_MAX_ASYNC_QUEUE_BYTES
+        );
+    }
+
+    /**
+     * Class Constructor, uses the provided {@link WaltzClientDriver}.
+     *
+     * @param driver a {@link WaltzClientDriver} instance backing this {@code WaltzClient}.
+     * @param numTransactionRetryThreads the number of transaction retry threads.
+     * @param longWaitThreshold How long to wait before nudging waiting transactions
+     * @param numAsyncSubmitThreads the number of threads running transactions submitted by {@link #submitAsync(TransactionContext)}.
+     * @param maxAsyncQueueBytes the maximum number of bytes per partition held by transactions submitted asynchronously.
+     */
+    public WaltzClient(
+        WaltzClientDriver driver,
+        int numTransactionRetryThreads,
+        long longWaitThreshold,
+        int numAsyncSubmitThreads,
+        long maxAsyncQueueBytes
+    ) {
+        this(driver, numTransactionRetryThreads, longWaitThreshold, numAsyncSubmitThreads, maxAsyncQueueBytes, null);
+    }
+
+    /**
+     * Class Constructor, uses the provided {@link WaltzClientDriver}.
+     *
+     * @param driver a {@link WaltzClientDriver} instance backing this {@code WaltzClient}.
+     * @param numTransactionRetryThreads the number of transaction retry threads.
+     * @param longWaitThreshold How long to wait before nudging waiting transactions
+     * @param numAsyncSubmitThreads the number of threads running transactions submitted by {@link #submitAsync(TransactionContext)}.
+     * @param maxAsyncQueueBytes the maximum number of bytes per partition held by transactions submitted asynchronously.
+     * @param workloadCapture the {@link WorkloadCapture} to capture append requests to, or {@code null} not to capture.
+     */
+    public WaltzClient(
+        WaltzClientDriver driver,
+        int numTransactionRetryThreads,
+        long longWaitThreshold,
+        int numAsyncSubmitThreads,
+        long maxAsyncQueueBytes,
+        WorkloadCapture workloadCapture
+    ) {
         this.driver = driver;
         this.rpcClient = driver.getRpcClient();
         this.streamClient = driver.getStreamClient();
@@ -73,6 +133,8 @@ public class WaltzClient {
         this.managedClient = driver.getManagedClient();
         this.transactionRetryQueue =
             numTransactionRetryThreads > 0 ? new TransactionRetryQueue(this, numTransactionRetryThreads) : null;
+        this.asyncTransactionQueue = new AsyncTransactionQueue(numAsyncSubmitThreads, maxAsyncQueueBytes);
+        this.workloadCapture = workloadCapture;
 
         this.scheduledExecutorService = Executors.newScheduledThreadPool(1, new DaemonThreadFactory());
         this.scheduledExecutorService.scheduleWithFixedDelay(
@@ -127,11 +189,23 @@ public class WaltzClient {
             } catch (Throwable ex) {
                 logger.error("failed to close retry queue", ex);
             }
+            try {
+                asyncTransactionQueue.close();
+            } catch (Throwable ex) {
+                logger.error("failed to close async transaction queue", ex);
+            }
             try {
                 driver.close();
             } catch (Throwable ex) {
                 logger.error("failed to close client driver", ex);
             }
+            try {
+                if (workloadCapture != null) {
+                    workloadCapture.close();
+                }
+            } catch (Throwable ex) {
+                logger.error("failed to close workload capture", ex);
+            }
         }
 
         unregisterMetrics();
@@ -178,6 +252,96 @@ public class WaltzClient {
         }
     }
 
+    /**
+     * Submits a transaction context without blocking the calling thread.
+     * <p>
+     * Once the partition of the transaction is mounted, Waltz client calls
+     * {@link TransactionContext#execute(TransactionBuilder)} on one of its own threads, and sends an append request
+     * when the partition has capacity for more concurrent transactions. If append fails, the transaction is retried
+     * on the same threads until it succeeds.
+     * </p>
+     * <p>
+     * Transactions waiting to be sent or retried hold up to <code>client.maxAsyncQueueBytes</code> bytes per partition.
+     * When the limit is reached, the transaction fails with {@link SubmissionQueueFullException}.
+     * </p>
+     *
+     * @param context the transaction context
+     * @return a {@link CompletionStage} which completes with {@code true} when the transaction is committed,
+     *         with {@code false} if {@link TransactionContext#execute(TransactionBuilder)} returned false,
+     *         or exceptionally if the transaction failed due to an exception.
+     */
+    public CompletionStage<Boolean> submitAsync(TransactionContext context) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        submitAsync(context, result);
+        return result;
+    }
+
+    private void submitAsync(TransactionContext context, CompletableFuture<Boolean> result) {
+        try {
+            streamClient.getTransactionBuilderAsync(context).whenCompleteAsync((builder, exception) -> {
+                if (exception != null) {
+                    failAsync(context, result, exception);
+                    return;
+                }
+
+                try {
+                    // Execute the transaction context with the builder.
+                    if (!context.execute(builder)) {
+                        // Completed with no append. There will be no retry.
+                        context.onCompletion(false);
+                        result.complete(false);
+                        return;
+                    }
+
+                    AppendRequest request = builder.buildRequest();
+                    capture(request);
+                    int partitionId = request.reqId.partitionId();
+                    int size = request.data.length;
+
+                    if (!asyncTransactionQueue.acquire(partitionId, size)) {
+                        throw new SubmissionQueueFullException(partitionId);
+                    }
+
+                    streamClient.appendAsync(request, context).whenComplete((future, ex) -> {
+                        asyncTransactionQueue.release(partitionId, size);
+
+                        if (ex != null) {
+                            failAsync(context, result, ex);
+                            return;
+                        }
+
+                        future.whenComplete((success, e) -> {
+                            if (e != null) {
+                                failAsync(context, result, e);
+                            } else if (success) {
+                                result.complete(true);
+                            } else if (!asyncTransactionQueue.scheduleRetry(partitionId, size, () -> submitAsync(context, result))) {
+                                // Retry the execution unless too many transactions are waiting.
+                                failAsync(context, result, new SubmissionQueueFullException(partitionId));
+                            }
+                        });
+                    });
+
+                } catch (Throwable ex) {
+                    failAsync(context, result, ex);
+                }
+            }, asyncTransactionQueue.executor());
+
+        } catch (Throwable ex) {
+            failAsync(context, result, ex);
+        }
+    }
+
+    private void failAsync(TransactionContext context, CompletableFuture<Boolean> result, Throwable exception) {
+        // The transaction failed due to an exception. There will be no retry.
+        Throwable cause = exception instanceof CompletionException && exception.getCause() != null ? exception.getCause() : exception;
+        try {
+            context.onException(cause);
+        } finally {
+            result.completeExceptionally(cause);
+        }
+    }
+
     protected AppendRequest build(TransactionContext context) {
         TransactionBuilderImpl builder = streamClient.getTransactionBuilder(context);
         AppendRequest request = null;
@@ -186,11 +350,18 @@ public class WaltzClient {
         if (context.execute(builder)) {
             // Build the transaction request.
             request = builder.buildRequest();
+            capture(request);
         }
 
         return request;
     }
 
+    private void capture(AppendRequest request) {
+        if (workloadCapture != null) {
+            workloadCapture.capture(request);
+        }
+    }
+
     /**
      * Waits for all current pending append requests to finish with either success or failure.
      */
@@ -203,7 +374,7 @@ public class WaltzClient {
      * @return true if there are pending append requests, otherwise false.
      */
     public boolean hasPendingTransactions() {
-        return streamClient.hasPendingTransactions() || transactionRetryQueue.size() > 0;
+        return streamClient.hasPendingTransactions() || transactionRetryQueue.size() > 0 || asyncTransactionQueue.size() > 0;
     }
 
     /**
@@ -265,6 +436,11 @@ public class WaltzClient {
         return driver;
     }
 
+    private static WorkloadCapture getWorkloadCapture(WaltzClientConfig config) throws IOException {
+        Optional<Object> path = config.getOpt(WaltzClientConfig.WORKLOAD_CAPTURE_PATH);
+        return path.isPresent() ? new WorkloadCapture(Paths.get((String) path.get())) : null;
+    }
+
     private void registerMetrics() {
         REGISTRY.gauge(metricsGroup, "cluster-name", (Gauge<String>) () -> clusterName());
         REGISTRY.gauge(metricsGroup, "client-id", (Gauge<Integer>) () -> clientId());
@@ -32,6 +32,19 @@ public class WaltzClientConfig extends AbstractConfig {
     /** Default value for {@link #NUM_TRANSACTION_RETRY_THREADS} config. */
     public static final int DEFAULT_NUM_TRANSACTION_RETRY_THREADS = 1;
 
+    /** Number of threads running transactions submitted asynchronously, <code>client.numAsyncSubmitThreads</code>. */
+    public static final String NUM_ASYNC_SUBMIT_THREADS = "client.numAsyncSubmitThreads";
+    /** Default value for {@link #NUM_ASYNC_SUBMIT_THREADS} config. */
+    public static final int DEFAULT_NUM_ASYNC_SUBMIT_THREADS = 2;
+
+    /**
+     * Maximum number of bytes per partition held by transactions submitted asynchronously while they wait to be sent
+     * or retried, <code>client.maxAsyncQueueBytes</code>.
+     */
+    public static final String MAX_ASYNC_QUEUE_BYTES = "client.maxAsyncQueueBytes";
+    /** Default value for {@link #MAX_ASYNC_QUEUE_BYTES} config. */
+    public static final long DEFAULT_MAX_ASYNC_QUEUE_BYTES = 32L * 1024L * 1024L;
+
     /** Number of consumer threads for processing committed transactions, <code>client.numConsumerThreads</code>. */
     public static final String NUM_CONSUMER_THREADS = "client.numConsumerThreads";
     /** Default value for {@link #NUM_CONSUMER_THREADS} config. */
@@ -42,6 +55,65 @@ public class WaltzClientConfig extends AbstractConfig {
     /** Default value for {@link #LONG_WAIT_THRESHOLD} config. */
     public static final long DEFAULT_LONG_WAIT_THRESHOLD = 5000;
 
+    /**
+     * Maximum number of transactions applied at once when the callbacks implement {@link WaltzBatchClientCallbacks},
+     * <code>client.maxApplyBatchSize</code>.
+     */
+    public static final String MAX_APPLY_BATCH_SIZE = "client.maxApplyBatchSize";
+    /** Default value for {@link #MAX_APPLY_BATCH_SIZE} config. */
+    public static final int DEFAULT_MAX_APPLY_BATCH_SIZE = 100;
+
+    /**
+     * Maximum time in millis to accumulate transactions before applying them when the callbacks implement
+     * {@link WaltzBatchClientCallbacks}, <code>client.applyBatchLingerTime</code>.
+     */
+    public static final String APPLY_BATCH_LINGER_TIME = "client.applyBatchLingerTime";
+    /** Default value for {@link #APPLY_BATCH_LINGER_TIME} config. */
+    public static final long DEFAULT_APPLY_BATCH_LINGER_TIME = 10;
+
+    /**
+     * Maximum number of transactions per partition applied concurrently when the callbacks implement
+     * {@link WaltzParallelClientCallbacks}, <code>client.maxParallelApply</code>.
+     */
+    public static final String MAX_PARALLEL_APPLY = "client.maxParallelApply";
+    /** Default value for {@link #MAX_PARALLEL_APPLY} config. */
+    public static final int DEFAULT_MAX_PARALLEL_APPLY = 4;
+
+    /**
+     * Maximum number of transactions per partition whose data is fetched ahead of the application while they wait to be
+     * applied, <code>client.readAheadSize</code>. Read-ahead is disabled if it is 0.
+     */
+    public static final String READ_AHEAD_SIZE = "client.readAheadSize";
+    /** Default value for {@link #READ_AHEAD_SIZE} config. */
+    public static final int DEFAULT_READ_AHEAD_SIZE = 100;
+
+    /** Maximum size in bytes of data fetched ahead and not consumed yet per partition, <code>client.readAheadMaxBytes</code>. */
+    public static final String READ_AHEAD_MAX_BYTES = "client.readAheadMaxBytes";
+    /** Default value for {@link #READ_AHEAD_MAX_BYTES} config. */
+    public static final long DEFAULT_READ_AHEAD_MAX_BYTES = 4194304; // 4MB
+
+    /**
+     * Maximum number of consecutive transactions fetched ahead with one request, <code>client.readAheadFetchSize</code>.
+     * Values above 1 require all servers to support transaction data list requests.
+     */
+    public static final String READ_AHEAD_FETCH_SIZE = "client.readAheadFetchSize";
+    /** Default value for {@link #READ_AHEAD_FETCH_SIZE} config. */
+    public static final int DEFAULT_READ_AHEAD_FETCH_SIZE = 1;
+
+    /**
+     * Maximum size in bytes of transaction data cached by the client and shared by all partitions,
+     * <code>client.transactionDataCacheSize</code>. The cache is disabled if it is 0.
+     */
+    public static final String TRANSACTION_DATA_CACHE_SIZE = "client.transactionDataCacheSize";
+    /** Default value for {@link #TRANSACTION_DATA_CACHE_SIZE} config. */
+    public static final long DEFAULT_TRANSACTION_DATA_CACHE_SIZE = 0;
+
+    /**
+     * Path of the file to capture the shape of append requests to, <code>client.workloadCapturePath</code>.
+     * The capture can be replayed by the performance cli for capacity testing. Not captured if not set.
+     */
+    public static final String WORKLOAD_CAPTURE_PATH = "client.workloadCapturePath";
+
     /** Client SSL Config prefix, <code>client.ssl.</code>. */
     public static final String CLIENT_SSL_CONFIG_PREFIX = "client.ssl.";
 
@@ -80,9 +152,19 @@ public class WaltzClientConfig extends AbstractConfig {
         // Client
         parsers.put(AUTO_MOUNT, booleanParser.withDefault(DEFAULT_AUTO_MOUNT));
         parsers.put(NUM_TRANSACTION_RETRY_THREADS, intParser.withDefault(DEFAULT_NUM_TRANSACTION_RETRY_THREADS));
+        parsers.put(NUM_ASYNC_SUBMIT_THREADS, intParser.withDefault(DEFAULT_NUM_ASYNC_SUBMIT_THREADS));
+        parsers.put(MAX_ASYNC_QUEUE_BYTES, longParser.withDefault(DEFAULT_MAX_ASYNC_QUEUE_BYTES));
         parsers.put(NUM_CONSUMER_THREADS, intParser.withDefault(DEFAULT_NUM_CONSUMER_THREADS));
         parsers.put(LONG_WAIT_THRESHOLD, longParser.withDefault(DEFAULT_LONG_WAIT_THRESHOLD));
         parsers.put(MAX_CONCURRENT_TRANSACTIONS, intParser.withDefault(DEFAULT_MAX_CONCURRENT_TRANSACTIONS));
+        parsers.put(MAX_APPLY_BATCH_SIZE, intParser.withDefault(DEFAULT_MAX_APPLY_BATCH_SIZE));
+        parsers.put(APPLY_BATCH_LINGER_TIME, longParser.withDefault(DEFAULT_APPLY_BATCH_LINGER_TIME));
+        parsers.put(MAX_PARALLEL_APPLY, intParser.withDefault(DEFAULT_MAX_PARALLEL_APPLY));
+        parsers.put(READ_AHEAD_SIZE, intParser.withDefault(DEFAULT_READ_AHEAD_SIZE));
+        parsers.put(READ_AHEAD_MAX_BYTES, longParser.withDefault(DEFAULT_READ_AHEAD_MAX_BYTES));
+        parsers.put(READ_AHEAD_FETCH_SIZE, intParser.withDefault(DEFAULT_READ_AHEAD_FETCH_SIZE));
+        parsers.put(TRANSACTION_DATA_CACHE_SIZE, longParser.withDefault(DEFAULT_TRANSACTION_DATA_CACHE_SIZE));
+        parsers.put(WORKLOAD_CAPTURE_PATH, stringParser);
         parsers.put(MOCK_DRIVER, mockDriverParser.withDefault(DEFAULT_MOCK_DRIVER).withValidator(mockDriverValidator));
 
         // See SSLConfig for SSL config parameters
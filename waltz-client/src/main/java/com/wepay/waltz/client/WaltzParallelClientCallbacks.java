@@ -0,0 +1,28 @@
+package com.wepay.waltz.client;
+
+/**
+ * The interface for Waltz client callback methods which apply committed transactions of a partition concurrently.
+ * When the callbacks implement this interface, {@link WaltzClient} applies up to
+ * {@link WaltzClientConfig#MAX_PARALLEL_APPLY} transactions of a partition at the same time, as long as their write
+ * locks are disjoint. Transactions sharing a write lock are applied in the order of transaction ids. Transactions
+ * without write locks, or whose locks are unknown, are applied alone after all preceding transactions are applied.
+ * Lock information is available only when the servers are configured with <code>server.feedLockCacheSize</code>.
+ * <P>
+ * {@link #applyTransaction(Transaction)} is invoked from multiple threads. The client high-water mark advances only
+ * over the contiguous range of applied transactions, and is reported by {@link #onClientHighWaterMarkAdvanced(int, long)}.
+ * Transactions after the client high-water mark may be applied again after a failure or a restart,
+ * thus applying a transaction must be idempotent.
+ * If the callbacks also implement {@link WaltzBatchClientCallbacks}, transactions are applied in batches instead.
+ */
+public interface WaltzParallelClientCallbacks extends WaltzClientCallbacks {
+
+    /**
+     * Invoked when all transactions of a partition up to {@code clientHighWaterMark} are applied.
+     * {@link #getClientHighWaterMark(int)} must not return a value greater than the last value reported by this method.
+     *
+     * @param partitionId the partition id.
+     * @param clientHighWaterMark the new client high-water mark.
+     */
+    void onClientHighWaterMarkAdvanced(int partitionId, long clientHighWaterMark);
+
+}
@@ -0,0 +1,58 @@
+package com.wepay.waltz.client.internal;
+
+/**
+ * Implements the policy of applying committed transactions of a partition.
+ * Transactions are applied one by one by default. They are applied in batches of up to {@code maxBatchSize}
+ * transactions if it is greater than 1. Otherwise, up to {@code maxParallelism} transactions with disjoint write locks
+ * are applied concurrently if it is greater than 1. Batching takes precedence over parallel application.
+ */
+public class ApplyPolicy {
+
+    public static final ApplyPolicy SEQUENTIAL = new ApplyPolicy(1, 0L, 1);
+
+    public final int maxBatchSize;
+    public final long batchLingerTime;
+    public final int maxParallelism;
+
+    /**
+     * Class constructor.
+     * @param maxBatchSize The maximum number of transactions applied at once.
+     * @param batchLingerTime The maximum time in millis to accumulate transactions before applying them.
+     * @param maxParallelism The maximum number of transactions of a partition applied concurrently.
+     */
+    public ApplyPolicy(final int maxBatchSize, final long batchLingerTime, final int maxParallelism) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be greater than zero");
+        }
+        if (batchLingerTime < 0) {
+            throw new IllegalArgumentException("batchLingerTime must not be negative");
+        }
+        if (maxParallelism < 1) {
+            throw new IllegalArgumentException("maxParallelism must be greater than zero");
+        }
+
+        this.maxBatchSize = maxBatchSize;
+        this.batchLingerTime = batchLingerTime;
+        this.maxParallelism = maxParallelism;
+    }
+
+    /**
+     * @return {@code true} if transactions are applied in batches, {@code false} otherwise.
+     */
+    public boolean isBatchEnabled() {
+        return maxBatchSize > 1;
+    }
+
+    /**
+     * @return {@code true} if independent transactions are applied concurrently, {@code false} otherwise.
+     */
+    public boolean isParallelEnabled() {
+        return maxParallelism > 1 && maxBatchSize == 1;
+    }
+
+    @Override
+    public String toString() {
+        return "ApplyPolicy(maxBatchSize=" + maxBatchSize + ",batchLingerTime=" + batchLingerTime + ",maxParallelism=" + maxParallelism + ")";
+    }
+
+}
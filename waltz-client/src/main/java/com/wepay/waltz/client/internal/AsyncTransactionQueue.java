@@ -0,0 +1,135 @@
+package com.wepay.waltz.client.internal;
+
+import com.wepay.riff.util.Logging;
+import com.wepay.waltz.common.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class which bounds the memory held by transactions submitted asynchronously.
+ * Each partition has a budget of bytes shared by append requests waiting to be sent, and by transactions waiting
+ * to be retried. A request larger than the budget is accepted only when nothing else is queued for the partition.
+ * Asynchronous submissions and retries run on the executor of this queue, never on a submitting thread.
+ */
+public class AsyncTransactionQueue {
+
+    private static final Logger logger = Logging.getLogger(AsyncTransactionQueue.class);
+
+    private final long maxBytesPerPartition;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<Integer, AtomicLong> queuedBytes = new ConcurrentHashMap<>();
+    private final AtomicInteger numRetries = new AtomicInteger(0);
+
+    /**
+     * Class Constructor.
+     *
+     * @param numThreads the number of threads to run asynchronous submissions and retries.
+     * @param maxBytesPerPartition the maximum number of bytes queued per partition.
+     */
+    public AsyncTransactionQueue(int numThreads, long maxBytesPerPartition) {
+        this.maxBytesPerPartition = maxBytesPerPartition;
+        this.executor = Executors.newFixedThreadPool(numThreads, DaemonThreadFactory.INSTANCE);
+    }
+
+    /**
+     * Closes this instance by shutting down the executor.
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the {@link Executor} which runs asynchronous submissions and retries.
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Reserves {@code bytes} from the budget of a partition. This method does not block.
+     *
+     * @param partitionId the partition id.
+     * @param bytes the number of bytes.
+     * @return {@code true} if reserved, {@code false} if the budget is exhausted.
+     */
+    public boolean acquire(int partitionId, int bytes) {
+        AtomicLong counter = queuedBytes.computeIfAbsent(partitionId, id -> new AtomicLong(0));
+        while (true) {
+            long current = counter.get();
+            if (current > 0 && current + bytes > maxBytesPerPartition) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code bytes} to the budget of a partition.
+     *
+     * @param partitionId the partition id.
+     * @param bytes the number of bytes.
+     */
+    public void release(int partitionId, int bytes) {
+        AtomicLong counter = queuedBytes.get(partitionId);
+        if (counter != null) {
+            counter.addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * Schedules a retry of a transaction on the executor. The transaction holds {@code bytes} of the budget of
+     * the partition until the retry starts.
+     *
+     * @param partitionId the partition id.
+     * @param bytes the size of the transaction data in bytes.
+     * @param retry the task which retries the transaction.
+     * @return {@code true} if scheduled, {@code false} if the budget is exhausted or this queue is closed.
+     */
+    public boolean scheduleRetry(int partitionId, int bytes, Runnable retry) {
+        if (!acquire(partitionId, bytes)) {
+            return false;
+        }
+
+        numRetries.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                release(partitionId, bytes);
+                numRetries.decrementAndGet();
+                retry.run();
+            });
+            return true;
+
+        } catch (RejectedExecutionException ex) {
+            release(partitionId, bytes);
+            numRetries.decrementAndGet();
+            logger.debug("retry rejected: partitionId={}", partitionId);
+            return false;
+        }
+    }
+
+    /**
+     * @param partitionId the partition id.
+     * @return the number of bytes queued for the partition.
+     */
+    public long queuedBytes(int partitionId) {
+        AtomicLong counter = queuedBytes.get(partitionId);
+        return counter != null ? counter.get() : 0L;
+    }
+
+    /**
+     * @return the number of transactions waiting to be retried.
+     */
+    public int size() {
+        return numRetries.get();
+    }
+
+}
@@ -24,6 +24,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
@@ -46,11 +48,18 @@ public abstract class InternalBaseClient implements WaltzNetworkClientCallbacks,
     private final boolean autoMount;
     private final SslContext sslCtx;
     private final int maxConcurrentTransactions;
+    private final ApplyPolicy applyPolicy;
+    private final ExecutorService applyExecutor;
+    private final TransactionDataCache transactionDataCache;
     protected final WaltzClientCallbacks callbacks;
     private final MessageProcessingThreadPool messageProcessingThreadPool;
     private final HashMap<Endpoint, WaltzNetworkClient> networkClients = new HashMap<>();
     private final ConcurrentHashMap<Integer, Partition> partitions = new ConcurrentHashMap<>();
     private final ScheduledExecutorService asyncTaskExecutor = Executors.newSingleThreadScheduledExecutor(DaemonThreadFactory.INSTANCE);
+    // Threads are created on demand. Transaction data retrieved asynchronously are de-serialized and retried in this executor.
+    private final ExecutorService transactionDataExecutor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+    // Transactions lingering in partitions are applied in this executor, so application code never runs on asyncTaskExecutor.
+    private final ScheduledExecutorService lingerExecutor;
     private final Set<Integer> activePartitions = new HashSet<>();
 
     private volatile Map<Endpoint, List<PartitionInfo>> endpoints;
@@ -71,13 +80,53 @@ public abstract class InternalBaseClient implements WaltzNetworkClientCallbacks,
         int maxConcurrentTransactions,
         WaltzClientCallbacks callbacks,
         MessageProcessingThreadPool messageProcessingThreadPool
+    ) {
+        this(autoMount, sslCtx, maxConcurrentTransactions, ApplyPolicy.SEQUENTIAL, null, callbacks, messageProcessingThreadPool);
+    }
+
+    /**
+     * Class Constructor.
+     *
+     * @param autoMount if {@code true}, automatically mount all partitions.
+     * @param sslCtx SSLContext for communication.
+     * @param maxConcurrentTransactions Max number of concurrent transactions allowed.
+     * @param applyPolicy an {@code ApplyPolicy} of applying committed transactions.
+     * @param transactionDataCache a {@code TransactionDataCache} shared by partitions, or {@code null} to disable caching.
+     * @param callbacks a {@code WaltzClientCallbacks} instance.
+     * @param messageProcessingThreadPool a {@code MessageProcessingThreadPool} for message processing.
+     */
+    protected InternalBaseClient(
+        boolean autoMount,
+        SslContext sslCtx,
+        int maxConcurrentTransactions,
+        ApplyPolicy applyPolicy,
+        TransactionDataCache transactionDataCache,
+        WaltzClientCallbacks callbacks,
+        MessageProcessingThreadPool messageProcessingThreadPool
     ) {
         this.autoMount = autoMount;
         this.sslCtx = sslCtx;
         this.maxConcurrentTransactions = maxConcurrentTransactions;
+        this.applyPolicy = applyPolicy;
+        // Threads are created on demand. Each partition bounds the number of its transactions applied concurrently.
+        this.applyExecutor = applyPolicy.isParallelEnabled() ? Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE) : null;
+        this.transactionDataCache = transactionDataCache;
         this.callbacks = callbacks;
         this.messageProcessingThreadPool = messageProcessingThreadPool;
         this.endpoints = Collections.emptyMap();
+
+        if (applyPolicy.isBatchEnabled() && applyPolicy.batchLingerTime > 0) {
+            // Apply transactions lingering in partitions when no more transactions arrive
+            this.lingerExecutor = Executors.newSingleThreadScheduledExecutor(DaemonThreadFactory.INSTANCE);
+            this.lingerExecutor.scheduleWithFixedDelay(
+                this::applyPendingTransactions,
+                applyPolicy.batchLingerTime,
+                applyPolicy.batchLingerTime,
+                TimeUnit.MILLISECONDS
+            );
+        } else {
+            this.lingerExecutor = null;
+        }
     }
 
     /**
@@ -101,6 +150,13 @@ public abstract class InternalBaseClient implements WaltzNetworkClientCallbacks,
             partitions.clear();
 
             asyncTaskExecutor.shutdownNow();
+            if (lingerExecutor != null) {
+                lingerExecutor.shutdownNow();
+            }
+            transactionDataExecutor.shutdown();
+            if (applyExecutor != null) {
+                applyExecutor.shutdown();
+            }
         }
     }
 
@@ -132,6 +188,7 @@ public abstract class InternalBaseClient implements WaltzNetworkClientCallbacks,
                             networkClient.unmountPartition(partition.partitionId);
                         }
                     }
+                    onPartitionUnmounted(partition.partitionId);
                 }
             }
         }
@@ -217,6 +274,38 @@ public abstract class InternalBaseClient implements WaltzNetworkClientCallbacks,
         throw new UnsupportedOperationException("not supported by " + this.getClass().getSimpleName());
     }
 
+    /**
+     * Does nothing on {@code InternalBaseClient}.
+     *
+     * @param transactionId the id of the received transaction.
+     * @param reqId the reqId of the received transaction.
+     */
+    @Override
+    public void onTransactionPending(long transactionId, ReqId reqId) {
+        // A subclass may override this.
+    }
+
+    /**
+     * Not supported on {@code InternalBaseClient}.
+     *
+     * @throws UnsupportedOperationException if invoked.
+     */
+    @Override
+    public void onTransactionsReceived(long firstTransactionId, int[] headers, ReqId[] reqIds) {
+        throw new UnsupportedOperationException("not supported by " + this.getClass().getSimpleName());
+    }
+
+    /**
+     * Does nothing on {@code InternalBaseClient}.
+     *
+     * @param partitionId the id of the partition.
+     * @param clientHighWaterMark the new client high-water mark.
+     */
+    @Override
+    public void onClientHighWaterMarkAdvanced(int partitionId, long clientHighWaterMark) {
+        // A subclass may override this.
+    }
+
     /**
      * Implements {@link ManagedClient#setClusterName(String)}.
      * Sets the cluster name.
@@ -264,7 +353,10 @@ public abstract class InternalBaseClient implements WaltzNetworkClientCallbacks,
             String clientConnectionType = (this instanceof RpcClient)
                 ? CLIENT_CONNECTION_TYPE_RPC : CLIENT_CONNECTION_TYPE_STREAM;
 
-            Partition partition = new Partition(partitionId, clientId, maxConcurrentTransactions, clientConnectionType);
+            Partition partition = new Partition(
+                partitionId, clientId, maxConcurrentTransactions, applyPolicy, applyExecutor, transactionDataCache,
+                asyncTaskExecutor, clientConnectionType
+            );
             partitions.put(partitionId, partition);
         }
 
@@ -311,7 +403,9 @@ public abstract class InternalBaseClient implements WaltzNetworkClientCallbacks,
                 logger.info("removing server: endpoint=" + endpoint);
                 WaltzNetworkClient networkClient = networkClients.remove(endpoint);
                 if (networkClient != null) {
-                    networkClient.unmountAllPartitions();
+                    for (Partition partition : networkClient.unmountAllPartitions()) {
+                        onPartitionUnmounted(partition.partitionId);
+                    }
                     networkClient.close();
                 }
             }
@@ -366,6 +460,21 @@ public abstract class InternalBaseClient implements WaltzNetworkClientCallbacks,
         }
     }
 
+    /**
+     * Invokes {@link Partition#applyPendingTransactions(WaltzNetworkClientCallbacks)} for each partition
+     * to apply transactions lingering longer than the linger time.
+     */
+    public void applyPendingTransactions() {
+        for (Partition partition : partitions.values()) {
+            try {
+                partition.applyPendingTransactions(this);
+            } catch (Throwable ex) {
+                // The failure is already reported to callbacks. The transactions will be passed again.
+                logger.debug("failed to apply pending transactions: " + partition, ex);
+            }
+        }
+    }
+
     /**
      * @return {@code true}, if at least one of the partitions has pending transactions. {@code false}, otherwise.
      */
@@ -409,6 +518,28 @@ public abstract class InternalBaseClient implements WaltzNetworkClientCallbacks,
         return networkClient;
     }
 
+    /**
+     * @return the {@link Executor} which runs asynchronous tasks of this client.
+     */
+    protected Executor asyncTaskExecutor() {
+        return asyncTaskExecutor;
+    }
+
+    /**
+     * @return the {@link Executor} which de-serializes and retries transaction data retrieved asynchronously.
+     */
+    protected Executor transactionDataExecutor() {
+        return transactionDataExecutor;
+    }
+
+    /**
+     * Invoked after a partition is unmounted from the network clients. Subclasses release per-partition resources here.
+     *
+     * @param partitionId the id of the unmounted partition.
+     */
+    protected void onPartitionUnmounted(int partitionId) {
+    }
+
     private void submitAsyncTask(Runnable runnable) {
         submitAsyncTask(runnable, 0L);
     }
@@ -453,6 +584,7 @@ public abstract class InternalBaseClient implements WaltzNetworkClientCallbacks,
                                     for (WaltzNetworkClient networkClient : networkClients.values()) {
                                         networkClient.unmountPartition(partitionInfo.partitionId);
                                     }
+                                    onPartitionUnmounted(partitionInfo.partitionId);
                                     getNetworkClient(endpoint).mountPartition(partition);
                                 }
                             }
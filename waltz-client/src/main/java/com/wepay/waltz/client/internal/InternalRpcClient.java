@@ -25,8 +25,25 @@ public class InternalRpcClient extends InternalBaseClient implements RpcClient {
      * @param callbacks a {@link WaltzClientCallbacks} instance.
      */
     public InternalRpcClient(SslContext sslCtx, int maxConcurrentTransactions, WaltzClientCallbacks callbacks) {
+        this(sslCtx, maxConcurrentTransactions, null, callbacks);
+    }
+
+    /**
+     * Class Constructor, automatically mounts all partitions.
+     *
+     * @param sslCtx the {@link SslContext}
+     * @param maxConcurrentTransactions the maximum number of concurrent transactions.
+     * @param transactionDataCache a {@link TransactionDataCache} shared with the stream client, or {@code null} to disable caching.
+     * @param callbacks a {@link WaltzClientCallbacks} instance.
+     */
+    public InternalRpcClient(
+        SslContext sslCtx,
+        int maxConcurrentTransactions,
+        TransactionDataCache transactionDataCache,
+        WaltzClientCallbacks callbacks
+    ) {
         // InternalRpcClient always mounts all partition
-        super(true, sslCtx, maxConcurrentTransactions, callbacks, null);
+        super(true, sslCtx, maxConcurrentTransactions, ApplyPolicy.SEQUENTIAL, transactionDataCache, callbacks, null);
     }
 
     /**
@@ -55,6 +72,19 @@ public class InternalRpcClient extends InternalBaseClient implements RpcClient {
         return getPartition(partitionId).getTransactionData(transactionId);
     }
 
+    /**
+     * Gets transaction data of consecutive transactions from a given partition id with a single request.
+     *
+     * @param partitionId the id of the partition to read from.
+     * @param transactionId the id of the first transaction to read.
+     * @param numTransactions the number of transactions to read.
+     * @return a list of {@link Future}s which contain the serialized transaction data when complete, one for each transaction.
+     */
+    @Override
+    public List<Future<byte[]>> getTransactionDataList(int partitionId, long transactionId, int numTransactions) {
+        return getPartition(partitionId).getTransactionDataList(transactionId, numTransactions);
+    }
+
     /**
      * Gets high watermark from a given partition id.
      *
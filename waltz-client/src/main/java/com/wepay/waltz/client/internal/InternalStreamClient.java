@@ -4,7 +4,9 @@ import com.wepay.riff.network.MessageProcessingThreadPool;
 import com.wepay.riff.util.Logging;
 import com.wepay.waltz.client.Transaction;
 import com.wepay.waltz.client.TransactionContext;
+import com.wepay.waltz.client.WaltzBatchClientCallbacks;
 import com.wepay.waltz.client.WaltzClientCallbacks;
+import com.wepay.waltz.client.WaltzParallelClientCallbacks;
 import com.wepay.waltz.client.internal.network.WaltzNetworkClient;
 import com.wepay.waltz.common.message.AppendRequest;
 import com.wepay.waltz.common.message.MountRequest;
@@ -12,6 +14,12 @@ import com.wepay.waltz.common.message.ReqId;
 import io.netty.handler.ssl.SslContext;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
 /**
  * An internal implementation of {@link StreamClient}, extending {@link InternalBaseClient}.
  */
@@ -20,6 +28,8 @@ public class InternalStreamClient extends InternalBaseClient implements StreamCl
     private static final Logger logger = Logging.getLogger(InternalStreamClient.class);
 
     private final InternalRpcClient rpcClient;
+    private final ReadAheadPolicy readAheadPolicy;
+    private final ConcurrentHashMap<Integer, ReadAheadWindow> readAheadWindows = new ConcurrentHashMap<>();
 
     /**
      * Class Constructor.
@@ -39,8 +49,59 @@ public class InternalStreamClient extends InternalBaseClient implements StreamCl
         InternalRpcClient rpcClient,
         MessageProcessingThreadPool threadPool
     ) {
-        super(autoMount, sslCtx, maxConcurrentTransactions, callbacks, threadPool);
+        this(autoMount, sslCtx, maxConcurrentTransactions, ApplyPolicy.SEQUENTIAL, ReadAheadPolicy.DISABLED, null, callbacks, rpcClient, threadPool);
+    }
+
+    /**
+     * Class Constructor.
+     * Transactions are applied in batches only when {@code callbacks} is a {@link WaltzBatchClientCallbacks},
+     * and in parallel only when {@code callbacks} is a {@link WaltzParallelClientCallbacks}.
+     *
+     * @param autoMount if {@code true}, mounts all partitions.
+     * @param sslCtx {@link SslContext}
+     * @param maxConcurrentTransactions the maximum number of concurrent transactions
+     * @param applyPolicy {@link ApplyPolicy}
+     * @param readAheadPolicy {@link ReadAheadPolicy}
+     * @param transactionDataCache {@link TransactionDataCache} shared with the rpc client, or {@code null} to disable caching
+     * @param callbacks {@link WaltzClientCallbacks}
+     * @param rpcClient {@link InternalRpcClient}
+     * @param threadPool {@link MessageProcessingThreadPool}
+     */
+    public InternalStreamClient(
+        boolean autoMount,
+        SslContext sslCtx,
+        int maxConcurrentTransactions,
+        ApplyPolicy applyPolicy,
+        ReadAheadPolicy readAheadPolicy,
+        TransactionDataCache transactionDataCache,
+        WaltzClientCallbacks callbacks,
+        InternalRpcClient rpcClient,
+        MessageProcessingThreadPool threadPool
+    ) {
+        super(
+            autoMount,
+            sslCtx,
+            maxConcurrentTransactions,
+            new ApplyPolicy(
+                callbacks instanceof WaltzBatchClientCallbacks ? applyPolicy.maxBatchSize : 1,
+                applyPolicy.batchLingerTime,
+                callbacks instanceof WaltzParallelClientCallbacks ? applyPolicy.maxParallelism : 1
+            ),
+            transactionDataCache,
+            callbacks,
+            threadPool
+        );
         this.rpcClient = rpcClient;
+        this.readAheadPolicy = readAheadPolicy;
+    }
+
+    /**
+     * Closes this client and drops the read-ahead windows of all partitions.
+     */
+    @Override
+    public void close() {
+        super.close();
+        readAheadWindows.clear();
     }
 
     /**
@@ -65,8 +126,9 @@ public class InternalStreamClient extends InternalBaseClient implements StreamCl
      */
     @Override
     public void onTransactionReceived(long transactionId, int header, ReqId reqId) {
+        Future<byte[]> prefetched = readAheadPolicy.isEnabled() ? readAheadWindow(reqId.partitionId()).take(transactionId) : null;
         try {
-            callbacks.applyTransaction(new Transaction(transactionId, header, reqId, rpcClient));
+            callbacks.applyTransaction(new Transaction(transactionId, header, reqId, rpcClient, prefetched, transactionDataExecutor()));
 
         } catch (Throwable ex) {
             logger.error("failed to apply transaction: partitionId=" + reqId.partitionId() + " transactionId=" + transactionId, ex);
@@ -79,6 +141,91 @@ public class InternalStreamClient extends InternalBaseClient implements StreamCl
         }
     }
 
+    /**
+     * Invoked when a committed transaction is received from the feed and waits to be applied.
+     * Starts fetching the transaction data ahead of the application.
+     *
+     * @param transactionId the id of the received transaction.
+     * @param reqId the reqId of the received transaction.
+     */
+    @Override
+    public void onTransactionPending(long transactionId, ReqId reqId) {
+        if (readAheadPolicy.isEnabled()) {
+            readAheadWindow(reqId.partitionId()).fetch(transactionId);
+        }
+    }
+
+    /**
+     * Invoked when a batch of consecutive committed transactions is ready to be applied.
+     * Internally, invokes {@link WaltzBatchClientCallbacks#applyTransactions(List)}.
+     *
+     * @param firstTransactionId the id of the first transaction in the batch.
+     * @param headers the headers of the transactions.
+     * @param reqIds the reqIds of the transactions.
+     */
+    @Override
+    public void onTransactionsReceived(long firstTransactionId, int[] headers, ReqId[] reqIds) {
+        ArrayList<Transaction> transactions = new ArrayList<>(reqIds.length);
+        for (int i = 0; i < reqIds.length; i++) {
+            long transactionId = firstTransactionId + i;
+            Future<byte[]> prefetched = readAheadPolicy.isEnabled() ? readAheadWindow(reqIds[i].partitionId()).take(transactionId) : null;
+            transactions.add(new Transaction(transactionId, headers[i], reqIds[i], rpcClient, prefetched, transactionDataExecutor()));
+        }
+
+        try {
+            if (callbacks instanceof WaltzBatchClientCallbacks) {
+                ((WaltzBatchClientCallbacks) callbacks).applyTransactions(transactions);
+            } else {
+                for (Transaction transaction : transactions) {
+                    callbacks.applyTransaction(transaction);
+                }
+            }
+
+        } catch (Throwable ex) {
+            logger.error("failed to apply transactions: partitionId=" + reqIds[0].partitionId()
+                + " transactionIds=" + firstTransactionId + ".." + (firstTransactionId + reqIds.length - 1), ex);
+            try {
+                callbacks.uncaughtException(reqIds[0].partitionId(), firstTransactionId, ex);
+            } catch (Exception e) {
+                logger.error("callback error [uncaughtException]", e);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Invoked when the client high-water mark of a partition advanced after transactions were applied in parallel.
+     * Internally, invokes {@link WaltzParallelClientCallbacks#onClientHighWaterMarkAdvanced(int, long)}.
+     *
+     * @param partitionId the id of the partition.
+     * @param clientHighWaterMark the new client high-water mark.
+     */
+    @Override
+    public void onClientHighWaterMarkAdvanced(int partitionId, long clientHighWaterMark) {
+        try {
+            ((WaltzParallelClientCallbacks) callbacks).onClientHighWaterMarkAdvanced(partitionId, clientHighWaterMark);
+
+        } catch (Throwable ex) {
+            logger.error("callback error [onClientHighWaterMarkAdvanced]: partitionId=" + partitionId, ex);
+        }
+    }
+
+    /**
+     * Invoked after a partition is unmounted. Drops the read-ahead window of the partition.
+     *
+     * @param partitionId the id of the unmounted partition.
+     */
+    @Override
+    protected void onPartitionUnmounted(int partitionId) {
+        readAheadWindows.remove(partitionId);
+    }
+
+    private ReadAheadWindow readAheadWindow(int partitionId) {
+        return readAheadWindows.computeIfAbsent(
+            partitionId, id -> new ReadAheadWindow(rpcClient, id, readAheadPolicy)
+        );
+    }
+
     /**
      * Returns a {@link TransactionBuilderImpl} for a given {@link TransactionContext}.
      *
@@ -93,6 +240,34 @@ public class InternalStreamClient extends InternalBaseClient implements StreamCl
         return new TransactionBuilderImpl(partition.nextReqId(), partition.clientHighWaterMark());
     }
 
+    /**
+     * Returns a future of {@link TransactionBuilderImpl} for a given {@link TransactionContext} without blocking.
+     * The future completes when the partition of the context is mounted.
+     *
+     * @param context the {@code TransactionContext} to get a transaction builder for.
+     * @return a {@code CompletableFuture} of the corresponding {@code TransactionBuilderImpl} instance.
+     */
+    @Override
+    public CompletableFuture<TransactionBuilderImpl> getTransactionBuilderAsync(TransactionContext context) {
+        Partition partition = getPartition(context.partitionId(numPartitions));
+
+        return partition.whenMounted().thenApply(v -> new TransactionBuilderImpl(partition.nextReqId(), partition.clientHighWaterMark()));
+    }
+
+    /**
+     * Appends the data to the given partition without blocking.
+     * The append request is sent when the partition has capacity for more concurrent transactions.
+     *
+     * @param request the {@link AppendRequest} with actual payload, partition info, etc.
+     * @return a {@code CompletableFuture} which completes with a {@link TransactionFuture} when the request is sent.
+     */
+    @Override
+    public CompletableFuture<TransactionFuture> appendAsync(AppendRequest request, TransactionContext context) {
+        Partition partition = getPartition(request.reqId.partitionId());
+
+        return partition.appendAsync(request, context, asyncTaskExecutor());
+    }
+
     /**
      * Appends the data to the given partition.
      * Internally, an append request is sent to the waltz server corresponding to the given partition.
@@ -1,6 +1,7 @@
 package com.wepay.waltz.client.internal;
 
 import com.wepay.riff.metrics.core.Gauge;
+import com.wepay.riff.metrics.core.Histogram;
 import com.wepay.riff.metrics.core.Meter;
 import com.wepay.riff.metrics.core.MetricGroup;
 import com.wepay.riff.metrics.core.MetricRegistry;
@@ -9,10 +10,13 @@ import com.wepay.riff.util.Logging;
 import com.wepay.waltz.client.TransactionContext;
 import com.wepay.waltz.client.internal.network.WaltzNetworkClient;
 import com.wepay.waltz.client.internal.network.WaltzNetworkClientCallbacks;
+import com.wepay.waltz.common.jfr.ApplyTransactionEvent;
+import com.wepay.waltz.common.jfr.JfrSupport;
 import com.wepay.waltz.common.message.AppendRequest;
 import com.wepay.waltz.common.message.FlushRequest;
 import com.wepay.waltz.common.message.LockFailure;
 import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.common.message.TransactionDataListRequest;
 import com.wepay.waltz.common.util.Utils;
 import com.wepay.waltz.exception.ClientClosedException;
 import com.wepay.waltz.exception.DataChecksumException;
@@ -20,14 +24,26 @@ import com.wepay.waltz.exception.PartitionInactiveException;
 import com.wepay.zktools.clustermgr.Endpoint;
 import org.slf4j.Logger;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 
 /**
  * An internal waltz client representation of a Partition.
@@ -39,6 +55,8 @@ public class Partition {
 
     private static final Long[] EMPTY_LONG_ARRAY = new Long[0];
     private static final int MAX_DATA_ATTEMPTS = 5;
+    private static final long REGISTRATION_TIMEOUT = 10000;
+    private static final long LOCK_FAILURE_RETRY_WINDOW = 100;
 
     private enum PartitionState {
         ACTIVE, INACTIVE, CLOSED
@@ -48,12 +66,36 @@ public class Partition {
     public final int clientId;
 
     private final Object lock = new Object();
+    private final ArrayList<CompletableFuture<Void>> mountFutures = new ArrayList<>();
     private final Object transactionApplicationLock = new Object();
     private final HashMap<ReqId, TransactionContext> transactionApplicationFailed = new HashMap<>();
     private final TransactionMonitor transactionMonitor;
+    private final Object appendLock = new Object();
     private final PriorityQueue<LockFailure> lockFailureQueue;
+    // Lock failures whose transactions wait to be retried, queued under every lock hash of the failed transaction
+    private final HashMap<Integer, ArrayDeque<LockFailureWaiter>> lockFailureWaiters = new HashMap<>();
+    // Locks held for retries of released waiters. Updated without locking since requests complete in the transaction monitor.
+    private final ConcurrentHashMap<Integer, LockRelease> lockReleases = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ReqId, int[]> pendingLockHashes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private boolean lockFailureCheckScheduled = false;
+    private final AtomicLong numLockFailureRetries = new AtomicLong(0);
+    private final AtomicLong numAppendSuccesses = new AtomicLong(0);
     private final LinkedList<FlushPoint> flushPointQueue = new LinkedList<>();
     private final HashMap<Long, DataFuture> dataFutures;
+    private final int maxApplyBatchSize;
+    private final long applyBatchLingerTime;
+    private final ArrayList<PendingTransaction> pendingTransactions = new ArrayList<>();
+    private final int maxParallelApply;
+    private final Executor applyExecutor;
+    // Transactions applied in parallel and not covered by the client high-water mark yet, in the order of transaction ids
+    private final ArrayDeque<ParallelTransaction> parallelTransactions = new ArrayDeque<>();
+    private final ArrayList<ParallelTransaction> runningTransactions = new ArrayList<>();
+    private boolean parallelApplyFailed = false;
+    // Set when transactions are discarded after an application failure. The feed must restart from the client high-water mark.
+    private final AtomicBoolean remountRequired = new AtomicBoolean(false);
+    private final TransactionDataCache transactionDataCache;
+    private final HashMap<ReqId, byte[]> appendedData = new HashMap<>();
 
     private final AtomicInteger seqNumGenerator = new AtomicInteger(0);
 
@@ -67,11 +109,13 @@ public class Partition {
     private final AtomicReference<CompletableFuture<Long>> highWaterMarkRef = new AtomicReference<>();
 
     private Meter lockFailureMeter;
+    private Meter lockFailureRetryMeter;
     private Meter transactionMonitorTimeoutMeter;
     private Meter sendThroughputMeter;
     private Meter receivedThroughputMeter;
     private Timer onCompletionLatencyTimer;
     private Timer onApplicationLatencyTimer;
+    private Histogram applyBatchSizeHistogram;
 
     /**
      * Class Constructor.
@@ -82,6 +126,32 @@ public class Partition {
      * @param clientConnectionType the type of client connection i.e. rpc or stream.
      */
     public Partition(int partitionId, int clientId, int maxConcurrentTransactions, String clientConnectionType) {
+        this(partitionId, clientId, maxConcurrentTransactions, ApplyPolicy.SEQUENTIAL, null, null, null, clientConnectionType);
+    }
+
+    /**
+     * Class Constructor.
+     *
+     * @param partitionId the partition id.
+     * @param clientId the client id.
+     * @param maxConcurrentTransactions the maximum concurrent transactions that can be submitted to this partition.
+     * @param applyPolicy the {@link ApplyPolicy} of applying committed transactions.
+     * @param applyExecutor the {@link Executor} to apply transactions in parallel, used only if enabled by {@code applyPolicy}.
+     * @param transactionDataCache the {@link TransactionDataCache} shared by partitions, or {@code null} to disable caching.
+     * @param scheduler the {@link ScheduledExecutorService} to recheck transactions waiting after lock failures,
+     *                  or {@code null} to recheck them only when the partition makes progress.
+     * @param clientConnectionType the type of client connection i.e. rpc or stream.
+     */
+    public Partition(
+        int partitionId,
+        int clientId,
+        int maxConcurrentTransactions,
+        ApplyPolicy applyPolicy,
+        Executor applyExecutor,
+        TransactionDataCache transactionDataCache,
+        ScheduledExecutorService scheduler,
+        String clientConnectionType
+    ) {
         this.partitionId = partitionId;
         this.clientId = clientId;
         this.generation = -1;
@@ -90,6 +160,12 @@ public class Partition {
         this.networkClient = null;
         this.clientHighWaterMark = new AtomicLong(-1);
         this.dataFutures = new HashMap<>();
+        this.maxApplyBatchSize = applyPolicy.maxBatchSize;
+        this.applyBatchLingerTime = applyPolicy.batchLingerTime;
+        this.maxParallelApply = applyPolicy.maxParallelism;
+        this.applyExecutor = applyPolicy.isParallelEnabled() ? applyExecutor : null;
+        this.transactionDataCache = transactionDataCache;
+        this.scheduler = scheduler;
         this.metricGroup = String.format("%s-%s.partition-%d", MetricGroup.WALTZ_CLIENT_METRIC_GROUP,
             clientConnectionType, partitionId);
         registerMetrics();
@@ -105,6 +181,7 @@ public class Partition {
             this.mounted = false;
             this.clientHighWaterMarkAhead = false;
             this.transactionMonitor.close();
+            completeMountFutures(new ClientClosedException());
 
             synchronized (dataFutures) {
                 if (!dataFutures.isEmpty()) {
@@ -175,6 +252,24 @@ public class Partition {
         synchronized (lock) {
             if (transactionMonitor.isStopped()) {
                 state = PartitionState.INACTIVE;
+                completeMountFutures(new PartitionInactiveException(partitionId));
+            }
+        }
+
+        synchronized (transactionApplicationLock) {
+            if (state != PartitionState.ACTIVE) {
+                // The client high-water mark is reset on activation. Pending transactions are no longer valid.
+                discardPendingTransactions();
+
+                // Wait for transactions being applied in parallel
+                while (!runningTransactions.isEmpty()) {
+                    try {
+                        transactionApplicationLock.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.interrupted();
+                    }
+                }
+                discardParallelTransactions();
             }
         }
     }
@@ -222,6 +317,7 @@ public class Partition {
             if (this.networkClient == networkClient) {
                 logger.info("partition mounted: {}", this);
                 this.mounted = true;
+                completeMountFutures(null);
                 lock.notifyAll();
             }
         }
@@ -255,6 +351,7 @@ public class Partition {
         synchronized (lock) {
             logger.error(String.format("Mounting for partition %d failed, client's high watermark is ahead of server", partitionId));
             this.clientHighWaterMarkAhead = true;
+            completeMountFutures(new IllegalStateException(String.format("client is ahead of store for partition: %d", partitionId)));
             lock.notifyAll();
         }
     }
@@ -286,6 +383,48 @@ public class Partition {
         }
     }
 
+    /**
+     * Returns a future which completes when this partition is mounted. This method does not block.
+     * The future completes exceptionally with {@link PartitionInactiveException} if this partition is not active,
+     * with {@link ClientClosedException} if this partition is closed, or with {@link IllegalStateException}
+     * if client's high watermark is ahead of server's high watermark.
+     *
+     * @return a {@link CompletableFuture} which completes when this partition is mounted.
+     */
+    public CompletableFuture<Void> whenMounted() {
+        if (mounted) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        synchronized (lock) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            if (state == PartitionState.CLOSED) {
+                future.completeExceptionally(new ClientClosedException());
+            } else if (mounted) {
+                future.complete(null);
+            } else if (transactionMonitor.isStopped()) {
+                future.completeExceptionally(new PartitionInactiveException(partitionId));
+            } else if (clientHighWaterMarkAhead) {
+                future.completeExceptionally(new IllegalStateException(String.format("client is ahead of store for partition: %d", partitionId)));
+            } else {
+                mountFutures.add(future);
+            }
+            return future;
+        }
+    }
+
+    private void completeMountFutures(Throwable exception) {
+        // Called while holding the lock
+        for (CompletableFuture<Void> future : mountFutures) {
+            if (exception == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(exception);
+            }
+        }
+        mountFutures.clear();
+    }
+
     /**
      * Request id for the next request to be sent to the corresponding partition on a Waltz server.
      *
@@ -305,17 +444,7 @@ public class Partition {
     }
 
     private void processAuxilliaryQueues() {
-        synchronized (lockFailureQueue) {
-            LockFailure lockFailure;
-            while ((lockFailure = lockFailureQueue.peek()) != null) {
-                if (lockFailure.transactionId <= clientHighWaterMark.get()) {
-                    lockFailureQueue.poll();
-                    transactionMonitor.abort(lockFailure.reqId);
-                } else {
-                    break;
-                }
-            }
-        }
+        processLockFailureQueue();
 
         synchronized (flushPointQueue) {
             FlushPoint fp = flushPointQueue.peek();
@@ -328,28 +457,193 @@ public class Partition {
         }
     }
 
+    private void processLockFailureQueue() {
+        synchronized (lockFailureQueue) {
+            releaseLockFailureWaiters();
+
+            // Recheck the waiters in case no retry is sent for the released ones
+            if (!lockFailureWaiters.isEmpty() && scheduler != null && !lockFailureCheckScheduled) {
+                try {
+                    scheduler.schedule(() -> {
+                        synchronized (lockFailureQueue) {
+                            lockFailureCheckScheduled = false;
+                        }
+                        processLockFailureQueue();
+                    }, LOCK_FAILURE_RETRY_WINDOW, TimeUnit.MILLISECONDS);
+                    lockFailureCheckScheduled = true;
+
+                } catch (RejectedExecutionException ex) {
+                    // The client is closing
+                }
+            }
+        }
+    }
+
+    private void releaseLockFailureWaiters() {
+        long highWaterMark = clientHighWaterMark.get();
+        long now = System.currentTimeMillis();
+
+        // A failed transaction is retried only after the transaction it conflicted with is applied
+        LockFailure lockFailure;
+        while ((lockFailure = lockFailureQueue.peek()) != null && lockFailure.transactionId <= highWaterMark) {
+            lockFailureQueue.poll();
+
+            int[] lockHashes = pendingLockHashes.get(lockFailure.reqId);
+            if (lockHashes != null) {
+                LockFailureWaiter waiter = new LockFailureWaiter(lockFailure, lockHashes);
+                for (int lockHash : lockHashes) {
+                    lockFailureWaiters.computeIfAbsent(lockHash, h -> new ArrayDeque<>()).add(waiter);
+                }
+            } else {
+                transactionMonitor.abort(lockFailure.reqId);
+            }
+        }
+
+        // A waiter is released when it is at the head of the queues of all its locks, and each of the locks is free.
+        // A lock is held after a release until the high-water mark advances, or the retry fails, or no retry is sent
+        // within the retry window. Releasing all of them at once would make them conflict with each other again.
+        // All waiters are released when the partition is deactivated.
+        boolean releaseAll = transactionMonitor.isStopped();
+        boolean released;
+        do {
+            released = false;
+            for (ArrayDeque<LockFailureWaiter> waiters : lockFailureWaiters.values()) {
+                LockFailureWaiter waiter = waiters.peek();
+                if (waiter == null) {
+                    continue;
+                }
+
+                // Skip transactions already completed by a flush
+                if (transactionMonitor.getTransactionContext(waiter.lockFailure.reqId) == null) {
+                    removeLockFailureWaiter(waiter);
+                    released = true;
+
+                } else if (releaseAll || isReleasable(waiter, highWaterMark, now)) {
+                    removeLockFailureWaiter(waiter);
+                    if (!releaseAll) {
+                        for (int lockHash : waiter.lockHashes) {
+                            lockReleases.put(lockHash, new LockRelease(highWaterMark, now));
+                        }
+                    }
+                    transactionMonitor.abort(waiter.lockFailure.reqId);
+                    lockFailureRetryMeter.mark();
+                    numLockFailureRetries.incrementAndGet();
+                    released = true;
+                }
+            }
+        } while (released);
+
+        lockFailureWaiters.values().removeIf(ArrayDeque::isEmpty);
+        lockReleases.entrySet().removeIf(
+            entry -> !lockFailureWaiters.containsKey(entry.getKey()) && entry.getValue().isFree(highWaterMark, now)
+        );
+    }
+
+    private boolean isReleasable(LockFailureWaiter waiter, long highWaterMark, long now) {
+        for (int lockHash : waiter.lockHashes) {
+            if (lockFailureWaiters.get(lockHash).peek() != waiter) {
+                return false;
+            }
+            LockRelease release = lockReleases.get(lockHash);
+            if (release != null && !release.isFree(highWaterMark, now)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void removeLockFailureWaiter(LockFailureWaiter waiter) {
+        for (int lockHash : waiter.lockHashes) {
+            lockFailureWaiters.get(lockHash).remove(waiter);
+        }
+    }
+
+    private void lockRequestSent(int[] lockHashes) {
+        for (int lockHash : lockHashes) {
+            LockRelease release = lockReleases.get(lockHash);
+            if (release != null) {
+                release.retrySent = true;
+            }
+        }
+    }
+
+    private void lockRequestFailed(int[] lockHashes) {
+        boolean expired = false;
+        for (int lockHash : lockHashes) {
+            LockRelease release = lockReleases.get(lockHash);
+            if (release != null && release.retrySent) {
+                release.expired = true;
+                expired = true;
+            }
+        }
+
+        // This is called while the transaction monitor is locked. Release the next waiters on the scheduler.
+        if (expired && scheduler != null) {
+            try {
+                scheduler.execute(this::processLockFailureQueue);
+            } catch (RejectedExecutionException ex) {
+                // The client is closing
+            }
+        }
+    }
+
+    private static int[] lockHashes(AppendRequest request) {
+        return IntStream.concat(Arrays.stream(request.writeLockRequest), Arrays.stream(request.readLockRequest))
+            .distinct()
+            .toArray();
+    }
+
     /**
      * Invoked after a transaction is committed to the corresponding partition on a Waltz server.
      * In turn invokes {@link WaltzNetworkClientCallbacks#onTransactionReceived(long, int, ReqId)} on {@code networkClientCallbacks}.
+     * If batching is enabled, the transaction is added to the pending batch, and the batch is passed to
+     * {@link WaltzNetworkClientCallbacks#onTransactionsReceived(long, int[], ReqId[])} when it is full or
+     * has been lingering longer than the linger time.
+     * If parallel application is enabled, the transaction is applied by the apply executor as soon as it does not
+     * conflict with transactions being applied, and the client high-water mark advances over the contiguous range
+     * of applied transactions.
      *
      * @param transactionId the id of the transaction.
      * @param header the header data of the transaction.
      * @param reqId the req id of corresponding append request of the transaction.
+     * @param lockHashes the hashes of the write locks of the transaction, or {@code null} if not available.
      * @param networkClientCallbacks the {@code WaltzNetworkClientCallbacks} instance to invoke callbacks on.
      */
-    public void applyTransaction(long transactionId, int header, ReqId reqId, WaltzNetworkClientCallbacks networkClientCallbacks) {
+    public void applyTransaction(long transactionId, int header, ReqId reqId, int[] lockHashes, WaltzNetworkClientCallbacks networkClientCallbacks) {
+        Object event = JfrSupport.isEnabled() ? ApplyTransactionEvents.begin() : null;
+        boolean applied = false;
         try {
             if (state != PartitionState.ACTIVE) {
                 return;
             }
 
             synchronized (transactionApplicationLock) {
-                long expectedTransactionId = clientHighWaterMark() + 1;
+                // After a failure, wait until all transactions after the client high-water mark are discarded
+                while (parallelApplyFailed) {
+                    try {
+                        transactionApplicationLock.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.interrupted();
+                    }
+                }
+
+                long expectedTransactionId = clientHighWaterMark() + pendingTransactions.size() + parallelTransactions.size() + 1;
 
                 // Process the transaction only when it has the expected transaction id
                 if (expectedTransactionId == transactionId) {
+                    if (maxApplyBatchSize > 1) {
+                        addPendingTransaction(transactionId, header, reqId, networkClientCallbacks);
+                        return;
+                    }
+
+                    if (applyExecutor != null) {
+                        scheduleTransaction(new ParallelTransaction(transactionId, header, reqId, lockHashes), networkClientCallbacks);
+                        return;
+                    }
+
                     TransactionContext context = transactionMonitor.committed(reqId);
                     Timer.Context onApplicationLatencyTimerContext = null;
+                    cacheAppendedData(transactionId, reqId);
 
                     if (context != null) {
                         // Notify the context that the transction was persisted successfully.
@@ -385,6 +679,7 @@ public class Partition {
                     // The transaction is successfully applied to the application state
                     // Increment the client high-water mark
                     clientHighWaterMark.incrementAndGet();
+                    applied = true;
 
                     if (context != null) {
                         context.onApplication();
@@ -401,10 +696,281 @@ public class Partition {
                 }
             }
         } finally {
+            if (event != null) {
+                ApplyTransactionEvents.complete(event, partitionId, transactionId, applied);
+            }
+            remountIfRequired();
             processAuxilliaryQueues();
         }
     }
 
+    /**
+     * Applies the pending batch of transactions if it has been lingering longer than the linger time.
+     *
+     * @param networkClientCallbacks the {@code WaltzNetworkClientCallbacks} instance to invoke callbacks on.
+     */
+    public void applyPendingTransactions(WaltzNetworkClientCallbacks networkClientCallbacks) {
+        try {
+            if (state != PartitionState.ACTIVE) {
+                return;
+            }
+
+            synchronized (transactionApplicationLock) {
+                if (!pendingTransactions.isEmpty()
+                    && System.currentTimeMillis() - pendingTransactions.get(0).receivedTime >= applyBatchLingerTime) {
+                    applyPendingTransactionsInternal(networkClientCallbacks);
+                }
+            }
+        } finally {
+            remountIfRequired();
+            processAuxilliaryQueues();
+        }
+    }
+
+    /**
+     * Invoked when a committed transaction is received from the feed, before it is queued to be applied.
+     * In turn invokes {@link WaltzNetworkClientCallbacks#onTransactionPending(long, ReqId)} on {@code networkClientCallbacks}
+     * unless the transaction is already applied.
+     *
+     * @param transactionId the id of the transaction.
+     * @param reqId the reqId of the transaction.
+     * @param networkClientCallbacks the {@code WaltzNetworkClientCallbacks} instance to invoke callbacks on.
+     */
+    public void transactionQueued(long transactionId, ReqId reqId, WaltzNetworkClientCallbacks networkClientCallbacks) {
+        if (state == PartitionState.ACTIVE && transactionId > clientHighWaterMark.get()) {
+            networkClientCallbacks.onTransactionPending(transactionId, reqId);
+        }
+    }
+
+    private void addPendingTransaction(long transactionId, int header, ReqId reqId, WaltzNetworkClientCallbacks networkClientCallbacks) {
+        TransactionContext context = transactionMonitor.committed(reqId);
+        Timer.Context onApplicationLatencyTimerContext = null;
+        cacheAppendedData(transactionId, reqId);
+
+        if (context != null) {
+            // Notify the context that the transction was persisted successfully.
+            context.onCompletion(true);
+
+            onApplicationLatencyTimerContext = onApplicationLatencyTimer.time();
+        } else {
+            // Recover the context in case that the transaction application previously failed
+            context = transactionApplicationFailed.remove(reqId);
+        }
+
+        long now = System.currentTimeMillis();
+        pendingTransactions.add(new PendingTransaction(transactionId, header, reqId, context, onApplicationLatencyTimerContext, now));
+
+        if (pendingTransactions.size() >= maxApplyBatchSize || now - pendingTransactions.get(0).receivedTime >= applyBatchLingerTime) {
+            applyPendingTransactionsInternal(networkClientCallbacks);
+        }
+    }
+
+    private void applyPendingTransactionsInternal(WaltzNetworkClientCallbacks networkClientCallbacks) {
+        int numTransactions = pendingTransactions.size();
+        int[] headers = new int[numTransactions];
+        ReqId[] reqIds = new ReqId[numTransactions];
+
+        for (int i = 0; i < numTransactions; i++) {
+            PendingTransaction pending = pendingTransactions.get(i);
+            headers[i] = pending.header;
+            reqIds[i] = pending.reqId;
+        }
+
+        try {
+            receivedThroughputMeter.mark(numTransactions);
+            networkClientCallbacks.onTransactionsReceived(pendingTransactions.get(0).transactionId, headers, reqIds);
+
+        } catch (Throwable ex) {
+            // Batch application failed. Save the contexts for retry.
+            discardPendingTransactions();
+            remountRequired.set(true);
+            throw ex;
+        }
+
+        // The transactions are successfully applied to the application state
+        // Advance the client high-water mark
+        clientHighWaterMark.addAndGet(numTransactions);
+        applyBatchSizeHistogram.update(numTransactions);
+
+        for (PendingTransaction pending : pendingTransactions) {
+            if (pending.context != null) {
+                pending.context.onApplication();
+                if (pending.onApplicationLatencyTimerContext != null) {
+                    pending.onApplicationLatencyTimerContext.stop();
+                }
+            }
+        }
+        pendingTransactions.clear();
+    }
+
+    private void remountIfRequired() {
+        // The feed has already moved past the discarded transactions, and transactions after them are ignored.
+        // Re-mount the partition to restart the feed from the client high-water mark. This must be done without
+        // holding transactionApplicationLock.
+        if (remountRequired.getAndSet(false)) {
+            WaltzNetworkClient networkClient = this.networkClient; // for safety
+            if (networkClient != null && state == PartitionState.ACTIVE) {
+                logger.info("re-mounting partition after application failure: {} clientHighWaterMark={}", this, clientHighWaterMark());
+                networkClient.remountPartition(this);
+            }
+        }
+    }
+
+    private void discardPendingTransactions() {
+        // The discarded transactions are fed again when the feed restarts from the client high-water mark.
+        for (PendingTransaction pending : pendingTransactions) {
+            if (pending.context != null) {
+                transactionApplicationFailed.put(pending.reqId, pending.context);
+            }
+        }
+        pendingTransactions.clear();
+    }
+
+    private void scheduleTransaction(ParallelTransaction transaction, WaltzNetworkClientCallbacks networkClientCallbacks) {
+        // Wait until the transaction can be applied together with the running transactions
+        while (!canStart(transaction)) {
+            try {
+                transactionApplicationLock.wait();
+            } catch (InterruptedException ex) {
+                Thread.interrupted();
+            }
+
+            if (parallelApplyFailed || state != PartitionState.ACTIVE
+                || transaction.transactionId != clientHighWaterMark() + parallelTransactions.size() + 1) {
+                // Preceding transactions were discarded while waiting. The transaction will be fed again.
+                return;
+            }
+        }
+
+        TransactionContext context = transactionMonitor.committed(transaction.reqId);
+        cacheAppendedData(transaction.transactionId, transaction.reqId);
+
+        if (context != null) {
+            // Notify the context that the transction was persisted successfully.
+            context.onCompletion(true);
+
+            transaction.onApplicationLatencyTimerContext = onApplicationLatencyTimer.time();
+        } else {
+            // Recover the context in case that the transaction application previously failed
+            context = transactionApplicationFailed.remove(transaction.reqId);
+        }
+        transaction.context = context;
+
+        parallelTransactions.add(transaction);
+        runningTransactions.add(transaction);
+        receivedThroughputMeter.mark();
+
+        try {
+            applyExecutor.execute(() -> applyParallelTransaction(transaction, networkClientCallbacks));
+
+        } catch (RejectedExecutionException ex) {
+            // The client is closing
+            parallelTransactions.removeLast();
+            runningTransactions.remove(transaction);
+            if (context != null) {
+                transactionApplicationFailed.put(transaction.reqId, context);
+            }
+        }
+    }
+
+    private boolean canStart(ParallelTransaction transaction) {
+        if (runningTransactions.size() >= maxParallelApply) {
+            return false;
+        }
+
+        if (transaction.isBarrier()) {
+            // All preceding transactions must be applied
+            return runningTransactions.isEmpty();
+        }
+
+        for (ParallelTransaction running : runningTransactions) {
+            if (running.isBarrier() || running.conflictsWith(transaction)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void applyParallelTransaction(ParallelTransaction transaction, WaltzNetworkClientCallbacks networkClientCallbacks) {
+        boolean applied = false;
+        try {
+            networkClientCallbacks.onTransactionReceived(transaction.transactionId, transaction.header, transaction.reqId);
+            applied = true;
+
+        } catch (Throwable ex) {
+            // The failure is already reported by the callbacks. The transaction will be fed again.
+            if (logger.isDebugEnabled()) {
+                logger.debug("parallel application failed: partitionId=" + partitionId + " transactionId=" + transaction.transactionId);
+            }
+
+        } finally {
+            synchronized (transactionApplicationLock) {
+                runningTransactions.remove(transaction);
+
+                if (applied) {
+                    transaction.applied = true;
+                } else {
+                    parallelApplyFailed = true;
+                }
+
+                // Advance the client high-water mark over the contiguous range of applied transactions
+                boolean advanced = false;
+                while (!parallelTransactions.isEmpty() && parallelTransactions.peek().applied) {
+                    ParallelTransaction done = parallelTransactions.poll();
+                    clientHighWaterMark.incrementAndGet();
+                    advanced = true;
+
+                    if (done.context != null) {
+                        done.context.onApplication();
+                        if (done.onApplicationLatencyTimerContext != null) {
+                            done.onApplicationLatencyTimerContext.stop();
+                        }
+                    }
+                }
+
+                if (advanced) {
+                    networkClientCallbacks.onClientHighWaterMarkAdvanced(partitionId, clientHighWaterMark.get());
+                }
+
+                if (parallelApplyFailed && runningTransactions.isEmpty()) {
+                    discardParallelTransactions();
+                    remountRequired.set(true);
+                }
+
+                transactionApplicationLock.notifyAll();
+            }
+
+            remountIfRequired();
+            processAuxilliaryQueues();
+        }
+    }
+
+    private void discardParallelTransactions() {
+        // The discarded transactions are fed again when the feed restarts from the client high-water mark.
+        // Transactions already applied after a failed one are applied again.
+        for (ParallelTransaction transaction : parallelTransactions) {
+            if (transaction.context != null) {
+                transactionApplicationFailed.put(transaction.reqId, transaction.context);
+            }
+        }
+        parallelTransactions.clear();
+        parallelApplyFailed = false;
+    }
+
+    private void cacheAppendedData(long transactionId, ReqId reqId) {
+        if (transactionDataCache != null) {
+            byte[] data;
+            synchronized (appendedData) {
+                data = appendedData.remove(reqId);
+            }
+
+            if (data != null) {
+                // The transaction was appended by this client. We already have the data.
+                transactionDataCache.put(partitionId, transactionId, data);
+            }
+        }
+    }
+
     /**
      * Sends an append request to the corresponding partition on a Waltz server.
      *
@@ -415,18 +981,45 @@ public class Partition {
     public TransactionFuture append(AppendRequest request, TransactionContext context) {
         ensureMounted();
 
-        TransactionFuture future;
+        // Wait for a credit without blocking other submitting threads
+        Boolean reserved = transactionMonitor.awaitReservation(transactionMonitor.reserve(), partitionId, REGISTRATION_TIMEOUT);
+        if (reserved == null) {
+            // Transaction registration timed out
+            transactionMonitorTimeoutMeter.mark();
+            return null;
+        }
 
-        // Serialize transaction requests
-        synchronized (transactionMonitor) {
-            ReqId reqId = request.reqId;
-            future = transactionMonitor.register(reqId, context, 10000);
+        return send(request, context, reserved);
+    }
 
-            if (future == null) {
-                // Transaction registration timed out
-                transactionMonitorTimeoutMeter.mark();
-                return null;
+    /**
+     * Sends an append request to the corresponding partition on a Waltz server without blocking the caller.
+     * The request is sent by {@code executor} after the partition is mounted and a credit is reserved.
+     *
+     * @param request the AppendRequest representing payload.
+     * @param context the transaciton context
+     * @param executor the {@link Executor} to send the request when it cannot be sent immediately.
+     * @return a {@link CompletableFuture} which completes with a {@link TransactionFuture} when the request is sent.
+     */
+    public CompletableFuture<TransactionFuture> appendAsync(AppendRequest request, TransactionContext context, Executor executor) {
+        return whenMounted().thenComposeAsync(v -> {
+            CompletableFuture<Boolean> reservation = transactionMonitor.reserve();
+            if (reservation.isDone()) {
+                return CompletableFuture.completedFuture(send(request, context, reservation.join()));
+            } else {
+                // Credits are granted while the transaction monitor is locked. Send the request on the executor.
+                return reservation.thenApplyAsync(reserved -> send(request, context, reserved), executor);
             }
+        }, executor);
+    }
+
+    private TransactionFuture send(AppendRequest request, TransactionContext context, boolean reserved) {
+        ReqId reqId = request.reqId;
+        TransactionFuture future;
+
+        // Serialize transaction requests. Requests must be sent in the order of registration.
+        synchronized (appendLock) {
+            future = transactionMonitor.register(reqId, context, reserved);
 
             // If the future is completed before sending the request, don't send the request. It means a reqId collision.
             if (!future.isDone()) {
@@ -438,6 +1031,36 @@ public class Partition {
                     future.whenComplete((success, ex) -> {
                         onCompletionLatencyTimerContext.stop();
                     });
+
+                    if (transactionDataCache != null) {
+                        // Keep the data until the transaction id is known. Failed transactions are dropped.
+                        synchronized (appendedData) {
+                            appendedData.put(reqId, request.data);
+                        }
+                        future.whenComplete((success, ex) -> {
+                            if (success == null || !success) {
+                                synchronized (appendedData) {
+                                    appendedData.remove(reqId);
+                                }
+                            }
+                        });
+                    }
+
+                    // Remember the locks of the transaction to coalesce retries after lock failures
+                    int[] lockHashes = lockHashes(request);
+                    if (lockHashes.length > 0) {
+                        pendingLockHashes.put(reqId, lockHashes);
+                        lockRequestSent(lockHashes);
+                    }
+                    future.whenComplete((success, ex) -> {
+                        pendingLockHashes.remove(reqId);
+                        if (success != null && success) {
+                            numAppendSuccesses.incrementAndGet();
+                        } else if (lockHashes.length > 0) {
+                            lockRequestFailed(lockHashes);
+                        }
+                    });
+
                     networkClient.sendMessage(request);
                     sendThroughputMeter.mark();
 
@@ -504,6 +1127,13 @@ public class Partition {
      * @return a {@link Future} which completes with serialized transaction data received from a Waltz server.
      */
     public Future<byte[]> getTransactionData(long transactionId) {
+        if (transactionDataCache != null) {
+            byte[] data = transactionDataCache.get(partitionId, transactionId);
+            if (data != null) {
+                return CompletableFuture.completedFuture(data);
+            }
+        }
+
         return getTransactionData(transactionId, 1);
     }
 
@@ -531,6 +1161,58 @@ public class Partition {
         return future;
     }
 
+    /**
+     * Gets transaction data for consecutive transactions. Transactions whose data is not requested yet
+     * are requested with a single {@link TransactionDataListRequest}.
+     *
+     * @param transactionId the id of the first transaction.
+     * @param numTransactions the number of transactions.
+     * @return a list of {@link Future}s which complete with serialized transaction data received from a Waltz server.
+     */
+    public List<Future<byte[]>> getTransactionDataList(long transactionId, int numTransactions) {
+        if (numTransactions < 0 || numTransactions > TransactionDataListRequest.MAX_NUM_TRANSACTIONS) {
+            throw new IllegalArgumentException("invalid number of transactions: " + numTransactions);
+        }
+
+        List<Future<byte[]>> futures = new ArrayList<>(numTransactions);
+        long firstNew = -1L;
+        long lastNew = -1L;
+
+        synchronized (dataFutures) {
+            for (int i = 0; i < numTransactions; i++) {
+                byte[] data = transactionDataCache != null ? transactionDataCache.get(partitionId, transactionId + i) : null;
+                if (data != null) {
+                    futures.add(CompletableFuture.completedFuture(data));
+                    continue;
+                }
+
+                DataFuture future = dataFutures.get(transactionId + i);
+
+                if (future == null) {
+                    future = new DataFuture(1);
+
+                    if (state == PartitionState.CLOSED) {
+                        future.completeExceptionally(new ClientClosedException());
+                    } else {
+                        dataFutures.put(transactionId + i, future);
+
+                        if (firstNew < 0) {
+                            firstNew = transactionId + i;
+                        }
+                        lastNew = transactionId + i;
+                    }
+                }
+                futures.add(future);
+            }
+        }
+
+        if (firstNew >= 0) {
+            sendTransactionDataListRequest(firstNew, (int) (lastNew - firstNew + 1));
+        }
+
+        return futures;
+    }
+
     /**
      * Resubmits pending TransactionData requests.
      */
@@ -564,6 +1246,9 @@ public class Partition {
         if (future != null) {
             if (data != null) {
                 if (checksum == Utils.checksum(data)) {
+                    if (transactionDataCache != null) {
+                        transactionDataCache.put(partitionId, transactionId, data);
+                    }
                     future.complete(data);
                 } else {
                     if (future.attempts < MAX_DATA_ATTEMPTS) {
@@ -617,13 +1302,10 @@ public class Partition {
             context.onLockFailure();
         }
 
-        if (clientHighWaterMark.get() >= lockFailure.transactionId) {
-            transactionMonitor.abort(lockFailure.reqId);
-        } else {
-            synchronized (lockFailureQueue) {
-                lockFailureQueue.offer(lockFailure);
-            }
+        synchronized (lockFailureQueue) {
+            lockFailureQueue.offer(lockFailure);
         }
+        processLockFailureQueue();
     }
 
     /**
@@ -648,6 +1330,20 @@ public class Partition {
         }
     }
 
+    private void sendTransactionDataListRequest(long transactionId, int numTransactions) {
+        // TransactionDataListRequest is a RPC request. The partition doesn't need to be mounted.
+        if (state != PartitionState.CLOSED) {
+            // Cache the network client in the local variable for safety
+            WaltzNetworkClient networkClient = this.networkClient;
+
+            if (networkClient != null) {
+                networkClient.requestTransactionDataList(nextReqId(), transactionId, numTransactions);
+            } else {
+                logger.debug("failed to send data list request: {}", this);
+            }
+        }
+    }
+
     /**
      * Resubmits pending HighWaterMark requests.
      */
@@ -723,6 +1419,107 @@ public class Partition {
         return "partitionId=" + partitionId + " clientId=" + clientId;
     }
 
+    private static class PendingTransaction {
+        final long transactionId;
+        final int header;
+        final ReqId reqId;
+        final TransactionContext context;
+        final Timer.Context onApplicationLatencyTimerContext;
+        final long receivedTime;
+
+        PendingTransaction(
+            long transactionId,
+            int header,
+            ReqId reqId,
+            TransactionContext context,
+            Timer.Context onApplicationLatencyTimerContext,
+            long receivedTime
+        ) {
+            this.transactionId = transactionId;
+            this.header = header;
+            this.reqId = reqId;
+            this.context = context;
+            this.onApplicationLatencyTimerContext = onApplicationLatencyTimerContext;
+            this.receivedTime = receivedTime;
+        }
+    }
+
+    /**
+     * Refers to {@link ApplyTransactionEvent}, which requires JFR. This class is loaded only when
+     * {@link JfrSupport#isEnabled()} is {@code true}, so that the client runs on JDKs without JFR.
+     */
+    private static final class ApplyTransactionEvents {
+        static Object begin() {
+            return new ApplyTransactionEvent();
+        }
+
+        static void complete(Object event, int partitionId, long transactionId, boolean applied) {
+            ((ApplyTransactionEvent) event).complete(partitionId, transactionId, applied);
+        }
+    }
+
+    private static class ParallelTransaction {
+        final long transactionId;
+        final int header;
+        final ReqId reqId;
+        final int[] lockHashes;
+        TransactionContext context;
+        Timer.Context onApplicationLatencyTimerContext;
+        boolean applied = false;
+
+        ParallelTransaction(long transactionId, int header, ReqId reqId, int[] lockHashes) {
+            this.transactionId = transactionId;
+            this.header = header;
+            this.reqId = reqId;
+            this.lockHashes = lockHashes;
+        }
+
+        boolean isBarrier() {
+            // Transactions without write locks are not known to be independent of others
+            return lockHashes == null || lockHashes.length == 0;
+        }
+
+        boolean conflictsWith(ParallelTransaction other) {
+            for (int hash : lockHashes) {
+                for (int otherHash : other.lockHashes) {
+                    if (hash == otherHash) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class LockFailureWaiter {
+        final LockFailure lockFailure;
+        final int[] lockHashes;
+
+        LockFailureWaiter(LockFailure lockFailure, int[] lockHashes) {
+            this.lockFailure = lockFailure;
+            this.lockHashes = lockHashes;
+        }
+    }
+
+    private static final class LockRelease {
+        final long highWaterMark;
+        final long releaseTime;
+        // Set when a request with the lock is sent after the release
+        volatile boolean retrySent = false;
+        // Set when the request sent after the release fails
+        volatile boolean expired = false;
+
+        LockRelease(long highWaterMark, long releaseTime) {
+            this.highWaterMark = highWaterMark;
+            this.releaseTime = releaseTime;
+        }
+
+        boolean isFree(long currentHighWaterMark, long now) {
+            return highWaterMark < currentHighWaterMark || expired
+                || (!retrySent && now - releaseTime >= LOCK_FAILURE_RETRY_WINDOW);
+        }
+    }
+
     private static class DataFuture extends CompletableFuture<byte[]> {
         final int attempts;
 
@@ -743,13 +1540,24 @@ public class Partition {
         REGISTRY.gauge(metricGroup, "high-water-mark", (Gauge<Long>) () -> clientHighWaterMark());
         REGISTRY.gauge(metricGroup, "num-registered-transactions",
             (Gauge<Integer>) transactionMonitor::registeredCount);
+        REGISTRY.gauge(metricGroup, "num-waiting-transactions",
+            (Gauge<Integer>) transactionMonitor::waitingCount);
 
         lockFailureMeter = REGISTRY.meter(metricGroup, "lock-failure");
+        lockFailureRetryMeter = REGISTRY.meter(metricGroup, "lock-failure-retry");
+        REGISTRY.gauge(metricGroup, "num-lock-failure-waiters", (Gauge<Integer>) () -> {
+            synchronized (lockFailureQueue) {
+                return (int) lockFailureWaiters.values().stream().flatMap(Collection::stream).distinct().count();
+            }
+        });
+        REGISTRY.gauge(metricGroup, "lock-failure-retries-per-success",
+            (Gauge<Double>) () -> (double) numLockFailureRetries.get() / Math.max(1L, numAppendSuccesses.get()));
         transactionMonitorTimeoutMeter = REGISTRY.meter(metricGroup, "transaction-monitor-timeout");
         sendThroughputMeter = REGISTRY.meter(metricGroup, "send-throughput");
         receivedThroughputMeter = REGISTRY.meter(metricGroup, "received-throughput");
         onCompletionLatencyTimer = REGISTRY.timer(metricGroup, "on-completion-latency");
         onApplicationLatencyTimer = REGISTRY.timer(metricGroup, "on-application-latency");
+        applyBatchSizeHistogram = REGISTRY.histogram(metricGroup, "apply-batch-size");
     }
 
     private void unregisterMetrics() {
@@ -757,11 +1565,16 @@ public class Partition {
         REGISTRY.remove(metricGroup, "is-partition-active");
         REGISTRY.remove(metricGroup, "high-water-mark");
         REGISTRY.remove(metricGroup, "num-registered-transactions");
+        REGISTRY.remove(metricGroup, "num-waiting-transactions");
         REGISTRY.remove(metricGroup, "lock-failure");
+        REGISTRY.remove(metricGroup, "lock-failure-retry");
+        REGISTRY.remove(metricGroup, "num-lock-failure-waiters");
+        REGISTRY.remove(metricGroup, "lock-failure-retries-per-success");
         REGISTRY.remove(metricGroup, "transaction-monitor-timeout");
         REGISTRY.remove(metricGroup, "send-throughput");
         REGISTRY.remove(metricGroup, "received-throughput");
         REGISTRY.remove(metricGroup, "on-completion-latency");
         REGISTRY.remove(metricGroup, "on-application-latency");
+        REGISTRY.remove(metricGroup, "apply-batch-size");
     }
 }
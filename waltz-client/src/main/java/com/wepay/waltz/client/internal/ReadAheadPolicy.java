@@ -0,0 +1,52 @@
+package com.wepay.waltz.client.internal;
+
+import com.wepay.waltz.common.message.TransactionDataListRequest;
+
+/**
+ * Implements the policy of fetching transaction data ahead of the application (see {@link ReadAheadWindow}).
+ * The window of a partition is bounded both by the number of transactions and by the total size of the fetched data
+ * not consumed yet. Up to {@code fetchSize} consecutive transactions are fetched with one request.
+ */
+public class ReadAheadPolicy {
+
+    public static final ReadAheadPolicy DISABLED = new ReadAheadPolicy(0, 0L, 1);
+
+    public final int maxTransactions;
+    public final long maxBytes;
+    public final int fetchSize;
+
+    /**
+     * Class constructor.
+     * @param maxTransactions The maximum number of transactions in the window of a partition, 0 to disable read-ahead.
+     * @param maxBytes The maximum total size of data fetched ahead and not consumed yet in a partition.
+     * @param fetchSize The maximum number of consecutive transactions fetched with one request.
+     */
+    public ReadAheadPolicy(final int maxTransactions, final long maxBytes, final int fetchSize) {
+        if (maxTransactions < 0) {
+            throw new IllegalArgumentException("maxTransactions must not be negative");
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        if (fetchSize < 1 || fetchSize > TransactionDataListRequest.MAX_NUM_TRANSACTIONS) {
+            throw new IllegalArgumentException("fetchSize must be between 1 and " + TransactionDataListRequest.MAX_NUM_TRANSACTIONS);
+        }
+
+        this.maxTransactions = maxTransactions;
+        this.maxBytes = maxBytes;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return {@code true} if transaction data is fetched ahead, {@code false} otherwise.
+     */
+    public boolean isEnabled() {
+        return maxTransactions > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadAheadPolicy(maxTransactions=" + maxTransactions + ",maxBytes=" + maxBytes + ",fetchSize=" + fetchSize + ")";
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.wepay.waltz.client.internal;
+
+import com.wepay.waltz.exception.PartitionNotFoundException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches transaction data of a partition ahead of the application, for transactions received from the feed
+ * but not applied yet. The window is bounded both by the number of transactions and by the total size of
+ * the fetched data not consumed yet. Transactions outside of the window are fetched on demand.
+ * Consecutive transactions are fetched with one request, up to the fetch size of the {@link ReadAheadPolicy}.
+ * A partial run is fetched as soon as one of its transactions is taken.
+ */
+class ReadAheadWindow {
+
+    private final RpcClient rpcClient;
+    private final int partitionId;
+    private final int maxTransactions;
+    private final long maxBytes;
+    private final int fetchSize;
+    private final TreeMap<Long, Entry> entries = new TreeMap<>();
+
+    private long bytes = 0L;
+    // Consecutive transactions in the window which are not requested yet
+    private long runStart = -1L;
+    private int runLength = 0;
+
+    /**
+     * Class Constructor.
+     *
+     * @param rpcClient the {@code RpcClient} to fetch transaction data with.
+     * @param partitionId the partition id.
+     * @param policy the {@link ReadAheadPolicy}.
+     */
+    ReadAheadWindow(RpcClient rpcClient, int partitionId, ReadAheadPolicy policy) {
+        this.rpcClient = rpcClient;
+        this.partitionId = partitionId;
+        this.maxTransactions = policy.maxTransactions;
+        this.maxBytes = policy.maxBytes;
+        this.fetchSize = policy.fetchSize;
+    }
+
+    /**
+     * Starts fetching the transaction data if the window has room for it.
+     *
+     * @param transactionId the id of the transaction.
+     */
+    void fetch(long transactionId) {
+        synchronized (entries) {
+            if (entries.size() >= maxTransactions || bytes >= maxBytes || entries.containsKey(transactionId)) {
+                return;
+            }
+
+            if (runLength > 0 && transactionId != runStart + runLength) {
+                requestRun();
+            }
+
+            entries.put(transactionId, new Entry());
+            if (runLength == 0) {
+                runStart = transactionId;
+            }
+            runLength++;
+
+            if (runLength >= fetchSize) {
+                requestRun();
+            }
+        }
+    }
+
+    /**
+     * Removes the transaction from the window. Transactions preceding it are also removed since they will never be consumed.
+     *
+     * @param transactionId the id of the transaction.
+     * @return a {@code Future} of the transaction data, or {@code null} if the transaction is not in the window.
+     */
+    Future<byte[]> take(long transactionId) {
+        synchronized (entries) {
+            Map<Long, Entry> head = entries.headMap(transactionId, true);
+            Entry entry = head.get(transactionId);
+
+            if (entry != null && entry.future == null) {
+                requestRun();
+            }
+
+            for (Entry e : head.values()) {
+                bytes -= e.size;
+            }
+            head.clear();
+
+            // Drop removed transactions from the run not requested yet
+            if (runLength > 0 && runStart <= transactionId) {
+                int numRemoved = (int) Math.min(transactionId - runStart + 1, (long) runLength);
+                runStart += numRemoved;
+                runLength -= numRemoved;
+            }
+
+            return entry != null ? entry.future : null;
+        }
+    }
+
+    /**
+     * @return the number of transactions in the window.
+     */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // Must be called while holding the lock on entries.
+    @SuppressWarnings("unchecked")
+    private void requestRun() {
+        long firstTransactionId = runStart;
+        int numTransactions = runLength;
+        runLength = 0;
+
+        List<Future<byte[]>> futures;
+        try {
+            if (numTransactions == 1) {
+                futures = Collections.singletonList(rpcClient.getTransactionData(partitionId, firstTransactionId));
+            } else {
+                futures = rpcClient.getTransactionDataList(partitionId, firstTransactionId, numTransactions);
+            }
+        } catch (PartitionNotFoundException ex) {
+            for (int i = 0; i < numTransactions; i++) {
+                entries.remove(firstTransactionId + i);
+            }
+            return;
+        }
+
+        for (int i = 0; i < numTransactions; i++) {
+            long transactionId = firstTransactionId + i;
+            Entry entry = entries.get(transactionId);
+
+            if (entry != null) {
+                entry.future = futures.get(i);
+
+                if (entry.future instanceof CompletableFuture) {
+                    ((CompletableFuture<byte[]>) entry.future).thenAccept(data -> {
+                        synchronized (entries) {
+                            if (entries.get(transactionId) == entry) {
+                                entry.size = data.length;
+                                bytes += data.length;
+                            }
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    private static class Entry {
+        Future<byte[]> future = null;
+        int size = 0;
+    }
+
+}
@@ -2,6 +2,7 @@ package com.wepay.waltz.client.internal;
 
 import com.wepay.zktools.clustermgr.Endpoint;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -16,6 +17,22 @@ public interface RpcClient {
 
     Future<byte[]> getTransactionData(int partitionId, long transactionId);
 
+    /**
+     * Gets transaction data of consecutive transactions. By default, the data of each transaction is requested separately.
+     *
+     * @param partitionId the id of the partition to read from.
+     * @param transactionId the id of the first transaction to read.
+     * @param numTransactions the number of transactions to read.
+     * @return a list of {@link Future}s which contain the serialized transaction data when complete, one for each transaction.
+     */
+    default List<Future<byte[]>> getTransactionDataList(int partitionId, long transactionId, int numTransactions) {
+        List<Future<byte[]>> futures = new ArrayList<>(numTransactions);
+        for (int i = 0; i < numTransactions; i++) {
+            futures.add(getTransactionData(partitionId, transactionId + i));
+        }
+        return futures;
+    }
+
     Future<Long> getHighWaterMark(int partitionId);
 
     Future<Map<Endpoint, Map<String, Boolean>>> checkServerConnections(Set<Endpoint> serverEndpoints) throws InterruptedException;
@@ -4,6 +4,7 @@ import com.wepay.waltz.client.TransactionContext;
 import com.wepay.waltz.common.message.AppendRequest;
 
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The interface for implementations of Stream clients to communicate with Waltz cluster.
@@ -20,6 +21,10 @@ public interface StreamClient {
 
     TransactionFuture append(AppendRequest request, TransactionContext context);
 
+    CompletableFuture<TransactionBuilderImpl> getTransactionBuilderAsync(TransactionContext context);
+
+    CompletableFuture<TransactionFuture> appendAsync(AppendRequest request, TransactionContext context);
+
     void flushTransactions();
 
     void nudgeWaitingTransactions(long longWaitThreshold);
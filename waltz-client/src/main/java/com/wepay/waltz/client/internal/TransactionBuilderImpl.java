@@ -1,5 +1,6 @@
 package com.wepay.waltz.client.internal;
 
+import com.wepay.waltz.client.BufferSerializer;
 import com.wepay.waltz.client.PartitionLocalLock;
 import com.wepay.waltz.client.Serializer;
 import com.wepay.waltz.client.TransactionBuilder;
@@ -7,6 +8,8 @@ import com.wepay.waltz.common.message.AppendRequest;
 import com.wepay.waltz.common.message.ReqId;
 import com.wepay.waltz.common.util.Utils;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -21,6 +24,7 @@ public class TransactionBuilderImpl implements TransactionBuilder {
 
     private int header = 0;
     private byte[] data = null;
+    private int checksum = 0;
     private List<PartitionLocalLock> writeLocks;
     private List<PartitionLocalLock> readLocks;
     private List<PartitionLocalLock> appendLocks;
@@ -43,6 +47,19 @@ public class TransactionBuilderImpl implements TransactionBuilder {
     @Override
     public <T> void setTransactionData(T transactionData, Serializer<T> serializer) {
         this.data = serializer.serialize(transactionData);
+        this.checksum = Utils.checksum(data);
+    }
+
+    @Override
+    public <T> void setTransactionData(T transactionData, BufferSerializer<T> serializer) {
+        ByteBuffer buffer = ByteBuffer.allocate(serializer.serializedSize(transactionData));
+        serializer.serialize(transactionData, buffer);
+
+        int length = buffer.position();
+        this.checksum = Utils.checksum(buffer, 0, length);
+        // The payload array is the buffer itself unless the serializer over-estimated the size.
+        // Note that the payload is still copied into the network buffer when the append request is encoded.
+        this.data = length == buffer.capacity() ? buffer.array() : Arrays.copyOf(buffer.array(), length);
     }
 
     @Override
@@ -72,7 +89,7 @@ public class TransactionBuilderImpl implements TransactionBuilder {
             compileLockRequest(appendLocks),
             header,
             data,
-            Utils.checksum(data)
+            checksum
         );
     }
 
@@ -0,0 +1,177 @@
+package com.wepay.waltz.client.internal;
+
+import com.wepay.riff.metrics.core.Gauge;
+import com.wepay.riff.metrics.core.Meter;
+import com.wepay.riff.metrics.core.MetricGroup;
+import com.wepay.riff.metrics.core.MetricRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A bounded cache of transaction data keyed by partition id and transaction id, shared by the partitions of a client.
+ * Transaction data never changes once committed, so entries are never invalidated.
+ * The cache is bounded by the total size of cached data and evicts the least recently used entries first.
+ * Data larger than a quarter of the cache size is not cached.
+ * Cached byte arrays are shared by all readers and must not be modified.
+ */
+public class TransactionDataCache {
+
+    private static final MetricRegistry REGISTRY = MetricRegistry.getInstance();
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final long maxBytes;
+    private final long maxDataSize;
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private final String metricGroup;
+
+    private long bytes = 0L;
+
+    private Meter hitMeter;
+    private Meter missMeter;
+    private Meter evictionMeter;
+
+    /**
+     * Class Constructor.
+     *
+     * @param maxBytes the maximum total size of cached data.
+     */
+    public TransactionDataCache(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be greater than zero");
+        }
+
+        this.maxBytes = maxBytes;
+        this.maxDataSize = maxBytes / 4;
+        this.metricGroup = String.format("%s.transaction-data-cache", MetricGroup.WALTZ_CLIENT_METRIC_GROUP);
+        registerMetrics();
+    }
+
+    /**
+     * Unregisters the metrics of this cache and clears it.
+     */
+    public void close() {
+        unregisterMetrics();
+
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0L;
+        }
+    }
+
+    /**
+     * Returns the cached transaction data.
+     *
+     * @param partitionId the partition id.
+     * @param transactionId the transaction id.
+     * @return the transaction data, or {@code null} if not cached.
+     */
+    public byte[] get(int partitionId, long transactionId) {
+        byte[] data;
+
+        synchronized (entries) {
+            data = entries.get(new Key(partitionId, transactionId));
+        }
+
+        if (data != null) {
+            hitMeter.mark();
+        } else {
+            missMeter.mark();
+        }
+
+        return data;
+    }
+
+    /**
+     * Caches the transaction data.
+     *
+     * @param partitionId the partition id.
+     * @param transactionId the transaction id.
+     * @param data the transaction data.
+     */
+    public void put(int partitionId, long transactionId, byte[] data) {
+        if (data.length > maxDataSize) {
+            // Data is too big to cache.
+            return;
+        }
+
+        synchronized (entries) {
+            byte[] existing = entries.put(new Key(partitionId, transactionId), data);
+            if (existing != null) {
+                bytes -= existing.length;
+            }
+            bytes += data.length;
+
+            // Evict the least recently used entries
+            Iterator<byte[]> iterator = entries.values().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                bytes -= iterator.next().length;
+                iterator.remove();
+                evictionMeter.mark();
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached transactions.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the total size of cached data.
+     */
+    public long bytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    private void registerMetrics() {
+        REGISTRY.gauge(metricGroup, "num-entries", (Gauge<Integer>) this::size);
+        REGISTRY.gauge(metricGroup, "size-bytes", (Gauge<Long>) this::bytes);
+        hitMeter = REGISTRY.meter(metricGroup, "hit");
+        missMeter = REGISTRY.meter(metricGroup, "miss");
+        evictionMeter = REGISTRY.meter(metricGroup, "eviction");
+    }
+
+    private void unregisterMetrics() {
+        REGISTRY.remove(metricGroup, "num-entries");
+        REGISTRY.remove(metricGroup, "size-bytes");
+        REGISTRY.remove(metricGroup, "hit");
+        REGISTRY.remove(metricGroup, "miss");
+        REGISTRY.remove(metricGroup, "eviction");
+    }
+
+    private static final class Key {
+        final int partitionId;
+        final long transactionId;
+
+        Key(int partitionId, long transactionId) {
+            this.partitionId = partitionId;
+            this.transactionId = transactionId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return partitionId == other.partitionId && transactionId == other.transactionId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(transactionId ^ ((long) partitionId << 16));
+        }
+    }
+
+}
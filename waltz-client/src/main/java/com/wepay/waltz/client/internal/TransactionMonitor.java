@@ -7,13 +7,22 @@ import com.wepay.waltz.exception.ClientClosedException;
 import com.wepay.waltz.exception.PartitionInactiveException;
 import org.slf4j.Logger;
 
+import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * A class that monitors pending transactions.
  * Each {@link Partition} instance has one {@link TransactionMonitor} instance associated with it.
+ * <P>
+ * The number of pending transactions is bounded by credits. A credit is reserved by {@link #reserve()} before
+ * a transaction is registered, and is returned when the transaction is committed, aborted or flushed.
+ * Reservations waiting for a credit are granted in FIFO order.
  */
 public class TransactionMonitor {
 
@@ -24,12 +33,14 @@ public class TransactionMonitor {
     }
 
     private final LinkedHashMap<ReqId, TransactionFuture> registered = new LinkedHashMap<>();
+    private final ArrayDeque<CompletableFuture<Boolean>> reservations = new ArrayDeque<>();
     private final int maxConcurrentTransactions;
 
     private volatile State state = State.STOPPED;
     private ReqId lastReqId = null;
     private long lastTimestamp = -1;
     private int numRegistered = 0;
+    private int numReserved = 0;
 
     /**
      * Class Constructor.
@@ -55,6 +66,7 @@ public class TransactionMonitor {
                 registered.clear();
                 numRegistered = 0;
             }
+            cancelReservations();
             notifyAll();
         }
     }
@@ -87,6 +99,7 @@ public class TransactionMonitor {
         synchronized (this) {
             if (state == State.STARTED) {
                 state = State.STOPPED;
+                cancelReservations();
                 return true;
 
             } else {
@@ -115,6 +128,7 @@ public class TransactionMonitor {
             });
             registered.clear();
             numRegistered = 0;
+            grantCredits();
             notifyAll();
         }
     }
@@ -128,6 +142,65 @@ public class TransactionMonitor {
         return maxConcurrentTransactions;
     }
 
+    /**
+     * Reserves a credit for a transaction. This method does not block.
+     * The returned future completes with {@code true} when a credit is reserved, or with {@code false} if this monitor
+     * is not started. A reserved credit must be passed to {@link #register(ReqId, TransactionContext, boolean)}.
+     * A reservation still waiting for a credit is cancelled by completing the future with {@code false}.
+     *
+     * @return a {@code CompletableFuture} which completes when a credit is reserved.
+     */
+    public CompletableFuture<Boolean> reserve() {
+        synchronized (this) {
+            if (state != State.STARTED) {
+                return CompletableFuture.completedFuture(false);
+            }
+
+            CompletableFuture<Boolean> reservation = new CompletableFuture<>();
+            reservations.add(reservation);
+            grantCredits();
+
+            if (!reservation.isDone()) {
+                logger.debug("transaction monitor reached capacity");
+            }
+            return reservation;
+        }
+    }
+
+    /**
+     * Waits for a reservation made by {@link #reserve()} for a maximum of {@code timeout} millis.
+     * The reservation is cancelled if it times out.
+     *
+     * @param reservation the {@code CompletableFuture} returned by {@link #reserve()}.
+     * @param partitionId the partition id.
+     * @param timeout the maximum wait time in millis.
+     * @return {@code true} if a credit is reserved, {@code false} if this monitor is not started,
+     *         or {@code null} if the reservation timed out.
+     */
+    public Boolean awaitReservation(CompletableFuture<Boolean> reservation, int partitionId, long timeout) {
+        final long due = System.currentTimeMillis() + timeout;
+        while (true) {
+            long remaining = due - System.currentTimeMillis();
+            try {
+                return reservation.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+
+            } catch (InterruptedException ex) {
+                Thread.interrupted();
+
+            } catch (ExecutionException ex) {
+                // Reservations are never completed exceptionally
+                throw new IllegalStateException(ex);
+
+            } catch (TimeoutException ex) {
+                if (reservation.complete(false)) {
+                    logger.warn("transaction registration timeout: partitionId=" + partitionId + " elapsed=" + timeout + "ms");
+                    return null;
+                }
+                // The credit was granted concurrently
+            }
+        }
+    }
+
     /**
      * Registers a transaction represented by {@code reqId}.
      *
@@ -141,33 +214,37 @@ public class TransactionMonitor {
      *         Or, a {@code null}, if {@code registrationTimeout} has passed before registration.
      */
     public TransactionFuture register(ReqId reqId, TransactionContext context, long registrationTimeout) {
-        synchronized (this) {
-            final long due = System.currentTimeMillis() + registrationTimeout;
-            while (state == State.STARTED && (numRegistered >= maxConcurrentTransactions)) {
-                long remaining = due - System.currentTimeMillis();
-                if (remaining > 0) {
-                    try {
-                        wait(remaining);
-                    } catch (InterruptedException ex) {
-                        Thread.interrupted();
-                    }
-                } else {
-                    logger.warn("transaction registration timeout: partitionId=" + reqId.partitionId() + " elapsed=" + registrationTimeout + "ms");
-                    return null;
-                }
-            }
+        Boolean reserved = awaitReservation(reserve(), reqId.partitionId(), registrationTimeout);
+        if (reserved == null) {
+            return null;
+        }
 
+        return register(reqId, context, reserved);
+    }
+
+    /**
+     * Registers a transaction represented by {@code reqId}. This method does not block.
+     * The order of registrations must be the order in which append requests are sent.
+     *
+     * @param reqId the {@code ReqId} of the transaction.
+     * @param context the transaction context
+     * @param reserved {@code true} if a credit was reserved for the transaction by {@link #reserve()}.
+     * @return a {@link TransactionFuture} which will complete when the corresponding transaction is {@link #committed(ReqId)}.
+     */
+    public TransactionFuture register(ReqId reqId, TransactionContext context, boolean reserved) {
+        synchronized (this) {
             TransactionFuture future = new TransactionFuture(reqId, context);
 
+            if (reserved) {
+                numReserved--;
+            }
+
             if (state == State.STARTED) {
                 if (!registered.containsKey(reqId)) {
                     lastReqId = reqId;
                     lastTimestamp = System.currentTimeMillis();
                     registered.put(reqId, future);
                     numRegistered++;
-                    if (numRegistered >= maxConcurrentTransactions) {
-                        logger.debug("transaction monitor reached capacity");
-                    }
                 } else {
                     logger.error("duplicate reqId: reqId=" + reqId);
                     future.complete(false);
@@ -182,6 +259,11 @@ public class TransactionMonitor {
                 }
             }
 
+            if (future.isDone()) {
+                // The credit was not used
+                grantCredits();
+            }
+
             return future;
         }
     }
@@ -243,6 +325,7 @@ public class TransactionMonitor {
                     // This is own transaction
                     if (future.complete(false)) {
                         numRegistered--;
+                        grantCredits();
                     }
                     notifyAll();
                 }
@@ -285,6 +368,15 @@ public class TransactionMonitor {
         }
     }
 
+    /**
+     * @return the number of reservations waiting for a credit.
+     */
+    public int waitingCount() {
+        synchronized (this) {
+            return reservations.size();
+        }
+    }
+
     /**
      * @return the total number of transactions currently registered.
      */
@@ -319,6 +411,24 @@ public class TransactionMonitor {
                 }
             }
         }
+        grantCredits();
+    }
+
+    private void grantCredits() {
+        // Grant credits returned by completed transactions to waiting reservations
+        while (state == State.STARTED && numRegistered + numReserved < maxConcurrentTransactions && !reservations.isEmpty()) {
+            if (reservations.poll().complete(true)) {
+                numReserved++;
+            }
+        }
+    }
+
+    private void cancelReservations() {
+        // Reservations are completed without credits. Transactions registered with them fail.
+        for (CompletableFuture<Boolean> reservation : reservations) {
+            reservation.complete(false);
+        }
+        reservations.clear();
     }
 
 }
@@ -27,6 +27,7 @@ public class WaltzClientDriverImpl implements WaltzClientDriver {
     private ClusterManager clusterManager;
     private ManagedClient managedClient;
     private MessageProcessingThreadPool messageProcessingThreadPool;
+    private TransactionDataCache transactionDataCache;
 
     @Override
     public void initialize(WaltzClientCallbacks callbacks, WaltzClientConfig config) throws Exception {
@@ -43,11 +44,28 @@ public class WaltzClientDriverImpl implements WaltzClientDriver {
             (int) config.get(WaltzClientConfig.NUM_CONSUMER_THREADS)
         ).open();
 
-        this.rpcClient = new InternalRpcClient(sslCtx, maxConcurrentTransactions, callbacks);
+        long transactionDataCacheSize = (long) config.get(WaltzClientConfig.TRANSACTION_DATA_CACHE_SIZE);
+        if (transactionDataCacheSize > 0) {
+            // The cache is shared, data appended through the stream client is read through the rpc client
+            this.transactionDataCache = new TransactionDataCache(transactionDataCacheSize);
+        }
+
+        this.rpcClient = new InternalRpcClient(sslCtx, maxConcurrentTransactions, this.transactionDataCache, callbacks);
         this.streamClient = new InternalStreamClient(
             autoMount,
             sslCtx,
             maxConcurrentTransactions,
+            new ApplyPolicy(
+                (int) config.get(WaltzClientConfig.MAX_APPLY_BATCH_SIZE),
+                (long) config.get(WaltzClientConfig.APPLY_BATCH_LINGER_TIME),
+                (int) config.get(WaltzClientConfig.MAX_PARALLEL_APPLY)
+            ),
+            new ReadAheadPolicy(
+                (int) config.get(WaltzClientConfig.READ_AHEAD_SIZE),
+                (long) config.get(WaltzClientConfig.READ_AHEAD_MAX_BYTES),
+                (int) config.get(WaltzClientConfig.READ_AHEAD_FETCH_SIZE)
+            ),
+            this.transactionDataCache,
             callbacks,
             this.rpcClient,
             this.messageProcessingThreadPool
@@ -118,6 +136,13 @@ public class WaltzClientDriverImpl implements WaltzClientDriver {
         } catch (Throwable ex) {
             logger.error("failed to close rpc client", ex);
         }
+        try {
+            if (transactionDataCache != null) {
+                transactionDataCache.close();
+            }
+        } catch (Throwable ex) {
+            logger.error("failed to close transaction data cache", ex);
+        }
         try {
             if (messageProcessingThreadPool != null) {
                 messageProcessingThreadPool.close();
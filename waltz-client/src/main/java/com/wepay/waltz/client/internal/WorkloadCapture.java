@@ -0,0 +1,209 @@
+package com.wepay.waltz.client.internal;
+
+import com.wepay.riff.util.Logging;
+import com.wepay.waltz.common.message.AppendRequest;
+import org.slf4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Captures the shape of append requests sent by a client to a file, so that the workload can be replayed for capacity
+ * testing. Each request, including a retry, is written as a line of space separated fields:
+ * <pre>
+ * offsetMicros partitionId dataSize writeLocks readLocks appendLocks
+ * </pre>
+ * {@code offsetMicros} is the time the request was built relative to the start of the capture. Each lock list is
+ * a comma separated list of lock ids, or {@code -} if empty.
+ * <p>
+ * The capture is anonymised. Neither transaction data nor headers are captured, and a lock is replaced by
+ * the order of its first appearance in the capture. The lock ids preserve which requests contend on the same lock,
+ * thus the skew of the lock distribution, but not the lock names.
+ * </p>
+ */
+public class WorkloadCapture {
+
+    private static final Logger logger = Logging.getLogger(WorkloadCapture.class);
+
+    private static final String FIELD_SEPARATOR = " ";
+    private static final String LOCK_SEPARATOR = ",";
+    private static final String NO_LOCKS = "-";
+    private static final int NUM_FIELDS = 6;
+
+    private final Path path;
+    private final BufferedWriter writer;
+    private final long startNanos;
+    private final Map<Integer, Integer> lockIds = new HashMap<>();
+
+    private boolean failed = false;
+
+    /**
+     * Class Constructor. The file is created, or truncated if exists.
+     * @param path the path of the capture file.
+     * @throws IOException
+     */
+    public WorkloadCapture(Path path) throws IOException {
+        this.path = path;
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Writes the shape of an append request. A failure to write stops the capture, but does not fail the request.
+     * @param request the append request.
+     */
+    public synchronized void capture(AppendRequest request) {
+        if (failed) {
+            return;
+        }
+
+        Entry entry = new Entry(
+            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos),
+            request.reqId.partitionId(),
+            request.data.length,
+            anonymise(request.writeLockRequest),
+            anonymise(request.readLockRequest),
+            anonymise(request.appendLockRequest)
+        );
+
+        try {
+            writer.write(entry.format());
+            writer.newLine();
+        } catch (IOException ex) {
+            failed = true;
+            logger.error("failed to capture workload, stopping capture: path=" + path, ex);
+        }
+    }
+
+    /**
+     * Flushes and closes the capture file.
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private int[] anonymise(int[] lockRequest) {
+        int[] ids = new int[lockRequest.length];
+        for (int i = 0; i < lockRequest.length; i++) {
+            ids[i] = lockIds.computeIfAbsent(lockRequest[i], hash -> lockIds.size());
+        }
+        return ids;
+    }
+
+    /**
+     * The shape of a captured append request.
+     */
+    public static final class Entry {
+
+        public final long offsetMicros;
+        public final int partitionId;
+        public final int dataSize;
+        private final int[] writeLocks;
+        private final int[] readLocks;
+        private final int[] appendLocks;
+
+        /**
+         * Class Constructor.
+         * @param offsetMicros the time of the request relative to the start of the capture in microseconds.
+         * @param partitionId the partition id.
+         * @param dataSize the size of the transaction data.
+         * @param writeLocks the ids of the write locks.
+         * @param readLocks the ids of the read locks.
+         * @param appendLocks the ids of the append locks.
+         */
+        public Entry(long offsetMicros, int partitionId, int dataSize, int[] writeLocks, int[] readLocks, int[] appendLocks) {
+            this.offsetMicros = offsetMicros;
+            this.partitionId = partitionId;
+            this.dataSize = dataSize;
+            this.writeLocks = writeLocks.clone();
+            this.readLocks = readLocks.clone();
+            this.appendLocks = appendLocks.clone();
+        }
+
+        public int[] writeLocks() {
+            return writeLocks.clone();
+        }
+
+        public int[] readLocks() {
+            return readLocks.clone();
+        }
+
+        public int[] appendLocks() {
+            return appendLocks.clone();
+        }
+
+        /**
+         * @return the line representing this entry in a capture file.
+         */
+        public String format() {
+            return offsetMicros
+                + FIELD_SEPARATOR + partitionId
+                + FIELD_SEPARATOR + dataSize
+                + FIELD_SEPARATOR + formatLocks(writeLocks)
+                + FIELD_SEPARATOR + formatLocks(readLocks)
+                + FIELD_SEPARATOR + formatLocks(appendLocks);
+        }
+
+        /**
+         * Parses a line of a capture file.
+         * @param line the line.
+         * @return the entry.
+         * @throws IllegalArgumentException if the line is malformed.
+         */
+        public static Entry parse(String line) {
+            String[] fields = line.trim().split(FIELD_SEPARATOR);
+            if (fields.length != NUM_FIELDS) {
+                throw new IllegalArgumentException("malformed workload capture entry: " + line);
+            }
+
+            try {
+                return new Entry(
+                    Long.parseLong(fields[0]),
+                    Integer.parseInt(fields[1]),
+                    Integer.parseInt(fields[2]),
+                    parseLocks(fields[3]),
+                    parseLocks(fields[4]),
+                    parseLocks(fields[5])
+                );
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("malformed workload capture entry: " + line, ex);
+            }
+        }
+
+        private static String formatLocks(int[] locks) {
+            if (locks.length == 0) {
+                return NO_LOCKS;
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < locks.length; i++) {
+                if (i > 0) {
+                    sb.append(LOCK_SEPARATOR);
+                }
+                sb.append(locks[i]);
+            }
+            return sb.toString();
+        }
+
+        private static int[] parseLocks(String field) {
+            if (field.equals(NO_LOCKS)) {
+                return new int[0];
+            }
+
+            String[] values = field.split(LOCK_SEPARATOR);
+            int[] locks = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                locks[i] = Integer.parseInt(values[i]);
+            }
+            return locks;
+        }
+    }
+
+}
@@ -12,6 +12,7 @@ import com.wepay.waltz.exception.InvalidOperationException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -116,6 +117,22 @@ class MockStreamClient implements StreamClient {
         return future;
     }
 
+    @Override
+    public CompletableFuture<TransactionBuilderImpl> getTransactionBuilderAsync(TransactionContext context) {
+        CompletableFuture<TransactionBuilderImpl> future = new CompletableFuture<>();
+        try {
+            future.complete(getTransactionBuilder(context));
+        } catch (Exception ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<TransactionFuture> appendAsync(AppendRequest request, TransactionContext context) {
+        return CompletableFuture.completedFuture(append(request, context));
+    }
+
     @Override
     public void flushTransactions() {
         clientPartitions.values().forEach(MockClientPartition::flushTransactions);
@@ -1,6 +1,8 @@
 package com.wepay.waltz.client.internal.network;
 
 import com.wepay.riff.network.Message;
+import com.wepay.riff.network.MessageAttributeReader;
+import com.wepay.riff.network.MessageAttributeWriter;
 import com.wepay.riff.network.MessageCodec;
 import com.wepay.riff.network.MessageHandler;
 import com.wepay.riff.network.MessageProcessingThreadPool;
@@ -17,18 +19,23 @@ import com.wepay.waltz.common.message.MessageCodecV1;
 import com.wepay.waltz.common.message.MessageCodecV2;
 import com.wepay.waltz.common.message.MessageCodecV3;
 import com.wepay.waltz.common.message.MessageCodecV4;
+import com.wepay.waltz.common.message.MessageCodecV5;
+import com.wepay.waltz.common.message.MessageCodecV6;
 import com.wepay.waltz.common.message.MessageType;
 import com.wepay.waltz.common.message.MountRequest;
 import com.wepay.waltz.common.message.MountResponse;
 import com.wepay.waltz.common.message.RemovePreferredPartitionResponse;
 import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.common.message.TransactionDataListResponse;
 import com.wepay.waltz.common.message.TransactionDataResponse;
 import com.wepay.waltz.common.message.ServerPartitionsAssignmentResponse;
 import com.wepay.waltz.common.message.ServerPartitionsHealthStatResponse;
 import org.slf4j.Logger;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A subclass of {@link MessageHandler}, internal to Waltz Client, to send messages to Waltz servers
@@ -45,11 +52,14 @@ public class WaltzClientHandler extends MessageHandler {
         CODECS.put(MessageCodecV2.VERSION, MessageCodecV2.INSTANCE);
         CODECS.put(MessageCodecV3.VERSION, MessageCodecV3.INSTANCE);
         CODECS.put(MessageCodecV4.VERSION, MessageCodecV4.INSTANCE);
+        CODECS.put(MessageCodecV5.VERSION, MessageCodecV5.INSTANCE);
+        CODECS.put(MessageCodecV6.VERSION, MessageCodecV6.INSTANCE);
     }
 
     private static final String HELLO_MESSAGE = "Waltz Client";
 
     private final WaltzClientHandlerCallbacks handlerCallbacks;
+    private final AtomicInteger codecVersion;
 
     private ConcurrentHashMap<Integer, ReqId> feedSessions = new ConcurrentHashMap<>();
 
@@ -60,12 +70,36 @@ public class WaltzClientHandler extends MessageHandler {
      * @param messageProcessingThreadPool a {@code MessageProcessingThreadPool} instance, for the superclass {@link MessageHandler}, to process messages.
      */
     public WaltzClientHandler(WaltzClientHandlerCallbacks handlerCallbacks, MessageProcessingThreadPool messageProcessingThreadPool) {
-        super(CODECS, HELLO_MESSAGE, handlerCallbacks, 30, 60, messageProcessingThreadPool);
+        this(handlerCallbacks, messageProcessingThreadPool, new AtomicInteger(-1));
+    }
+
+    private WaltzClientHandler(
+        WaltzClientHandlerCallbacks handlerCallbacks,
+        MessageProcessingThreadPool messageProcessingThreadPool,
+        AtomicInteger codecVersion
+    ) {
+        super(versionTrackingCodecs(codecVersion), HELLO_MESSAGE, handlerCallbacks, 30, 60, messageProcessingThreadPool);
         this.handlerCallbacks = handlerCallbacks;
+        this.codecVersion = codecVersion;
+    }
+
+    /**
+     * Returns the version of the message codec negotiated with the server. The version is known once a message
+     * is received from the server.
+     *
+     * @return the codec version, or -1 if no message has been received yet.
+     */
+    public int codecVersion() {
+        return codecVersion.get();
     }
 
     @Override
     protected Integer extractProcessorId(Message msg) {
+        // This is called when a message is received. Feed data are announced before they wait in the processing queue.
+        if (msg.type() == MessageType.FEED_DATA) {
+            FeedData feedData = (FeedData) msg;
+            handlerCallbacks.onTransactionIdQueued(feedData.transactionId, feedData.reqId);
+        }
         return ((AbstractMessage) msg).reqId.partitionId();
     }
 
@@ -103,7 +137,7 @@ public class WaltzClientHandler extends MessageHandler {
 
             case MessageType.FEED_DATA:
                 FeedData feedData = (FeedData) msg;
-                handlerCallbacks.onTransactionIdReceived(feedData.transactionId, feedData.header, feedData.reqId);
+                handlerCallbacks.onTransactionIdReceived(feedData.transactionId, feedData.header, feedData.reqId, feedData.lockHashes);
                 break;
 
             case MessageType.FEED_SUSPENDED:
@@ -123,6 +157,19 @@ public class WaltzClientHandler extends MessageHandler {
                 );
                 break;
 
+            case MessageType.TRANSACTION_DATA_LIST_RESPONSE:
+                // Fan out the results to the waiting futures
+                for (TransactionDataResponse response : ((TransactionDataListResponse) msg).responses) {
+                    handlerCallbacks.onTransactionDataReceived(
+                        partitionId,
+                        response.transactionId,
+                        response.data,
+                        response.checksum,
+                        response.exception
+                    );
+                }
+                break;
+
             case MessageType.FLUSH_RESPONSE:
                 FlushResponse flushResponse = (FlushResponse) msg;
                 handlerCallbacks.onFlushCompleted(flushResponse.reqId, flushResponse.transactionId);
@@ -189,4 +236,46 @@ public class WaltzClientHandler extends MessageHandler {
         return super.sendMessage(msg, flush);
     }
 
+    // Wraps the codecs to record the version of the codec which decodes messages from the server
+    private static HashMap<Short, MessageCodec> versionTrackingCodecs(AtomicInteger codecVersion) {
+        HashMap<Short, MessageCodec> codecs = new HashMap<>();
+        for (Map.Entry<Short, MessageCodec> entry : CODECS.entrySet()) {
+            codecs.put(entry.getKey(), new VersionTrackingCodec(entry.getValue(), codecVersion));
+        }
+        return codecs;
+    }
+
+    private static class VersionTrackingCodec implements MessageCodec {
+
+        private final MessageCodec codec;
+        private final AtomicInteger codecVersion;
+
+        VersionTrackingCodec(MessageCodec codec, AtomicInteger codecVersion) {
+            this.codec = codec;
+            this.codecVersion = codecVersion;
+        }
+
+        @Override
+        public byte magicByte() {
+            return codec.magicByte();
+        }
+
+        @Override
+        public short version() {
+            return codec.version();
+        }
+
+        @Override
+        public Message decode(MessageAttributeReader reader) {
+            codecVersion.set(codec.version());
+            return codec.decode(reader);
+        }
+
+        @Override
+        public void encode(Message msg, MessageAttributeWriter writer) {
+            codec.encode(msg, writer);
+        }
+
+    }
+
 }
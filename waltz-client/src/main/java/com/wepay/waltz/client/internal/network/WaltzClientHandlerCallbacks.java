@@ -51,8 +51,18 @@ public interface WaltzClientHandlerCallbacks extends MessageHandlerCallbacks {
      * @param transactionId the id of the transaction.
      * @param header the header information of the transaction.
      * @param reqId the {@code ReqId} of the corresponding append request.
+     * @param lockHashes the hashes of the write locks of the transaction, or {@code null} if not available.
      */
-    void onTransactionIdReceived(long transactionId, int header, ReqId reqId);
+    void onTransactionIdReceived(long transactionId, int header, ReqId reqId, int[] lockHashes);
+
+    /**
+     * Invoked when feed data is received, before it is queued for processing. This is invoked on the network I/O thread,
+     * so it must not block.
+     *
+     * @param transactionId the id of the transaction.
+     * @param reqId the {@code ReqId} of the corresponding append request.
+     */
+    void onTransactionIdQueued(long transactionId, ReqId reqId);
 
     /**
      * Invoked when the actual transaction data is received.
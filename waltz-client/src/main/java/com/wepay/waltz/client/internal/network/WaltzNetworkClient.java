@@ -12,9 +12,11 @@ import com.wepay.waltz.common.message.RemovePreferredPartitionRequest;
 import com.wepay.waltz.common.message.FeedRequest;
 import com.wepay.waltz.common.message.HighWaterMarkRequest;
 import com.wepay.waltz.common.message.LockFailure;
+import com.wepay.waltz.common.message.MessageCodecV5;
 import com.wepay.waltz.common.message.MessageType;
 import com.wepay.waltz.common.message.MountRequest;
 import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.common.message.TransactionDataListRequest;
 import com.wepay.waltz.common.message.TransactionDataRequest;
 import com.wepay.waltz.common.message.ServerPartitionsAssignmentRequest;
 import com.wepay.waltz.common.message.ServerPartitionsHealthStatRequest;
@@ -52,6 +54,7 @@ public class WaltzNetworkClient extends NetworkClient {
 
     private boolean channelReady = false;
     private volatile boolean running = true;
+    private volatile WaltzClientHandler messageHandler = null;
     private Map<Integer, CompletableFuture<Object>> outputFuturesPerMessageType;
 
     /**
@@ -134,6 +137,20 @@ public class WaltzNetworkClient extends NetworkClient {
         }
     }
 
+    /**
+     * Re-mounts a {@link Partition} mounted through this instance, so that the feed restarts from the client
+     * high-water mark of the partition. This does nothing if the partition is not mounted through this instance.
+     *
+     * @param partition {@code Partition} to re-mount.
+     */
+    public void remountPartition(Partition partition) {
+        synchronized (lock) {
+            if (partitions.get(partition.partitionId) == partition) {
+                mountPartition(partition);
+            }
+        }
+    }
+
     /**
      * Un-mounts a specific partition.
      *
@@ -184,6 +201,37 @@ public class WaltzNetworkClient extends NetworkClient {
         }
     }
 
+    /**
+     * Requests transaction data for consecutive transactions. If the server does not support
+     * {@link TransactionDataListRequest}, the transactions are requested one by one with {@link TransactionDataRequest}s.
+     *
+     * @param reqId reqId of the {@link TransactionDataListRequest}.
+     * @param transactionId id of the first transaction.
+     * @param numTransactions the number of transactions.
+     * @throws NetworkClientClosedException if this instance is already closed.
+     */
+    public void requestTransactionDataList(ReqId reqId, long transactionId, int numTransactions) {
+        synchronized (lock) {
+            if (!running) {
+                throw new NetworkClientClosedException();
+            }
+
+            if (channelReady) {
+                WaltzClientHandler handler = messageHandler;
+                if (handler != null && handler.codecVersion() >= MessageCodecV5.VERSION) {
+                    sendMessage(new TransactionDataListRequest(reqId, transactionId, numTransactions));
+                } else {
+                    // The codec version is unknown or older than the one TransactionDataListRequest was introduced in
+                    for (int i = 0; i < numTransactions; i++) {
+                        sendMessage(new TransactionDataRequest(reqId, transactionId + i));
+                    }
+                }
+            } else {
+                logger.info("failed to send transaction data list request, channel not ready: partitionId=" + reqId.partitionId());
+            }
+        }
+    }
+
     /**
      * Requests high watermark for a given transactionId.
      *
@@ -327,7 +375,9 @@ public class WaltzNetworkClient extends NetworkClient {
     @Override
     protected MessageHandler getMessageHandler() {
         WaltzClientHandlerCallbacks handlerCallbacks = new WaltzClientHandlerCallbacksImpl();
-        return new WaltzClientHandler(handlerCallbacks, messageProcessingThreadPool);
+        WaltzClientHandler handler = new WaltzClientHandler(handlerCallbacks, messageProcessingThreadPool);
+        messageHandler = handler;
+        return handler;
     }
 
     private Partition getPartition(int partitionId) {
@@ -437,12 +487,12 @@ public class WaltzNetworkClient extends NetworkClient {
         }
 
         @Override
-        public void onTransactionIdReceived(long transactionId, int header, ReqId reqId) {
+        public void onTransactionIdReceived(long transactionId, int header, ReqId reqId, int[] lockHashes) {
             Partition partition = getPartition(reqId.partitionId());
 
             // Ignore the transaction if it has an unexpected partition
             if (partition != null) {
-                partition.applyTransaction(transactionId, header, reqId, networkClientCallbacks);
+                partition.applyTransaction(transactionId, header, reqId, lockHashes, networkClientCallbacks);
 
             } else {
                 if (logger.isDebugEnabled()) {
@@ -451,6 +501,15 @@ public class WaltzNetworkClient extends NetworkClient {
             }
         }
 
+        @Override
+        public void onTransactionIdQueued(long transactionId, ReqId reqId) {
+            Partition partition = getPartition(reqId.partitionId());
+
+            if (partition != null) {
+                partition.transactionQueued(transactionId, reqId, networkClientCallbacks);
+            }
+        }
+
         @Override
         public void onTransactionDataReceived(int partitionId, long transactionId, byte[] data, int checksum, Throwable exception) {
             Partition partition = getPartition(partitionId);
@@ -32,4 +32,30 @@ public interface WaltzNetworkClientCallbacks {
      */
     void onTransactionReceived(long transactionId, int header, ReqId reqId);
 
+    /**
+     * Invoked when a committed transaction is received from the feed, before it is queued to be applied.
+     * This is invoked on the network I/O thread, so it must not block.
+     *
+     * @param transactionId the id of the received transaction.
+     * @param reqId the reqId of the received transaction.
+     */
+    void onTransactionPending(long transactionId, ReqId reqId);
+
+    /**
+     * Invoked when a batch of consecutive committed transactions is ready to be applied.
+     *
+     * @param firstTransactionId the id of the first transaction in the batch.
+     * @param headers the headers of the transactions.
+     * @param reqIds the reqIds of the transactions.
+     */
+    void onTransactionsReceived(long firstTransactionId, int[] headers, ReqId[] reqIds);
+
+    /**
+     * Invoked when the client high-water mark of a partition advanced after transactions were applied in parallel.
+     *
+     * @param partitionId the id of the partition.
+     * @param clientHighWaterMark the new client high-water mark.
+     */
+    void onClientHighWaterMarkAdvanced(int partitionId, long clientHighWaterMark);
+
 }
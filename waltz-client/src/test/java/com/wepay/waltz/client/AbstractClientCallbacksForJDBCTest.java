@@ -14,6 +14,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Collections;
 import java.util.HashMap;
@@ -320,6 +321,94 @@ public class AbstractClientCallbacksForJDBCTest {
         }
     }
 
+    @Test
+    public void testGroupCommit() throws Exception {
+        TestDataSource dataSource = new TestDataSource("TEST_GROUP_COMMIT");
+        Connection connection = dataSource.getConnection();
+        dropSchema(connection);
+        createSchema(connection);
+
+        final int numTransactions = 5;
+        ArrayList<Long> applied = new ArrayList<>();
+
+        AbstractBatchClientCallbacksForJDBC callbacks = new AbstractBatchClientCallbacksForJDBC(dataSource, CLIENT_HIGH_WATER_MARK_TABLE_NAME) {
+            @Override
+            protected void applyTransaction(Transaction transaction, Connection connection) throws SQLException {
+                assertEquals("dummy", transaction.getTransactionData(StringSerializer.INSTANCE));
+                applied.add(transaction.transactionId);
+            }
+
+            @Override
+            public void uncaughtException(int partitionId, long transactionId, Throwable exception) {
+            }
+        };
+
+        assertEquals(-1L, callbacks.getClientHighWaterMark(0));
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < numTransactions; i++) {
+            transactions.add(mkTransaction(i));
+        }
+
+        int numConnections = dataSource.numConnectionsMade();
+        callbacks.applyTransactions(transactions);
+
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), applied);
+        assertEquals(numConnections + 1, dataSource.numConnectionsMade());
+        assertEquals(numTransactions - 1, callbacks.getClientHighWaterMark(0));
+
+        // Already applied transactions are skipped
+        callbacks.applyTransactions(transactions);
+        assertEquals(numTransactions, applied.size());
+    }
+
+    @Test
+    public void testGroupCommitFallback() throws Exception {
+        TestDataSource dataSource = new TestDataSource("TEST_GROUP_COMMIT_FALLBACK");
+        Connection connection = dataSource.getConnection();
+        dropSchema(connection);
+        createSchema(connection);
+
+        final int numTransactions = 5;
+        final long failingTransactionId = 2;
+        AtomicInteger failureCount = new AtomicInteger(0);
+
+        AbstractBatchClientCallbacksForJDBC callbacks = new AbstractBatchClientCallbacksForJDBC(dataSource, CLIENT_HIGH_WATER_MARK_TABLE_NAME) {
+            @Override
+            protected void applyTransaction(Transaction transaction, Connection connection) throws SQLException {
+                // Fails twice, once in the group and once in the per-transaction application
+                if (transaction.transactionId == failingTransactionId && failureCount.incrementAndGet() <= 2) {
+                    throw new RuntimeException("test");
+                }
+            }
+
+            @Override
+            public void uncaughtException(int partitionId, long transactionId, Throwable exception) {
+            }
+        };
+
+        assertEquals(-1L, callbacks.getClientHighWaterMark(0));
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < numTransactions; i++) {
+            transactions.add(mkTransaction(i));
+        }
+
+        try {
+            callbacks.applyTransactions(transactions);
+            fail();
+        } catch (RuntimeException ex) {
+            assertEquals("test", ex.getMessage());
+        }
+
+        // Transactions before the failing transaction are committed
+        assertEquals(failingTransactionId - 1, callbacks.getClientHighWaterMark(0));
+
+        callbacks.applyTransactions(transactions);
+        assertEquals(numTransactions - 1, callbacks.getClientHighWaterMark(0));
+        assertEquals(2, failureCount.get());
+    }
+
     @Test
     public void testForbiddenCommit() throws Exception {
         testForbiddenJdbcCalls("commit", Connection::commit);
@@ -469,6 +558,10 @@ public class AbstractClientCallbacksForJDBCTest {
     }
 
     private Transaction mkTransaction() {
+        return mkTransaction(0);
+    }
+
+    private Transaction mkTransaction(long transactionId) {
         RpcClient mockRpcClient = new RpcClient() {
             @Override
             public Future<byte[]> getTransactionData(int partitionId, long transactionId) {
@@ -510,7 +603,7 @@ public class AbstractClientCallbacksForJDBCTest {
             }
         };
 
-        return new Transaction(0, 0, new ReqId(0, 0, 0, 0), mockRpcClient);
+        return new Transaction(transactionId, 0, new ReqId(0, 0, 0, (int) transactionId), mockRpcClient);
     }
 
     private interface JdbcCall {
@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -20,6 +21,7 @@ public class WaltzClientConfigTest {
         map.put(WaltzClientConfig.ZOOKEEPER_CONNECT_STRING, "fakehost:9999");
         map.put(WaltzClientConfig.ZOOKEEPER_SESSION_TIMEOUT, "1000");
         map.put(WaltzClientConfig.CLUSTER_ROOT, "/cluster");
+        map.put(WaltzClientConfig.WORKLOAD_CAPTURE_PATH, "/tmp/workload");
 
         WaltzClientConfig config = new WaltzClientConfig(map);
         Object value;
@@ -35,6 +37,10 @@ public class WaltzClientConfigTest {
         value = config.get(WaltzClientConfig.CLUSTER_ROOT);
         assertTrue(value instanceof String);
         assertEquals("/cluster", value);
+
+        value = config.get(WaltzClientConfig.WORKLOAD_CAPTURE_PATH);
+        assertTrue(value instanceof String);
+        assertEquals("/tmp/workload", value);
     }
 
     @Test
@@ -80,6 +86,28 @@ public class WaltzClientConfigTest {
         value = config.get(WaltzClientConfig.MAX_CONCURRENT_TRANSACTIONS);
         assertTrue(value instanceof Integer);
         assertEquals(WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS, value);
+
+        value = config.get(WaltzClientConfig.MAX_APPLY_BATCH_SIZE);
+        assertTrue(value instanceof Integer);
+        assertEquals(WaltzClientConfig.DEFAULT_MAX_APPLY_BATCH_SIZE, value);
+
+        value = config.get(WaltzClientConfig.APPLY_BATCH_LINGER_TIME);
+        assertTrue(value instanceof Long);
+        assertEquals(WaltzClientConfig.DEFAULT_APPLY_BATCH_LINGER_TIME, value);
+
+        value = config.get(WaltzClientConfig.NUM_ASYNC_SUBMIT_THREADS);
+        assertTrue(value instanceof Integer);
+        assertEquals(WaltzClientConfig.DEFAULT_NUM_ASYNC_SUBMIT_THREADS, value);
+
+        value = config.get(WaltzClientConfig.MAX_ASYNC_QUEUE_BYTES);
+        assertTrue(value instanceof Long);
+        assertEquals(WaltzClientConfig.DEFAULT_MAX_ASYNC_QUEUE_BYTES, value);
+
+        value = config.get(WaltzClientConfig.MAX_PARALLEL_APPLY);
+        assertTrue(value instanceof Integer);
+        assertEquals(WaltzClientConfig.DEFAULT_MAX_PARALLEL_APPLY, value);
+
+        assertFalse(config.getOpt(WaltzClientConfig.WORKLOAD_CAPTURE_PATH).isPresent());
     }
 
     @Test
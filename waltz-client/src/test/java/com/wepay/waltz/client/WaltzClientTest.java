@@ -614,6 +614,57 @@ public class WaltzClientTest {
         }
     }
 
+    @Test
+    public void testSubmitAsync() throws Exception {
+        Map<Integer, MockServerPartition> serverPartitions = MockServerPartition.create(1);
+
+        MockDriver mockDriver1 = new MockDriver(1, serverPartitions);
+        WaltzClientConfig config1 = new WaltzClientConfig(new Properties());
+        config1.setObject(WaltzClientConfig.MOCK_DRIVER, mockDriver1);
+        MockWaltzClientCallbacks callbacks1 = new MockWaltzClientCallbacks().setClientHighWaterMark(0, -1L);
+        WaltzClient client1 = new WaltzClient(callbacks1, config1);
+
+        MockDriver mockDriver2 = new MockDriver(2, serverPartitions);
+        WaltzClientConfig config2 = new WaltzClientConfig(new Properties());
+        config2.setObject(WaltzClientConfig.MOCK_DRIVER, mockDriver2);
+        MockWaltzClientCallbacks callbacks2 = new MockWaltzClientCallbacks().setClientHighWaterMark(0, -1L);
+        WaltzClient client2 = new WaltzClient(callbacks2, config2);
+
+        try {
+            mockDriver1.suspendFeed();
+            mockDriver2.suspendFeed();
+
+            // Two transactions for lock=1. The second transaction fails once, and is retried asynchronously.
+            MockContext context1 = MockContext.builder().data("transaction1").writeLocks(1).retry(false).build();
+            MockContext context2 = MockContext.builder().data("transaction2").writeLocks(1).retry(true).build();
+            // This transaction is not executed again after a failure.
+            MockContext context3 = MockContext.builder().data("transaction3").writeLocks(1).retry(false).build();
+
+            CompletableFuture<Boolean> future1 = client1.submitAsync(context1).toCompletableFuture();
+            assertTrue(context1.future.get(10, TimeUnit.SECONDS));
+
+            CompletableFuture<Boolean> future2 = client2.submitAsync(context2).toCompletableFuture();
+            CompletableFuture<Boolean> future3 = client2.submitAsync(context3).toCompletableFuture();
+
+            // Wait until both transactions are built with the stale high-water mark
+            while (context2.execCount.get() == 0 || context3.execCount.get() == 0) {
+                Thread.sleep(10);
+            }
+
+            mockDriver1.resumeFeed();
+            mockDriver2.resumeFeed();
+
+            assertTrue(future1.get(10, TimeUnit.SECONDS));
+            assertTrue(future2.get(10, TimeUnit.SECONDS));
+            assertTrue(context2.execCount.get() > 1);
+            assertFalse(future3.get(10, TimeUnit.SECONDS));
+            assertFalse(context3.future.get(10, TimeUnit.SECONDS));
+
+        } finally {
+            close(client1, client2);
+        }
+    }
+
     public static void close(WaltzClient... clients) {
         for (WaltzClient client : clients) {
             try {
@@ -3,6 +3,7 @@ package com.wepay.waltz.client.internal;
 import com.wepay.riff.network.ClientSSL;
 import com.wepay.riff.util.PortFinder;
 import com.wepay.waltz.client.WaltzClientCallbacks;
+import com.wepay.waltz.client.WaltzClientConfig;
 import com.wepay.waltz.common.util.Utils;
 import com.wepay.waltz.server.WaltzServerConfig;
 import com.wepay.waltz.store.Store;
@@ -94,7 +95,10 @@ public class InternalClientTestBase {
     }
 
     protected InternalRpcClient getInternalRpcClient(int maxConcurrentTransactions) {
-        InternalRpcClient internalRpcClient = new InternalRpcClient(clientSslCtx, maxConcurrentTransactions, getCallbacks());
+        return initInternalRpcClient(new InternalRpcClient(clientSslCtx, maxConcurrentTransactions, getCallbacks()));
+    }
+
+    protected <T extends InternalRpcClient> T initInternalRpcClient(T internalRpcClient) {
         clients.add(internalRpcClient);
 
         internalRpcClient.setNumPartitions(partitionInfoList.size());
@@ -118,8 +122,40 @@ public class InternalClientTestBase {
         InternalRpcClient rpcClient,
         WaltzClientCallbacks callbacks
     ) {
-        InternalStreamClient internalStreamClient =
-            new InternalStreamClient(autoMount, clientSslCtx, maxConcurrentTransactions, callbacks, rpcClient, null);
+        return getInternalStreamClient(autoMount, maxConcurrentTransactions, 1, 0L, 0, 1, rpcClient, callbacks);
+    }
+
+    protected InternalStreamClient getInternalStreamClient(
+        boolean autoMount,
+        int maxConcurrentTransactions,
+        int maxApplyBatchSize,
+        long applyBatchLingerTime,
+        int readAheadSize,
+        int readAheadFetchSize,
+        InternalRpcClient rpcClient,
+        WaltzClientCallbacks callbacks
+    ) {
+        return getInternalStreamClient(
+            autoMount,
+            maxConcurrentTransactions,
+            new ApplyPolicy(maxApplyBatchSize, applyBatchLingerTime, 1),
+            new ReadAheadPolicy(readAheadSize, WaltzClientConfig.DEFAULT_READ_AHEAD_MAX_BYTES, readAheadFetchSize),
+            rpcClient,
+            callbacks
+        );
+    }
+
+    protected InternalStreamClient getInternalStreamClient(
+        boolean autoMount,
+        int maxConcurrentTransactions,
+        ApplyPolicy applyPolicy,
+        ReadAheadPolicy readAheadPolicy,
+        InternalRpcClient rpcClient,
+        WaltzClientCallbacks callbacks
+    ) {
+        InternalStreamClient internalStreamClient = new InternalStreamClient(
+            autoMount, clientSslCtx, maxConcurrentTransactions, applyPolicy, readAheadPolicy, null, callbacks, rpcClient, null
+        );
         clients.add(internalStreamClient);
 
         internalStreamClient.setClientId(clientId.incrementAndGet());
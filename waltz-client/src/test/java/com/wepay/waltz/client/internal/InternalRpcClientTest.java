@@ -1,6 +1,8 @@
 package com.wepay.waltz.client.internal;
 
+import com.wepay.waltz.client.Transaction;
 import com.wepay.waltz.client.WaltzClientConfig;
+import com.wepay.waltz.common.message.ReqId;
 import com.wepay.waltz.test.mock.MockContext;
 import com.wepay.zktools.util.Uninterruptibly;
 import org.junit.Test;
@@ -10,6 +12,7 @@ import java.util.Collections;
 import java.util.List;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -56,4 +59,35 @@ public class InternalRpcClientTest extends InternalClientTestBase {
         }
     }
 
+    @Test
+    public void testBufferSerializer() throws Exception {
+        final int numTransactions = 10;
+        TransactionBuilderImplTest.LongArraySerializer serializer = new TransactionBuilderImplTest.LongArraySerializer(0);
+        List<ReqId> reqIds = new ArrayList<>();
+
+        InternalRpcClient internalRpcClient = getInternalRpcClient(WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS);
+        InternalStreamClient internalStreamClient = getInternalStreamClient(true, WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS, internalRpcClient);
+
+        for (int i = 0; i < numTransactions; i++) {
+            MockContext context = MockContext.builder().header(0).data("unused").build();
+            TransactionBuilderImpl transactionBuilder = internalStreamClient.getTransactionBuilder(context);
+            transactionBuilder.setTransactionData(new long[]{i, i * 2L, i * 3L}, serializer);
+            reqIds.add(transactionBuilder.reqId);
+
+            TransactionFuture future = internalStreamClient.append(transactionBuilder.buildRequest(), context);
+
+            assertTrue(future.get());
+        }
+
+        for (int i = 0; i < numTransactions; i++) {
+            long[] expected = new long[]{i, i * 2L, i * 3L};
+
+            Transaction transaction = new Transaction(i, 0, reqIds.get(i), internalRpcClient);
+            assertArrayEquals(expected, transaction.getTransactionData(serializer));
+
+            transaction = new Transaction(i, 0, reqIds.get(i), internalRpcClient);
+            assertArrayEquals(expected, transaction.getTransactionDataAsync(serializer).get());
+        }
+    }
+
 }
@@ -1,24 +1,30 @@
 package com.wepay.waltz.client.internal;
 
 import com.wepay.waltz.client.Transaction;
+import com.wepay.waltz.client.WaltzBatchClientCallbacks;
 import com.wepay.waltz.client.WaltzClientConfig;
+import com.wepay.waltz.client.WaltzParallelClientCallbacks;
 import com.wepay.waltz.common.util.Utils;
 import com.wepay.waltz.exception.InvalidOperationException;
 import com.wepay.waltz.exception.PartitionInactiveException;
 import com.wepay.waltz.test.mock.MockContext;
 import com.wepay.waltz.test.mock.MockWaltzClientCallbacks;
+import com.wepay.waltz.test.util.StringSerializer;
 import com.wepay.zktools.util.Uninterruptibly;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
@@ -244,4 +250,391 @@ public class InternalStreamClientTest extends InternalClientTestBase {
         }
     }
 
+    @Test
+    public void testLockFailureRetryCoalescing() throws Exception {
+        MockWaltzClientCallbacks callbacks1 = getCallbacks();
+        MockWaltzClientCallbacks callbacks2 = getCallbacks();
+
+        InternalRpcClient internalRpcClient = getInternalRpcClient(WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS);
+        InternalStreamClient internalStreamClient1 = getInternalStreamClient(
+            true, WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS, internalRpcClient, callbacks1
+        );
+        InternalStreamClient internalStreamClient2 = getInternalStreamClient(
+            true, WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS, internalRpcClient, callbacks2
+        );
+
+        // The last transaction shares the conflicting lock, but it is not the first lock of the transaction
+        List<MockContext> contexts = new ArrayList<>();
+        contexts.add(MockContext.builder().header(0).data("conflict0").writeLocks(1).retry(true).build());
+        contexts.add(MockContext.builder().header(0).data("conflict1").writeLocks(1).retry(true).build());
+        contexts.add(MockContext.builder().header(0).data("conflict2").writeLocks(2, 1).retry(true).build());
+        List<TransactionFuture> futures = appendConflicts(internalStreamClient1, internalStreamClient2, contexts);
+
+        // Failed transactions are released one at a time. Each retry is committed without conflicting with others.
+        for (int i = 0; i < contexts.size(); i++) {
+            assertEquals(i + 1, awaitCompleted(futures, i + 1));
+
+            for (int j = 0; j < contexts.size(); j++) {
+                MockContext context = contexts.get(j);
+                if (futures.get(j).isDone() && context.execCount.get() == 1) {
+                    assertFalse(futures.get(j).get());
+
+                    TransactionBuilderImpl transactionBuilder = internalStreamClient2.getTransactionBuilder(context);
+                    context.execute(transactionBuilder);
+                    TransactionFuture retry = internalStreamClient2.append(transactionBuilder.buildRequest(), context);
+                    assertTrue(retry.get(TIMEOUT, TimeUnit.MILLISECONDS));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLockFailureWaitersReleasedWithoutProgress() throws Exception {
+        final int numConflicts = 3;
+
+        MockWaltzClientCallbacks callbacks1 = getCallbacks();
+        MockWaltzClientCallbacks callbacks2 = getCallbacks();
+
+        InternalRpcClient internalRpcClient = getInternalRpcClient(WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS);
+        InternalStreamClient internalStreamClient1 = getInternalStreamClient(
+            true, WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS, internalRpcClient, callbacks1
+        );
+        InternalStreamClient internalStreamClient2 = getInternalStreamClient(
+            true, WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS, internalRpcClient, callbacks2
+        );
+
+        List<MockContext> contexts = new ArrayList<>();
+        for (int i = 0; i < numConflicts; i++) {
+            contexts.add(MockContext.builder().header(0).data("conflict" + i).writeLocks(1).build());
+        }
+        List<TransactionFuture> futures = appendConflicts(internalStreamClient1, internalStreamClient2, contexts);
+
+        // Only one of the failed transactions is released first
+        assertEquals(1, awaitCompleted(futures, 1));
+
+        // The released transaction is not retried and no other transaction is committed.
+        // The rest are released anyway instead of holding credits until the transactions are nudged.
+        assertEquals(numConflicts, awaitCompleted(futures, numConflicts));
+        for (TransactionFuture future : futures) {
+            assertFalse(future.get());
+        }
+    }
+
+    /**
+     * Appends transactions conflicting with a transaction committed after they are built.
+     */
+    private List<TransactionFuture> appendConflicts(
+        InternalStreamClient internalStreamClient1,
+        InternalStreamClient internalStreamClient2,
+        List<MockContext> contexts
+    ) throws Exception {
+        // Build conflicting transactions before the transaction they conflict with is committed
+        List<TransactionBuilderImpl> builders = new ArrayList<>();
+        for (MockContext context : contexts) {
+            TransactionBuilderImpl transactionBuilder = internalStreamClient2.getTransactionBuilder(context);
+            context.execute(transactionBuilder);
+            builders.add(transactionBuilder);
+        }
+
+        MockContext context = MockContext.builder().header(0).data("winner").writeLocks(1).build();
+        TransactionBuilderImpl transactionBuilder = internalStreamClient1.getTransactionBuilder(context);
+        context.execute(transactionBuilder);
+        assertTrue(internalStreamClient1.append(transactionBuilder.buildRequest(), context).get(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        List<TransactionFuture> futures = new ArrayList<>();
+        for (int i = 0; i < contexts.size(); i++) {
+            futures.add(internalStreamClient2.append(builders.get(i).buildRequest(), contexts.get(i)));
+        }
+        for (MockContext conflict : contexts) {
+            assertTrue(conflict.lockFailureFuture.get(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+        return futures;
+    }
+
+    private int awaitCompleted(List<TransactionFuture> futures, int expected) {
+        long due = System.currentTimeMillis() + TIMEOUT;
+        int completed = 0;
+        while (System.currentTimeMillis() < due) {
+            completed = (int) futures.stream().filter(TransactionFuture::isDone).count();
+            if (completed >= expected) {
+                break;
+            }
+            Uninterruptibly.sleep(10);
+        }
+        return completed;
+    }
+
+    @Test
+    public void testReadAheadForSequentialConsumer() throws Exception {
+        final int numTransactions = 10;
+        final int readAheadSize = 5;
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Long> requested = Collections.synchronizedList(new ArrayList<>());
+
+        InternalRpcClient internalRpcClient = initInternalRpcClient(
+            new InternalRpcClient(clientSslCtx, WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS, getCallbacks()) {
+                @Override
+                public Future<byte[]> getTransactionData(int partitionId, long transactionId) {
+                    requested.add(transactionId);
+                    return super.getTransactionData(partitionId, transactionId);
+                }
+            }
+        );
+
+        // The consumer applies transactions one by one, and is stuck in the first one
+        MockWaltzClientCallbacks callbacks = new MockWaltzClientCallbacks() {
+            @Override
+            protected void process(Transaction transaction) {
+                if (transaction.transactionId == 0) {
+                    Uninterruptibly.run(() -> gate.await(TIMEOUT, TimeUnit.MILLISECONDS));
+                }
+                transaction.getTransactionData(StringSerializer.INSTANCE);
+            }
+        };
+        initClientHighWaterMarks(callbacks);
+
+        InternalStreamClient consumer = getInternalStreamClient(
+            true, WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS, 1, 0L, readAheadSize, 1, internalRpcClient, callbacks
+        );
+        InternalStreamClient producer = getInternalStreamClient(
+            true, WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS, getInternalRpcClient(WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS)
+        );
+
+        for (int i = 0; i < numTransactions; i++) {
+            MockContext context = MockContext.builder().header(0).data("transaction" + i).build();
+            TransactionBuilderImpl transactionBuilder = producer.getTransactionBuilder(context);
+            context.execute(transactionBuilder);
+            assertTrue(producer.append(transactionBuilder.buildRequest(), context).get(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+
+        // The data of the transactions waiting behind the first one are fetched up to the read-ahead size
+        List<Long> expected = new ArrayList<>();
+        for (long transactionId = 0; transactionId <= readAheadSize; transactionId++) {
+            expected.add(transactionId);
+        }
+        long due = System.currentTimeMillis() + TIMEOUT;
+        while (requested.size() < expected.size() && System.currentTimeMillis() < due) {
+            Uninterruptibly.sleep(10);
+        }
+        Uninterruptibly.sleep(100);
+        assertEquals(expected, new ArrayList<>(requested));
+        assertEquals(-1L, callbacks.getClientHighWaterMark(0));
+
+        // Prefetched data are used by the consumer. Each transaction is fetched once.
+        gate.countDown();
+        callbacks.awaitHighWaterMark(0, numTransactions - 1, TIMEOUT);
+        assertEquals(numTransactions, requested.size());
+        assertEquals(numTransactions, new HashSet<>(requested).size());
+    }
+
+    @Test
+    public void testBatchApplication() throws Exception {
+        final int numTransactions = 50;
+        final int maxApplyBatchSize = 10;
+        final long applyBatchLingerTime = 20L;
+        List<List<Transaction>> batches = new ArrayList<>();
+        List<String> data = new ArrayList<>();
+
+        BatchCallbacks callbacks = new BatchCallbacks(batches, data);
+        initClientHighWaterMarks(callbacks);
+
+        InternalRpcClient internalRpcClient = getInternalRpcClient(WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS);
+        InternalStreamClient internalStreamClient = getInternalStreamClient(
+            true,
+            WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS,
+            maxApplyBatchSize,
+            applyBatchLingerTime,
+            maxApplyBatchSize,
+            maxApplyBatchSize / 2,
+            internalRpcClient,
+            callbacks
+        );
+
+        List<CompletableFuture<Boolean>> applicationFutures = new ArrayList<>();
+        for (int i = 0; i < numTransactions; i++) {
+            MockContext context = MockContext.builder().header(0).data("transaction" + i).build();
+            TransactionBuilderImpl transactionBuilder = internalStreamClient.getTransactionBuilder(context);
+            context.execute(transactionBuilder);
+
+            TransactionFuture future = internalStreamClient.append(transactionBuilder.buildRequest(), context);
+            assertTrue(future.get());
+            applicationFutures.add(context.applicationFuture);
+        }
+
+        // Transactions lingering in the partition are applied after the linger time
+        for (CompletableFuture<Boolean> future : applicationFutures) {
+            assertTrue(future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+        callbacks.awaitHighWaterMark(0, numTransactions - 1, TIMEOUT);
+        assertEquals(numTransactions - 1, callbacks.getClientHighWaterMark(0));
+
+        long expectedTransactionId = 0;
+        synchronized (batches) {
+            for (List<Transaction> batch : batches) {
+                assertTrue(batch.size() <= maxApplyBatchSize);
+                for (Transaction transaction : batch) {
+                    assertEquals(expectedTransactionId++, transaction.transactionId);
+                }
+            }
+        }
+        assertEquals(numTransactions, expectedTransactionId);
+
+        synchronized (data) {
+            assertEquals(numTransactions, data.size());
+            for (int i = 0; i < numTransactions; i++) {
+                assertEquals("transaction" + i, data.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testBatchApplicationFailure() throws Exception {
+        final int numTransactions = 5;
+        final int maxApplyBatchSize = 10;
+        final long applyBatchLingerTime = 20L;
+        List<List<Transaction>> batches = new ArrayList<>();
+        List<String> data = new ArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean(false);
+
+        BatchCallbacks callbacks = new BatchCallbacks(batches, data) {
+            @Override
+            public void applyTransactions(List<Transaction> transactions) {
+                if (failed.compareAndSet(false, true)) {
+                    throw new RuntimeException("intentionally failing the first call of applyTransactions");
+                }
+                super.applyTransactions(transactions);
+            }
+        };
+        initClientHighWaterMarks(callbacks);
+
+        InternalRpcClient internalRpcClient = getInternalRpcClient(WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS);
+        InternalStreamClient internalStreamClient = getInternalStreamClient(
+            true,
+            WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS,
+            maxApplyBatchSize,
+            applyBatchLingerTime,
+            0,
+            1,
+            internalRpcClient,
+            callbacks
+        );
+
+        // Fewer transactions than the batch size. The batches are applied by the linger task, and the first one fails.
+        List<CompletableFuture<Boolean>> applicationFutures = new ArrayList<>();
+        for (int i = 0; i < numTransactions * 2; i++) {
+            MockContext context = MockContext.builder().header(0).data("transaction" + i).build();
+            TransactionBuilderImpl transactionBuilder = internalStreamClient.getTransactionBuilder(context);
+            context.execute(transactionBuilder);
+
+            TransactionFuture future = internalStreamClient.append(transactionBuilder.buildRequest(), context);
+            assertTrue(future.get());
+            applicationFutures.add(context.applicationFuture);
+
+            if (i == numTransactions - 1) {
+                // The partition makes progress after the failure
+                callbacks.awaitHighWaterMark(0, i, TIMEOUT);
+            }
+        }
+
+        for (CompletableFuture<Boolean> future : applicationFutures) {
+            assertTrue(future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+        callbacks.awaitHighWaterMark(0, numTransactions * 2 - 1, TIMEOUT);
+
+        assertTrue(failed.get());
+        assertEquals(1, callbacks.exceptions.size());
+
+        synchronized (data) {
+            assertEquals(numTransactions * 2, data.size());
+            for (int i = 0; i < numTransactions * 2; i++) {
+                assertEquals("transaction" + i, data.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelApplicationFailure() throws Exception {
+        final int numTransactions = 10;
+        final long failingTransactionId = 3;
+        AtomicBoolean failed = new AtomicBoolean(false);
+
+        ParallelCallbacks callbacks = new ParallelCallbacks() {
+            @Override
+            protected void process(Transaction transaction) {
+                if (transaction.transactionId == failingTransactionId && failed.compareAndSet(false, true)) {
+                    throw new RuntimeException("intentionally failing the first call of applyTransaction");
+                }
+            }
+        };
+        initClientHighWaterMarks(callbacks);
+
+        InternalRpcClient internalRpcClient = getInternalRpcClient(WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS);
+        InternalStreamClient internalStreamClient = getInternalStreamClient(
+            true,
+            WaltzClientConfig.DEFAULT_MAX_CONCURRENT_TRANSACTIONS,
+            new ApplyPolicy(1, 0L, 4),
+            ReadAheadPolicy.DISABLED,
+            internalRpcClient,
+            callbacks
+        );
+
+        List<CompletableFuture<Boolean>> applicationFutures = new ArrayList<>();
+        for (int i = 0; i < numTransactions; i++) {
+            MockContext context = MockContext.builder().header(0).data("transaction" + i).build();
+            TransactionBuilderImpl transactionBuilder = internalStreamClient.getTransactionBuilder(context);
+            context.execute(transactionBuilder);
+
+            TransactionFuture future = internalStreamClient.append(transactionBuilder.buildRequest(), context);
+            assertTrue(future.get());
+            applicationFutures.add(context.applicationFuture);
+        }
+
+        // The partition makes progress after the failure
+        for (CompletableFuture<Boolean> future : applicationFutures) {
+            assertTrue(future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+        callbacks.awaitHighWaterMark(0, numTransactions - 1, TIMEOUT);
+
+        assertTrue(failed.get());
+        assertEquals(1, callbacks.exceptions.size());
+        synchronized (callbacks.transactions) {
+            assertEquals(numTransactions, callbacks.transactions.size());
+        }
+    }
+
+    private static class ParallelCallbacks extends MockWaltzClientCallbacks implements WaltzParallelClientCallbacks {
+        @Override
+        public void onClientHighWaterMarkAdvanced(int partitionId, long clientHighWaterMark) {
+        }
+    }
+
+    private static class BatchCallbacks extends MockWaltzClientCallbacks implements WaltzBatchClientCallbacks {
+        private final List<List<Transaction>> batches;
+        private final List<String> data;
+
+        BatchCallbacks(List<List<Transaction>> batches, List<String> data) {
+            this.batches = batches;
+            this.data = data;
+        }
+
+        @Override
+        public void applyTransactions(List<Transaction> transactions) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (Transaction transaction : transactions) {
+                futures.add(transaction.getTransactionDataAsync(StringSerializer.INSTANCE));
+            }
+            for (Transaction transaction : transactions) {
+                applyTransaction(transaction);
+            }
+            synchronized (data) {
+                for (CompletableFuture<String> future : futures) {
+                    data.add(future.join());
+                }
+            }
+            synchronized (batches) {
+                batches.add(new ArrayList<>(transactions));
+            }
+        }
+    }
+
 }
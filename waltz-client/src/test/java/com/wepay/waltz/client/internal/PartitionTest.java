@@ -0,0 +1,278 @@
+package com.wepay.waltz.client.internal;
+
+import com.wepay.waltz.client.internal.network.WaltzNetworkClient;
+import com.wepay.waltz.client.internal.network.WaltzNetworkClientCallbacks;
+import com.wepay.waltz.common.message.ReqId;
+import com.wepay.zktools.util.Uninterruptibly;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionTest {
+
+    private static final long TIMEOUT = 10000;
+    private static final int MAX_PARALLEL_APPLY = 4;
+
+    private ExecutorService applyExecutor;
+    private Partition partition;
+    private ParallelCallbacks callbacks;
+
+    @Before
+    public void setup() {
+        applyExecutor = Executors.newCachedThreadPool();
+        partition = new Partition(0, 1, 100, new ApplyPolicy(1, 0L, MAX_PARALLEL_APPLY), applyExecutor, null, null, "test");
+        partition.activate(-1L);
+        callbacks = new ParallelCallbacks();
+    }
+
+    @After
+    public void teardown() {
+        callbacks.releaseAll();
+        partition.close();
+        applyExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testParallelApplyDisjointLocks() throws Exception {
+        CountDownLatch gate = callbacks.block(0);
+
+        apply(0, 1);
+        apply(1, 2);
+
+        // Transaction 1 is applied while transaction 0 is still being applied
+        awaitCondition(() -> callbacks.finished().contains(1L));
+        assertEquals(Collections.singletonList(0L), callbacks.running());
+
+        // The client high-water mark advances only over the contiguous range of applied transactions
+        assertEquals(-1L, partition.clientHighWaterMark());
+        assertTrue(callbacks.highWaterMarks().isEmpty());
+
+        gate.countDown();
+
+        awaitHighWaterMark(1L);
+        assertEquals(Collections.singletonList(1L), callbacks.highWaterMarks());
+    }
+
+    @Test
+    public void testParallelApplyConflictingLocks() throws Exception {
+        CountDownLatch gate = callbacks.block(0);
+
+        apply(0, 1);
+
+        // Transaction 1 shares a lock with transaction 0. The feed waits until transaction 0 is applied.
+        Thread feeder = feed(new long[] {1, 2}, new int[][] {{1, 2}, {3}});
+        Uninterruptibly.sleep(100);
+        assertEquals(Collections.singletonList(0L), callbacks.started());
+        assertTrue(feeder.isAlive());
+
+        gate.countDown();
+        feeder.join(TIMEOUT);
+
+        awaitHighWaterMark(2L);
+        assertEquals(0L, (long) callbacks.started().get(0));
+        assertEquals(1L, (long) callbacks.started().get(1));
+    }
+
+    @Test
+    public void testParallelApplyBarrier() throws Exception {
+        CountDownLatch gate0 = callbacks.block(0);
+        CountDownLatch gate1 = callbacks.block(1);
+
+        apply(0, 1);
+
+        // Transaction 1 has no lock information. It is applied alone after transaction 0.
+        Thread feeder = feed(new long[] {1, 2}, new int[][] {null, {3}});
+        Uninterruptibly.sleep(100);
+        assertEquals(Collections.singletonList(0L), callbacks.started());
+
+        gate0.countDown();
+        awaitCondition(() -> callbacks.started().contains(1L));
+
+        // Transaction 2 does not start while the barrier is being applied
+        Uninterruptibly.sleep(100);
+        assertEquals(Collections.singletonList(1L), callbacks.running());
+        assertFalse(callbacks.started().contains(2L));
+        assertEquals(0L, partition.clientHighWaterMark());
+
+        gate1.countDown();
+        feeder.join(TIMEOUT);
+
+        awaitHighWaterMark(2L);
+        assertEquals(3, callbacks.started().size());
+    }
+
+    @Test
+    public void testParallelApplyFailure() throws Exception {
+        CountDownLatch gate = callbacks.block(0);
+        callbacks.failOnce(1);
+
+        apply(0, 1);
+        apply(1, 2);
+        awaitCondition(() -> callbacks.finished().contains(1L));
+        Uninterruptibly.sleep(100);
+
+        // Transactions after the failed one are discarded once the running transactions are done
+        gate.countDown();
+        awaitHighWaterMark(0L);
+
+        // The feed resumed from a stale position is ignored
+        apply(2, 3);
+        Uninterruptibly.sleep(100);
+        assertEquals(0L, partition.clientHighWaterMark());
+        assertEquals(2, callbacks.started().size());
+
+        // The feed restarted from the client high-water mark makes progress
+        apply(1, 2);
+        apply(2, 3);
+        awaitHighWaterMark(2L);
+        assertEquals(4, callbacks.started().size());
+    }
+
+    @Test
+    public void testDeactivateWaitsForRunningTransactions() throws Exception {
+        CountDownLatch gate = callbacks.block(0);
+
+        apply(0, 1);
+        awaitCondition(() -> callbacks.started().contains(0L));
+
+        Thread thread = new Thread(partition::deactivate);
+        thread.start();
+        Uninterruptibly.sleep(100);
+        assertTrue(thread.isAlive());
+
+        gate.countDown();
+        thread.join(TIMEOUT);
+
+        assertFalse(thread.isAlive());
+        assertFalse(partition.isActive());
+        assertEquals(0L, partition.clientHighWaterMark());
+    }
+
+    private void apply(long transactionId, int... lockHashes) {
+        partition.applyTransaction(transactionId, 0, reqId(transactionId), lockHashes, callbacks);
+    }
+
+    private Thread feed(long[] transactionIds, int[][] lockHashes) {
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < transactionIds.length; i++) {
+                partition.applyTransaction(transactionIds[i], 0, reqId(transactionIds[i]), lockHashes[i], callbacks);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static ReqId reqId(long transactionId) {
+        return new ReqId(1, 0, 0, (int) transactionId);
+    }
+
+    private void awaitHighWaterMark(long highWaterMark) {
+        awaitCondition(() -> partition.clientHighWaterMark() == highWaterMark);
+        assertEquals(highWaterMark, partition.clientHighWaterMark());
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) {
+        long due = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < due) {
+            Uninterruptibly.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static class ParallelCallbacks implements WaltzNetworkClientCallbacks {
+        private final ConcurrentHashMap<Long, CountDownLatch> gates = new ConcurrentHashMap<>();
+        private final Set<Long> failures = ConcurrentHashMap.newKeySet();
+        private final List<Long> started = new ArrayList<>();
+        private final List<Long> running = new ArrayList<>();
+        private final List<Long> finished = new ArrayList<>();
+        private final List<Long> highWaterMarks = new ArrayList<>();
+
+        CountDownLatch block(long transactionId) {
+            return gates.computeIfAbsent(transactionId, id -> new CountDownLatch(1));
+        }
+
+        void failOnce(long transactionId) {
+            failures.add(transactionId);
+        }
+
+        void releaseAll() {
+            gates.values().forEach(CountDownLatch::countDown);
+        }
+
+        synchronized List<Long> started() {
+            return new ArrayList<>(started);
+        }
+
+        synchronized List<Long> running() {
+            return new ArrayList<>(running);
+        }
+
+        synchronized List<Long> finished() {
+            return new ArrayList<>(finished);
+        }
+
+        synchronized List<Long> highWaterMarks() {
+            return new ArrayList<>(highWaterMarks);
+        }
+
+        @Override
+        public void onTransactionReceived(long transactionId, int header, ReqId reqId) {
+            synchronized (this) {
+                started.add(transactionId);
+                running.add(transactionId);
+            }
+            try {
+                CountDownLatch gate = gates.get(transactionId);
+                if (gate != null) {
+                    Uninterruptibly.run(() -> gate.await(TIMEOUT, TimeUnit.MILLISECONDS));
+                }
+                if (failures.remove(transactionId)) {
+                    throw new RuntimeException("intentionally failing transaction " + transactionId);
+                }
+            } finally {
+                synchronized (this) {
+                    running.remove(transactionId);
+                    finished.add(transactionId);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void onClientHighWaterMarkAdvanced(int partitionId, long clientHighWaterMark) {
+            highWaterMarks.add(clientHighWaterMark);
+        }
+
+        @Override
+        public void onMountingPartition(WaltzNetworkClient networkClient, Partition partition) {
+        }
+
+        @Override
+        public void onNetworkClientDisconnected(WaltzNetworkClient networkClient) {
+        }
+
+        @Override
+        public void onTransactionPending(long transactionId, ReqId reqId) {
+        }
+
+        @Override
+        public void onTransactionsReceived(long firstTransactionId, int[] headers, ReqId[] reqIds) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.wepay.waltz.client.internal;
+
+import com.wepay.zktools.clustermgr.Endpoint;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ReadAheadWindowTest {
+
+    private static final int DATA_SIZE = 100;
+
+    @Test
+    public void testMaxTransactions() throws Exception {
+        MockRpcClient rpcClient = new MockRpcClient();
+        ReadAheadWindow window = new ReadAheadWindow(rpcClient, 0, new ReadAheadPolicy(3, Long.MAX_VALUE, 1));
+
+        for (long transactionId = 0; transactionId < 5; transactionId++) {
+            window.fetch(transactionId);
+        }
+        assertEquals(3, window.size());
+        assertEquals(3, rpcClient.requests.size());
+
+        // Duplicate requests are ignored
+        window.take(0L);
+        window.fetch(1L);
+        assertEquals(2, window.size());
+        assertEquals(3, rpcClient.requests.size());
+
+        assertSame(rpcClient.requests.get(2L), window.take(2L));
+        assertEquals(0, window.size());
+
+        // Not in the window
+        assertNull(window.take(3L));
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+        MockRpcClient rpcClient = new MockRpcClient();
+        ReadAheadWindow window = new ReadAheadWindow(rpcClient, 0, new ReadAheadPolicy(Integer.MAX_VALUE, DATA_SIZE * 2, 1));
+
+        for (long transactionId = 0; transactionId < 5; transactionId++) {
+            window.fetch(transactionId);
+
+            CompletableFuture<byte[]> future = rpcClient.requests.get(transactionId);
+            if (future != null) {
+                future.complete(new byte[DATA_SIZE]);
+            }
+        }
+        assertEquals(2, window.size());
+
+        // Consuming data makes room for more transactions
+        assertEquals(DATA_SIZE, ((byte[]) window.take(0L).get()).length);
+        window.fetch(2L);
+        rpcClient.requests.get(2L).complete(new byte[DATA_SIZE]);
+        assertEquals(2, window.size());
+        window.fetch(3L);
+        assertEquals(2, window.size());
+    }
+
+    @Test
+    public void testSkippedTransactions() throws Exception {
+        MockRpcClient rpcClient = new MockRpcClient();
+        ReadAheadWindow window = new ReadAheadWindow(rpcClient, 0, new ReadAheadPolicy(10, Long.MAX_VALUE, 1));
+
+        for (long transactionId = 0; transactionId < 5; transactionId++) {
+            window.fetch(transactionId);
+        }
+
+        // Transactions preceding the taken transaction are removed
+        window.take(3L);
+        assertEquals(1, window.size());
+        assertNull(window.take(1L));
+    }
+
+    @Test
+    public void testFetchSize() throws Exception {
+        MockRpcClient rpcClient = new MockRpcClient();
+        ReadAheadWindow window = new ReadAheadWindow(rpcClient, 0, new ReadAheadPolicy(10, Long.MAX_VALUE, 3));
+
+        // Consecutive transactions are requested together
+        for (long transactionId = 0; transactionId < 3; transactionId++) {
+            assertEquals(0, rpcClient.numListRequests);
+            window.fetch(transactionId);
+        }
+        assertEquals(1, rpcClient.numListRequests);
+        assertEquals(3, rpcClient.requests.size());
+
+        // A partial run is requested when one of its transactions is taken
+        window.fetch(3L);
+        window.fetch(4L);
+        assertEquals(3, rpcClient.requests.size());
+        assertSame(rpcClient.requests.get(3L), window.take(3L));
+        assertEquals(2, rpcClient.numListRequests);
+        assertEquals(5, rpcClient.requests.size());
+        assertSame(rpcClient.requests.get(4L), window.take(4L));
+
+        // A gap ends the run
+        window.fetch(5L);
+        window.fetch(7L);
+        assertEquals(6, rpcClient.requests.size());
+        assertEquals(2, rpcClient.numListRequests);
+
+        // Transactions removed before they are requested are never requested
+        window.take(8L);
+        window.fetch(9L);
+        window.fetch(10L);
+        window.fetch(11L);
+        assertEquals(3, rpcClient.numListRequests);
+        assertNull(rpcClient.requests.get(7L));
+        assertNull(rpcClient.requests.get(8L));
+    }
+
+    private static class MockRpcClient implements RpcClient {
+        final Map<Long, CompletableFuture<byte[]>> requests = new HashMap<>();
+        int numListRequests = 0;
+
+        @Override
+        public List<Future<byte[]>> getTransactionDataList(int partitionId, long transactionId, int numTransactions) {
+            numListRequests++;
+            return RpcClient.super.getTransactionDataList(partitionId, transactionId, numTransactions);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public Future<byte[]> getTransactionData(int partitionId, long transactionId) {
+            CompletableFuture<byte[]> future = new CompletableFuture<>();
+            requests.put(transactionId, future);
+            return future;
+        }
+
+        @Override
+        public Future<Long> getHighWaterMark(int partitionId) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+
+        @Override
+        public Future<Map<Endpoint, Map<String, Boolean>>> checkServerConnections(Set<Endpoint> serverEndpoints) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+
+        @Override
+        public Future<List<Integer>> getServerPartitionAssignments(Endpoint serverEndpoint) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        @Override
+        public Future<Map<Integer, Boolean>> getServerPartitionHealthStats(Endpoint serverEndpoint) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+
+        @Override
+        public Future<Boolean> addPreferredPartition(Endpoint serverEndpoint, List<Integer> partitionIds) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public Future<Boolean> removePreferredPartition(Endpoint serverEndpoint, List<Integer> partitionIds) {
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+
+}
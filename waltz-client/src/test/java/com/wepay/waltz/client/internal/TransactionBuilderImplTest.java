@@ -1,14 +1,23 @@
 package com.wepay.waltz.client.internal;
 
+import com.wepay.waltz.client.BufferSerializer;
+import com.wepay.waltz.client.PartitionLocalLock;
+import com.wepay.waltz.client.Serializer;
+import com.wepay.waltz.client.TransactionBuilder;
 import com.wepay.waltz.common.message.AppendRequest;
 import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.common.util.Utils;
 import com.wepay.waltz.test.mock.MockContext;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TransactionBuilderImplTest {
 
@@ -55,4 +64,95 @@ public class TransactionBuilderImplTest {
         assertArrayEquals(expectedAppendLockRequest, request.appendLockRequest);
     }
 
+    @Test
+    public void testBufferSerializer() {
+        // Exact size
+        TransactionBuilderImpl builder = new TransactionBuilderImpl(new ReqId(111, 222, 333, 444), 999);
+        builder.setTransactionData(new long[]{1L, 2L, 3L}, new LongArraySerializer(0));
+
+        AppendRequest request = builder.buildRequest();
+        assertEquals(24, request.data.length);
+        assertEquals(Utils.checksum(request.data), request.checksum);
+
+        ByteBuffer buffer = ByteBuffer.wrap(request.data).asReadOnlyBuffer();
+        long[] deserialized = new LongArraySerializer(0).deserialize(buffer);
+        assertArrayEquals(new long[]{1L, 2L, 3L}, deserialized);
+        assertTrue(buffer.isReadOnly());
+
+        // Over-estimated size
+        builder = new TransactionBuilderImpl(new ReqId(111, 222, 333, 444), 999);
+        builder.setTransactionData(new long[]{1L, 2L, 3L}, new LongArraySerializer(10));
+
+        request = builder.buildRequest();
+        assertEquals(24, request.data.length);
+        assertEquals(Utils.checksum(request.data), request.checksum);
+        assertArrayEquals(new long[]{1L, 2L, 3L}, new LongArraySerializer(0).deserialize(ByteBuffer.wrap(request.data)));
+    }
+
+    @Test
+    public void testDefaultBufferSerializer() {
+        List<byte[]> payloads = new ArrayList<>();
+        TransactionBuilder builder = new TransactionBuilder() {
+            @Override
+            public void setHeader(int header) {
+            }
+
+            @Override
+            public <T> void setTransactionData(T transactionData, Serializer<T> serializer) {
+                payloads.add(serializer.serialize(transactionData));
+            }
+
+            @Override
+            public void setWriteLocks(List<PartitionLocalLock> partitionLocalLocks) {
+            }
+
+            @Override
+            public void setReadLocks(List<PartitionLocalLock> partitionLocalLocks) {
+            }
+
+            @Override
+            public void setAppendLocks(List<PartitionLocalLock> partitionLocalLocks) {
+            }
+        };
+
+        builder.setTransactionData(new long[]{1L, 2L, 3L}, new LongArraySerializer(0));
+        builder.setTransactionData(new long[]{4L, 5L}, new LongArraySerializer(10));
+
+        assertEquals(2, payloads.size());
+        assertArrayEquals(new long[]{1L, 2L, 3L}, new LongArraySerializer(0).deserialize(ByteBuffer.wrap(payloads.get(0))));
+        assertEquals(16, payloads.get(1).length);
+        assertArrayEquals(new long[]{4L, 5L}, new LongArraySerializer(0).deserialize(ByteBuffer.wrap(payloads.get(1))));
+    }
+
+    static class LongArraySerializer implements BufferSerializer<long[]> {
+
+        private final int extraBytes;
+
+        LongArraySerializer(int extraBytes) {
+            this.extraBytes = extraBytes;
+        }
+
+        @Override
+        public int serializedSize(long[] data) {
+            return data.length * Long.BYTES + extraBytes;
+        }
+
+        @Override
+        public void serialize(long[] data, ByteBuffer buffer) {
+            for (long value : data) {
+                buffer.putLong(value);
+            }
+        }
+
+        @Override
+        public long[] deserialize(ByteBuffer buffer) {
+            long[] data = new long[buffer.remaining() / Long.BYTES];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = buffer.getLong();
+            }
+            return data;
+        }
+
+    }
+
 }
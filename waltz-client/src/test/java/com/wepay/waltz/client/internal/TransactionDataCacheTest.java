@@ -0,0 +1,80 @@
+package com.wepay.waltz.client.internal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class TransactionDataCacheTest {
+
+    private static final int DATA_SIZE = 100;
+
+    @Test
+    public void testGetAndPut() {
+        TransactionDataCache cache = new TransactionDataCache(DATA_SIZE * 10);
+        try {
+            byte[] data0 = new byte[DATA_SIZE];
+            byte[] data1 = new byte[DATA_SIZE];
+
+            assertNull(cache.get(0, 0L));
+
+            cache.put(0, 0L, data0);
+            cache.put(1, 0L, data1);
+            assertSame(data0, cache.get(0, 0L));
+            assertSame(data1, cache.get(1, 0L));
+            assertNull(cache.get(0, 1L));
+            assertEquals(2, cache.size());
+            assertEquals(DATA_SIZE * 2, cache.bytes());
+
+            // Putting the same transaction again replaces the data
+            cache.put(0, 0L, new byte[DATA_SIZE / 2]);
+            assertEquals(2, cache.size());
+            assertEquals(DATA_SIZE * 2 - DATA_SIZE / 2, cache.bytes());
+
+        } finally {
+            cache.close();
+        }
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.bytes());
+    }
+
+    @Test
+    public void testEviction() {
+        TransactionDataCache cache = new TransactionDataCache(DATA_SIZE * 4);
+        try {
+            for (long transactionId = 0; transactionId < 4; transactionId++) {
+                cache.put(0, transactionId, new byte[DATA_SIZE]);
+            }
+            assertEquals(4, cache.size());
+
+            // Touch the oldest entry, the next oldest is evicted
+            cache.get(0, 0L);
+            cache.put(0, 4L, new byte[DATA_SIZE]);
+            assertEquals(4, cache.size());
+            assertEquals(DATA_SIZE * 4, cache.bytes());
+            assertNull(cache.get(0, 1L));
+            assertEquals(DATA_SIZE, cache.get(0, 0L).length);
+
+            // Data larger than a quarter of the cache is not cached
+            cache.put(0, 5L, new byte[DATA_SIZE + 1]);
+            assertNull(cache.get(0, 5L));
+            assertEquals(4, cache.size());
+
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testValidation() {
+        try {
+            new TransactionDataCache(0L);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Ignore
+        }
+    }
+
+}
@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
@@ -184,6 +185,56 @@ public class TransactionMonitorTest {
         }
     }
 
+    @Test
+    public void testReserve() throws Exception {
+        monitor.start();
+
+        int capacity = monitor.maxCapacity();
+
+        for (int i = 0; i < capacity; i++) {
+            CompletableFuture<Boolean> reservation = monitor.reserve();
+            assertTrue(reservation.isDone());
+            assertTrue(reservation.get());
+            assertFalse(monitor.register(new ReqId(0, i), context, true).isDone());
+        }
+
+        // Reservations wait for credits in FIFO order
+        CompletableFuture<Boolean> reservation1 = monitor.reserve();
+        CompletableFuture<Boolean> reservation2 = monitor.reserve();
+        CompletableFuture<Boolean> reservation3 = monitor.reserve();
+        assertFalse(reservation1.isDone());
+        assertFalse(reservation2.isDone());
+        assertFalse(reservation3.isDone());
+        assertEquals(3, monitor.waitingCount());
+
+        // A timed out reservation is cancelled
+        assertNull(monitor.awaitReservation(reservation2, 0, timeout));
+        assertFalse(reservation2.get());
+
+        // A completed transaction returns its credit
+        monitor.committed(new ReqId(0, 0));
+        assertTrue(reservation1.isDone());
+        assertTrue(reservation1.get());
+        assertFalse(reservation3.isDone());
+
+        TransactionFuture future = monitor.register(new ReqId(0, capacity), context, true);
+        assertFalse(future.isDone());
+        assertEquals(capacity, monitor.registeredCount());
+
+        // The cancelled reservation is skipped
+        monitor.abort(new ReqId(0, 1));
+        assertTrue(reservation3.isDone());
+        assertTrue(reservation3.get());
+
+        // Waiting reservations are completed without credits when the monitor stops
+        CompletableFuture<Boolean> reservation4 = monitor.reserve();
+        assertFalse(reservation4.isDone());
+        monitor.stop();
+        assertTrue(reservation4.isDone());
+        assertFalse(reservation4.get());
+        assertFalse(monitor.reserve().get());
+    }
+
     @Test
     public void testAbort() throws Exception {
         monitor.start();
@@ -0,0 +1,93 @@
+package com.wepay.waltz.client.internal;
+
+import com.wepay.waltz.common.message.AppendRequest;
+import com.wepay.waltz.common.message.ReqId;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WorkloadCaptureTest {
+
+    @Test
+    public void testCapture() throws Exception {
+        Path path = Files.createTempFile("workload-capture-test", ".txt");
+        try {
+            WorkloadCapture capture = new WorkloadCapture(path);
+            capture.capture(request(1, 10, new int[]{777, 888}, new int[0], new int[0]));
+            capture.capture(request(2, 0, new int[]{888}, new int[]{999}, new int[0]));
+            capture.capture(request(1, 20, new int[0], new int[0], new int[]{777}));
+            capture.close();
+
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            assertEquals(3, lines.size());
+
+            WorkloadCapture.Entry entry0 = WorkloadCapture.Entry.parse(lines.get(0));
+            WorkloadCapture.Entry entry1 = WorkloadCapture.Entry.parse(lines.get(1));
+            WorkloadCapture.Entry entry2 = WorkloadCapture.Entry.parse(lines.get(2));
+
+            assertEquals(1, entry0.partitionId);
+            assertEquals(10, entry0.dataSize);
+            assertArrayEquals(new int[]{0, 1}, entry0.writeLocks());
+            assertArrayEquals(new int[0], entry0.readLocks());
+            assertArrayEquals(new int[0], entry0.appendLocks());
+
+            // Locks are replaced by the order of the first appearance
+            assertEquals(2, entry1.partitionId);
+            assertEquals(0, entry1.dataSize);
+            assertArrayEquals(new int[]{1}, entry1.writeLocks());
+            assertArrayEquals(new int[]{2}, entry1.readLocks());
+            assertArrayEquals(new int[0], entry1.appendLocks());
+
+            assertEquals(1, entry2.partitionId);
+            assertEquals(20, entry2.dataSize);
+            assertArrayEquals(new int[0], entry2.writeLocks());
+            assertArrayEquals(new int[0], entry2.readLocks());
+            assertArrayEquals(new int[]{0}, entry2.appendLocks());
+
+            assertTrue(entry0.offsetMicros <= entry1.offsetMicros);
+            assertTrue(entry1.offsetMicros <= entry2.offsetMicros);
+
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testParse() {
+        WorkloadCapture.Entry entry = WorkloadCapture.Entry.parse("123 4 56 1,2 - 3");
+        assertEquals(123L, entry.offsetMicros);
+        assertEquals(4, entry.partitionId);
+        assertEquals(56, entry.dataSize);
+        assertArrayEquals(new int[]{1, 2}, entry.writeLocks());
+        assertArrayEquals(new int[0], entry.readLocks());
+        assertArrayEquals(new int[]{3}, entry.appendLocks());
+        assertEquals("123 4 56 1,2 - 3", entry.format());
+
+        try {
+            WorkloadCapture.Entry.parse("123 4 56 1,2 -");
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Ignore
+        }
+
+        try {
+            WorkloadCapture.Entry.parse("123 4 x 1,2 - 3");
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Ignore
+        }
+    }
+
+    private static AppendRequest request(int partitionId, int dataSize, int[] writeLocks, int[] readLocks, int[] appendLocks) {
+        return new AppendRequest(new ReqId(1, 2, partitionId, 3), -1L, writeLocks, readLocks, appendLocks, 0, new byte[dataSize], 0);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.wepay.waltz.common.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * An append request processed by a server partition, from the time the request is taken from the append queue
+ * to the time the transaction is resolved.
+ */
+@Name("waltz.server.Append")
+@Label("Append")
+@Description("An append request processed by a server partition")
+@Threshold("1 ms")
+public final class AppendEvent extends WaltzEvent {
+
+    @Label("Transaction Id")
+    @Description("The transaction id, or -1 if the transaction is not committed")
+    private long transactionId;
+
+    @Label("Data Size")
+    @DataAmount
+    private int dataSize;
+
+    @Label("Lock Failure")
+    private boolean lockFailure;
+
+    /**
+     * Ends and commits the event if it is enabled and exceeds the threshold.
+     * @param partitionId the partition id.
+     * @param transactionId the transaction id, or -1 if the transaction is not committed.
+     * @param dataSize the size of the transaction data.
+     * @param lockFailure {@code true} if the request was rejected by a lock failure.
+     */
+    public void complete(int partitionId, long transactionId, int dataSize, boolean lockFailure) {
+        end();
+        if (shouldCommit()) {
+            this.partitionId = partitionId;
+            this.transactionId = transactionId;
+            this.dataSize = dataSize;
+            this.lockFailure = lockFailure;
+            commit();
+        }
+    }
+
+}
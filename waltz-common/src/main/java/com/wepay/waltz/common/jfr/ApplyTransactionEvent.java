@@ -0,0 +1,41 @@
+package com.wepay.waltz.common.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A transaction fed to a client partition. The transaction is either applied by the application callback,
+ * or handed over to a batch or a parallel executor.
+ */
+@Name("waltz.client.ApplyTransaction")
+@Label("Apply Transaction")
+@Description("A transaction fed to a client partition")
+@Threshold("1 ms")
+public final class ApplyTransactionEvent extends WaltzEvent {
+
+    @Label("Transaction Id")
+    private long transactionId;
+
+    @Label("Applied")
+    @Description("Whether the transaction was applied in this call, rather than deferred or ignored")
+    private boolean applied;
+
+    /**
+     * Ends and commits the event if it is enabled and exceeds the threshold.
+     * @param partitionId the partition id.
+     * @param transactionId the transaction id.
+     * @param applied {@code true} if the transaction was applied in this call.
+     */
+    public void complete(int partitionId, long transactionId, boolean applied) {
+        end();
+        if (shouldCommit()) {
+            this.partitionId = partitionId;
+            this.transactionId = transactionId;
+            this.applied = applied;
+            commit();
+        }
+    }
+
+}
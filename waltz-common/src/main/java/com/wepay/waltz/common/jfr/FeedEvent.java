@@ -0,0 +1,41 @@
+package com.wepay.waltz.common.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A feed of a transaction to a client by a server partition. Record headers are prefetched from the store
+ * when the transaction is not in the feed cache.
+ */
+@Name("waltz.server.Feed")
+@Label("Feed")
+@Description("A feed of a transaction to a client by a server partition")
+@Threshold("1 ms")
+public final class FeedEvent extends WaltzEvent {
+
+    @Label("Transaction Id")
+    private long transactionId;
+
+    @Label("Prefetched")
+    @Description("The number of record headers fetched from the store, or 0 if the feed cache was hit")
+    private int numPrefetched;
+
+    /**
+     * Ends and commits the event if it is enabled and exceeds the threshold.
+     * @param partitionId the partition id.
+     * @param transactionId the transaction id.
+     * @param numPrefetched the number of record headers fetched from the store.
+     */
+    public void complete(int partitionId, long transactionId, int numPrefetched) {
+        end();
+        if (shouldCommit()) {
+            this.partitionId = partitionId;
+            this.transactionId = transactionId;
+            this.numPrefetched = numPrefetched;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.wepay.waltz.common.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Starts and dumps JDK Flight Recorder recordings with the JDK default settings, which are meant for always-on
+ * recording in production. {@link WaltzEvent}s are enabled with their own thresholds.
+ */
+public final class FlightRecording {
+
+    private static final String SETTINGS = "default";
+
+    /** The maximum age of data kept by a continuous recording. */
+    public static final Duration MAX_AGE = Duration.ofHours(1);
+    /** The maximum size of data kept by a continuous recording. */
+    public static final long MAX_SIZE = 64L * 1024L * 1024L;
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Starts a continuous recording which keeps the data of the last {@link #MAX_AGE} up to {@link #MAX_SIZE} bytes.
+     * The recording can be dumped by {@link #snapshot()}, or by {@code jcmd <pid> JFR.dump name=<name>}.
+     * @param name the name of the recording.
+     * @return the recording started.
+     * @throws IOException
+     * @throws ParseException
+     */
+    public static Recording startContinuous(String name) throws IOException, ParseException {
+        Recording recording = new Recording(Configuration.getConfiguration(SETTINGS));
+        recording.setName(name);
+        recording.setToDisk(true);
+        recording.setMaxAge(MAX_AGE);
+        recording.setMaxSize(MAX_SIZE);
+        recording.start();
+        return recording;
+    }
+
+    /**
+     * Records for the given duration, and returns the recording in the JFR file format.
+     * This blocks the calling thread for the duration.
+     * @param duration the duration of the recording.
+     * @return the bytes of the recording.
+     * @throws IOException
+     * @throws ParseException
+     * @throws InterruptedException
+     */
+    public static byte[] record(Duration duration) throws IOException, ParseException, InterruptedException {
+        try (Recording recording = new Recording(Configuration.getConfiguration(SETTINGS))) {
+            recording.setToDisk(true);
+            recording.start();
+            Thread.sleep(duration.toMillis());
+            recording.stop();
+            return dump(recording);
+        }
+    }
+
+    /**
+     * Returns the data of all running recordings, e.g. the continuous recording, in the JFR file format.
+     * @return the bytes of the snapshot.
+     * @throws IOException
+     */
+    public static byte[] snapshot() throws IOException {
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            return dump(snapshot);
+        }
+    }
+
+    private static byte[] dump(Recording recording) throws IOException {
+        Path file = Files.createTempFile("waltz-", ".jfr");
+        try {
+            recording.dump(file);
+            return Files.readAllBytes(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+}
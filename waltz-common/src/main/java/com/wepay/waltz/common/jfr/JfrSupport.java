@@ -0,0 +1,45 @@
+package com.wepay.waltz.common.jfr;
+
+/**
+ * Tells whether the JDK provides JDK Flight Recorder. This class does not refer to {@code jdk.jfr}, so it can be
+ * loaded on any JDK. Waltz runs on JDKs without JFR, so code creates {@link WaltzEvent}s only when
+ * {@link #isEnabled()} is {@code true}, and refers to the event classes only through a holder class which is not
+ * loaded otherwise.
+ */
+public final class JfrSupport {
+
+    /** {@code true} if {@code jdk.jfr.Event} can be loaded. This is checked once. */
+    public static final boolean AVAILABLE = isAvailable();
+
+    private static volatile boolean enabled = AVAILABLE;
+
+    private JfrSupport() {
+    }
+
+    /**
+     * Returns {@code true} if {@link WaltzEvent}s are created. This is never {@code true} if JFR is not available.
+     * @return {@code true} if events are created.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the creation of {@link WaltzEvent}s. Tests disable events to run the code paths
+     * the way they run without JFR. Events are not enabled if JFR is not available.
+     * @param enabled {@code true} to create events.
+     */
+    public static void setEnabled(boolean enabled) {
+        JfrSupport.enabled = enabled && AVAILABLE;
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+}
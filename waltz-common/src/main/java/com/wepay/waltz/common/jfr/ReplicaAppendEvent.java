@@ -0,0 +1,42 @@
+package com.wepay.waltz.common.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A batch of append requests written to a storage replica by a replica session.
+ */
+@Name("waltz.store.ReplicaAppend")
+@Label("Replica Append")
+@Description("A batch of append requests written to a storage replica")
+public final class ReplicaAppendEvent extends WaltzEvent {
+
+    @Label("Replica")
+    private String replica;
+
+    @Label("First Transaction Id")
+    private long firstTransactionId;
+
+    @Label("Batch Size")
+    private int batchSize;
+
+    /**
+     * Ends and commits the event if it is enabled and exceeds the threshold.
+     * @param partitionId the partition id.
+     * @param replica the connect string of the storage node.
+     * @param firstTransactionId the transaction id of the first request in the batch.
+     * @param batchSize the number of requests in the batch.
+     */
+    public void complete(int partitionId, String replica, long firstTransactionId, int batchSize) {
+        end();
+        if (shouldCommit()) {
+            this.partitionId = partitionId;
+            this.replica = replica;
+            this.firstTransactionId = firstTransactionId;
+            this.batchSize = batchSize;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.wepay.waltz.common.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Committed transactions copied to a storage replica which fell behind, by a replica session.
+ */
+@Name("waltz.store.ReplicaCatchUp")
+@Label("Replica Catch-up")
+@Description("Committed transactions copied to a storage replica which fell behind")
+public final class ReplicaCatchUpEvent extends WaltzEvent {
+
+    @Label("Replica")
+    private String replica;
+
+    @Label("First Transaction Id")
+    private long firstTransactionId;
+
+    @Label("Last Transaction Id")
+    private long lastTransactionId;
+
+    /**
+     * Ends and commits the event if it is enabled and exceeds the threshold.
+     * @param partitionId the partition id.
+     * @param replica the connect string of the storage node.
+     * @param firstTransactionId the first transaction id copied.
+     * @param lastTransactionId the last transaction id copied.
+     */
+    public void complete(int partitionId, String replica, long firstTransactionId, long lastTransactionId) {
+        end();
+        if (shouldCommit()) {
+            this.partitionId = partitionId;
+            this.replica = replica;
+            this.firstTransactionId = firstTransactionId;
+            this.lastTransactionId = lastTransactionId;
+            commit();
+        }
+    }
+
+}
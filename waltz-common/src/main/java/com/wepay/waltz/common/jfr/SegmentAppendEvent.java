@@ -0,0 +1,44 @@
+package com.wepay.waltz.common.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Records appended to a segment of a storage partition, including the force of the segment file.
+ */
+@Name("waltz.storage.SegmentAppend")
+@Label("Segment Append")
+@Description("Records appended to a segment of a storage partition")
+public final class SegmentAppendEvent extends WaltzEvent {
+
+    @Label("First Transaction Id")
+    private long firstTransactionId;
+
+    @Label("Records")
+    private int numRecords;
+
+    @Label("Bytes")
+    @DataAmount
+    private long numBytes;
+
+    /**
+     * Ends and commits the event if it is enabled and exceeds the threshold.
+     * @param partitionId the partition id.
+     * @param firstTransactionId the transaction id of the first record appended.
+     * @param numRecords the number of records appended.
+     * @param numBytes the number of bytes written to the segment file.
+     */
+    public void complete(int partitionId, long firstTransactionId, int numRecords, long numBytes) {
+        end();
+        if (shouldCommit()) {
+            this.partitionId = partitionId;
+            this.firstTransactionId = firstTransactionId;
+            this.numRecords = numRecords;
+            this.numBytes = numBytes;
+            commit();
+        }
+    }
+
+}
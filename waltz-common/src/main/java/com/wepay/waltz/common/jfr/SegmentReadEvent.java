@@ -0,0 +1,46 @@
+package com.wepay.waltz.common.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Records read from a segment of a storage partition.
+ */
+@Name("waltz.storage.SegmentRead")
+@Label("Segment Read")
+@Description("Records read from a segment of a storage partition")
+@Threshold("1 ms")
+public final class SegmentReadEvent extends WaltzEvent {
+
+    @Label("First Transaction Id")
+    private long firstTransactionId;
+
+    @Label("Records")
+    private int numRecords;
+
+    @Label("Bytes")
+    @DataAmount
+    private long numBytes;
+
+    /**
+     * Ends and commits the event if it is enabled and exceeds the threshold.
+     * @param partitionId the partition id.
+     * @param firstTransactionId the transaction id of the first record read.
+     * @param numRecords the number of records read.
+     * @param numBytes the number of bytes read from the segment file.
+     */
+    public void complete(int partitionId, long firstTransactionId, int numRecords, long numBytes) {
+        end();
+        if (shouldCommit()) {
+            this.partitionId = partitionId;
+            this.firstTransactionId = firstTransactionId;
+            this.numRecords = numRecords;
+            this.numBytes = numBytes;
+            commit();
+        }
+    }
+
+}
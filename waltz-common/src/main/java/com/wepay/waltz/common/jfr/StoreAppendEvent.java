@@ -0,0 +1,42 @@
+package com.wepay.waltz.common.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A batch of append requests written to the storage replicas by a store session, until a quorum is reached or the vote fails.
+ */
+@Name("waltz.store.Append")
+@Label("Store Append")
+@Description("A batch of append requests written to the storage replicas")
+public final class StoreAppendEvent extends WaltzEvent {
+
+    @Label("First Transaction Id")
+    private long firstTransactionId;
+
+    @Label("Batch Size")
+    private int batchSize;
+
+    @Label("Committed")
+    private boolean committed;
+
+    /**
+     * Ends and commits the event if it is enabled and exceeds the threshold.
+     * @param partitionId the partition id.
+     * @param firstTransactionId the transaction id of the first request in the batch.
+     * @param batchSize the number of requests in the batch.
+     * @param committed {@code true} if the batch was written to a quorum of replicas.
+     */
+    public void complete(int partitionId, long firstTransactionId, int batchSize, boolean committed) {
+        end();
+        if (shouldCommit()) {
+            this.partitionId = partitionId;
+            this.firstTransactionId = firstTransactionId;
+            this.batchSize = batchSize;
+            this.committed = committed;
+            commit();
+        }
+    }
+
+}
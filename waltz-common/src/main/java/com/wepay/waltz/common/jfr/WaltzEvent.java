@@ -0,0 +1,25 @@
+package com.wepay.waltz.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * The base class of JDK Flight Recorder events emitted from Waltz. All events carry the partition id.
+ * An event is created and begun when an operation starts, and completed by a {@code complete} method of the subclass,
+ * which sets the fields only when the event is going to be committed.
+ * Events cost little more than an allocation when no recording enables them.
+ */
+@Category("Waltz")
+@StackTrace(false)
+public abstract class WaltzEvent extends Event {
+
+    @Label("Partition Id")
+    protected int partitionId;
+
+    protected WaltzEvent() {
+        begin();
+    }
+
+}
@@ -1,14 +1,26 @@
 package com.wepay.waltz.common.message;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.util.Arrays;
+
 public class FeedData extends AbstractMessage {
 
     public final long transactionId;
     public final int header;
+    // Hashes of the write and append locks of the transaction, null if not available
+    public final int[] lockHashes;
 
     public FeedData(ReqId reqId, long transactionId, int header) {
+        this(reqId, transactionId, header, null);
+    }
+
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "internal class")
+    public FeedData(ReqId reqId, long transactionId, int header, int[] lockHashes) {
         super(reqId);
         this.transactionId = transactionId;
         this.header = header;
+        this.lockHashes = lockHashes;
     }
 
     @Override
@@ -29,7 +41,8 @@ public class FeedData extends AbstractMessage {
             FeedData other = (FeedData) o;
             return this.reqId.equals(other.reqId)
                 && this.transactionId == other.transactionId
-                && this.header == other.header;
+                && this.header == other.header
+                && Arrays.equals(this.lockHashes, other.lockHashes);
         } else {
             return false;
         }
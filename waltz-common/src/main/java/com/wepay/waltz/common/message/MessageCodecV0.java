@@ -75,7 +75,7 @@ public class MessageCodecV0 implements MessageCodec {
                 if (reader.readBoolean()) {
                     data = reader.readByteArray();
                     checksum = reader.readInt();
-                    Utils.verifyChecksum(messageType, data, checksum);
+                    // The checksum is verified once by the client partition, which retries the request on a mismatch.
                     return new TransactionDataResponse(reqId, transactionId, data, checksum);
                 } else {
                     RpcException exception = new RpcException(reader.readString());
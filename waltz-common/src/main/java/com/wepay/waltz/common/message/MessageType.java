@@ -29,5 +29,7 @@ public final class MessageType {
     public static final int REMOVE_PREFERRED_PARTITION_RESPONSE = 20;
     public static final int SERVER_PARTITIONS_HEALTH_STAT_REQUEST = 21;
     public static final int SERVER_PARTITIONS_HEALTH_STAT_RESPONSE = 22;
+    public static final int TRANSACTION_DATA_LIST_REQUEST = 23;
+    public static final int TRANSACTION_DATA_LIST_RESPONSE = 24;
 
 }
@@ -0,0 +1,22 @@
+package com.wepay.waltz.common.message;
+
+public class TransactionDataListRequest extends AbstractMessage {
+
+    // The maximum number of transactions a single request may ask for
+    public static final int MAX_NUM_TRANSACTIONS = 1000;
+
+    public final long transactionId;
+    public final int numTransactions;
+
+    public TransactionDataListRequest(ReqId reqId, long transactionId, int numTransactions) {
+        super(reqId);
+
+        this.transactionId = transactionId;
+        this.numTransactions = numTransactions;
+    }
+
+    public byte type() {
+        return MessageType.TRANSACTION_DATA_LIST_REQUEST;
+    }
+
+}
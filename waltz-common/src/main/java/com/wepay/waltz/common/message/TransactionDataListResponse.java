@@ -0,0 +1,26 @@
+package com.wepay.waltz.common.message;
+
+import java.util.List;
+
+public class TransactionDataListResponse extends AbstractMessage {
+
+    public final long transactionId;
+    // The results of consecutive transactions starting from transactionId, one for each requested transaction
+    public final List<TransactionDataResponse> responses;
+
+    public TransactionDataListResponse(ReqId reqId, long transactionId, List<TransactionDataResponse> responses) {
+        super(reqId);
+
+        if (responses == null) {
+            throw new NullPointerException();
+        }
+
+        this.transactionId = transactionId;
+        this.responses = responses;
+    }
+
+    public byte type() {
+        return MessageType.TRANSACTION_DATA_LIST_RESPONSE;
+    }
+
+}
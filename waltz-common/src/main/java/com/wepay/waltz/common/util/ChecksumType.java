@@ -0,0 +1,91 @@
+package com.wepay.waltz.common.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * Checksum algorithms used for data integrity checks. The id is sent along with a checksum so that
+ * the receiver can verify it with the same algorithm.
+ */
+public enum ChecksumType {
+
+    CRC32((byte) 0),
+    CRC32C((byte) 1);
+
+    // java.util.zip.CRC32C is hardware accelerated, but only available in Java 9 or later.
+    // The constructor is looked up once. A constant method handle is inlined by the JIT like a plain constructor call.
+    private static final MethodHandle JDK_CRC32C = findJdkCrc32c();
+
+    public final byte id;
+
+    // Reused by checksum(byte[], int, int) to avoid creating a checksum instance per call
+    private final ThreadLocal<Checksum> threadLocalChecksum = ThreadLocal.withInitial(this::newChecksum);
+
+    ChecksumType(byte id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns a new {@link Checksum} instance of this type.
+     * @return a new {@link Checksum}
+     */
+    public Checksum newChecksum() {
+        switch (this) {
+            case CRC32:
+                return new CRC32();
+
+            case CRC32C:
+                if (JDK_CRC32C != null) {
+                    try {
+                        return (Checksum) JDK_CRC32C.invokeExact();
+                    } catch (Throwable ex) {
+                        // fall back to the software implementation
+                    }
+                }
+                return new Crc32c();
+
+            default:
+                throw new IllegalStateException("unknown checksum type: " + this);
+        }
+    }
+
+    public int checksum(byte[] data, int offset, int length) {
+        Checksum checksum = threadLocalChecksum.get();
+        checksum.reset();
+        checksum.update(data, offset, length);
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Returns the checksum type to use for new data. CRC32C is preferred when it is hardware accelerated,
+     * otherwise CRC32, which is accelerated in all supported JVMs.
+     * @return the preferred checksum type
+     */
+    public static ChecksumType preferred() {
+        return JDK_CRC32C != null ? CRC32C : CRC32;
+    }
+
+    public static ChecksumType fromId(byte id) {
+        for (ChecksumType type : values()) {
+            if (type.id == id) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("unknown checksum type: " + id);
+    }
+
+    private static MethodHandle findJdkCrc32c() {
+        try {
+            Class<? extends Checksum> cls = Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class);
+            return MethodHandles.publicLookup()
+                .findConstructor(cls, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Checksum.class));
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+}
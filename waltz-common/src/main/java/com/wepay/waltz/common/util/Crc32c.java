@@ -0,0 +1,51 @@
+package com.wepay.waltz.common.util;
+
+import java.util.zip.Checksum;
+
+/**
+ * A table driven software implementation of CRC32C (Castagnoli) for JVMs without java.util.zip.CRC32C.
+ */
+class Crc32c implements Checksum {
+
+    private static final int POLYNOMIAL = 0x82F63B78; // reversed 0x1EDC6F41
+    private static final int INITIAL_VALUE = 0xFFFFFFFF;
+    private static final long INT_TO_LONG = 0xFFFFFFFFL;
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < TABLE.length; i++) {
+            int c = i;
+            for (int j = 0; j < 8; j++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLYNOMIAL : c >>> 1;
+            }
+            TABLE[i] = c;
+        }
+    }
+
+    private int crc = INITIAL_VALUE;
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int c = crc;
+        for (int i = off; i < off + len; i++) {
+            c = (c >>> 8) ^ TABLE[(c ^ b[i]) & 0xFF];
+        }
+        crc = c;
+    }
+
+    @Override
+    public long getValue() {
+        return (~crc) & INT_TO_LONG;
+    }
+
+    @Override
+    public void reset() {
+        crc = INITIAL_VALUE;
+    }
+
+}
@@ -130,13 +130,17 @@ public final class Utils {
     }
 
     public static int checksum(ByteBuffer byteBuffer, int position, int length) {
-        byte[] bytes = new byte[length];
+        if (byteBuffer.hasArray()) {
+            return checksum(byteBuffer.array(), byteBuffer.arrayOffset() + position, length);
+        }
 
         ByteBuffer temp = byteBuffer.duplicate();
         temp.position(position);
-        temp.get(bytes);
+        temp.limit(position + length);
 
-        return checksum(bytes);
+        CRC32 crc32 = new CRC32();
+        crc32.update(temp);
+        return (int) crc32.getValue();
     }
 
     /**
@@ -0,0 +1,8 @@
+package com.wepay.waltz.exception;
+
+public class SubmissionQueueFullException extends ClientException {
+
+    public SubmissionQueueFullException(int partitionId) {
+        super("submission queue full: partitionId=" + partitionId);
+    }
+}
@@ -0,0 +1,230 @@
+package com.wepay.waltz.common.message;
+
+import com.wepay.riff.message.ByteArrayMessageAttributeReader;
+import com.wepay.riff.message.ByteArrayMessageAttributeWriter;
+import com.wepay.riff.network.Message;
+import com.wepay.waltz.common.util.Utils;
+import com.wepay.waltz.exception.RpcException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MessageCodecV6Test {
+
+    private final MessageCodecV6 codec = new MessageCodecV6();
+    private final Random rand = new Random();
+
+    @Test
+    public void test() {
+        assertEquals(6, codec.version());
+
+        int[] writeLockRequest = lock();
+        int[] readLockRequest = lock();
+        int[] appendLockRequest = lock();
+        int header = rand.nextInt();
+        byte[] data;
+
+        data = data();
+        AppendRequest appendRequest1 = new AppendRequest(reqId(), rand.nextLong(), writeLockRequest, readLockRequest, appendLockRequest, header, data, Utils.checksum(data));
+        AppendRequest appendRequest2 = encodeThenDecode(appendRequest1);
+        assertEquals(MessageType.APPEND_REQUEST, appendRequest1.type());
+        assertEquals(appendRequest1.type(), appendRequest2.type());
+        assertEquals(appendRequest1.reqId, appendRequest2.reqId);
+        assertEquals(appendRequest1.clientHighWaterMark, appendRequest2.clientHighWaterMark);
+        assertTrue(Arrays.equals(appendRequest1.data, appendRequest2.data));
+
+        MountRequest mountRequest1 = new MountRequest(reqId(), rand.nextLong(), rand.nextLong());
+        MountRequest mountRequest2 = encodeThenDecode(mountRequest1);
+        assertEquals(MessageType.MOUNT_REQUEST, mountRequest1.type());
+        assertEquals(mountRequest1.type(), mountRequest2.type());
+        assertEquals(mountRequest1.reqId, mountRequest2.reqId);
+        assertEquals(mountRequest1.clientHighWaterMark, mountRequest2.clientHighWaterMark);
+        assertEquals(mountRequest1.seqNum, mountRequest2.seqNum);
+
+        MountResponse mountResponse1 = new MountResponse(reqId(), rand.nextInt(3));
+        MountResponse mountResponse2 = encodeThenDecode(mountResponse1);
+        assertEquals(MessageType.MOUNT_RESPONSE, mountResponse1.type());
+        assertEquals(mountResponse1.type(), mountResponse2.type());
+        assertEquals(mountResponse1.reqId, mountResponse2.reqId);
+        assertEquals(mountResponse1.partitionState, mountResponse2.partitionState);
+
+        FeedData feedData1 = new FeedData(reqId(), rand.nextLong(), header);
+        FeedData feedData2 = encodeThenDecode(feedData1);
+        assertEquals(MessageType.FEED_DATA, feedData1.type());
+        assertEquals(feedData1.type(), feedData2.type());
+        assertEquals(feedData1.reqId, feedData2.reqId);
+        assertEquals(feedData1.transactionId, feedData2.transactionId);
+        assertEquals(feedData1.header, feedData2.header);
+        assertNull(feedData2.lockHashes);
+
+        feedData1 = new FeedData(reqId(), rand.nextLong(), header, lock());
+        feedData2 = encodeThenDecode(feedData1);
+        assertEquals(feedData1, feedData2);
+        assertTrue(Arrays.equals(feedData1.lockHashes, feedData2.lockHashes));
+
+        FeedRequest feedRequest1 = new FeedRequest(reqId(), rand.nextLong());
+        FeedRequest feedRequest2 = encodeThenDecode(feedRequest1);
+        assertEquals(MessageType.FEED_REQUEST, feedRequest1.type());
+        assertEquals(feedRequest1.type(), feedRequest2.type());
+        assertEquals(feedRequest1.reqId, feedRequest2.reqId);
+        assertEquals(feedRequest1.clientHighWaterMark, feedRequest2.clientHighWaterMark);
+
+        FeedSuspended feedSuspended1 = new FeedSuspended(reqId());
+        FeedSuspended feedSuspended2 = encodeThenDecode(feedSuspended1);
+        assertEquals(MessageType.FEED_SUSPENDED, feedSuspended1.type());
+        assertEquals(feedSuspended1.type(), feedSuspended2.type());
+        assertEquals(feedSuspended1.reqId, feedSuspended2.reqId);
+
+        FlushRequest flushRequest1 = new FlushRequest(reqId());
+        FlushRequest flushRequest2 = encodeThenDecode(flushRequest1);
+        assertEquals(MessageType.FLUSH_REQUEST, flushRequest1.type());
+        assertEquals(flushRequest1.type(), flushRequest2.type());
+        assertEquals(flushRequest1.reqId, flushRequest2.reqId);
+
+        FlushResponse flushResponse1 = new FlushResponse(reqId(), rand.nextLong());
+        FlushResponse flushResponse2 = encodeThenDecode(flushResponse1);
+        assertEquals(MessageType.FLUSH_RESPONSE, flushResponse1.type());
+        assertEquals(flushResponse1.type(), flushResponse2.type());
+        assertEquals(flushResponse1.reqId, flushResponse2.reqId);
+        assertEquals(flushResponse1.transactionId, flushResponse2.transactionId);
+
+        TransactionDataRequest transactionDataRequest1 = new TransactionDataRequest(reqId(), rand.nextLong());
+        TransactionDataRequest transactionDataRequest2 = encodeThenDecode(transactionDataRequest1);
+        assertEquals(MessageType.TRANSACTION_DATA_REQUEST, transactionDataRequest1.type());
+        assertEquals(transactionDataRequest1.type(), transactionDataRequest2.type());
+        assertEquals(transactionDataRequest1.reqId, transactionDataRequest2.reqId);
+        assertEquals(transactionDataRequest1.transactionId, transactionDataRequest2.transactionId);
+
+        TransactionDataResponse transactionDataResponse1 =
+            new TransactionDataResponse(reqId(), rand.nextLong(), data, Utils.checksum(data));
+        TransactionDataResponse transactionDataResponse2 = encodeThenDecode(transactionDataResponse1);
+        assertEquals(MessageType.TRANSACTION_DATA_RESPONSE, transactionDataResponse1.type());
+        assertEquals(transactionDataResponse1.type(), transactionDataResponse2.type());
+        assertEquals(transactionDataResponse1.reqId, transactionDataResponse2.reqId);
+        assertEquals(transactionDataResponse1.transactionId, transactionDataResponse2.transactionId);
+        assertNotNull(transactionDataResponse1.data);
+        assertNotNull(transactionDataResponse2.data);
+        assertNull(transactionDataResponse1.exception);
+        assertNull(transactionDataResponse2.exception);
+        assertTrue(Arrays.equals(transactionDataResponse1.data, transactionDataResponse2.data));
+        assertEquals(transactionDataResponse1.checksum, transactionDataResponse2.checksum);
+
+        TransactionDataResponse transactionDataResponse3 =
+            new TransactionDataResponse(reqId(), rand.nextLong(), new RpcException(Integer.toString(rand.nextInt())));
+        TransactionDataResponse transactionDataResponse4 = encodeThenDecode(transactionDataResponse3);
+        assertEquals(MessageType.TRANSACTION_DATA_RESPONSE, transactionDataResponse1.type());
+        assertEquals(transactionDataResponse3.type(), transactionDataResponse4.type());
+        assertEquals(transactionDataResponse3.reqId, transactionDataResponse4.reqId);
+        assertEquals(transactionDataResponse3.transactionId, transactionDataResponse4.transactionId);
+        assertNull(transactionDataResponse3.data);
+        assertNull(transactionDataResponse4.data);
+        assertEquals(0, transactionDataResponse3.checksum);
+        assertEquals(0, transactionDataResponse4.checksum);
+        assertNotNull(transactionDataResponse3.exception);
+        assertNotNull(transactionDataResponse4.exception);
+        assertEquals(transactionDataResponse3.exception.toString(), transactionDataResponse4.exception.toString());
+
+        TransactionDataListRequest transactionDataListRequest1 = new TransactionDataListRequest(reqId(), rand.nextLong(), rand.nextInt());
+        TransactionDataListRequest transactionDataListRequest2 = encodeThenDecode(transactionDataListRequest1);
+        assertEquals(MessageType.TRANSACTION_DATA_LIST_REQUEST, transactionDataListRequest1.type());
+        assertEquals(transactionDataListRequest1.type(), transactionDataListRequest2.type());
+        assertEquals(transactionDataListRequest1.reqId, transactionDataListRequest2.reqId);
+        assertEquals(transactionDataListRequest1.transactionId, transactionDataListRequest2.transactionId);
+        assertEquals(transactionDataListRequest1.numTransactions, transactionDataListRequest2.numTransactions);
+
+        ReqId listReqId = reqId();
+        long firstTransactionId = rand.nextLong();
+        TransactionDataListResponse transactionDataListResponse1 = new TransactionDataListResponse(listReqId, firstTransactionId, Arrays.asList(
+            new TransactionDataResponse(listReqId, firstTransactionId, data, Utils.checksum(data)),
+            new TransactionDataResponse(listReqId, firstTransactionId + 1, new RpcException(Integer.toString(rand.nextInt())))
+        ));
+        TransactionDataListResponse transactionDataListResponse2 = encodeThenDecode(transactionDataListResponse1);
+        assertEquals(MessageType.TRANSACTION_DATA_LIST_RESPONSE, transactionDataListResponse1.type());
+        assertEquals(transactionDataListResponse1.type(), transactionDataListResponse2.type());
+        assertEquals(transactionDataListResponse1.reqId, transactionDataListResponse2.reqId);
+        assertEquals(transactionDataListResponse1.transactionId, transactionDataListResponse2.transactionId);
+        assertEquals(2, transactionDataListResponse2.responses.size());
+        for (int i = 0; i < 2; i++) {
+            TransactionDataResponse expected = transactionDataListResponse1.responses.get(i);
+            TransactionDataResponse actual = transactionDataListResponse2.responses.get(i);
+            assertEquals(expected.reqId, actual.reqId);
+            assertEquals(expected.transactionId, actual.transactionId);
+            assertTrue(Arrays.equals(expected.data, actual.data));
+            assertEquals(expected.checksum, actual.checksum);
+            assertEquals(String.valueOf(expected.exception), String.valueOf(actual.exception));
+        }
+
+        TransactionDataListResponse transactionDataListResponse3 =
+            new TransactionDataListResponse(reqId(), rand.nextLong(), Collections.emptyList());
+        TransactionDataListResponse transactionDataListResponse4 = encodeThenDecode(transactionDataListResponse3);
+        assertEquals(transactionDataListResponse3.transactionId, transactionDataListResponse4.transactionId);
+        assertTrue(transactionDataListResponse4.responses.isEmpty());
+
+        HighWaterMarkRequest highWaterMarkRequest1 = new HighWaterMarkRequest(reqId());
+        HighWaterMarkRequest highWaterMarkRequest2 = encodeThenDecode(highWaterMarkRequest1);
+        assertEquals(MessageType.HIGH_WATER_MARK_REQUEST, highWaterMarkRequest1.type());
+        assertEquals(highWaterMarkRequest1.type(), highWaterMarkRequest2.type());
+        assertEquals(highWaterMarkRequest1.reqId, highWaterMarkRequest2.reqId);
+
+        HighWaterMarkResponse highWaterMarkResponse1 = new HighWaterMarkResponse(reqId(), rand.nextLong());
+        HighWaterMarkResponse highWaterMarkResponse2 = encodeThenDecode(highWaterMarkResponse1);
+        assertEquals(MessageType.HIGH_WATER_MARK_RESPONSE, highWaterMarkResponse1.type());
+        assertEquals(highWaterMarkResponse1.type(), highWaterMarkResponse2.type());
+        assertEquals(highWaterMarkResponse1.reqId, highWaterMarkResponse2.reqId);
+        assertEquals(highWaterMarkResponse1.transactionId, highWaterMarkResponse2.transactionId);
+
+        ServerPartitionsHealthStatRequest serverPartitionsHealthStatRequest1 = new ServerPartitionsHealthStatRequest(reqId());
+        ServerPartitionsHealthStatRequest serverPartitionsHealthStatRequest2 = encodeThenDecode(serverPartitionsHealthStatRequest1);
+        assertEquals(MessageType.SERVER_PARTITIONS_HEALTH_STAT_REQUEST, serverPartitionsHealthStatRequest1.type());
+        assertEquals(serverPartitionsHealthStatRequest1.type(), serverPartitionsHealthStatRequest2.type());
+        assertEquals(serverPartitionsHealthStatRequest1.reqId, serverPartitionsHealthStatRequest2.reqId);
+
+        ServerPartitionsHealthStatResponse serverPartitionsHealthStatResponse1 =
+            new ServerPartitionsHealthStatResponse(reqId(), new HashMap<Integer, Boolean>() {{
+                put(rand.nextInt(), rand.nextBoolean());
+            }});
+        ServerPartitionsHealthStatResponse serverPartitionsHealthStatResponse2 = encodeThenDecode(serverPartitionsHealthStatResponse1);
+        assertEquals(MessageType.SERVER_PARTITIONS_HEALTH_STAT_RESPONSE, serverPartitionsHealthStatResponse1.type());
+        assertEquals(serverPartitionsHealthStatResponse1.type(), serverPartitionsHealthStatResponse2.type());
+        assertEquals(serverPartitionsHealthStatResponse1.reqId, serverPartitionsHealthStatResponse2.reqId);
+        assertEquals(serverPartitionsHealthStatResponse1.serverPartitionHealthStats, serverPartitionsHealthStatResponse2.serverPartitionHealthStats);
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Message> T encodeThenDecode(T message) {
+        ByteArrayMessageAttributeWriter writer = new ByteArrayMessageAttributeWriter();
+        codec.encode(message, writer);
+        ByteArrayMessageAttributeReader reader = new ByteArrayMessageAttributeReader(writer.toByteArray());
+        return (T) codec.decode(reader);
+    }
+
+    private ReqId reqId() {
+        return new ReqId(rand.nextLong(), rand.nextLong());
+    }
+
+    private int[] lock() {
+        int n = rand.nextInt(3);
+        int[] lock = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            lock[i] = rand.nextInt();
+        }
+
+        return lock;
+    }
+
+    private byte[] data() {
+        return Long.toOctalString(rand.nextLong()).getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.wepay.waltz.common.util;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Checksum;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChecksumTypeTest {
+
+    private static final byte[] CHECK_INPUT = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void testCheckValues() {
+        assertEquals(0xCBF43926, ChecksumType.CRC32.checksum(CHECK_INPUT, 0, CHECK_INPUT.length));
+        assertEquals(0xE3069283, ChecksumType.CRC32C.checksum(CHECK_INPUT, 0, CHECK_INPUT.length));
+        assertEquals(0xE3069283, softwareCrc32c(CHECK_INPUT, 0, CHECK_INPUT.length));
+    }
+
+    @Test
+    public void testSoftwareCrc32c() {
+        Random rand = new Random();
+
+        for (int i = 0; i < 100; i++) {
+            byte[] data = new byte[rand.nextInt(1000)];
+            rand.nextBytes(data);
+            int offset = data.length > 0 ? rand.nextInt(data.length) : 0;
+
+            assertEquals(
+                ChecksumType.CRC32C.checksum(data, offset, data.length - offset),
+                softwareCrc32c(data, offset, data.length - offset)
+            );
+        }
+
+        Checksum checksum = new Crc32c();
+        for (byte b : CHECK_INPUT) {
+            checksum.update(b);
+        }
+        assertEquals(0xE3069283, (int) checksum.getValue());
+
+        checksum.reset();
+        checksum.update(CHECK_INPUT, 0, CHECK_INPUT.length);
+        assertEquals(0xE3069283, (int) checksum.getValue());
+    }
+
+    @Test
+    public void testFromId() {
+        for (ChecksumType type : ChecksumType.values()) {
+            assertEquals(type, ChecksumType.fromId(type.id));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownId() {
+        ChecksumType.fromId((byte) 99);
+    }
+
+    private static int softwareCrc32c(byte[] data, int offset, int length) {
+        Checksum checksum = new Crc32c();
+        checksum.update(data, offset, length);
+        return (int) checksum.getValue();
+    }
+
+}
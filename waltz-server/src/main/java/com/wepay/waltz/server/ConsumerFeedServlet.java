@@ -0,0 +1,156 @@
+package com.wepay.waltz.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wepay.waltz.server.internal.ConsumerFeedStats;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A servlet which reports the feed statistics of clients (consumers) of a {@link WaltzServer} in JSON.
+ * The report contains the top-N slowest consumers ordered by lag, and the statistics aggregated per partition and
+ * per client ID. The number of consumers listed is specified by the {@code top} query parameter.
+ */
+public class ConsumerFeedServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int DEFAULT_TOP = 10;
+
+    private static final String CONTENT_TYPE = "application/json";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Comparator<ConsumerFeedStats.Snapshot> SLOWEST_FIRST =
+        Comparator.<ConsumerFeedStats.Snapshot>comparingLong(s -> s.lag).reversed()
+            .thenComparing(Comparator.<ConsumerFeedStats.Snapshot>comparingLong(s -> s.pausedMillis).reversed());
+
+    private final transient WaltzServer server;
+
+    /**
+     * Class constructor.
+     * @param server the Waltz server.
+     */
+    public ConsumerFeedServlet(WaltzServer server) {
+        this.server = server;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        int top;
+        try {
+            String param = req.getParameter("top");
+            top = param != null ? Integer.parseInt(param) : DEFAULT_TOP;
+        } catch (NumberFormatException ex) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "invalid top: " + req.getParameter("top"));
+            return;
+        }
+
+        resp.setContentType(CONTENT_TYPE);
+        resp.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+        resp.setStatus(HttpServletResponse.SC_OK);
+
+        try (OutputStream output = resp.getOutputStream()) {
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(output, report(server.getConsumerFeedStats(), top));
+        }
+    }
+
+    /**
+     * Builds a report from snapshots of feed statistics.
+     * @param snapshots the snapshots.
+     * @param top the maximum number of slowest consumers to list.
+     * @return the report.
+     */
+    static Map<String, Object> report(List<ConsumerFeedStats.Snapshot> snapshots, int top) {
+        List<ConsumerFeedStats.Snapshot> sorted = new ArrayList<>(snapshots);
+        sorted.sort(SLOWEST_FIRST);
+
+        List<Map<String, Object>> slowest = new ArrayList<>();
+        for (ConsumerFeedStats.Snapshot snapshot : sorted.subList(0, Math.max(0, Math.min(top, sorted.size())))) {
+            slowest.add(toMap(snapshot));
+        }
+
+        TreeMap<Integer, Aggregate> partitions = new TreeMap<>();
+        TreeMap<Integer, Aggregate> clients = new TreeMap<>();
+        for (ConsumerFeedStats.Snapshot snapshot : snapshots) {
+            partitions.computeIfAbsent(snapshot.partitionId, id -> new Aggregate()).add(snapshot);
+            clients.computeIfAbsent(snapshot.clientId, id -> new Aggregate()).add(snapshot);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("slowest-consumers", slowest);
+        report.put("partitions", toMap(partitions));
+        report.put("clients", toMap(clients));
+        return report;
+    }
+
+    private static Map<String, Object> toMap(ConsumerFeedStats.Snapshot snapshot) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("partition-id", snapshot.partitionId);
+        map.put("client-id", snapshot.clientId);
+        map.put("mode", snapshot.mode.name());
+        map.put("high-water-mark", snapshot.highWaterMark);
+        map.put("lag", snapshot.lag);
+        map.put("transactions", snapshot.numTransactions);
+        map.put("bytes", snapshot.numBytes);
+        map.put("transactions-per-sec", snapshot.transactionRate);
+        map.put("bytes-per-sec", snapshot.byteRate);
+        map.put("paused-ms", snapshot.pausedMillis);
+        return map;
+    }
+
+    private static Map<String, Object> toMap(TreeMap<Integer, Aggregate> aggregates) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Aggregate> entry : aggregates.entrySet()) {
+            map.put(entry.getKey().toString(), entry.getValue().toMap());
+        }
+        return map;
+    }
+
+    private static final class Aggregate {
+
+        private final EnumMap<ConsumerFeedStats.Mode, Integer> modes = new EnumMap<>(ConsumerFeedStats.Mode.class);
+        private int numConsumers = 0;
+        private long maxLag = 0L;
+        private long totalLag = 0L;
+        private double transactionRate = 0.0;
+        private double byteRate = 0.0;
+        private long pausedMillis = 0L;
+
+        void add(ConsumerFeedStats.Snapshot snapshot) {
+            modes.merge(snapshot.mode, 1, Integer::sum);
+            numConsumers++;
+            maxLag = Math.max(maxLag, snapshot.lag);
+            totalLag += snapshot.lag;
+            transactionRate += snapshot.transactionRate;
+            byteRate += snapshot.byteRate;
+            pausedMillis += snapshot.pausedMillis;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("consumers", numConsumers);
+            for (ConsumerFeedStats.Mode mode : ConsumerFeedStats.Mode.values()) {
+                map.put(mode.name().toLowerCase(Locale.ROOT) + "-consumers", modes.getOrDefault(mode, 0));
+            }
+            map.put("max-lag", maxLag);
+            map.put("total-lag", totalLag);
+            map.put("transactions-per-sec", transactionRate);
+            map.put("bytes-per-sec", byteRate);
+            map.put("paused-ms", pausedMillis);
+            return map;
+        }
+
+    }
+
+}
@@ -17,10 +17,13 @@ import com.wepay.riff.network.MessageHandler;
 import com.wepay.riff.network.NetworkServer;
 import com.wepay.riff.network.ServerSSL;
 import com.wepay.riff.util.Logging;
+import com.wepay.waltz.common.jfr.FlightRecording;
+import com.wepay.waltz.common.jfr.JfrSupport;
 import com.wepay.waltz.common.util.Utils;
 import com.wepay.waltz.common.util.WaltzInfoParser;
 import com.wepay.waltz.exception.ServerException;
 import com.wepay.waltz.server.health.HealthCheck;
+import com.wepay.waltz.server.internal.ConsumerFeedStats;
 import com.wepay.waltz.server.internal.FeedCache;
 import com.wepay.waltz.server.internal.FeedCachePartition;
 import com.wepay.waltz.server.internal.Partition;
@@ -47,6 +50,7 @@ import com.wepay.zktools.zookeeper.ZNode;
 import com.wepay.zktools.zookeeper.ZooKeeperClient;
 import com.wepay.zktools.zookeeper.internal.ZooKeeperClientImpl;
 import io.netty.handler.ssl.SslContext;
+import jdk.jfr.Recording;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
@@ -94,6 +98,7 @@ public class WaltzServer {
     private Server jettyServer;
     protected final FeedCache feedCache;
     protected final TransactionFetcher transactionFetcher;
+    private final Recording flightRecording;
 
     /**
      * Class constructor.
@@ -135,6 +140,15 @@ public class WaltzServer {
             transactionCacheMissMeter
         );
 
+        if (!(boolean) config.get(WaltzServerConfig.FLIGHT_RECORDING_ENABLED)) {
+            this.flightRecording = null;
+        } else if (!JfrSupport.AVAILABLE) {
+            logger.warn("flight recording is not started: JFR is not available in this JDK");
+            this.flightRecording = null;
+        } else {
+            this.flightRecording = FlightRecording.startContinuous("waltz-server");
+        }
+
         // Create an interface object for the cluster manager
         this.managedServer = new ManagedServer() {
 
@@ -280,6 +294,10 @@ public class WaltzServer {
             logger.error("failed to close transaction data fetcher", ex);
         }
 
+        if (flightRecording != null) {
+            flightRecording.close();
+        }
+
         unregisterMetrics();
 
         running.set(false);
@@ -309,6 +327,7 @@ public class WaltzServer {
                     context.addServlet(new ServletHolder(new PingServlet()), "/ping");
                     context.addServlet(new ServletHolder(new BuildInfoServlet(Utils.getBuildInfoMap(this.getClass()))), "/buildinfo");
                     context.addServlet(new ServletHolder(new MetricsServlet(MetricRegistry.getInstance())), "/metrics");
+                    context.addServlet(new ServletHolder(new ConsumerFeedServlet(this)), "/consumers");
 
                     HealthCheckRegistry healthCheckRegistry = registerHealthCheck(this, zkClient);
                     context.addServlet(new ServletHolder(new HealthCheckServlet(healthCheckRegistry)), "/health");
@@ -340,6 +359,22 @@ public class WaltzServer {
         }
     }
 
+    /**
+     * Returns snapshots of the feed statistics of all clients on all partitions of this Waltz server.
+     * @return snapshots of the feed statistics of all clients on all partitions of this Waltz server.
+     */
+    public List<ConsumerFeedStats.Snapshot> getConsumerFeedStats() {
+        List<ConsumerFeedStats.Snapshot> snapshots = new ArrayList<>();
+
+        synchronized (partitions) {
+            for (Partition partition : partitions.values()) {
+                snapshots.addAll(partition.getConsumerFeedStats());
+            }
+        }
+
+        return snapshots;
+    }
+
     /**
      * Returns True if the Waltz server is not closed, otherwise returns False.
      * @return True if the Waltz server is not closed, otherwise returns False.
@@ -56,6 +56,21 @@ public class WaltzServerConfig extends AbstractConfig {
     /** Real time threshold. */
     public static final int DEFAULT_REALTIME_THRESHOLD = 1000;
 
+    /** Number of recent transactions per partition whose lock hashes are included in the feed. Disabled if 0. */
+    public static final String FEED_LOCK_CACHE_SIZE = "server.feedLockCacheSize";
+    /** Default feed lock cache size. */
+    public static final int DEFAULT_FEED_LOCK_CACHE_SIZE = 0;
+
+    /** Number of append requests per traced request. The time spent in each stage of traced requests is recorded. Disabled if 0. */
+    public static final String APPEND_TRACE_SAMPLE_INTERVAL = "server.appendTraceSampleInterval";
+    /** Default append trace sample interval. */
+    public static final int DEFAULT_APPEND_TRACE_SAMPLE_INTERVAL = 100;
+
+    /** Whether to run a continuous JDK Flight Recorder recording with Waltz events. It can be dumped with jcmd. */
+    public static final String FLIGHT_RECORDING_ENABLED = "server.flightRecordingEnabled";
+    /** Default flight recording enabled. */
+    public static final boolean DEFAULT_FLIGHT_RECORDING_ENABLED = false;
+
     /** Transaction data cache size. */
     public static final String TRANSACTION_DATA_CACHE_SIZE = "server.transactionDataCacheSize";
     /** Default transaction data cache size. */
@@ -71,6 +86,16 @@ public class WaltzServerConfig extends AbstractConfig {
     /** Default value for {@link #MAX_BATCH_SIZE} config. */
     public static final int DEFAULT_MAX_BATCH_SIZE = 100;
 
+    /** Maximum total data size of a batch in bytes, <code>storage.maxBatchBytes</code> */
+    public static final String MAX_BATCH_BYTES = "storage.maxBatchBytes";
+    /** Default value for {@link #MAX_BATCH_BYTES} config. Batches are bounded only by {@link #MAX_BATCH_SIZE}. */
+    public static final int DEFAULT_MAX_BATCH_BYTES = Integer.MAX_VALUE;
+
+    /** Maximum time in milliseconds to wait for more append requests to fill a batch, <code>storage.batchLingerTime</code> */
+    public static final String BATCH_LINGER_TIME = "storage.batchLingerTime";
+    /** Default value for {@link #BATCH_LINGER_TIME} config. Batches are sent without waiting. */
+    public static final int DEFAULT_BATCH_LINGER_TIME = 0;
+
     /** Initial retry interval. */
     public static final String INITIAL_RETRY_INTERVAL = "storage.initialRetryInterval";
     /** Default initial retry interval. */
@@ -81,6 +106,11 @@ public class WaltzServerConfig extends AbstractConfig {
     /** Default maximum retry interval. */
     public static final long DEFAULT_MAX_RETRY_INTERVAL = 20000;
 
+    /** Number of connections per storage node, <code>storage.connectionsPerNode</code>. */
+    public static final String CONNECTIONS_PER_STORAGE_NODE = "storage.connectionsPerNode";
+    /** Default value for {@link #CONNECTIONS_PER_STORAGE_NODE} config. */
+    public static final int DEFAULT_CONNECTIONS_PER_STORAGE_NODE = 1;
+
     /** Checkpoint interval. */
     public static final String CHECKPOINT_INTERVAL = "storage.checkpointInterval";
     /** Default checkpoint interval. */
@@ -125,15 +155,21 @@ public class WaltzServerConfig extends AbstractConfig {
             put(FEED_CACHE_SIZE, intParser.withDefault(DEFAULT_FEED_CACHE_SIZE));
             put(MIN_FETCH_SIZE, intParser.withDefault(DEFAULT_MIN_FETCH_SIZE));
             put(REALTIME_THRESHOLD, intParser.withDefault(DEFAULT_REALTIME_THRESHOLD));
+            put(FEED_LOCK_CACHE_SIZE, intParser.withDefault(DEFAULT_FEED_LOCK_CACHE_SIZE));
+            put(APPEND_TRACE_SAMPLE_INTERVAL, intParser.withDefault(DEFAULT_APPEND_TRACE_SAMPLE_INTERVAL));
+            put(FLIGHT_RECORDING_ENABLED, booleanParser.withDefault(DEFAULT_FLIGHT_RECORDING_ENABLED));
             put(TRANSACTION_DATA_CACHE_SIZE, intParser.withDefault(DEFAULT_TRANSACTION_DATA_CACHE_SIZE));
             put(TRANSACTION_DATA_CACHE_ALLOCATION, stringParser.withDefault(DEFAULT_TRANSACTION_DATA_CACHE_ALLOCATION)
                 .withValidator(new CacheAllocationValidator()));
 
             // Storage
             put(MAX_BATCH_SIZE, intParser.withDefault(DEFAULT_MAX_BATCH_SIZE));
+            put(MAX_BATCH_BYTES, intParser.withDefault(DEFAULT_MAX_BATCH_BYTES));
+            put(BATCH_LINGER_TIME, intParser.withDefault(DEFAULT_BATCH_LINGER_TIME));
             put(INITIAL_RETRY_INTERVAL, longParser.withDefault(DEFAULT_INITIAL_RETRY_INTERVAL));
             put(MAX_RETRY_INTERVAL, longParser.withDefault(DEFAULT_MAX_RETRY_INTERVAL));
             put(CHECKPOINT_INTERVAL, intParser.withDefault(DEFAULT_CHECKPOINT_INTERVAL));
+            put(CONNECTIONS_PER_STORAGE_NODE, intParser.withDefault(DEFAULT_CONNECTIONS_PER_STORAGE_NODE));
 
             // Jetty
             put(SERVER_JETTY_PORT, intParser.withValidator(portValidator));
@@ -156,6 +192,34 @@ public class WaltzServerConfig extends AbstractConfig {
         return new GraphiteReporterConfig(configPrefix + GRAPHITE_REPORTER_CONFIG_PREFIX, configValues);
     }
 
+    /**
+     * Returns the value of an int config for the given partition. A partition specific value can be set
+     * by appending the partition id to the config name, e.g. <code>storage.batchLingerTime.3</code>.
+     * Otherwise the value of the config itself is returned.
+     * @param key The config name.
+     * @param partitionId The partition Id.
+     * @return the config value for the partition.
+     */
+    public int getPartitionInt(String key, int partitionId) {
+        Object value = configValues.get(configPrefix + key + "." + partitionId);
+
+        if (value == null) {
+            return (int) get(key);
+        }
+
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException ex) {
+            throw new ConfigException(
+                String.format("Validation failed for %s: unsupported value %s", key + "." + partitionId, value)
+            );
+        }
+    }
+
     private static class CacheAllocationValidator implements Validator {
         public void validate(String key, Object value) throws ConfigException {
             if (value instanceof String) {
@@ -0,0 +1,230 @@
+package com.wepay.waltz.server.internal;
+
+import com.wepay.waltz.common.message.FeedData;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feed statistics of a client on a partition. The statistics outlive individual {@link FeedContext}s, so they cover
+ * the whole time the client is connected to the partition. Bytes include both feed data (transaction headers) and
+ * transaction data fetched by the client.
+ */
+public class ConsumerFeedStats {
+
+    /**
+     * How the client is being fed.
+     */
+    public enum Mode {
+        /** No feed context. */
+        IDLE,
+        /** Fed by the catch-up feed thread. */
+        CATCHUP,
+        /** Fed by the near realtime feed thread. */
+        REALTIME,
+        /** The feed context is paused because the client channel is not writable. */
+        PAUSED
+    }
+
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final double NANOS_IN_SECOND = 1_000_000_000.0;
+
+    // message type + reqId + transaction id + header + lock hashes flag
+    private static final int FEED_DATA_FIXED_SIZE = 1 + 16 + 8 + 4 + 1;
+
+    public final int partitionId;
+    public final int clientId;
+
+    private final AtomicLong numTransactions = new AtomicLong(0);
+    private final AtomicLong numBytes = new AtomicLong(0);
+    private volatile long highWaterMark = -1L;
+
+    // Guarded by this
+    private Mode mode = Mode.IDLE;
+    private long pausedSinceNanos;
+    private long pausedNanos = 0L;
+    private long windowStartNanos;
+    private long windowStartTransactions = 0L;
+    private long windowStartBytes = 0L;
+    private double transactionRate = 0.0;
+    private double byteRate = 0.0;
+    private boolean hasRate = false;
+
+    /**
+     * Class constructor.
+     * @param partitionId the partition ID.
+     * @param clientId the client ID.
+     */
+    public ConsumerFeedStats(int partitionId, int clientId) {
+        this.partitionId = partitionId;
+        this.clientId = clientId;
+        this.windowStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the encoded size of a feed data message.
+     * @param data the feed data.
+     * @return the size in bytes.
+     */
+    public static int encodedSize(FeedData data) {
+        return FEED_DATA_FIXED_SIZE + (data.lockHashes != null ? 4 + data.lockHashes.length * 4 : 0);
+    }
+
+    /**
+     * Sets the client high-water mark. This is called when a feed request is received.
+     * @param highWaterMark the client high-water mark.
+     */
+    void setHighWaterMark(long highWaterMark) {
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Records a feed data sent to the client.
+     * @param data the feed data.
+     */
+    void feedSent(FeedData data) {
+        highWaterMark = data.transactionId;
+        numTransactions.incrementAndGet();
+        numBytes.addAndGet(encodedSize(data));
+    }
+
+    /**
+     * Records transaction data sent to the client. Transaction data are counted in bytes but not in transactions
+     * since the feed has already counted them.
+     * @param numBytes the size of the transaction data.
+     */
+    void dataSent(int numBytes) {
+        this.numBytes.addAndGet(numBytes);
+    }
+
+    /**
+     * Changes the mode.
+     * @param newMode the new mode.
+     * @return the time in nanoseconds the client was paused if this ends a pause, otherwise 0.
+     */
+    synchronized long setMode(Mode newMode) {
+        long pauseEnded = 0L;
+        if (mode != newMode) {
+            if (newMode == Mode.PAUSED) {
+                pausedSinceNanos = System.nanoTime();
+            } else if (mode == Mode.PAUSED) {
+                pauseEnded = System.nanoTime() - pausedSinceNanos;
+                pausedNanos += pauseEnded;
+            }
+            mode = newMode;
+        }
+        return pauseEnded;
+    }
+
+    /**
+     * Returns a snapshot of the statistics.
+     * @param partitionHighWaterMark the current high-water mark of the partition.
+     * @return the snapshot.
+     */
+    public synchronized Snapshot snapshot(long partitionHighWaterMark) {
+        long now = System.nanoTime();
+        long transactions = numTransactions.get();
+        long bytes = numBytes.get();
+
+        // Rates are computed over windows of at least RATE_WINDOW_NANOS. The current partial window is used
+        // only until the first window completes.
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= RATE_WINDOW_NANOS || !hasRate) {
+            if (elapsed > 0) {
+                transactionRate = (transactions - windowStartTransactions) * NANOS_IN_SECOND / elapsed;
+                byteRate = (bytes - windowStartBytes) * NANOS_IN_SECOND / elapsed;
+            }
+            if (elapsed >= RATE_WINDOW_NANOS) {
+                windowStartNanos = now;
+                windowStartTransactions = transactions;
+                windowStartBytes = bytes;
+                hasRate = true;
+            }
+        }
+
+        long paused = pausedNanos + (mode == Mode.PAUSED ? now - pausedSinceNanos : 0L);
+        long hwm = highWaterMark;
+
+        return new Snapshot(
+            partitionId,
+            clientId,
+            mode,
+            hwm,
+            Math.max(0L, partitionHighWaterMark - hwm),
+            transactions,
+            bytes,
+            transactionRate,
+            byteRate,
+            TimeUnit.NANOSECONDS.toMillis(paused)
+        );
+    }
+
+    /**
+     * Returns the current mode.
+     * @return the current mode.
+     */
+    public synchronized Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Returns the client high-water mark.
+     * @return the client high-water mark.
+     */
+    public long highWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * An immutable snapshot of {@link ConsumerFeedStats}.
+     */
+    public static final class Snapshot {
+
+        public final int partitionId;
+        public final int clientId;
+        public final Mode mode;
+        public final long highWaterMark;
+        public final long lag;
+        public final long numTransactions;
+        public final long numBytes;
+        public final double transactionRate;
+        public final double byteRate;
+        public final long pausedMillis;
+
+        /**
+         * Class constructor.
+         * @param partitionId the partition ID.
+         * @param clientId the client ID.
+         * @param mode the mode.
+         * @param highWaterMark the client high-water mark.
+         * @param lag the partition high-water mark minus the client high-water mark.
+         * @param numTransactions the number of transactions fed.
+         * @param numBytes the number of bytes sent.
+         * @param transactionRate the number of transactions fed per second.
+         * @param byteRate the number of bytes sent per second.
+         * @param pausedMillis the total time in milliseconds the feed was paused.
+         */
+        public Snapshot(int partitionId, int clientId, Mode mode, long highWaterMark, long lag, long numTransactions,
+                 long numBytes, double transactionRate, double byteRate, long pausedMillis) {
+            this.partitionId = partitionId;
+            this.clientId = clientId;
+            this.mode = mode;
+            this.highWaterMark = highWaterMark;
+            this.lag = lag;
+            this.numTransactions = numTransactions;
+            this.numBytes = numBytes;
+            this.transactionRate = transactionRate;
+            this.byteRate = byteRate;
+            this.pausedMillis = pausedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "ConsumerFeedStats(partitionId=" + partitionId + " clientId=" + clientId + " mode=" + mode
+                + " hwm=" + highWaterMark + " lag=" + lag + " transactions/sec=" + transactionRate
+                + " bytes/sec=" + byteRate + " pausedMillis=" + pausedMillis + ")";
+        }
+
+    }
+
+}
@@ -18,6 +18,7 @@ public class FeedContext {
     public final PartitionClient sender;
 
     public final FeedSuspended suspendMessage;
+    public final ConsumerFeedStats stats;
     private long highWaterMark;
     private long remaining;
 
@@ -28,13 +29,17 @@ public class FeedContext {
      * @param fetchSize This size represents how far the client high-water mark is behind.
      * @param sender The client that has sent the request.
      * @param suspendMessage The {@link com.wepay.waltz.common.message.MountResponse} to be sent back to the client.
+     * @param stats The {@link ConsumerFeedStats} of the client on the partition.
      */
-    public FeedContext(ReqId reqId, long highWaterMark, long fetchSize, PartitionClient sender, FeedSuspended suspendMessage) {
+    public FeedContext(ReqId reqId, long highWaterMark, long fetchSize, PartitionClient sender, FeedSuspended suspendMessage, ConsumerFeedStats stats) {
         this.reqId = reqId;
         this.highWaterMark = highWaterMark;
         this.remaining = fetchSize;
         this.sender = sender;
         this.suspendMessage = suspendMessage;
+        this.stats = stats;
+
+        stats.setHighWaterMark(highWaterMark);
     }
 
     /**
@@ -60,6 +65,7 @@ public class FeedContext {
 
         highWaterMark = data.transactionId;
         remaining--;
+        stats.feedSent(data);
 
         if (remaining > 0) {
             // Force flushing every 10 transactions
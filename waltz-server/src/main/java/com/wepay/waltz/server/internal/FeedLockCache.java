@@ -0,0 +1,64 @@
+package com.wepay.waltz.server.internal;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the lock hashes of recently committed transactions of a partition, so that the feed can tell clients
+ * which transactions are independent of each other. Locks are not persisted in the store. Transactions committed
+ * before the server started, or evicted from the cache, are fed without lock hashes.
+ */
+public class FeedLockCache {
+
+    private final long[] transactionIds;
+    private final int[][] lockHashes;
+
+    /**
+     * Class constructor.
+     * @param size The number of transactions to keep.
+     */
+    public FeedLockCache(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be greater than zero");
+        }
+
+        this.transactionIds = new long[size];
+        this.lockHashes = new int[size][];
+
+        Arrays.fill(transactionIds, -1L);
+    }
+
+    /**
+     * Adds the lock hashes of a committed transaction. The entry replaces the oldest one.
+     * @param transactionId The transaction ID.
+     * @param writeLocks The write lock hashes of the transaction.
+     * @param appendLocks The append lock hashes of the transaction.
+     */
+    public void add(long transactionId, int[] writeLocks, int[] appendLocks) {
+        int[] hashes = new int[writeLocks.length + appendLocks.length];
+        System.arraycopy(writeLocks, 0, hashes, 0, writeLocks.length);
+        System.arraycopy(appendLocks, 0, hashes, writeLocks.length, appendLocks.length);
+
+        int index = index(transactionId);
+        synchronized (this) {
+            transactionIds[index] = transactionId;
+            lockHashes[index] = hashes;
+        }
+    }
+
+    /**
+     * Returns the lock hashes of a transaction.
+     * @param transactionId The transaction ID.
+     * @return the lock hashes, or null if the transaction is not in the cache.
+     */
+    public int[] get(long transactionId) {
+        int index = index(transactionId);
+        synchronized (this) {
+            return transactionIds[index] == transactionId ? lockHashes[index] : null;
+        }
+    }
+
+    private int index(long transactionId) {
+        return (int) (transactionId % transactionIds.length);
+    }
+
+}
@@ -8,6 +8,9 @@ import com.wepay.riff.metrics.core.Timer;
 import com.wepay.riff.network.Message;
 import com.wepay.riff.util.Logging;
 import com.wepay.riff.util.RequestQueue;
+import com.wepay.waltz.common.jfr.AppendEvent;
+import com.wepay.waltz.common.jfr.FeedEvent;
+import com.wepay.waltz.common.jfr.JfrSupport;
 import com.wepay.waltz.common.message.AbstractMessage;
 import com.wepay.waltz.common.message.AppendRequest;
 import com.wepay.waltz.common.message.FeedData;
@@ -23,12 +26,16 @@ import com.wepay.waltz.common.message.MountRequest;
 import com.wepay.waltz.common.message.MountResponse;
 import com.wepay.waltz.common.message.RecordHeader;
 import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.common.message.TransactionDataListRequest;
+import com.wepay.waltz.common.message.TransactionDataListResponse;
 import com.wepay.waltz.common.message.TransactionDataRequest;
 import com.wepay.waltz.common.message.TransactionDataResponse;
 import com.wepay.waltz.common.util.QueueConsumerTask;
 import com.wepay.waltz.exception.InvalidOperationException;
 import com.wepay.waltz.exception.RpcException;
 import com.wepay.waltz.server.WaltzServerConfig;
+import com.wepay.waltz.store.AppendTrace;
+import com.wepay.waltz.store.AppendTracer;
 import com.wepay.waltz.store.StorePartition;
 import com.wepay.waltz.store.exception.StoreException;
 import com.wepay.waltz.store.exception.StorePartitionClosedException;
@@ -39,11 +46,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -67,19 +77,25 @@ public class Partition {
     private final FeedTask catchupFeedTask;
     private final LinkedList<FeedContext> pausedFeedContexts;
     private final FeedCachePartition feedCachePartition;
+    private final FeedLockCache feedLockCache;
     private final FeedSynchronizer feedSync = new FeedSynchronizer();
     private final HashMap<Integer, ClientConnectionInfo> partitionClientConnectionInfos = new HashMap<>();
+    private final ConcurrentHashMap<Integer, ConsumerFeedStats> consumerFeedStats = new ConcurrentHashMap<>();
     private final TransactionFetcher transactionFetcher;
 
     private final AtomicBoolean running = new AtomicBoolean(true);
     private final CompletableFuture<Boolean> closeFuture = new CompletableFuture<>();
 
     private final String metricsGroup;
+    private final AppendTracer appendTracer;
 
     private Meter transactionMeter;
     private Meter highWaterMarkMeter;
     private Meter transactionRejectionMeter;
     private Timer responseLatencyTimer;
+    private Meter feedTransactionMeter;
+    private Meter feedBytesMeter;
+    private Meter feedPausedTimeMeter;
     private volatile long commitHighWaterMark = Long.MIN_VALUE;
 
     /**
@@ -95,12 +111,15 @@ public class Partition {
         this.lockTableSize = (int) config.get(WaltzServerConfig.OPTIMISTIC_LOCK_TABLE_SIZE);
         this.minFetchSize = (int) config.get(WaltzServerConfig.MIN_FETCH_SIZE);
         this.realtimeThreshold = (int) config.get(WaltzServerConfig.REALTIME_THRESHOLD);
+        int feedLockCacheSize = (int) config.get(WaltzServerConfig.FEED_LOCK_CACHE_SIZE);
+        this.feedLockCache = feedLockCacheSize > 0 ? new FeedLockCache(feedLockCacheSize) : null;
         this.storePartition = storePartition;
         this.appendTask = new AppendTask();
         this.nearRealtimeFeedTask = new FeedTask("R", new PriorityBlockingQueue<>(100, FeedContext.HIGH_WATER_MARK_COMPARATOR));
         this.catchupFeedTask = new FeedTask("C", new LinkedBlockingQueue<>());
         this.pausedFeedContexts = new LinkedList<>();
         this.metricsGroup = String.format("%s.partition-%d", MetricGroup.WALTZ_SERVER_METRIC_GROUP, partitionId);
+        this.appendTracer = new AppendTracer(metricsGroup, (int) config.get(WaltzServerConfig.APPEND_TRACE_SAMPLE_INTERVAL));
 
         // Register metrics
         registerMetrics();
@@ -140,6 +159,7 @@ public class Partition {
                     .whenComplete((v, t) -> {
                         // Un-register metrics
                         unregisterMetrics();
+                        appendTracer.close();
                         closeFuture.complete(Boolean.TRUE);
                     });
         }
@@ -211,6 +231,19 @@ public class Partition {
         return (int) catchupFeedTask.totalRemoved();
     }
 
+    /**
+     * Returns snapshots of the feed statistics of clients connected to this partition.
+     * @return snapshots of the feed statistics of clients connected to this partition.
+     */
+    public List<ConsumerFeedStats.Snapshot> getConsumerFeedStats() {
+        long highWaterMark = commitHighWaterMark;
+        List<ConsumerFeedStats.Snapshot> snapshots = new ArrayList<>(consumerFeedStats.size());
+        for (ConsumerFeedStats stats : consumerFeedStats.values()) {
+            snapshots.add(stats.snapshot(highWaterMark));
+        }
+        return snapshots;
+    }
+
     /**
      * Processes the request message received by this partition.
      * @param msg The {@link Message} received by this partition.
@@ -236,7 +269,7 @@ public class Partition {
             case MessageType.APPEND_REQUEST:
                 transactionMeter.mark(); // measures rate of transaction
                 if (isValid(client)) {
-                    appendTask.enqueue(new AppendContext((AppendRequest) msg, client));
+                    appendTask.enqueue(new AppendContext((AppendRequest) msg, client, appendTracer.startTrace()));
                 }
                 break;
 
@@ -250,6 +283,10 @@ public class Partition {
                 getTransactionData((TransactionDataRequest) msg, client);
                 break;
 
+            case MessageType.TRANSACTION_DATA_LIST_REQUEST:
+                getTransactionDataList((TransactionDataListRequest) msg, client);
+                break;
+
             case MessageType.FLUSH_REQUEST:
                 // Flush the append queue
                 flushAppendQueue().whenComplete((h, t) -> {
@@ -292,6 +329,7 @@ public class Partition {
             ClientConnectionInfo clientConnectionInfo = partitionClientConnectionInfos.get(client.clientId());
             if (clientConnectionInfo != null && client.equals(clientConnectionInfo.client)) {
                 partitionClientConnectionInfos.remove(client.clientId());
+                consumerFeedStats.remove(client.clientId());
                 return true;
             }
             return false;
@@ -327,6 +365,16 @@ public class Partition {
                 client.sendMessage(new TransactionDataResponse(reqId, transactionId, new RpcException("partition not ready")), true);
                 break;
 
+            case MessageType.TRANSACTION_DATA_LIST_REQUEST:
+                TransactionDataListRequest dataListRequest = (TransactionDataListRequest) msg;
+                RpcException exception = new RpcException("partition not ready");
+                List<TransactionDataResponse> responses = new ArrayList<>(Math.max(dataListRequest.numTransactions, 0));
+                for (int i = 0; i < dataListRequest.numTransactions; i++) {
+                    responses.add(new TransactionDataResponse(reqId, dataListRequest.transactionId + i, exception));
+                }
+                client.sendMessage(new TransactionDataListResponse(reqId, dataListRequest.transactionId, responses), true);
+                break;
+
             default:
                 logger.error("partition not found: partitionId=" + reqId.partitionId() + " clientId=" + reqId.clientId() + " msg=" + msg);
         }
@@ -346,6 +394,13 @@ public class Partition {
         REGISTRY.gauge(metricsGroup, "total-catchup-feed-context-added", (Gauge<Integer>) () -> getTotalCatchupFeedContextAdded());
         REGISTRY.gauge(metricsGroup, "total-catchup-feed-context-removed", (Gauge<Integer>) () -> getTotalCatchupFeedContextRemoved());
         REGISTRY.gauge(metricsGroup, "high-water-mark", (Gauge<Long>) () -> commitHighWaterMark);
+        feedTransactionMeter = REGISTRY.meter(metricsGroup, "feed-transaction");
+        feedBytesMeter = REGISTRY.meter(metricsGroup, "feed-bytes");
+        feedPausedTimeMeter = REGISTRY.meter(metricsGroup, "feed-paused-time-ms");
+        REGISTRY.gauge(metricsGroup, "max-consumer-lag", (Gauge<Long>) () -> getMaxConsumerLag());
+        REGISTRY.gauge(metricsGroup, "num-catchup-consumers", (Gauge<Integer>) () -> getNumConsumers(ConsumerFeedStats.Mode.CATCHUP));
+        REGISTRY.gauge(metricsGroup, "num-realtime-consumers", (Gauge<Integer>) () -> getNumConsumers(ConsumerFeedStats.Mode.REALTIME));
+        REGISTRY.gauge(metricsGroup, "num-paused-consumers", (Gauge<Integer>) () -> getNumConsumers(ConsumerFeedStats.Mode.PAUSED));
     }
 
     private void unregisterMetrics() {
@@ -362,6 +417,13 @@ public class Partition {
         REGISTRY.remove(metricsGroup, "total-catchup-feed-context-added");
         REGISTRY.remove(metricsGroup, "total-catchup-feed-context-removed");
         REGISTRY.remove(metricsGroup, "high-water-mark");
+        REGISTRY.remove(metricsGroup, "feed-transaction");
+        REGISTRY.remove(metricsGroup, "feed-bytes");
+        REGISTRY.remove(metricsGroup, "feed-paused-time-ms");
+        REGISTRY.remove(metricsGroup, "max-consumer-lag");
+        REGISTRY.remove(metricsGroup, "num-catchup-consumers");
+        REGISTRY.remove(metricsGroup, "num-realtime-consumers");
+        REGISTRY.remove(metricsGroup, "num-paused-consumers");
     }
 
     /**
@@ -385,8 +447,39 @@ public class Partition {
         }
     }
 
+    private long getMaxConsumerLag() {
+        long highWaterMark = commitHighWaterMark;
+        long maxLag = 0L;
+        for (ConsumerFeedStats stats : consumerFeedStats.values()) {
+            maxLag = Math.max(maxLag, highWaterMark - stats.highWaterMark());
+        }
+        return maxLag;
+    }
+
+    private int getNumConsumers(ConsumerFeedStats.Mode mode) {
+        int count = 0;
+        for (ConsumerFeedStats stats : consumerFeedStats.values()) {
+            if (stats.mode() == mode) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private ConsumerFeedStats consumerFeedStats(PartitionClient client) {
+        return consumerFeedStats.computeIfAbsent(client.clientId(), clientId -> new ConsumerFeedStats(partitionId, clientId));
+    }
+
+    private void setFeedMode(FeedContext feedContext, ConsumerFeedStats.Mode mode) {
+        long pausedNanos = feedContext.stats.setMode(mode);
+        if (pausedNanos > 0) {
+            feedPausedTimeMeter.mark(TimeUnit.NANOSECONDS.toMillis(pausedNanos));
+        }
+    }
+
     private void pauseFeedContext(FeedContext feedContext) throws StoreException {
         synchronized (pausedFeedContexts) {
+            setFeedMode(feedContext, ConsumerFeedStats.Mode.PAUSED);
             pausedFeedContexts.add(feedContext);
         }
         resumePausedFeedContexts();
@@ -407,6 +500,7 @@ public class Partition {
                         iter.remove();
                     }
                 } else {
+                    setFeedMode(feedContext, ConsumerFeedStats.Mode.IDLE);
                     iter.remove();
                 }
             }
@@ -479,7 +573,7 @@ public class Partition {
 
     private void addFeedContext(FeedRequest request, long fetchSize, FeedSuspended suspendMessage, PartitionClient client) throws StoreException {
         FeedContext feedContext =
-            new FeedContext(request.reqId, request.clientHighWaterMark, fetchSize, client, suspendMessage);
+            new FeedContext(request.reqId, request.clientHighWaterMark, fetchSize, client, suspendMessage, consumerFeedStats(client));
 
         if (feedContext.isWritable()) {
             addFeedContext(feedContext);
@@ -492,9 +586,11 @@ public class Partition {
         try {
             // Add the new feed context
             if ((storePartition.highWaterMark() - feedContext.highWaterMark()) < realtimeThreshold) {
+                setFeedMode(feedContext, ConsumerFeedStats.Mode.REALTIME);
                 nearRealtimeFeedTask.enqueue(feedContext);
             } else {
                 logger.debug("added a catch up task: {}", feedContext);
+                setFeedMode(feedContext, ConsumerFeedStats.Mode.CATCHUP);
                 catchupFeedTask.enqueue(feedContext);
             }
         } finally {
@@ -508,6 +604,7 @@ public class Partition {
             TransactionKey key = new TransactionKey(partitionId, request.transactionId);
             TransactionData transactionData = transactionFetcher.fetch(key, storePartition);
             client.sendMessage(new TransactionDataResponse(request.reqId, request.transactionId, transactionData.data, transactionData.checksum), true);
+            transactionDataSent(client, transactionData.data.length);
 
         } catch (Throwable ex) {
             if (running.get()) {
@@ -518,13 +615,70 @@ public class Partition {
         }
     }
 
+    private void getTransactionDataList(TransactionDataListRequest request, PartitionClient client) {
+        int numTransactions = request.numTransactions;
+        List<TransactionDataResponse> responses = new ArrayList<>(Math.max(numTransactions, 0));
+        int numBytes = 0;
+
+        try {
+            if (numTransactions < 0 || numTransactions > TransactionDataListRequest.MAX_NUM_TRANSACTIONS) {
+                throw new IllegalArgumentException("invalid number of transactions: " + numTransactions);
+            }
+
+            TransactionData[] transactionData = transactionFetcher.fetchList(partitionId, request.transactionId, numTransactions, storePartition);
+
+            for (int i = 0; i < numTransactions; i++) {
+                long transactionId = request.transactionId + i;
+                try {
+                    TransactionData data = transactionData[i];
+                    if (data == null) {
+                        // Not returned by the list request, try it individually
+                        data = transactionFetcher.fetch(new TransactionKey(partitionId, transactionId), storePartition);
+                    }
+                    responses.add(new TransactionDataResponse(request.reqId, transactionId, data.data, data.checksum));
+                    numBytes += data.data.length;
+
+                } catch (Throwable ex) {
+                    if (running.get()) {
+                        logger.error("failed to get transaction data", ex);
+                    }
+                    responses.add(new TransactionDataResponse(request.reqId, transactionId, new RpcException(ex.toString())));
+                }
+            }
+
+        } catch (Throwable ex) {
+            if (running.get()) {
+                logger.error("failed to get transaction data list", ex);
+            }
+            RpcException exception = new RpcException(ex.toString());
+            responses.clear();
+            numBytes = 0;
+            for (int i = 0; i < numTransactions; i++) {
+                responses.add(new TransactionDataResponse(request.reqId, request.transactionId + i, exception));
+            }
+        }
+
+        client.sendMessage(new TransactionDataListResponse(request.reqId, request.transactionId, responses), true);
+        transactionDataSent(client, numBytes);
+    }
+
+    private void transactionDataSent(PartitionClient client, int numBytes) {
+        feedBytesMeter.mark(numBytes);
+        ConsumerFeedStats stats = consumerFeedStats.get(client.clientId());
+        if (stats != null) {
+            stats.dataSent(numBytes);
+        }
+    }
+
     private static class AppendContext {
         final AppendRequest request;
         final PartitionClient client;
+        final AppendTrace trace;
 
-        AppendContext(AppendRequest request, PartitionClient client) {
+        AppendContext(AppendRequest request, PartitionClient client, AppendTrace trace) {
             this.request = request;
             this.client = client;
+            this.trace = trace;
         }
     }
 
@@ -532,7 +686,7 @@ public class Partition {
         final CompletableFuture<Long> future = new CompletableFuture<>();
 
         FlushContext() {
-            super(null, null);
+            super(null, null, null);
         }
     }
 
@@ -557,7 +711,13 @@ public class Partition {
                 ((FlushContext) context).future.complete(storePartition.flush());
 
             } else {
+                Object event = JfrSupport.isEnabled() ? AppendEvents.begin() : null;
                 AppendRequest request = context.request;
+                AppendTrace trace = context.trace;
+
+                if (trace != null) {
+                    trace.dequeued();
+                }
 
                 Locks.LockRequest lockRequest = Locks.createRequest(request.writeLockRequest, request.readLockRequest, request.appendLockRequest);
                 // Begin locking
@@ -576,23 +736,33 @@ public class Partition {
                     }
                 }
 
+                if (trace != null) {
+                    trace.locked();
+                }
+
                 long minHighWaterMark = locks.getLockHighWaterMark(lockRequest);
                 if (minHighWaterMark > request.clientHighWaterMark) {
                     transactionRejectionMeter.mark(); // measures rate of transaction rejection
                     // Unable to lock since the min high-water mark is bigger than the client's high-water mark.
                     locks.end(lockRequest);
                     context.client.sendMessage(new LockFailure(request.reqId, minHighWaterMark), true);
+                    if (event != null) {
+                        AppendEvents.complete(event, partitionId, -1L, request.data.length, true);
+                    }
 
                 } else {
                     try {
                         Timer.Context timerContext = responseLatencyTimer.time();
-                        storePartition.append(request.reqId, request.header, request.data, request.checksum, transactionId -> {
+                        storePartition.append(request.reqId, request.header, request.data, request.checksum, trace, transactionId -> {
                             // The following code is executed when the transaction is resolved.
                             try {
                                 if (transactionId >= 0L) {
                                     try {
                                         // Put the entry into the feed cache
                                         feedCachePartition.add(transactionId, request.reqId, request.header);
+                                        if (feedLockCache != null) {
+                                            feedLockCache.add(transactionId, request.writeLockRequest, request.appendLockRequest);
+                                        }
                                         // Put the entry into the transaction cache
                                         transactionFetcher.cache(
                                             new TransactionKey(partitionId, transactionId),
@@ -610,6 +780,12 @@ public class Partition {
                             } finally {
                                 locks.end(lockRequest);
                                 timerContext.stop(); // measures latency of response
+                                if (trace != null) {
+                                    trace.completed(transactionId >= 0L);
+                                }
+                                if (event != null) {
+                                    AppendEvents.complete(event, partitionId, transactionId, request.data.length, false);
+                                }
                             }
                         });
                     } catch (StoreException ex) {
@@ -700,6 +876,8 @@ public class Partition {
                         }
 
                         if (highWaterMark >= nextTransactionId) {
+                            Object event = JfrSupport.isEnabled() ? FeedEvents.begin() : null;
+                            int numPrefetched = 0;
                             FeedData feedData;
 
                             if (cachedFeedData != null && cachedFeedData.transactionId == nextTransactionId) {
@@ -711,6 +889,7 @@ public class Partition {
                                     // Prefetch record headers to fill the cache block.
                                     int prefetchSize = FeedCacheBlock.NUM_TRANSACTIONS - (int) (nextTransactionId & FeedCacheBlock.INDEX_MASK);
                                     ArrayList<RecordHeader> recordHeaderList = storePartition.getRecordHeaderList(nextTransactionId, prefetchSize);
+                                    numPrefetched = recordHeaderList.size();
                                     if (!recordHeaderList.isEmpty()) {
                                         RecordHeader firstItem = recordHeaderList.get(0);
                                         feedData = new FeedData(firstItem.reqId, firstItem.transactionId, firstItem.header);
@@ -721,11 +900,23 @@ public class Partition {
                             }
 
                             if (feedData != null) {
+                                if (feedLockCache != null && feedData != cachedFeedData) {
+                                    int[] lockHashes = feedLockCache.get(nextTransactionId);
+                                    if (lockHashes != null) {
+                                        feedData = new FeedData(feedData.reqId, feedData.transactionId, feedData.header, lockHashes);
+                                    }
+                                }
+
                                 // Cache it in a local variable for the next feed context
                                 cachedFeedData = feedData;
 
                                 // Send data. Force flushing when we reach the high-water mark.
                                 feedContext.send(feedData, highWaterMark == nextTransactionId);
+                                feedTransactionMeter.mark();
+                                feedBytesMeter.mark(ConsumerFeedStats.encodedSize(feedData));
+                                if (event != null) {
+                                    FeedEvents.complete(event, partitionId, nextTransactionId, numPrefetched);
+                                }
                             }
                         }
                     } finally {
@@ -804,6 +995,34 @@ public class Partition {
 
     }
 
+    /**
+     * Refers to {@link AppendEvent}, which requires JFR. This class is loaded only when
+     * {@link JfrSupport#isEnabled()} is {@code true}, so that the server runs on JDKs without JFR.
+     */
+    private static final class AppendEvents {
+        static Object begin() {
+            return new AppendEvent();
+        }
+
+        static void complete(Object event, int partitionId, long transactionId, int dataSize, boolean lockFailure) {
+            ((AppendEvent) event).complete(partitionId, transactionId, dataSize, lockFailure);
+        }
+    }
+
+    /**
+     * Refers to {@link FeedEvent}, which requires JFR. This class is loaded only when
+     * {@link JfrSupport#isEnabled()} is {@code true}.
+     */
+    private static final class FeedEvents {
+        static Object begin() {
+            return new FeedEvent();
+        }
+
+        static void complete(Object event, int partitionId, long transactionId, int numPrefetched) {
+            ((FeedEvent) event).complete(partitionId, transactionId, numPrefetched);
+        }
+    }
+
     private static class ClientConnectionInfo {
         final PartitionClient client;
         final int generation;
@@ -120,6 +120,54 @@ public class TransactionFetcher {
         }
     }
 
+    /**
+     * Returns the transaction data of consecutive transactions from the given {@link StorePartition}.
+     * Transactions are looked up in the cache first, and the cache misses are read from the store with one request.
+     * @param partitionId The partition ID.
+     * @param transactionId The ID of the first transaction.
+     * @param numTransactions The number of transactions.
+     * @param storePartition {@link StorePartition} associated with the given partition ID.
+     * @return Transaction data for the transactions. An element is null if the transaction was not returned by the store.
+     * @throws StoreException thrown if {@code StorePartition} is closed.
+     */
+    public TransactionData[] fetchList(int partitionId, long transactionId, int numTransactions, StorePartition storePartition) throws StoreException {
+        TransactionData[] results = new TransactionData[numTransactions];
+        int firstMiss = -1;
+        int lastMiss = -1;
+
+        for (int i = 0; i < numTransactions; i++) {
+            TransactionKey key = new TransactionKey(partitionId, transactionId + i);
+
+            // The future may hold the data being cached or fetched by another thread
+            CompletableFuture<TransactionData> future = futures.get(key);
+            TransactionData data = future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : cache.get(key);
+
+            if (data != null) {
+                results[i] = data;
+            } else {
+                if (firstMiss < 0) {
+                    firstMiss = i;
+                }
+                lastMiss = i;
+            }
+        }
+
+        if (firstMiss >= 0) {
+            // Fetch all misses from the store at once.
+            for (Record record : storePartition.getRecordList(transactionId + firstMiss, lastMiss - firstMiss + 1)) {
+                int index = (int) (record.transactionId - transactionId);
+
+                if (index >= 0 && index < numTransactions && results[index] == null) {
+                    TransactionData data = new TransactionData(record.data, record.checksum);
+                    results[index] = data;
+                    cache(new TransactionKey(partitionId, record.transactionId), data);
+                }
+            }
+        }
+
+        return results;
+    }
+
     private static class Item {
 
         final TransactionKey key;
@@ -15,6 +15,8 @@ import com.wepay.waltz.common.message.MessageCodecV1;
 import com.wepay.waltz.common.message.MessageCodecV2;
 import com.wepay.waltz.common.message.MessageCodecV3;
 import com.wepay.waltz.common.message.MessageCodecV4;
+import com.wepay.waltz.common.message.MessageCodecV5;
+import com.wepay.waltz.common.message.MessageCodecV6;
 import com.wepay.waltz.common.message.MessageType;
 import com.wepay.waltz.common.message.MountRequest;
 import com.wepay.waltz.common.message.RemovePreferredPartitionRequest;
@@ -59,6 +61,8 @@ public class WaltzServerHandler extends MessageHandler implements PartitionClien
         CODECS.put(MessageCodecV2.VERSION, MessageCodecV2.INSTANCE);
         CODECS.put(MessageCodecV3.VERSION, MessageCodecV3.INSTANCE);
         CODECS.put(MessageCodecV4.VERSION, MessageCodecV4.INSTANCE);
+        CODECS.put(MessageCodecV5.VERSION, MessageCodecV5.INSTANCE);
+        CODECS.put(MessageCodecV6.VERSION, MessageCodecV6.INSTANCE);
     }
 
     private static final String HELLO_MESSAGE = "Waltz Server";
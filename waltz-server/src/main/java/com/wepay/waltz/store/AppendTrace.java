@@ -0,0 +1,108 @@
+package com.wepay.waltz.store;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timing trail of a sampled append request. Each stage of the request is stamped with {@link System#nanoTime()}
+ * by the thread which completes the stage:
+ * <ol>
+ *     <li>received: the request is put into the append queue of the partition</li>
+ *     <li>dequeued: the append task takes the request from the queue</li>
+ *     <li>locked: the locks of the request are acquired</li>
+ *     <li>store enqueued: the request is put into the request queue of the store session</li>
+ *     <li>dispatched: the batch containing the request is sent to the replicas</li>
+ *     <li>replica acked: a replica wrote the batch, recorded for each replica</li>
+ *     <li>quorum reached: the batch is written to a quorum of replicas</li>
+ *     <li>completed: the completion callback of the request is done</li>
+ * </ol>
+ * The time spent in each stage is recorded to the histograms of the {@link AppendTracer} when the request completes.
+ * Requests which are not committed are not recorded.
+ */
+public class AppendTrace {
+
+    private final AppendTracer tracer;
+    private final long receivedNanos;
+
+    private volatile long dequeuedNanos = 0L;
+    private volatile long lockedNanos = 0L;
+    private volatile long storeEnqueuedNanos = 0L;
+    private volatile long dispatchedNanos = 0L;
+    private volatile long quorumNanos = 0L;
+
+    AppendTrace(AppendTracer tracer, long receivedNanos) {
+        this.tracer = tracer;
+        this.receivedNanos = receivedNanos;
+    }
+
+    /**
+     * Stamps the time the request is taken from the append queue.
+     */
+    public void dequeued() {
+        dequeuedNanos = System.nanoTime();
+    }
+
+    /**
+     * Stamps the time the locks of the request are acquired.
+     */
+    public void locked() {
+        lockedNanos = System.nanoTime();
+    }
+
+    /**
+     * Stamps the time the request is put into the request queue of the store session.
+     */
+    public void storeEnqueued() {
+        storeEnqueuedNanos = System.nanoTime();
+    }
+
+    /**
+     * Stamps the time the batch containing the request is sent to the replicas.
+     * @param nanos the time in nanoseconds.
+     */
+    public void dispatched(long nanos) {
+        dispatchedNanos = nanos;
+    }
+
+    /**
+     * Records the time a replica took to write the batch containing the request.
+     * @param replica the connect string of the storage node.
+     * @param nanos the time the replica finished writing in nanoseconds.
+     */
+    public void replicaAcked(String replica, long nanos) {
+        long dispatched = dispatchedNanos;
+        if (dispatched != 0L) {
+            tracer.replicaHistogram(replica).update(micros(nanos - dispatched));
+        }
+    }
+
+    /**
+     * Stamps the time the batch containing the request is written to a quorum of replicas.
+     * @param nanos the time in nanoseconds.
+     */
+    public void quorumReached(long nanos) {
+        quorumNanos = nanos;
+    }
+
+    /**
+     * Stamps the time the completion callback is done, and records the time spent in each stage.
+     * @param committed {@code true} if the request is committed.
+     */
+    public void completed(boolean committed) {
+        long completedNanos = System.nanoTime();
+
+        if (committed && dequeuedNanos != 0L && lockedNanos != 0L && storeEnqueuedNanos != 0L && dispatchedNanos != 0L && quorumNanos != 0L) {
+            tracer.queueHistogram.update(micros(dequeuedNanos - receivedNanos));
+            tracer.lockHistogram.update(micros(lockedNanos - dequeuedNanos));
+            tracer.storeEnqueueHistogram.update(micros(storeEnqueuedNanos - lockedNanos));
+            tracer.batchHistogram.update(micros(dispatchedNanos - storeEnqueuedNanos));
+            tracer.quorumHistogram.update(micros(quorumNanos - dispatchedNanos));
+            tracer.callbackHistogram.update(micros(completedNanos - quorumNanos));
+            tracer.totalHistogram.update(micros(completedNanos - receivedNanos));
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
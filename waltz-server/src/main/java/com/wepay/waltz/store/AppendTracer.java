@@ -0,0 +1,94 @@
+package com.wepay.waltz.store;
+
+import com.wepay.riff.metrics.core.Histogram;
+import com.wepay.riff.metrics.core.MetricRegistry;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples append requests of a partition for {@link AppendTrace}s and owns the histograms the traces are recorded to.
+ * Latencies are recorded in microseconds. A histogram is registered for each stage of an append request,
+ * and for each storage replica the partition writes to.
+ */
+public class AppendTracer {
+
+    private static final MetricRegistry REGISTRY = MetricRegistry.getInstance();
+
+    static final String QUEUE_HISTOGRAM = "append-stage-queue";
+    static final String LOCK_HISTOGRAM = "append-stage-lock";
+    static final String STORE_ENQUEUE_HISTOGRAM = "append-stage-store-enqueue";
+    static final String BATCH_HISTOGRAM = "append-stage-batch";
+    static final String QUORUM_HISTOGRAM = "append-stage-quorum";
+    static final String CALLBACK_HISTOGRAM = "append-stage-callback";
+    static final String TOTAL_HISTOGRAM = "append-stage-total";
+    static final String REPLICA_HISTOGRAM_PREFIX = "append-stage-replica-";
+
+    private final String metricsGroup;
+    private final int sampleInterval;
+    private final AtomicLong numRequests = new AtomicLong(0);
+    private final Set<String> replicaHistogramNames = ConcurrentHashMap.newKeySet();
+
+    final Histogram queueHistogram;
+    final Histogram lockHistogram;
+    final Histogram storeEnqueueHistogram;
+    final Histogram batchHistogram;
+    final Histogram quorumHistogram;
+    final Histogram callbackHistogram;
+    final Histogram totalHistogram;
+
+    /**
+     * Class constructor.
+     * @param metricsGroup The metrics group of the partition.
+     * @param sampleInterval One of every {@code sampleInterval} append requests is traced. Tracing is disabled if 0.
+     */
+    public AppendTracer(String metricsGroup, int sampleInterval) {
+        this.metricsGroup = metricsGroup;
+        this.sampleInterval = sampleInterval;
+        this.queueHistogram = REGISTRY.histogram(metricsGroup, QUEUE_HISTOGRAM);
+        this.lockHistogram = REGISTRY.histogram(metricsGroup, LOCK_HISTOGRAM);
+        this.storeEnqueueHistogram = REGISTRY.histogram(metricsGroup, STORE_ENQUEUE_HISTOGRAM);
+        this.batchHistogram = REGISTRY.histogram(metricsGroup, BATCH_HISTOGRAM);
+        this.quorumHistogram = REGISTRY.histogram(metricsGroup, QUORUM_HISTOGRAM);
+        this.callbackHistogram = REGISTRY.histogram(metricsGroup, CALLBACK_HISTOGRAM);
+        this.totalHistogram = REGISTRY.histogram(metricsGroup, TOTAL_HISTOGRAM);
+    }
+
+    /**
+     * Starts a trace of an append request if it is sampled.
+     * @return a new {@link AppendTrace}, or {@code null} if the append request is not sampled.
+     */
+    public AppendTrace startTrace() {
+        if (sampleInterval > 0 && numRequests.getAndIncrement() % sampleInterval == 0) {
+            return new AppendTrace(this, System.nanoTime());
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Un-registers all histograms of this tracer.
+     */
+    public void close() {
+        REGISTRY.remove(metricsGroup, QUEUE_HISTOGRAM);
+        REGISTRY.remove(metricsGroup, LOCK_HISTOGRAM);
+        REGISTRY.remove(metricsGroup, STORE_ENQUEUE_HISTOGRAM);
+        REGISTRY.remove(metricsGroup, BATCH_HISTOGRAM);
+        REGISTRY.remove(metricsGroup, QUORUM_HISTOGRAM);
+        REGISTRY.remove(metricsGroup, CALLBACK_HISTOGRAM);
+        REGISTRY.remove(metricsGroup, TOTAL_HISTOGRAM);
+
+        for (String name : replicaHistogramNames) {
+            REGISTRY.remove(metricsGroup, name);
+        }
+        replicaHistogramNames.clear();
+    }
+
+    Histogram replicaHistogram(String replica) {
+        String name = REPLICA_HISTOGRAM_PREFIX + replica.replaceAll("[^A-Za-z0-9-]", "_");
+        replicaHistogramNames.add(name);
+        return REGISTRY.histogram(metricsGroup, name);
+    }
+
+}
@@ -53,6 +53,20 @@ public interface StorePartition {
      */
     void append(ReqId reqId, int header, byte[] data, int checksum, LongConsumer onCompletion) throws StoreException;
 
+    /**
+     * Appends the request to the store partition, stamping the stages of the request on the given trace.
+     * @param reqId The request Id.
+     * @param header The request header.
+     * @param data The transaction data.
+     * @param checksum The checksum.
+     * @param trace The {@link AppendTrace} of the request, or {@code null} if the request is not traced.
+     * @param onCompletion Represents what to do on completion.
+     * @throws StoreException thrown if failed to access the store.
+     */
+    default void append(ReqId reqId, int header, byte[] data, int checksum, AppendTrace trace, LongConsumer onCompletion) throws StoreException {
+        append(reqId, header, data, checksum, onCompletion);
+    }
+
     /**
      * Returns the record header of the given transaction Id.
      * @param transactionId The transaction Id.
@@ -78,6 +92,15 @@ public interface StorePartition {
      */
     Record getRecord(long transactionId) throws StoreException;
 
+    /**
+     * Returns {@link Record}s of consecutive transactions starting from the given transaction Id.
+     * @param transactionId The transaction Id of the first record.
+     * @param maxNumRecords The maximum number of records.
+     * @return list of {@link Record}s, which may be shorter than {@code maxNumRecords}.
+     * @throws StoreException thrown if failed to access the store.
+     */
+    ArrayList<Record> getRecordList(long transactionId, int maxNumRecords) throws StoreException;
+
     /**
      * Returns the high-water mark of this store partition.
      * @return the high-water mark.
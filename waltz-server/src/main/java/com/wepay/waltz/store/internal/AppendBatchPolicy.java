@@ -0,0 +1,65 @@
+package com.wepay.waltz.store.internal;
+
+import com.wepay.waltz.server.WaltzServerConfig;
+
+/**
+ * Implements the batching policy of append requests sent from a store session to replicas.
+ * A batch is bounded both by the number of requests and by the total data size. When the batch is not full,
+ * the store session may wait up to {@code maxLingerTime} milliseconds for more requests (see {@link BatchWindow}).
+ */
+public class AppendBatchPolicy {
+
+    public final int maxBatchSize;
+    public final int maxBatchBytes;
+    public final long maxLingerTime;
+
+    /**
+     * Class constructor. The batch is bounded only by the number of requests, and no lingering is done.
+     * @param maxBatchSize The maximum number of requests in a batch.
+     */
+    public AppendBatchPolicy(final int maxBatchSize) {
+        this(maxBatchSize, Integer.MAX_VALUE, 0L);
+    }
+
+    /**
+     * Class constructor.
+     * @param maxBatchSize The maximum number of requests in a batch.
+     * @param maxBatchBytes The maximum total data size of requests in a batch. A batch has at least one request.
+     * @param maxLingerTime The maximum time in milliseconds to wait for more requests when a batch is not full.
+     */
+    public AppendBatchPolicy(final int maxBatchSize, final int maxBatchBytes, final long maxLingerTime) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be greater than zero");
+        }
+        if (maxBatchBytes < 1) {
+            throw new IllegalArgumentException("maxBatchBytes must be greater than zero");
+        }
+        if (maxLingerTime < 0) {
+            throw new IllegalArgumentException("maxLingerTime must not be negative");
+        }
+
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxLingerTime = maxLingerTime;
+    }
+
+    /**
+     * Creates the batch policy of the given partition from the server config.
+     * @param config The Waltz server config.
+     * @param partitionId The partition Id.
+     * @return the batch policy of the partition.
+     */
+    public static AppendBatchPolicy forPartition(WaltzServerConfig config, int partitionId) {
+        return new AppendBatchPolicy(
+            config.getPartitionInt(WaltzServerConfig.MAX_BATCH_SIZE, partitionId),
+            config.getPartitionInt(WaltzServerConfig.MAX_BATCH_BYTES, partitionId),
+            config.getPartitionInt(WaltzServerConfig.BATCH_LINGER_TIME, partitionId)
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "AppendBatchPolicy(maxBatchSize=" + maxBatchSize + ",maxBatchBytes=" + maxBatchBytes + ",maxLingerTime=" + maxLingerTime + ")";
+    }
+
+}
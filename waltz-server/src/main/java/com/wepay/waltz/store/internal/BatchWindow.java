@@ -0,0 +1,62 @@
+package com.wepay.waltz.store.internal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes how long a store session should wait for more append requests before sending a batch that is not full.
+ * This is a Nagle-style trade-off between latency and batch size. The window tracks the moving average of
+ * the request inter-arrival time. Under light load, where the next request is not expected within the maximum
+ * linger time, a batch is sent immediately. Under heavier load, the session waits for the time it is expected to
+ * take to fill the batch, bounded by the maximum linger time.
+ */
+class BatchWindow {
+
+    // Weight of the latest sample in the moving average of the inter-arrival time
+    private static final double ALPHA = 0.1;
+
+    private final AppendBatchPolicy policy;
+    private final long maxLingerNanos;
+
+    private long lastArrivalNanos = -1L;
+    private double avgInterArrivalNanos = Double.MAX_VALUE;
+
+    BatchWindow(AppendBatchPolicy policy) {
+        this.policy = policy;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(policy.maxLingerTime);
+    }
+
+    /**
+     * Records an arrival of an append request.
+     * @param nowNanos the current time in nanoseconds.
+     */
+    void arrived(long nowNanos) {
+        synchronized (this) {
+            if (lastArrivalNanos >= 0) {
+                double interArrivalNanos = (double) (nowNanos - lastArrivalNanos);
+                if (avgInterArrivalNanos == Double.MAX_VALUE) {
+                    avgInterArrivalNanos = interArrivalNanos;
+                } else {
+                    avgInterArrivalNanos = ALPHA * interArrivalNanos + (1 - ALPHA) * avgInterArrivalNanos;
+                }
+            }
+            lastArrivalNanos = nowNanos;
+        }
+    }
+
+    /**
+     * Returns the time to wait for more requests.
+     * @param batchSize the number of requests already in the batch.
+     * @return the time to wait in nanoseconds, zero if the batch should be sent immediately.
+     */
+    long lingerNanos(int batchSize) {
+        synchronized (this) {
+            if (maxLingerNanos == 0 || batchSize >= policy.maxBatchSize || avgInterArrivalNanos >= maxLingerNanos) {
+                return 0L;
+            }
+
+            double fillNanos = avgInterArrivalNanos * (policy.maxBatchSize - batchSize);
+            return fillNanos < maxLingerNanos ? (long) fillNanos : maxLingerNanos;
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ public class ConnectionConfig {
     public final int numPartitions;
     public final long initialRetryInterval;
     public final long maxRetryInterval;
+    public final int numConnectionsPerNode;
 
     /**
      * Class constructor.
@@ -33,7 +34,8 @@ public class ConnectionConfig {
             key,
             numPartitions,
             (long) waltzServerConfig.get(WaltzServerConfig.INITIAL_RETRY_INTERVAL),
-            (long) waltzServerConfig.get(WaltzServerConfig.MAX_RETRY_INTERVAL)
+            (long) waltzServerConfig.get(WaltzServerConfig.MAX_RETRY_INTERVAL),
+            (int) waltzServerConfig.get(WaltzServerConfig.CONNECTIONS_PER_STORAGE_NODE)
         );
     }
 
@@ -54,10 +56,37 @@ public class ConnectionConfig {
         final long initialRetryInterval,
         final long maxRetryInterval
     ) throws GeneralSecurityException, IOException {
+        this(sslCtx, key, numPartitions, initialRetryInterval, maxRetryInterval, WaltzServerConfig.DEFAULT_CONNECTIONS_PER_STORAGE_NODE);
+    }
+
+    /**
+     * Class constructor.
+     * @param sslCtx SSLContext for communication.
+     * @param key The cluster key.
+     * @param numPartitions The total number of partitions in the cluster.
+     * @param initialRetryInterval The initial retry interval.
+     * @param maxRetryInterval The maximum retry interval.
+     * @param numConnectionsPerNode The number of connections to open to each storage node.
+     * @throws GeneralSecurityException thrown if failed to create {@link javax.net.ssl.SSLContext}.
+     * @throws IOException thrown if any issue occurs.
+     */
+    public ConnectionConfig(
+        SslContext sslCtx,
+        UUID key,
+        int numPartitions,
+        final long initialRetryInterval,
+        final long maxRetryInterval,
+        final int numConnectionsPerNode
+    ) throws GeneralSecurityException, IOException {
+        if (numConnectionsPerNode < 1) {
+            throw new IllegalArgumentException("numConnectionsPerNode must be positive: " + numConnectionsPerNode);
+        }
+
         this.sslCtx = sslCtx != null ? sslCtx : ClientSSL.createInsecureContext();
         this.key = key;
         this.numPartitions = numPartitions;
         this.initialRetryInterval = initialRetryInterval;
         this.maxRetryInterval = maxRetryInterval;
+        this.numConnectionsPerNode = numConnectionsPerNode;
     }
 }
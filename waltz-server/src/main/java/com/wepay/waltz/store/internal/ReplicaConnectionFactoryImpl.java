@@ -7,7 +7,9 @@ import com.wepay.waltz.store.exception.ReplicaConnectionFactoryClosedException;
 import org.slf4j.Logger;
 
 /**
- * Implements {@link ReplicaConnection}.
+ * Implements {@link ReplicaConnectionFactory}.
+ * Partitions are striped over {@link ConnectionConfig#numConnectionsPerNode} storage clients,
+ * so that traffic of unrelated partitions does not have to share a single connection.
  */
 public class ReplicaConnectionFactoryImpl implements ReplicaConnectionFactory {
 
@@ -19,7 +21,7 @@ public class ReplicaConnectionFactoryImpl implements ReplicaConnectionFactory {
     private final int port;
     private final ConnectionConfig config;
 
-    private volatile StorageClient client = null;
+    private final StorageClient[] clients;
     private volatile boolean running = true;
 
     /**
@@ -30,6 +32,7 @@ public class ReplicaConnectionFactoryImpl implements ReplicaConnectionFactory {
     public ReplicaConnectionFactoryImpl(final String connectString, ConnectionConfig config) {
         this.connectString = connectString;
         this.config = config;
+        this.clients = new StorageClient[config.numConnectionsPerNode];
 
         try {
             String[] components = connectString.split(":");
@@ -52,7 +55,7 @@ public class ReplicaConnectionFactoryImpl implements ReplicaConnectionFactory {
      * @throws ReplicaConnectionFactoryClosedException thrown if the replica connection is closed.
      */
     public ReplicaConnection get(int partitionId, long sessionId) throws ReplicaConnectionFactoryClosedException, StorageRpcException {
-        return new ReplicaConnectionImpl(partitionId, sessionId, getStorageClient());
+        return new ReplicaConnectionImpl(partitionId, sessionId, getStorageClient(partitionId));
     }
 
     /**
@@ -61,21 +64,29 @@ public class ReplicaConnectionFactoryImpl implements ReplicaConnectionFactory {
     public void close() {
         synchronized (this) {
             running = false;
-            if (client != null) {
-                if (!client.isDisconnected()) {
-                    client.close();
+            for (int i = 0; i < clients.length; i++) {
+                StorageClient client = clients[i];
+                if (client != null) {
+                    if (!client.isDisconnected()) {
+                        client.close();
+                    }
+                    clients[i] = null;
                 }
-                client = null;
             }
         }
     }
 
-    private StorageClient getStorageClient() throws ReplicaConnectionFactoryClosedException {
+    private StorageClient getStorageClient(int partitionId) throws ReplicaConnectionFactoryClosedException {
+        int index = stripe(partitionId, clients.length);
+
         synchronized (this) {
             if (running) {
+                StorageClient client = clients[index];
+
                 if (client != null && !client.isValid()) {
                     client.close();
                     client = null;
+                    clients[index] = null;
                 }
 
                 if (client == null) {
@@ -84,9 +95,9 @@ public class ReplicaConnectionFactoryImpl implements ReplicaConnectionFactory {
                         client.open();
                     } catch (Exception e) {
                         client.close();
-                        client = null;
                         throw e;
                     }
+                    clients[index] = client;
                 }
                 return client;
             } else {
@@ -95,4 +106,15 @@ public class ReplicaConnectionFactoryImpl implements ReplicaConnectionFactory {
         }
     }
 
+    /**
+     * Returns the index of the connection the given partition is assigned to.
+     * Partition ids are dense, so striping them by modulo spreads partitions evenly over connections.
+     * @param partitionId The partition Id.
+     * @param numConnections The number of connections per storage node.
+     * @return the connection index.
+     */
+    static int stripe(int partitionId, int numConnections) {
+        return Math.floorMod(partitionId, numConnections);
+    }
+
 }
@@ -2,6 +2,9 @@ package com.wepay.waltz.store.internal;
 
 import com.wepay.riff.util.Logging;
 import com.wepay.riff.util.RepeatingTask;
+import com.wepay.waltz.common.jfr.JfrSupport;
+import com.wepay.waltz.common.jfr.ReplicaAppendEvent;
+import com.wepay.waltz.common.jfr.ReplicaCatchUpEvent;
 import com.wepay.waltz.common.message.Record;
 import com.wepay.waltz.common.message.RecordHeader;
 import com.wepay.waltz.common.util.BackoffTimer;
@@ -363,8 +366,24 @@ public class ReplicaSession extends LatencyWeightedRoute {
 
         // Append the transactions
         try {
+            Object event = JfrSupport.isEnabled() ? ReplicaEvents.beginAppend() : null;
             writer.append(requestTransactionId, requests);
+            long ackedNanos = System.nanoTime();
+
+            // Record the write latency of this replica on sampled requests before voting, since the vote may
+            // complete the requests
+            int batchSize = 0;
+            for (StoreAppendRequest request : requests) {
+                if (request.trace != null) {
+                    request.trace.replicaAcked(replicaId.storageNodeConnectString, ackedNanos);
+                }
+                batchSize++;
+            }
+
             voting.vote();
+            if (event != null) {
+                ReplicaEvents.completeAppend(event, replicaId, requestTransactionId, batchSize);
+            }
 
         } catch (ReplicaWriterException ex) {
             // Write failed. We don't know if the transaction is written to the storage.
@@ -376,6 +395,8 @@ public class ReplicaSession extends LatencyWeightedRoute {
     }
 
     private void catchUp(long nextTransactionId) throws Exception {
+        Object event = JfrSupport.isEnabled() ? ReplicaEvents.beginCatchUp() : null;
+        long firstTransactionId = nextTransactionId;
         long numRecords;
 
         synchronized (this) {
@@ -393,6 +414,10 @@ public class ReplicaSession extends LatencyWeightedRoute {
                 numRecords = currentAppendRequestTransactionId - nextTransactionId;
             }
         }
+
+        if (event != null && nextTransactionId > firstTransactionId) {
+            ReplicaEvents.completeCatchUp(event, replicaId, firstTransactionId, nextTransactionId - 1);
+        }
     }
 
     private class ReplicaSessionTask extends RepeatingTask {
@@ -429,4 +454,30 @@ public class ReplicaSession extends LatencyWeightedRoute {
         }
     }
 
+    /**
+     * Refers to {@link ReplicaAppendEvent} and {@link ReplicaCatchUpEvent}, which require JFR. This class is loaded
+     * only when {@link JfrSupport#isEnabled()} is {@code true}, so that the server runs on JDKs without JFR.
+     */
+    private static final class ReplicaEvents {
+        static Object beginAppend() {
+            return new ReplicaAppendEvent();
+        }
+
+        static void completeAppend(Object event, ReplicaId replicaId, long firstTransactionId, int batchSize) {
+            ((ReplicaAppendEvent) event).complete(
+                replicaId.partitionId, replicaId.storageNodeConnectString, firstTransactionId, batchSize
+            );
+        }
+
+        static Object beginCatchUp() {
+            return new ReplicaCatchUpEvent();
+        }
+
+        static void completeCatchUp(Object event, ReplicaId replicaId, long firstTransactionId, long lastTransactionId) {
+            ((ReplicaCatchUpEvent) event).complete(
+                replicaId.partitionId, replicaId.storageNodeConnectString, firstTransactionId, lastTransactionId
+            );
+        }
+    }
+
 }
@@ -1,6 +1,7 @@
 package com.wepay.waltz.store.internal;
 
 import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.store.AppendTrace;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -15,6 +16,7 @@ public class StoreAppendRequest {
     public final int header;
     public final byte[] data;
     public final int checksum;
+    public final AppendTrace trace;
 
     private final LongConsumer callback;
     private final AtomicBoolean completed = new AtomicBoolean(false);
@@ -27,12 +29,26 @@ public class StoreAppendRequest {
      * @param checksum The checksum.
      * @param callback The callback.
      */
-    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "internal class")
     public StoreAppendRequest(ReqId reqId, int header, byte[] data, int checksum, LongConsumer callback) {
+        this(reqId, header, data, checksum, null, callback);
+    }
+
+    /**
+     * Class constructor.
+     * @param reqId The request Id.
+     * @param header The header.
+     * @param data The transaction data.
+     * @param checksum The checksum.
+     * @param trace The {@link AppendTrace} of the request, or {@code null} if the request is not traced.
+     * @param callback The callback.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "internal class")
+    public StoreAppendRequest(ReqId reqId, int header, byte[] data, int checksum, AppendTrace trace, LongConsumer callback) {
         this.reqId = reqId;
         this.header = header;
         this.data = data;
         this.checksum = checksum;
+        this.trace = trace;
         this.callback = callback;
     }
 
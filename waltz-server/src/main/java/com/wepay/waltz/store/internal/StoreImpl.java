@@ -93,7 +93,7 @@ public class StoreImpl implements Store {
                 new StoreSessionManager(
                     partitionId,
                     generation,
-                    (int) config.get(WaltzServerConfig.MAX_BATCH_SIZE),
+                    AppendBatchPolicy.forPartition(config, partitionId),
                     replicaSessionManager,
                     zkClient,
                     znode
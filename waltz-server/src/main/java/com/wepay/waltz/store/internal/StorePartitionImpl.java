@@ -6,6 +6,7 @@ import com.wepay.waltz.common.message.RecordHeader;
 import com.wepay.waltz.common.message.ReqId;
 import com.wepay.waltz.common.util.BackoffTimer;
 import com.wepay.waltz.server.WaltzServerConfig;
+import com.wepay.waltz.store.AppendTrace;
 import com.wepay.waltz.store.StorePartition;
 import com.wepay.waltz.store.exception.RecoveryFailedException;
 import com.wepay.waltz.store.exception.SessionClosedException;
@@ -75,7 +76,12 @@ public class StorePartitionImpl implements StorePartition {
 
     @Override
     public void append(ReqId reqId, int header, byte[] data, int checksum, LongConsumer onCompletion) throws StoreException {
-        StoreAppendRequest request = new StoreAppendRequest(reqId, header, data, checksum, onCompletion);
+        append(reqId, header, data, checksum, null, onCompletion);
+    }
+
+    @Override
+    public void append(ReqId reqId, int header, byte[] data, int checksum, AppendTrace trace, LongConsumer onCompletion) throws StoreException {
+        StoreAppendRequest request = new StoreAppendRequest(reqId, header, data, checksum, trace, onCompletion);
 
         long retryInterval = initialRetryInterval;
 
@@ -123,6 +129,27 @@ public class StorePartitionImpl implements StorePartition {
         throw new StorePartitionClosedException();
     }
 
+    @Override
+    public ArrayList<Record> getRecordList(long transactionId, int maxNumRecords) throws StoreException {
+        long retryInterval = initialRetryInterval;
+
+        while (running) {
+            try {
+                StoreSession session = storeSessionManager.getStoreSession();
+                return session.getRecordList(transactionId, maxNumRecords);
+
+            } catch (SessionClosedException ex) {
+                // Retry
+            } catch (StoreSessionManagerException ex) {
+                throw new StorePartitionClosedException();
+            } catch (RecoveryFailedException ex) {
+                logger.warn("recovery failed, retrying...", ex);
+            }
+            retryInterval = backoffTimer.backoff(retryInterval);
+        }
+        throw new StorePartitionClosedException();
+    }
+
     @Override
     public RecordHeader getRecordHeader(long transactionId) throws StoreException {
         long retryInterval = initialRetryInterval;
@@ -1,10 +1,16 @@
 package com.wepay.waltz.store.internal;
 
+import com.wepay.riff.metrics.core.Histogram;
+import com.wepay.riff.metrics.core.MetricGroup;
+import com.wepay.riff.metrics.core.MetricRegistry;
 import com.wepay.riff.util.Logging;
 import com.wepay.riff.util.RepeatingTask;
 import com.wepay.riff.util.RequestQueue;
+import com.wepay.waltz.common.jfr.JfrSupport;
+import com.wepay.waltz.common.jfr.StoreAppendEvent;
 import com.wepay.waltz.common.message.Record;
 import com.wepay.waltz.common.message.RecordHeader;
+import com.wepay.waltz.store.AppendTrace;
 import com.wepay.waltz.store.exception.GenerationMismatchException;
 import com.wepay.waltz.store.exception.RecoveryFailedException;
 import com.wepay.waltz.store.exception.ReplicaSessionException;
@@ -17,6 +23,8 @@ import org.slf4j.Logger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
 
 /**
  * Implements {@link StoreSession}.
@@ -24,12 +32,17 @@ import java.util.concurrent.LinkedBlockingDeque;
 public class StoreSessionImpl implements StoreSession {
 
     private static final Logger logger = Logging.getLogger(StoreSessionImpl.class);
+    private static final MetricRegistry REGISTRY = MetricRegistry.getInstance();
+
+    static final String BATCH_SIZE_HISTOGRAM = "append-batch-size";
 
     public final int generation;
     public final int partitionId;
     public final long sessionId;
 
-    private final int maxBatchSize;
+    private final AppendBatchPolicy batchPolicy;
+    private final BatchWindow batchWindow;
+    private final Histogram batchSizeHistogram;
     private final int numReplicas;
     private final int quorum;
     private final ArrayList<ReplicaSession> replicaSessions;
@@ -41,6 +54,9 @@ public class StoreSessionImpl implements StoreSession {
 
     private int numPending = 0;
     private List<StoreAppendRequest> pendingAppendRequests = null;
+    // Requests dequeued but left out of the last batch because of the batch size limit
+    private List<StoreAppendRequest> carryOverAppendRequests = null;
+    private boolean lingering = false;
 
     private volatile RecoveryManager recoveryManager;
     private volatile long lowWaterMark = Long.MIN_VALUE;
@@ -65,11 +81,35 @@ public class StoreSessionImpl implements StoreSession {
         final ArrayList<ReplicaSession> replicaSessions,
         final ZooKeeperClient zkClient,
         final ZNode znode
+    ) {
+        this(partitionId, generation, sessionId, new AppendBatchPolicy(maxBatchSize), replicaSessions, zkClient, znode);
+    }
+
+    /**
+     * Class constructor.
+     * @param partitionId The partition Id.
+     * @param generation The generation number.
+     * @param sessionId The session Id.
+     * @param batchPolicy The batching policy of {@link StoreAppendRequest}s.
+     * @param replicaSessions List of {@link ReplicaSession}s.
+     * @param zkClient The ZooKeeperClient used in Waltz cluster.
+     * @param znode Path to the znode.
+     */
+    public StoreSessionImpl(
+        final int partitionId,
+        final int generation,
+        final long sessionId,
+        final AppendBatchPolicy batchPolicy,
+        final ArrayList<ReplicaSession> replicaSessions,
+        final ZooKeeperClient zkClient,
+        final ZNode znode
     ) {
         this.generation = generation;
         this.partitionId = partitionId;
         this.sessionId = sessionId;
-        this.maxBatchSize = maxBatchSize;
+        this.batchPolicy = batchPolicy;
+        this.batchWindow = new BatchWindow(batchPolicy);
+        this.batchSizeHistogram = REGISTRY.histogram(metricsGroup(partitionId), BATCH_SIZE_HISTOGRAM);
         this.numReplicas = replicaSessions.size();
         this.quorum = this.numReplicas / 2 + 1;
         this.replicaSessions = replicaSessions;
@@ -169,7 +209,7 @@ public class StoreSessionImpl implements StoreSession {
                 }
 
                 // Wait until the queue has enough space.
-                while (requestQueue.size() > maxBatchSize * 2) {
+                while (requestQueue.size() > batchPolicy.maxBatchSize * 2) {
                     try {
                         wait();
                     } catch (InterruptedException ex) {
@@ -180,8 +220,19 @@ public class StoreSessionImpl implements StoreSession {
                     }
                 }
 
+                // Stamp before enqueuing, since the request may be dequeued by the store session task right away
+                if (request.trace != null) {
+                    request.trace.storeEnqueued();
+                }
+
                 if (requestQueue.enqueue(request)) {
                     numPending++;
+                    batchWindow.arrived(System.nanoTime());
+
+                    if (lingering) {
+                        // wake up the store session task waiting for more requests
+                        notifyAll();
+                    }
                 }
 
             } else {
@@ -208,6 +259,11 @@ public class StoreSessionImpl implements StoreSession {
                 resolveAppendRequests(highWaterMark);
 
                 pendingAppendRequests = requestQueue.toList();
+                if (carryOverAppendRequests != null) {
+                    carryOverAppendRequests.addAll(pendingAppendRequests);
+                    pendingAppendRequests = carryOverAppendRequests;
+                    carryOverAppendRequests = null;
+                }
                 resolveAppendRequests(highWaterMark);
 
                 // wake up a flushing thread
@@ -338,9 +394,12 @@ public class StoreSessionImpl implements StoreSession {
 
     private void doAppend() {
         synchronized (requestQueueProcessingLock) {
-            List<StoreAppendRequest> batch = requestQueue.dequeue(maxBatchSize);
+            List<StoreAppendRequest> batch = nextBatch();
 
             if (batch != null && batch.size() > 0) {
+                Object event = JfrSupport.isEnabled() ? StoreAppendEvents.begin() : null;
+                long firstTransactionId = nextTransactionId;
+
                 synchronized (this) {
                     // Bookkeeping the pending requests
                     if (pendingAppendRequests == null) {
@@ -357,11 +416,18 @@ public class StoreSessionImpl implements StoreSession {
                 }
                 Voting voting = new Voting(quorum, numVoters);
 
+                stampTraces(batch, AppendTrace::dispatched);
+
                 for (ReplicaSession replicaSession : replicaSessions) {
                     replicaSession.append(nextTransactionId, batch, voting);
                 }
 
                 if (voting.await()) {
+                    stampTraces(batch, AppendTrace::quorumReached);
+                    if (event != null) {
+                        StoreAppendEvents.complete(event, partitionId, firstTransactionId, batch.size(), true);
+                    }
+
                     // Transactions succeeded. commit all transactions.
                     resolveAppendRequests(Long.MAX_VALUE);
 
@@ -370,6 +436,10 @@ public class StoreSessionImpl implements StoreSession {
                         close();
                     }
                 } else {
+                    if (event != null) {
+                        StoreAppendEvents.complete(event, partitionId, firstTransactionId, batch.size(), false);
+                    }
+
                     // Transactions failed. Close the session so that no one can write a transaction using this session.
                     // Transactions will be resolved when the next session is started.
                     close();
@@ -379,6 +449,90 @@ public class StoreSessionImpl implements StoreSession {
 
     }
 
+    // Builds the next batch. Must be called while holding requestQueueProcessingLock. Package private for testing.
+    List<StoreAppendRequest> nextBatch() {
+        List<StoreAppendRequest> batch = carryOverAppendRequests;
+        carryOverAppendRequests = null;
+
+        if (batch == null) {
+            batch = requestQueue.dequeue(batchPolicy.maxBatchSize);
+
+            if (batch == null || batch.isEmpty()) {
+                return batch;
+            }
+        }
+
+        // Wait for more requests if the batch is expected to fill up soon
+        long lingerNanos = batchWindow.lingerNanos(batch.size());
+        if (lingerNanos > 0) {
+            long deadline = System.nanoTime() + lingerNanos;
+
+            synchronized (this) {
+                lingering = true;
+                try {
+                    while (running && batch.size() + requestQueue.size() < batchPolicy.maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        try {
+                            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                        } catch (InterruptedException ex) {
+                            Thread.interrupted();
+                        }
+                    }
+                } finally {
+                    lingering = false;
+                }
+            }
+
+            int numMore = Math.min(requestQueue.size(), batchPolicy.maxBatchSize - batch.size());
+            if (numMore > 0) {
+                List<StoreAppendRequest> more = requestQueue.dequeue(numMore);
+                if (more != null && !more.isEmpty()) {
+                    batch = new ArrayList<>(batch);
+                    batch.addAll(more);
+                }
+            }
+        }
+
+        // Bound the total data size. A batch has at least one request.
+        long batchBytes = 0L;
+        int size = 0;
+        while (size < batch.size()) {
+            batchBytes += batch.get(size).data.length;
+            if (size > 0 && batchBytes > batchPolicy.maxBatchBytes) {
+                break;
+            }
+            size++;
+        }
+        if (size < batch.size()) {
+            carryOverAppendRequests = new ArrayList<>(batch.subList(size, batch.size()));
+            batch = new ArrayList<>(batch.subList(0, size));
+        }
+
+        batchSizeHistogram.update(batch.size());
+
+        return batch;
+    }
+
+    // Stamps the current time on the traces of sampled requests in the batch
+    private static void stampTraces(List<StoreAppendRequest> batch, ObjLongConsumer<AppendTrace> stamp) {
+        long now = 0L;
+        for (StoreAppendRequest request : batch) {
+            if (request.trace != null) {
+                if (now == 0L) {
+                    now = System.nanoTime();
+                }
+                stamp.accept(request.trace, now);
+            }
+        }
+    }
+
+    static String metricsGroup(int partitionId) {
+        return String.format("%s.partition-%d", MetricGroup.WALTZ_SERVER_METRIC_GROUP, partitionId);
+    }
+
     private class StoreSessionTask extends RepeatingTask {
 
         StoreSessionTask() {
@@ -398,6 +552,20 @@ public class StoreSessionImpl implements StoreSession {
 
     }
 
+    /**
+     * Refers to {@link StoreAppendEvent}, which requires JFR. This class is loaded only when
+     * {@link JfrSupport#isEnabled()} is {@code true}, so that the server runs on JDKs without JFR.
+     */
+    private static final class StoreAppendEvents {
+        static Object begin() {
+            return new StoreAppendEvent();
+        }
+
+        static void complete(Object event, int partitionId, long firstTransactionId, int batchSize, boolean committed) {
+            ((StoreAppendEvent) event).complete(partitionId, firstTransactionId, batchSize, committed);
+        }
+    }
+
     private interface ValueGetter<T> {
 
         T getValue(ReplicaSession replicaSession) throws ReplicaSessionException;
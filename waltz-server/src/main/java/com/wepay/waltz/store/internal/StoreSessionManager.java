@@ -1,5 +1,6 @@
 package com.wepay.waltz.store.internal;
 
+import com.wepay.riff.metrics.core.MetricRegistry;
 import com.wepay.riff.util.Logging;
 import com.wepay.waltz.common.util.BackoffTimer;
 import com.wepay.waltz.store.exception.GenerationMismatchException;
@@ -41,7 +42,7 @@ public class StoreSessionManager {
     private final AtomicInteger generation;
     private volatile boolean healthy = true;
     private volatile StoreSession currentSession;
-    private final int maxBatchSize;
+    private final AppendBatchPolicy batchPolicy;
 
     /**
      * Class constructor.
@@ -59,10 +60,30 @@ public class StoreSessionManager {
         final ReplicaSessionManager replicaSessionManager,
         final ZooKeeperClient zkClient,
         final ZNode znode
+    ) {
+        this(partitionId, generation, new AppendBatchPolicy(maxBatchSize), replicaSessionManager, zkClient, znode);
+    }
+
+    /**
+     * Class constructor.
+     * @param partitionId The partition Id.
+     * @param generation The generation number.
+     * @param batchPolicy The batching policy in {@link StoreSessionImpl}.
+     * @param replicaSessionManager The {@link ReplicaSessionManager}.
+     * @param zkClient The Zoo Keeper Client used in the Waltz cluster.
+     * @param znode Path to the znode.
+     */
+    public StoreSessionManager(
+        final int partitionId,
+        final int generation,
+        final AppendBatchPolicy batchPolicy,
+        final ReplicaSessionManager replicaSessionManager,
+        final ZooKeeperClient zkClient,
+        final ZNode znode
     ) {
         this.partitionId = partitionId;
         this.generation = new AtomicInteger(generation);
-        this.maxBatchSize = maxBatchSize;
+        this.batchPolicy = batchPolicy;
         this.zkClient = zkClient;
         this.znode = znode;
         this.replicaSessionManager = replicaSessionManager;
@@ -82,6 +103,7 @@ public class StoreSessionManager {
             }
             healthy = false;
             backoffTimer.close();
+            MetricRegistry.getInstance().remove(StoreSessionImpl.metricsGroup(partitionId), StoreSessionImpl.BATCH_SIZE_HISTOGRAM);
         }
     }
 
@@ -193,7 +215,7 @@ public class StoreSessionManager {
 
                 // Create a new session
                 ArrayList<ReplicaSession> replicaSessions = replicaSessionManager.getReplicaSessions(partitionId, sessionId);
-                session = new StoreSessionImpl(partitionId, generation, sessionId, maxBatchSize, replicaSessions, zkClient, znode);
+                session = new StoreSessionImpl(partitionId, generation, sessionId, batchPolicy, replicaSessions, zkClient, znode);
                 session.open();
                 healthy = true;
 
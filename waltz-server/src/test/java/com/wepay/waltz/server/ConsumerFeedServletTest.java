@@ -0,0 +1,63 @@
+package com.wepay.waltz.server;
+
+import com.wepay.waltz.server.internal.ConsumerFeedStats;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConsumerFeedServletTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReport() {
+        List<ConsumerFeedStats.Snapshot> snapshots = Arrays.asList(
+            snapshot(0, 1, ConsumerFeedStats.Mode.REALTIME, 10L, 0L),
+            snapshot(0, 2, ConsumerFeedStats.Mode.CATCHUP, 5000L, 0L),
+            snapshot(1, 1, ConsumerFeedStats.Mode.PAUSED, 10L, 300L),
+            snapshot(1, 2, ConsumerFeedStats.Mode.REALTIME, 0L, 0L)
+        );
+
+        Map<String, Object> report = ConsumerFeedServlet.report(snapshots, 2);
+
+        // The slowest consumers are ordered by lag, then by paused time
+        List<Map<String, Object>> slowest = (List<Map<String, Object>>) report.get("slowest-consumers");
+        assertEquals(2, slowest.size());
+        assertEquals(0, slowest.get(0).get("partition-id"));
+        assertEquals(2, slowest.get(0).get("client-id"));
+        assertEquals(1, slowest.get(1).get("partition-id"));
+        assertEquals(1, slowest.get(1).get("client-id"));
+
+        Map<String, Map<String, Object>> partitions = (Map<String, Map<String, Object>>) report.get("partitions");
+        assertEquals(2, partitions.size());
+        assertEquals(2, partitions.get("0").get("consumers"));
+        assertEquals(1, partitions.get("0").get("catchup-consumers"));
+        assertEquals(1, partitions.get("0").get("realtime-consumers"));
+        assertEquals(5000L, partitions.get("0").get("max-lag"));
+        assertEquals(5010L, partitions.get("0").get("total-lag"));
+        assertEquals(1, partitions.get("1").get("paused-consumers"));
+        assertEquals(300L, partitions.get("1").get("paused-ms"));
+
+        Map<String, Map<String, Object>> clients = (Map<String, Map<String, Object>>) report.get("clients");
+        assertEquals(2, clients.size());
+        assertEquals(2, clients.get("1").get("consumers"));
+        assertEquals(10L, clients.get("1").get("max-lag"));
+        assertEquals(20L, clients.get("1").get("total-lag"));
+        assertEquals(300L, clients.get("1").get("paused-ms"));
+        assertEquals(5000L, clients.get("2").get("max-lag"));
+        assertEquals(2.0, (double) clients.get("2").get("transactions-per-sec"), 0.0);
+
+        // Top larger than the number of consumers
+        assertEquals(4, ((List<?>) ConsumerFeedServlet.report(snapshots, 100).get("slowest-consumers")).size());
+        assertTrue(((List<?>) ConsumerFeedServlet.report(snapshots, 0).get("slowest-consumers")).isEmpty());
+    }
+
+    private static ConsumerFeedStats.Snapshot snapshot(int partitionId, int clientId, ConsumerFeedStats.Mode mode, long lag, long pausedMillis) {
+        return new ConsumerFeedStats.Snapshot(partitionId, clientId, mode, 100L, lag, 100L, 1000L, 1.0, 10.0, pausedMillis);
+    }
+
+}
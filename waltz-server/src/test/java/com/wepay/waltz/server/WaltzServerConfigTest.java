@@ -35,10 +35,16 @@ public class WaltzServerConfigTest {
         map.put(WaltzServerConfig.FEED_CACHE_SIZE, "1000");
         map.put(WaltzServerConfig.MIN_FETCH_SIZE, "50");
         map.put(WaltzServerConfig.REALTIME_THRESHOLD, "500");
+        map.put(WaltzServerConfig.FEED_LOCK_CACHE_SIZE, "1000");
+        map.put(WaltzServerConfig.APPEND_TRACE_SAMPLE_INTERVAL, "10");
+        map.put(WaltzServerConfig.FLIGHT_RECORDING_ENABLED, "true");
 
         map.put(WaltzServerConfig.MAX_BATCH_SIZE, "500");
+        map.put(WaltzServerConfig.MAX_BATCH_BYTES, "65536");
+        map.put(WaltzServerConfig.BATCH_LINGER_TIME, "5");
         map.put(WaltzServerConfig.INITIAL_RETRY_INTERVAL, "30");
         map.put(WaltzServerConfig.MAX_RETRY_INTERVAL, "30000");
+        map.put(WaltzServerConfig.CONNECTIONS_PER_STORAGE_NODE, "4");
 
         WaltzServerConfig config = new WaltzServerConfig(map);
         Object value;
@@ -75,10 +81,30 @@ public class WaltzServerConfigTest {
         assertTrue(value instanceof Integer);
         assertEquals(500, value);
 
+        value = config.get(WaltzServerConfig.FEED_LOCK_CACHE_SIZE);
+        assertTrue(value instanceof Integer);
+        assertEquals(1000, value);
+
+        value = config.get(WaltzServerConfig.APPEND_TRACE_SAMPLE_INTERVAL);
+        assertTrue(value instanceof Integer);
+        assertEquals(10, value);
+
+        value = config.get(WaltzServerConfig.FLIGHT_RECORDING_ENABLED);
+        assertTrue(value instanceof Boolean);
+        assertEquals(true, value);
+
         value = config.get(WaltzServerConfig.MAX_BATCH_SIZE);
         assertTrue(value instanceof Integer);
         assertEquals(500, value);
 
+        value = config.get(WaltzServerConfig.MAX_BATCH_BYTES);
+        assertTrue(value instanceof Integer);
+        assertEquals(65536, value);
+
+        value = config.get(WaltzServerConfig.BATCH_LINGER_TIME);
+        assertTrue(value instanceof Integer);
+        assertEquals(5, value);
+
         value = config.get(WaltzServerConfig.INITIAL_RETRY_INTERVAL);
         assertTrue(value instanceof Long);
         assertEquals(30L, value);
@@ -86,6 +112,10 @@ public class WaltzServerConfigTest {
         value = config.get(WaltzServerConfig.MAX_RETRY_INTERVAL);
         assertTrue(value instanceof Long);
         assertEquals(30000L, value);
+
+        value = config.get(WaltzServerConfig.CONNECTIONS_PER_STORAGE_NODE);
+        assertTrue(value instanceof Integer);
+        assertEquals(4, value);
     }
 
     @Test
@@ -136,10 +166,30 @@ public class WaltzServerConfigTest {
         assertTrue(value instanceof Integer);
         assertEquals(WaltzServerConfig.DEFAULT_REALTIME_THRESHOLD, value);
 
+        value = config.get(WaltzServerConfig.FEED_LOCK_CACHE_SIZE);
+        assertTrue(value instanceof Integer);
+        assertEquals(WaltzServerConfig.DEFAULT_FEED_LOCK_CACHE_SIZE, value);
+
+        value = config.get(WaltzServerConfig.APPEND_TRACE_SAMPLE_INTERVAL);
+        assertTrue(value instanceof Integer);
+        assertEquals(WaltzServerConfig.DEFAULT_APPEND_TRACE_SAMPLE_INTERVAL, value);
+
+        value = config.get(WaltzServerConfig.FLIGHT_RECORDING_ENABLED);
+        assertTrue(value instanceof Boolean);
+        assertEquals(WaltzServerConfig.DEFAULT_FLIGHT_RECORDING_ENABLED, value);
+
         value = config.get(WaltzServerConfig.MAX_BATCH_SIZE);
         assertTrue(value instanceof Integer);
         assertEquals(WaltzServerConfig.DEFAULT_MAX_BATCH_SIZE, value);
 
+        value = config.get(WaltzServerConfig.MAX_BATCH_BYTES);
+        assertTrue(value instanceof Integer);
+        assertEquals(WaltzServerConfig.DEFAULT_MAX_BATCH_BYTES, value);
+
+        value = config.get(WaltzServerConfig.BATCH_LINGER_TIME);
+        assertTrue(value instanceof Integer);
+        assertEquals(WaltzServerConfig.DEFAULT_BATCH_LINGER_TIME, value);
+
         value = config.get(WaltzServerConfig.INITIAL_RETRY_INTERVAL);
         assertTrue(value instanceof Long);
         assertEquals(WaltzServerConfig.DEFAULT_INITIAL_RETRY_INTERVAL, value);
@@ -147,6 +197,34 @@ public class WaltzServerConfigTest {
         value = config.get(WaltzServerConfig.MAX_RETRY_INTERVAL);
         assertTrue(value instanceof Long);
         assertEquals(WaltzServerConfig.DEFAULT_MAX_RETRY_INTERVAL, value);
+
+        value = config.get(WaltzServerConfig.CONNECTIONS_PER_STORAGE_NODE);
+        assertTrue(value instanceof Integer);
+        assertEquals(WaltzServerConfig.DEFAULT_CONNECTIONS_PER_STORAGE_NODE, value);
+    }
+
+    @Test
+    public void testPartitionOverrides() {
+        Map<Object, Object> map = new HashMap<>();
+        map.put(WaltzServerConfig.MAX_BATCH_SIZE, "50");
+        map.put(WaltzServerConfig.MAX_BATCH_SIZE + ".3", "20");
+        map.put(WaltzServerConfig.BATCH_LINGER_TIME + ".3", 2);
+
+        WaltzServerConfig config = new WaltzServerConfig(map);
+
+        assertEquals(50, config.getPartitionInt(WaltzServerConfig.MAX_BATCH_SIZE, 0));
+        assertEquals(20, config.getPartitionInt(WaltzServerConfig.MAX_BATCH_SIZE, 3));
+        assertEquals(WaltzServerConfig.DEFAULT_BATCH_LINGER_TIME, config.getPartitionInt(WaltzServerConfig.BATCH_LINGER_TIME, 0));
+        assertEquals(2, config.getPartitionInt(WaltzServerConfig.BATCH_LINGER_TIME, 3));
+
+        map.put(WaltzServerConfig.MAX_BATCH_BYTES + ".1", "abc");
+        config = new WaltzServerConfig(map);
+        try {
+            config.getPartitionInt(WaltzServerConfig.MAX_BATCH_BYTES, 1);
+            fail();
+        } catch (ConfigException ex) {
+            // Ignore
+        }
     }
 
     @Test
@@ -0,0 +1,34 @@
+package com.wepay.waltz.server.internal;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FeedLockCacheTest {
+
+    @Test
+    public void test() {
+        FeedLockCache cache = new FeedLockCache(10);
+
+        assertNull(cache.get(0L));
+
+        for (long transactionId = 0; transactionId < 15; transactionId++) {
+            cache.add(transactionId, new int[] {(int) transactionId}, new int[] {-1});
+        }
+
+        // Old entries are overwritten
+        for (long transactionId = 0; transactionId < 5; transactionId++) {
+            assertNull(cache.get(transactionId));
+        }
+        for (long transactionId = 5; transactionId < 15; transactionId++) {
+            assertTrue(Arrays.equals(new int[] {(int) transactionId, -1}, cache.get(transactionId)));
+        }
+
+        // Not committed yet
+        assertNull(cache.get(15L));
+    }
+
+}
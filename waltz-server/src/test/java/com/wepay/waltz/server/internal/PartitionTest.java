@@ -1,6 +1,7 @@
 package com.wepay.waltz.server.internal;
 
 import com.wepay.riff.network.Message;
+import com.wepay.waltz.common.jfr.JfrSupport;
 import com.wepay.waltz.common.message.AppendRequest;
 import com.wepay.waltz.common.message.FeedData;
 import com.wepay.waltz.common.message.FeedRequest;
@@ -8,6 +9,9 @@ import com.wepay.waltz.common.message.MessageType;
 import com.wepay.waltz.common.message.MountRequest;
 import com.wepay.waltz.common.message.MountResponse;
 import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.common.message.TransactionDataListRequest;
+import com.wepay.waltz.common.message.TransactionDataListResponse;
+import com.wepay.waltz.common.message.TransactionDataResponse;
 import com.wepay.waltz.common.util.Utils;
 import com.wepay.waltz.server.WaltzServerConfig;
 import com.wepay.waltz.store.exception.StoreException;
@@ -19,6 +23,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.Random;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -42,6 +47,7 @@ public class PartitionTest {
     private static final int TRANSACTION_CACHE_SIZE = 33554432; // 32MB
     private static final int FEED_CACHE_SIZE = 33554432; // 32MB
     private static final int DEFAULT_GENERATION = 0;
+    private static final long PAUSE_MILLIS = 50L;
 
     private final AtomicLong seqNumGenerator = new AtomicLong(0);
     private final Random rand = new Random();
@@ -161,6 +167,54 @@ public class PartitionTest {
         }
     }
 
+    @Test
+    public void testWithoutFlightRecorderEvents() throws Exception {
+        // Appends, lock failures and feeds run the way they run on a JDK without JFR
+        JfrSupport.setEnabled(false);
+        Partition partition = new Partition(PARTITION_ID, storePartition, feedCachePartition, fetcher, config);
+        partition.open();
+        try {
+            int clientId1 = 0;
+            int clientId2 = 1;
+            int[] lock = new int[] {1};
+            Message msg;
+
+            MockPartitionClient partitionClient1 = new MockPartitionClient(seqNumGenerator.getAndIncrement(), clientId1);
+            partition.setPartitionClient(partitionClient1, DEFAULT_GENERATION);
+            partition.receiveMessage(new MountRequest(reqId(clientId1), -1L, partitionClient1.seqNum()), partitionClient1);
+
+            msg = partitionClient1.nextMessage(TIMEOUT);
+            assertNotNull(msg);
+            assertEquals(MessageType.MOUNT_RESPONSE, msg.type());
+
+            append(partition, partitionClient1, NUM_TXN);
+            Uninterruptibly.run(() -> storePartition.await(NUM_TXN - 1, TIMEOUT));
+
+            // The second append of the lock fails since the client high-water mark is behind the first one
+            for (int i = 0; i < 2; i++) {
+                byte[] data = data();
+                partition.receiveMessage(
+                    new AppendRequest(reqId(clientId1), NUM_TXN - 1, lock, NO_LOCK, NO_LOCK, HEADER, data, Utils.checksum(data)),
+                    partitionClient1
+                );
+                Uninterruptibly.run(() -> storePartition.await(NUM_TXN, TIMEOUT));
+            }
+            msg = partitionClient1.nextMessage(TIMEOUT);
+            assertNotNull(msg);
+            assertEquals(MessageType.LOCK_FAILURE, msg.type());
+
+            MockPartitionClient partitionClient2 = new MockPartitionClient(seqNumGenerator.getAndIncrement(), clientId2);
+            partition.setPartitionClient(partitionClient2, DEFAULT_GENERATION);
+            partition.receiveMessage(new MountRequest(reqId(clientId2), -1L, partitionClient2.seqNum()), partitionClient2);
+
+            assertEquals(NUM_TXN + 1, readFeedData(partitionClient2, NUM_TXN + 1, TIMEOUT));
+
+        } finally {
+            partition.close();
+            JfrSupport.setEnabled(JfrSupport.AVAILABLE);
+        }
+    }
+
     @Test
     public void testFeedMinFetchSize() throws Exception {
         Partition partition = new Partition(PARTITION_ID, storePartition, feedCachePartition, fetcher, config);
@@ -268,6 +322,123 @@ public class PartitionTest {
         }
     }
 
+    @Test
+    public void testFeedLockHashes() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(WaltzServerConfig.FEED_LOCK_CACHE_SIZE, "10");
+        WaltzServerConfig config = new WaltzServerConfig(props);
+        Partition partition = new Partition(PARTITION_ID, storePartition, feedCachePartition, fetcher, config);
+        partition.open();
+        try {
+            int clientId = 0;
+            Message msg;
+
+            MockPartitionClient partitionClient = new MockPartitionClient(seqNumGenerator.getAndIncrement(), clientId);
+            partition.setPartitionClient(partitionClient, DEFAULT_GENERATION);
+            partition.receiveMessage(
+                new MountRequest(reqId(clientId), -1L, partitionClient.seqNum()),
+                partitionClient
+            );
+
+            msg = partitionClient.nextMessage(TIMEOUT);
+            assertNotNull(msg);
+            assertEquals(MessageType.MOUNT_RESPONSE, msg.type());
+
+            // Append transactions with write, read and append locks
+            for (int i = 0; i < 3; i++) {
+                byte[] data = data();
+                partition.receiveMessage(
+                    new AppendRequest(reqId(clientId), i - 1, new int[] {i}, new int[] {i + 10}, new int[] {i + 20}, HEADER, data, Utils.checksum(data)),
+                    partitionClient
+                );
+            }
+
+            Uninterruptibly.run(() -> storePartition.await(2, TIMEOUT));
+
+            partition.receiveMessage(new FeedRequest(reqId(clientId), -1L), partitionClient);
+
+            // Feed data carry write and append lock hashes
+            for (int i = 0; i < 3; i++) {
+                msg = partitionClient.nextMessage(TIMEOUT);
+                assertNotNull(msg);
+                assertEquals(MessageType.FEED_DATA, msg.type());
+                assertTrue(Arrays.equals(new int[] {i, i + 20}, ((FeedData) msg).lockHashes));
+            }
+
+        } finally {
+            partition.close();
+        }
+    }
+
+    @Test
+    public void testConsumerFeedStats() throws Exception {
+        Partition partition = new Partition(PARTITION_ID, storePartition, feedCachePartition, fetcher, config);
+        partition.open();
+        try {
+            int clientId = 0;
+            int numTransactions = (int) partition.minFetchSize * 2;
+            Message msg;
+
+            MockPartitionClient partitionClient = new MockPartitionClient(seqNumGenerator.getAndIncrement(), clientId);
+            partition.setPartitionClient(partitionClient, DEFAULT_GENERATION);
+            partition.receiveMessage(
+                new MountRequest(reqId(clientId), -1L, partitionClient.seqNum()),
+                partitionClient
+            );
+
+            msg = partitionClient.nextMessage(TIMEOUT);
+            assertNotNull(msg);
+            assertEquals(MessageType.MOUNT_RESPONSE, msg.type());
+
+            // The client is up to date and has not requested a feed yet
+            assertTrue(partition.getConsumerFeedStats().isEmpty());
+
+            partition.receiveMessage(new FeedRequest(reqId(clientId), -1L), partitionClient);
+            append(partition, partitionClient, numTransactions);
+            Uninterruptibly.run(() -> storePartition.await(numTransactions - 1, TIMEOUT));
+
+            // Get the first batch. The client is behind by the second batch.
+            assertEquals(partition.minFetchSize, readFeedData(partitionClient, (int) partition.minFetchSize, TIMEOUT));
+            msg = partitionClient.nextMessage(TIMEOUT);
+            assertNotNull(msg);
+            assertEquals(MessageType.FEED_SUSPENDED, msg.type());
+
+            ConsumerFeedStats.Snapshot snapshot = awaitConsumerLag(partition, partition.minFetchSize);
+            assertEquals(PARTITION_ID, snapshot.partitionId);
+            assertEquals(clientId, snapshot.clientId);
+            assertEquals(ConsumerFeedStats.Mode.REALTIME, snapshot.mode);
+            assertEquals(partition.minFetchSize - 1, snapshot.highWaterMark);
+            assertEquals(partition.minFetchSize, snapshot.numTransactions);
+            assertTrue(snapshot.numBytes > 0);
+            assertEquals(0L, snapshot.pausedMillis);
+
+            // The feed is paused while the client is not writable
+            partitionClient.setWritable(false);
+            partition.receiveMessage(new FeedRequest(reqId(clientId), partition.minFetchSize - 1), partitionClient);
+            assertEquals(ConsumerFeedStats.Mode.PAUSED, partition.getConsumerFeedStats().get(0).mode);
+
+            Thread.sleep(PAUSE_MILLIS);
+            partitionClient.setWritable(true);
+            partition.resumePausedFeedContexts();
+
+            // Get the second batch
+            assertEquals(partition.minFetchSize, readFeedData(partitionClient, (int) partition.minFetchSize, TIMEOUT));
+
+            snapshot = awaitConsumerLag(partition, 0L);
+            assertEquals(ConsumerFeedStats.Mode.REALTIME, snapshot.mode);
+            assertEquals(numTransactions - 1, snapshot.highWaterMark);
+            assertEquals(numTransactions, snapshot.numTransactions);
+            assertTrue(snapshot.pausedMillis >= PAUSE_MILLIS);
+
+            // The stats are removed with the client
+            assertTrue(partition.removePartitionClient(partitionClient));
+            assertTrue(partition.getConsumerFeedStats().isEmpty());
+
+        } finally {
+            partition.close();
+        }
+    }
+
     @Test
     public void testFeedContextCleanUp() throws Exception {
         Partition partition = new Partition(PARTITION_ID, storePartition, feedCachePartition, fetcher, config);
@@ -566,6 +737,61 @@ public class PartitionTest {
         }
     }
 
+    @Test
+    public void testTransactionDataList() throws Exception {
+        Partition partition = new Partition(PARTITION_ID, storePartition, feedCachePartition, fetcher, config);
+        partition.open();
+        try {
+            int clientId = 0;
+            Message msg;
+
+            MockPartitionClient partitionClient = new MockPartitionClient(seqNumGenerator.getAndIncrement(), clientId);
+            partition.setPartitionClient(partitionClient, DEFAULT_GENERATION);
+            partition.receiveMessage(
+                new MountRequest(reqId(clientId), -1L, partitionClient.seqNum()),
+                partitionClient
+            );
+
+            msg = partitionClient.nextMessage(TIMEOUT);
+            assertNotNull(msg);
+            assertEquals(MessageType.MOUNT_RESPONSE, msg.type());
+
+            append(partition, partitionClient, NUM_TXN);
+
+            Uninterruptibly.run(() -> storePartition.await(NUM_TXN - 1, TIMEOUT));
+
+            // Request more transactions than stored
+            ReqId reqId = reqId(clientId);
+            partition.receiveMessage(new TransactionDataListRequest(reqId, 0L, NUM_TXN + 2), partitionClient);
+
+            do {
+                msg = partitionClient.nextMessage(TIMEOUT);
+                assertNotNull(msg);
+            } while (msg.type() != MessageType.TRANSACTION_DATA_LIST_RESPONSE);
+
+            TransactionDataListResponse response = (TransactionDataListResponse) msg;
+            assertEquals(reqId, response.reqId);
+            assertEquals(0L, response.transactionId);
+            assertEquals(NUM_TXN + 2, response.responses.size());
+
+            for (int i = 0; i < NUM_TXN + 2; i++) {
+                TransactionDataResponse dataResponse = response.responses.get(i);
+                assertEquals(i, dataResponse.transactionId);
+                if (i < NUM_TXN) {
+                    assertTrue(Arrays.equals(storePartition.getRecord(i).data, dataResponse.data));
+                    assertEquals(Utils.checksum(dataResponse.data), dataResponse.checksum);
+                    assertNull(dataResponse.exception);
+                } else {
+                    assertNull(dataResponse.data);
+                    assertNotNull(dataResponse.exception);
+                }
+            }
+
+        } finally {
+            partition.close();
+        }
+    }
+
     @Test
     public void testNewerClientReplacesOldClient() throws Exception {
         Partition partition = new Partition(PARTITION_ID, storePartition, feedCachePartition, fetcher, config);
@@ -633,6 +859,18 @@ public class PartitionTest {
         partition.flushAppendQueue();
     }
 
+    private ConsumerFeedStats.Snapshot awaitConsumerLag(Partition partition, long lag) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (true) {
+            ConsumerFeedStats.Snapshot snapshot = partition.getConsumerFeedStats().get(0);
+            if (snapshot.lag == lag || System.currentTimeMillis() > deadline) {
+                assertEquals(lag, snapshot.lag);
+                return snapshot;
+            }
+            Thread.sleep(10);
+        }
+    }
+
     private ReqId reqId(int clientId) {
         return new ReqId(clientId, 0, PARTITION_ID, seqNum.incrementAndGet());
     }
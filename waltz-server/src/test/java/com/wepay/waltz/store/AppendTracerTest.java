@@ -0,0 +1,79 @@
+package com.wepay.waltz.store;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class AppendTracerTest {
+
+    private static final String METRICS_GROUP = "waltz-server.append-tracer-test";
+
+    @Test
+    public void testSampling() {
+        AppendTracer tracer = new AppendTracer(METRICS_GROUP, 10);
+        try {
+            int numTraces = 0;
+            for (int i = 0; i < 100; i++) {
+                if (tracer.startTrace() != null) {
+                    numTraces++;
+                }
+            }
+            assertEquals(10, numTraces);
+        } finally {
+            tracer.close();
+        }
+
+        AppendTracer disabled = new AppendTracer(METRICS_GROUP, 0);
+        try {
+            for (int i = 0; i < 100; i++) {
+                assertNull(disabled.startTrace());
+            }
+        } finally {
+            disabled.close();
+        }
+    }
+
+    @Test
+    public void testRecording() {
+        AppendTracer tracer = new AppendTracer(METRICS_GROUP, 1);
+        try {
+            AppendTrace trace = tracer.startTrace();
+            assertNotNull(trace);
+
+            trace.dequeued();
+            trace.locked();
+            trace.storeEnqueued();
+            trace.dispatched(System.nanoTime());
+            trace.replicaAcked("localhost:6000", System.nanoTime());
+            trace.replicaAcked("localhost:6001", System.nanoTime());
+            trace.quorumReached(System.nanoTime());
+            trace.completed(true);
+
+            assertEquals(1, tracer.queueHistogram.getCount());
+            assertEquals(1, tracer.lockHistogram.getCount());
+            assertEquals(1, tracer.storeEnqueueHistogram.getCount());
+            assertEquals(1, tracer.batchHistogram.getCount());
+            assertEquals(1, tracer.quorumHistogram.getCount());
+            assertEquals(1, tracer.callbackHistogram.getCount());
+            assertEquals(1, tracer.totalHistogram.getCount());
+            assertEquals(1, tracer.replicaHistogram("localhost:6000").getCount());
+            assertEquals(1, tracer.replicaHistogram("localhost:6001").getCount());
+
+            // A request which is not committed is not recorded
+            trace = tracer.startTrace();
+            trace.dequeued();
+            trace.locked();
+            trace.storeEnqueued();
+            trace.dispatched(System.nanoTime());
+            trace.completed(false);
+
+            assertEquals(1, tracer.totalHistogram.getCount());
+
+        } finally {
+            tracer.close();
+        }
+    }
+
+}
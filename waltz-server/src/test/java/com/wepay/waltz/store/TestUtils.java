@@ -52,6 +52,15 @@ public final class TestUtils {
         return new ConnectionConfig(sslContext, key, numPartitions, 100, 100);
     }
 
+    public static ConnectionConfig makeConnectionConfig(
+        int numPartitions,
+        UUID key,
+        SslContext sslContext,
+        int numConnectionsPerNode
+    ) throws GeneralSecurityException, IOException {
+        return new ConnectionConfig(sslContext, key, numPartitions, 100, 100, numConnectionsPerNode);
+    }
+
     public static ReplicaAssignments makeReplicaAssignment(int numPartitions, List<String> connectStrings) {
         HashMap<String, int[]> assignments  = new HashMap<>();
 
@@ -0,0 +1,117 @@
+package com.wepay.waltz.store.internal;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchWindowTest {
+
+    private static final int MAX_BATCH_SIZE = 10;
+    private static final long MAX_LINGER_TIME = 5L;
+
+    @Test
+    public void testNoLinger() {
+        BatchWindow window = new BatchWindow(new AppendBatchPolicy(MAX_BATCH_SIZE));
+
+        long now = 0L;
+        for (int i = 0; i < 100; i++) {
+            window.arrived(now);
+            now += 1000L;
+        }
+
+        assertEquals(0L, window.lingerNanos(1));
+    }
+
+    @Test
+    public void testLightLoad() {
+        BatchWindow window = new BatchWindow(new AppendBatchPolicy(MAX_BATCH_SIZE, Integer.MAX_VALUE, MAX_LINGER_TIME));
+
+        // No history
+        assertEquals(0L, window.lingerNanos(1));
+
+        // Requests arrive less frequently than the max linger time
+        long now = 0L;
+        for (int i = 0; i < 100; i++) {
+            window.arrived(now);
+            now += TimeUnit.MILLISECONDS.toNanos(MAX_LINGER_TIME * 2);
+        }
+
+        assertEquals(0L, window.lingerNanos(1));
+    }
+
+    @Test
+    public void testHeavyLoad() {
+        BatchWindow window = new BatchWindow(new AppendBatchPolicy(MAX_BATCH_SIZE, Integer.MAX_VALUE, MAX_LINGER_TIME));
+        long maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(MAX_LINGER_TIME);
+        long interArrivalNanos = 100000L;
+
+        long now = 0L;
+        for (int i = 0; i < 100; i++) {
+            window.arrived(now);
+            now += interArrivalNanos;
+        }
+
+        // Wait for the time expected to fill the batch
+        assertEquals((double) (interArrivalNanos * (MAX_BATCH_SIZE - 1)), (double) window.lingerNanos(1), 10.0);
+        assertEquals((double) interArrivalNanos, (double) window.lingerNanos(MAX_BATCH_SIZE - 1), 10.0);
+
+        // Never wait when the batch is full
+        assertEquals(0L, window.lingerNanos(MAX_BATCH_SIZE));
+
+        // Bounded by the max linger time
+        interArrivalNanos = maxLingerNanos / 2;
+        for (int i = 0; i < 100; i++) {
+            window.arrived(now);
+            now += interArrivalNanos;
+        }
+        assertEquals(maxLingerNanos, window.lingerNanos(1));
+    }
+
+    @Test
+    public void testAdaptation() {
+        BatchWindow window = new BatchWindow(new AppendBatchPolicy(MAX_BATCH_SIZE, Integer.MAX_VALUE, MAX_LINGER_TIME));
+
+        long now = 0L;
+        for (int i = 0; i < 100; i++) {
+            window.arrived(now);
+            now += 100000L;
+        }
+        assertTrue(window.lingerNanos(1) > 0L);
+
+        // The load drops
+        for (int i = 0; i < 100; i++) {
+            window.arrived(now);
+            now += TimeUnit.MILLISECONDS.toNanos(MAX_LINGER_TIME * 2);
+        }
+        assertEquals(0L, window.lingerNanos(1));
+    }
+
+    @Test
+    public void testPolicyValidation() {
+        try {
+            new AppendBatchPolicy(0);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Ignore
+        }
+
+        try {
+            new AppendBatchPolicy(MAX_BATCH_SIZE, 0, MAX_LINGER_TIME);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Ignore
+        }
+
+        try {
+            new AppendBatchPolicy(MAX_BATCH_SIZE, Integer.MAX_VALUE, -1L);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Ignore
+        }
+    }
+
+}
@@ -8,6 +8,7 @@ import com.wepay.waltz.storage.WaltzStorageConfig;
 import com.wepay.waltz.storage.common.SessionInfo;
 import com.wepay.waltz.storage.exception.StorageRpcException;
 import com.wepay.waltz.store.TestUtils;
+import com.wepay.waltz.store.exception.ReplicaConnectionFactoryClosedException;
 import com.wepay.waltz.test.util.IntegrationTestHelper;
 import io.netty.handler.ssl.SslContext;
 import org.junit.After;
@@ -33,6 +34,8 @@ public class ReplicaConnectionImplTest {
 
     private IntegrationTestHelper helper;
     private ReplicaConnectionFactoryImpl connectionFactory;
+    private UUID key;
+    private SslContext sslContext;
 
     @Before
     public void setup() throws Exception {
@@ -49,8 +52,8 @@ public class ReplicaConnectionImplTest {
         helper.startWaltzStorage(true);
         helper.setWaltzStorageAssignment(true);
 
-        UUID key = helper.getClusterKey();
-        SslContext sslContext = Utils.getSslContext(helper.getSslConfigPath(), WaltzServerConfig.SERVER_SSL_CONFIG_PREFIX);
+        key = helper.getClusterKey();
+        sslContext = Utils.getSslContext(helper.getSslConfigPath(), WaltzServerConfig.SERVER_SSL_CONFIG_PREFIX);
         ConnectionConfig config = TestUtils.makeConnectionConfig(2, key, sslContext);
 
         String connectString = helper.getStorageConnectString();
@@ -356,6 +359,52 @@ public class ReplicaConnectionImplTest {
         }
     }
 
+    @Test
+    public void testStripedConnections() throws Exception {
+        assertEquals(0, ReplicaConnectionFactoryImpl.stripe(0, 1));
+        assertEquals(0, ReplicaConnectionFactoryImpl.stripe(5, 1));
+        assertEquals(0, ReplicaConnectionFactoryImpl.stripe(0, 2));
+        assertEquals(1, ReplicaConnectionFactoryImpl.stripe(1, 2));
+        assertEquals(1, ReplicaConnectionFactoryImpl.stripe(3, 2));
+
+        ConnectionConfig config = TestUtils.makeConnectionConfig(2, key, sslContext, 2);
+        ReplicaConnectionFactoryImpl stripedConnectionFactory =
+            new ReplicaConnectionFactoryImpl(helper.getStorageConnectString(), config);
+
+        try (ReplicaConnection replicaConnection0 = stripedConnectionFactory.get(0, 0);
+             ReplicaConnection replicaConnection1 = stripedConnectionFactory.get(1, 0)) {
+            replicaConnection0.lastSessionInfo();
+            replicaConnection1.lastSessionInfo();
+            replicaConnection0.setLowWaterMark(-1L);
+            replicaConnection1.setLowWaterMark(-1L);
+
+            ArrayList<Record> records0 = makeRecords(0, 30);
+            ArrayList<Record> records1 = makeRecords(0, 20);
+            replicaConnection0.appendRecords(records0);
+            replicaConnection1.appendRecords(records1);
+
+            assertEquals(records0.size() - 1, replicaConnection0.getMaxTransactionId());
+            assertEquals(records1.size() - 1, replicaConnection1.getMaxTransactionId());
+
+            for (Record record : records1) {
+                Record returnedRecord = replicaConnection1.getRecord(record.transactionId);
+
+                assertEquals(record.transactionId, returnedRecord.transactionId);
+                assertEquals(record.reqId, returnedRecord.reqId);
+                assertArrayEquals(record.data, returnedRecord.data);
+            }
+        } finally {
+            stripedConnectionFactory.close();
+        }
+
+        try {
+            stripedConnectionFactory.get(0, 1);
+            fail();
+        } catch (ReplicaConnectionFactoryClosedException ex) {
+            // OK
+        }
+    }
+
     private ArrayList<Record> makeRecords(long startTransactionId, long endTransactionId) {
         ArrayList<Record> records = new ArrayList<>();
         long transactionId = startTransactionId;
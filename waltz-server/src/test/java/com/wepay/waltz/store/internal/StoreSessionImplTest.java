@@ -1,5 +1,6 @@
 package com.wepay.waltz.store.internal;
 
+import com.wepay.waltz.common.jfr.JfrSupport;
 import com.wepay.waltz.common.message.Record;
 import com.wepay.waltz.common.message.RecordHeader;
 import com.wepay.waltz.common.message.ReqId;
@@ -18,12 +19,19 @@ import org.apache.zookeeper.CreateMode;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class StoreSessionImplTest {
@@ -34,6 +42,21 @@ public class StoreSessionImplTest {
 
     @Test
     public void testAppend() throws Exception {
+        append();
+    }
+
+    @Test
+    public void testAppendWithoutFlightRecorderEvents() throws Exception {
+        // Store and replica sessions run the way they run on a JDK without JFR
+        JfrSupport.setEnabled(false);
+        try {
+            append();
+        } finally {
+            JfrSupport.setEnabled(JfrSupport.AVAILABLE);
+        }
+    }
+
+    private void append() throws Exception {
         int partitionId = 0;
         int generation = 30;
         long sessionId = 20;
@@ -129,4 +152,108 @@ public class StoreSessionImplTest {
         }
     }
 
+    @Test
+    public void testBatchBytesLimit() throws Exception {
+        int generation = 30;
+        StoreSessionImpl session = newSession(generation, new AppendBatchPolicy(10, 100, 0L));
+        try {
+            session.append(request(generation, 0, 40));
+            session.append(request(generation, 1, 40));
+            session.append(request(generation, 2, 40));
+            session.append(request(generation, 3, 200));
+            session.append(request(generation, 4, 10));
+
+            // The batch is split when the total data size exceeds the limit
+            assertEquals(Arrays.asList(0, 1), seqNums(session.nextBatch()));
+
+            // Requests left out of the last batch are processed ahead of new requests
+            session.append(request(generation, 5, 10));
+            session.append(request(generation, 6, 10));
+
+            assertEquals(Arrays.asList(2), seqNums(session.nextBatch()));
+            // A request larger than the limit is sent alone
+            assertEquals(Arrays.asList(3), seqNums(session.nextBatch()));
+            assertEquals(Arrays.asList(4), seqNums(session.nextBatch()));
+            assertEquals(Arrays.asList(5, 6), seqNums(session.nextBatch()));
+
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void testBatchLingerWakeUp() throws Exception {
+        int generation = 30;
+        long interArrivalMillis = 500;
+        StoreSessionImpl session = newSession(generation, new AppendBatchPolicy(4, Integer.MAX_VALUE, 10000L));
+        try {
+            session.append(request(generation, 0, 10));
+            Thread.sleep(interArrivalMillis);
+            session.append(request(generation, 1, 10));
+
+            // The batch is expected to fill in about 2 * interArrivalMillis. The session waits for more requests.
+            long startTime = System.currentTimeMillis();
+            CompletableFuture<List<StoreAppendRequest>> future = CompletableFuture.supplyAsync(session::nextBatch);
+
+            Thread.sleep(interArrivalMillis / 5);
+            session.append(request(generation, 2, 10));
+            session.append(request(generation, 3, 10));
+
+            // The session wakes up as soon as the batch is full
+            List<StoreAppendRequest> batch = future.get(10, TimeUnit.SECONDS);
+            long elapsed = System.currentTimeMillis() - startTime;
+
+            assertEquals(Arrays.asList(0, 1, 2, 3), seqNums(batch));
+            assertTrue("elapsed=" + elapsed, elapsed < interArrivalMillis * 2);
+
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void testResolveAllAppendRequestsWithCarryOver() throws Exception {
+        int generation = 30;
+        Map<Integer, Long> results = new ConcurrentHashMap<>();
+        StoreSessionImpl session = newSession(generation, new AppendBatchPolicy(10, 100, 0L));
+
+        session.append(request(generation, 0, 80, results));
+        session.append(request(generation, 1, 80, results));
+        session.append(request(generation, 2, 80, results));
+
+        // Request 0 is taken in a batch. Requests 1 and 2 are carried over.
+        assertEquals(Arrays.asList(0), seqNums(session.nextBatch()));
+
+        session.append(request(generation, 3, 10, results));
+
+        session.close();
+
+        // The carried over requests are resolved ahead of the queued request
+        session.resolveAllAppendRequests(1L);
+
+        assertEquals(3, results.size());
+        assertEquals(0L, (long) results.get(1));
+        assertEquals(1L, (long) results.get(2));
+        assertEquals(-1L, (long) results.get(3));
+    }
+
+    private static StoreSessionImpl newSession(int generation, AppendBatchPolicy batchPolicy) {
+        // The session is not opened, so no replica session or ZooKeeper is needed
+        return new StoreSessionImpl(0, generation, 0L, batchPolicy, new ArrayList<>(), null, null);
+    }
+
+    private static StoreAppendRequest request(int generation, int seqNum, int dataSize) {
+        return request(generation, seqNum, dataSize, new HashMap<>());
+    }
+
+    private static StoreAppendRequest request(int generation, int seqNum, int dataSize, Map<Integer, Long> results) {
+        return new StoreAppendRequest(
+            new ReqId(1, generation, 0, seqNum), 0, new byte[dataSize], 0, transactionId -> results.put(seqNum, transactionId)
+        );
+    }
+
+    private static List<Integer> seqNums(List<StoreAppendRequest> batch) {
+        return batch.stream().map(request -> request.reqId.seqNum()).collect(Collectors.toList());
+    }
+
 }
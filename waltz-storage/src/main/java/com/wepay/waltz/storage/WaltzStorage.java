@@ -12,10 +12,13 @@ import com.wepay.riff.metrics.servlets.BuildInfoServlet;
 import com.wepay.riff.metrics.servlets.HealthCheckServlet;
 import com.wepay.riff.metrics.servlets.MetricsServlet;
 import com.wepay.riff.metrics.servlets.PingServlet;
+import com.wepay.riff.network.ClientSSL;
 import com.wepay.riff.network.MessageHandler;
 import com.wepay.riff.network.NetworkServer;
 import com.wepay.riff.network.ServerSSL;
 import com.wepay.riff.util.Logging;
+import com.wepay.waltz.common.jfr.FlightRecording;
+import com.wepay.waltz.common.jfr.JfrSupport;
 import com.wepay.waltz.common.metadata.StoreMetadata;
 import com.wepay.waltz.common.metadata.StoreParams;
 import com.wepay.waltz.common.util.Utils;
@@ -24,6 +27,7 @@ import com.wepay.waltz.storage.exception.StorageException;
 import com.wepay.waltz.storage.server.health.Healthcheck;
 import com.wepay.waltz.storage.server.internal.AdminServerHandler;
 import com.wepay.waltz.storage.server.internal.PartitionInfoSnapshot;
+import com.wepay.waltz.storage.server.internal.StorageFaultInjector;
 import com.wepay.waltz.storage.server.internal.StorageManager;
 import com.wepay.waltz.storage.server.internal.StorageServerHandler;
 import com.wepay.waltz.storage.server.internal.WaltzStorageCli;
@@ -32,6 +36,7 @@ import com.wepay.zktools.zookeeper.ZNode;
 import com.wepay.zktools.zookeeper.ZooKeeperClient;
 import com.wepay.zktools.zookeeper.internal.ZooKeeperClientImpl;
 import io.netty.handler.ssl.SslContext;
+import jdk.jfr.Recording;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
@@ -62,6 +67,8 @@ public class WaltzStorage {
     private final NetworkServer networkServer;
     private final NetworkServer adminNetworkServer;
     private final StorageManager storageManager;
+    private final StorageFaultInjector faultInjector;
+    private final Recording flightRecording;
     private final String metricsGroup = MetricGroup.WALTZ_STORAGE_METRIC_GROUP;
     private Server jettyServer;
 
@@ -81,12 +88,16 @@ public class WaltzStorage {
         StoreParams storeParams =
             new StoreMetadata(zkClient, new ZNode(root, StoreMetadata.STORE_ZNODE_NAME)).getStoreParams();
 
+        this.faultInjector = new StorageFaultInjector();
+        this.faultInjector.setFsyncDelay((long) config.get(WaltzStorageConfig.STORAGE_FAULT_FSYNC_DELAY_MS), TimeUnit.MILLISECONDS);
+
         this.storageManager = new StorageManager(
                 (String) config.get(WaltzStorageConfig.STORAGE_DIRECTORY),
                 (long) config.get(WaltzStorageConfig.SEGMENT_SIZE_THRESHOLD),
                 storeParams.numPartitions,
                 storeParams.key,
-                (Integer) config.get(WaltzStorageConfig.STORAGE_SEGMENT_CACHE_CAPACITY)
+                (Integer) config.get(WaltzStorageConfig.STORAGE_SEGMENT_CACHE_CAPACITY),
+                faultInjector
         );
         this.networkServer = new NetworkServer(port, sslCtx != null ? sslCtx : ServerSSL.createInsecureContext()) {
             @Override
@@ -94,13 +105,24 @@ public class WaltzStorage {
                 return new StorageServerHandler(storageManager);
             }
         };
+        // Used when this storage node pulls partition data from another storage node
+        SslContext clientSslCtx = sslCtx != null ? ClientSSL.createContext(config.getSSLConfig()) : ClientSSL.createInsecureContext();
         this.adminNetworkServer = new NetworkServer(adminPort, sslCtx != null ? sslCtx : ServerSSL.createInsecureContext()) {
             @Override
             protected MessageHandler getMessageHandler() {
-                return new AdminServerHandler(storageManager);
+                return new AdminServerHandler(storageManager, clientSslCtx);
             }
         };
 
+        if (!(boolean) config.get(WaltzStorageConfig.STORAGE_FLIGHT_RECORDING_ENABLED)) {
+            this.flightRecording = null;
+        } else if (!JfrSupport.AVAILABLE) {
+            logger.warn("flight recording is not started: JFR is not available in this JDK");
+            this.flightRecording = null;
+        } else {
+            this.flightRecording = FlightRecording.startContinuous("waltz-storage");
+        }
+
         String host = InetAddress.getLocalHost().getCanonicalHostName();
         logger.info("WaltzStorage Started: " + host + ":" + port);
         logger.info("WaltzStorage Admin Started: " + host + ":" + adminPort);
@@ -121,6 +143,10 @@ public class WaltzStorage {
             logger.error("failed to close jetty server", ex);
         }
 
+        if (flightRecording != null) {
+            flightRecording.close();
+        }
+
         unregisterMetrics();
 
         running.set(false);
@@ -159,6 +185,15 @@ public class WaltzStorage {
         return storageManager.getAssignedPartitionIds();
     }
 
+    /**
+     * Returns the fault injector of this storage, which can be used to slow down the storage while it is running,
+     * e.g. to reproduce a slow replica in performance tests.
+     * @return the fault injector.
+     */
+    public StorageFaultInjector getFaultInjector() {
+        return faultInjector;
+    }
+
     public static void main(String[] args) throws Exception {
         WaltzStorageCli cli = new WaltzStorageCli(args);
         cli.processCmd();
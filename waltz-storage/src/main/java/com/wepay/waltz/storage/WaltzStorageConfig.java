@@ -34,6 +34,14 @@ public class WaltzStorageConfig extends AbstractConfig {
     public static final String STORAGE_SEGMENT_CACHE_CAPACITY = "storage.segment.cache.capacity";
     public static final int DEFAULT_STORAGE_SEGMENT_CACHE_CAPACITY = 5;
 
+    // JDK Flight Recorder
+    public static final String STORAGE_FLIGHT_RECORDING_ENABLED = "storage.flight.recording.enabled";
+    public static final boolean DEFAULT_STORAGE_FLIGHT_RECORDING_ENABLED = false;
+
+    // Fault injection for performance testing
+    public static final String STORAGE_FAULT_FSYNC_DELAY_MS = "storage.fault.fsync.delay.ms";
+    public static final long DEFAULT_STORAGE_FAULT_FSYNC_DELAY_MS = 0L;
+
     public WaltzStorageConfig(Map<Object, Object> configValues) {
         this("", configValues);
     }
@@ -61,6 +69,12 @@ public class WaltzStorageConfig extends AbstractConfig {
             put(CLUSTER_ROOT, stringParser);
 
             put(STORAGE_SEGMENT_CACHE_CAPACITY, intParser.withDefault(DEFAULT_STORAGE_SEGMENT_CACHE_CAPACITY));
+
+            // JDK Flight Recorder
+            put(STORAGE_FLIGHT_RECORDING_ENABLED, booleanParser.withDefault(DEFAULT_STORAGE_FLIGHT_RECORDING_ENABLED));
+
+            // Fault injection for performance testing
+            put(STORAGE_FAULT_FSYNC_DELAY_MS, longParser.withDefault(DEFAULT_STORAGE_FAULT_FSYNC_DELAY_MS));
         }});
     }
 
@@ -4,6 +4,7 @@ import com.wepay.riff.network.Message;
 import com.wepay.riff.network.MessageCodec;
 import com.wepay.riff.network.MessageHandler;
 import com.wepay.riff.network.MessageHandlerCallbacks;
+import com.wepay.waltz.common.util.Utils;
 import com.wepay.waltz.storage.common.message.SequenceMessage;
 import com.wepay.waltz.storage.common.message.admin.AdminFailureResponse;
 import com.wepay.waltz.storage.common.message.admin.AdminMessage;
@@ -12,6 +13,8 @@ import com.wepay.waltz.storage.common.message.admin.AdminMessageType;
 import com.wepay.waltz.storage.common.message.admin.AdminOpenRequest;
 import com.wepay.waltz.storage.common.message.admin.AssignedPartitionStatusRequest;
 import com.wepay.waltz.storage.common.message.admin.AssignedPartitionStatusResponse;
+import com.wepay.waltz.storage.common.message.admin.FlightRecordingRequest;
+import com.wepay.waltz.storage.common.message.admin.FlightRecordingResponse;
 import com.wepay.waltz.storage.common.message.admin.LastSessionInfoRequest;
 import com.wepay.waltz.storage.common.message.admin.LastSessionInfoResponse;
 import com.wepay.waltz.storage.common.message.admin.MetricsRequest;
@@ -20,6 +23,11 @@ import com.wepay.waltz.storage.common.message.admin.PartitionAssignmentRequest;
 import com.wepay.waltz.storage.common.message.admin.PartitionAvailableRequest;
 import com.wepay.waltz.storage.common.message.admin.RecordListRequest;
 import com.wepay.waltz.storage.common.message.admin.RecordListResponse;
+import com.wepay.waltz.storage.common.message.admin.RecoverPartitionRequest;
+import com.wepay.waltz.storage.common.message.admin.SegmentChunkRequest;
+import com.wepay.waltz.storage.common.message.admin.SegmentChunkResponse;
+import com.wepay.waltz.storage.common.message.admin.SegmentListRequest;
+import com.wepay.waltz.storage.common.message.admin.SegmentListResponse;
 import com.wepay.waltz.storage.exception.StorageRpcException;
 import io.netty.handler.ssl.SslContext;
 
@@ -103,6 +111,54 @@ public class StorageAdminClient extends StorageBaseClient {
         return call(new LastSessionInfoRequest(seqNum.getAndIncrement(), partitionId));
     }
 
+    /**
+     * Gets the list of sealed segments of a partition
+     * @param partitionId the partition id
+     * @return Future of ArrayList of SegmentInfos
+     */
+    public CompletableFuture<Object> getSegmentList(int partitionId) {
+        return call(new SegmentListRequest(seqNum.getAndIncrement(), partitionId));
+    }
+
+    /**
+     * Gets a chunk of a sealed segment file or its index file. The chunk checksum is verified before the future completes.
+     * @param partitionId the partition id
+     * @param firstTransactionId the first transaction id of the segment
+     * @param index whether to read the index file instead of the segment file
+     * @param position the file position to start reading from
+     * @param length the maximum number of bytes to read
+     * @return Future of byte array
+     */
+    public CompletableFuture<Object> getSegmentChunk(int partitionId, long firstTransactionId, boolean index, long position, int length) {
+        return call(new SegmentChunkRequest(seqNum.getAndIncrement(), partitionId, firstTransactionId, index, position, length));
+    }
+
+    /**
+     * Makes the storage node rebuild a partition by pulling it directly from a source storage node.
+     * Sealed segments are copied as whole files, and only the remaining tail is replayed record by record.
+     * The partition must be unavailable on the storage node.
+     * @param partitionId the partition id
+     * @param sourceHost the host of the source storage node
+     * @param sourceAdminPort the admin port of the source storage node
+     * @param batchSize the number of records to fetch per request when replaying the tail
+     * @return Future of Boolean
+     */
+    public CompletableFuture<Object> recoverPartition(int partitionId, String sourceHost, int sourceAdminPort, int batchSize) {
+        return call(new RecoverPartitionRequest(seqNum.getAndIncrement(), partitionId, sourceHost, sourceAdminPort, batchSize));
+    }
+
+    /**
+     * Gets a JDK Flight Recorder recording of the storage node in the JFR file format.
+     * If the duration is 0, it gets a snapshot of the recordings running on the storage node, e.g. the continuous recording
+     * enabled by {@code storage.flight.recording.enabled}. Otherwise, the storage node starts a new recording
+     * and the future completes after the duration.
+     * @param durationSecs the duration of the recording in seconds, or 0 for a snapshot
+     * @return Future of byte array
+     */
+    public CompletableFuture<Object> getFlightRecording(int durationSecs) {
+        return call(new FlightRecordingRequest(seqNum.getAndIncrement(), durationSecs));
+    }
+
     @Override
     protected MessageHandler getMessageHandler() {
         return new MessageHandlerImpl(new StorageBaseClient.MessageHandlerCallbacksImpl());
@@ -151,6 +207,23 @@ public class StorageAdminClient extends StorageBaseClient {
                     future.complete(((AssignedPartitionStatusResponse) msg).partitionStatusMap);
                     break;
 
+                case AdminMessageType.SEGMENT_LIST_RESPONSE:
+                    future.complete(((SegmentListResponse) msg).segmentInfos);
+                    break;
+
+                case AdminMessageType.SEGMENT_CHUNK_RESPONSE:
+                    SegmentChunkResponse segmentChunkResponse = (SegmentChunkResponse) msg;
+                    if (Utils.checksum(segmentChunkResponse.data) == segmentChunkResponse.checksum) {
+                        future.complete(segmentChunkResponse.data);
+                    } else {
+                        future.completeExceptionally(new StorageRpcException("segment chunk checksum error"));
+                    }
+                    break;
+
+                case AdminMessageType.FLIGHT_RECORDING_RESPONSE:
+                    future.complete(((FlightRecordingResponse) msg).recording);
+                    break;
+
                 default:
                     throw new IllegalArgumentException("message not handled: messageType=" + msg.type());
             }
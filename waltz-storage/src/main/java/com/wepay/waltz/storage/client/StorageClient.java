@@ -24,6 +24,7 @@ import com.wepay.waltz.storage.common.message.SequenceMessage;
 import com.wepay.waltz.storage.common.message.SetLowWaterMarkRequest;
 import com.wepay.waltz.storage.common.message.StorageMessage;
 import com.wepay.waltz.storage.common.message.StorageMessageCodecV0;
+import com.wepay.waltz.storage.common.message.StorageMessageCodecV1;
 import com.wepay.waltz.storage.common.message.StorageMessageType;
 import com.wepay.waltz.storage.common.message.TruncateRequest;
 import io.netty.handler.ssl.SslContext;
@@ -42,6 +43,7 @@ public class StorageClient extends StorageBaseClient {
 
     static {
         CODECS.put((short) 0, StorageMessageCodecV0.INSTANCE);
+        CODECS.put((short) 1, StorageMessageCodecV1.INSTANCE);
     }
 
     public StorageClient(String host, int port, SslContext sslCtx, UUID key, int numPartitions) {
@@ -210,7 +212,7 @@ public class StorageClient extends StorageBaseClient {
                     break;
 
                 case StorageMessageType.RECORD_LIST_RESPONSE:
-                    future.complete(((RecordListResponse) msg).records);
+                    future.complete(((RecordListResponse) msg).records());
                     break;
 
                 default:
@@ -0,0 +1,235 @@
+package com.wepay.waltz.storage.common;
+
+import com.wepay.waltz.common.message.Record;
+import com.wepay.waltz.common.message.ReqId;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A contiguous block of records in the segment file record format.
+ * Each record is a header (transactionId, reqId, transaction header, data length, data checksum), the data,
+ * and a footer holding the CRC32 of the header and the data.
+ * A storage node can write a batch to a segment file without re-serializing records,
+ * and can serve a range of a segment file as a batch without decoding records.
+ */
+public class RecordBatch {
+
+    // RECORD HEADER: transactionId (8 bytes) + ReqId (16 bytes) + transaction header(4) + data length (4 bytes) + data checksum (4 bytes)
+    public static final int RECORD_HEADER_SIZE = 8 + 16 + 4 + 4 + 4;
+    // RECORD FOOTER: checksum (4 bytes)
+    public static final int RECORD_FOOTER_SIZE = 4;
+
+    private static final int DATA_LEN_POSITION = 8 + 16 + 4;
+
+    public static final RecordBatch EMPTY = new RecordBatch(new byte[0], new int[] {0});
+
+    private final byte[] bytes;
+    private final int[] offsets;
+
+    private RecordBatch(byte[] bytes, int[] offsets) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns the number of records in this batch.
+     * @return the number of records
+     */
+    public int numRecords() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the raw bytes of this batch. The array must not be modified.
+     * @return the raw bytes
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "internal class")
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the position of the i-th record in the raw bytes.
+     * {@code offset(numRecords())} is the size of the batch.
+     * @param i the record index
+     * @return the position of the record
+     */
+    public int offset(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * Returns the transaction id of the i-th record.
+     * @param i the record index
+     * @return the transaction id
+     */
+    public long transactionId(int i) {
+        return ByteBuffer.wrap(bytes).getLong(offsets[i]);
+    }
+
+    /**
+     * Checks the footer checksum of the i-th record.
+     * @param i the record index
+     * @return true if the checksum matches the header and the data, otherwise false
+     */
+    public boolean isValid(int i) {
+        int footerPosition = offsets[i + 1] - RECORD_FOOTER_SIZE;
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, offsets[i], footerPosition - offsets[i]);
+
+        return ByteBuffer.wrap(bytes).getInt(footerPosition) == (int) crc32.getValue();
+    }
+
+    /**
+     * Decodes the i-th record.
+     * @param i the record index
+     * @return the record
+     */
+    public Record record(int i) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        buf.position(offsets[i]);
+
+        long transactionId = buf.getLong();
+        ReqId reqId = new ReqId(buf.getLong(), buf.getLong());
+        int header = buf.getInt();
+        byte[] data = new byte[buf.getInt()];
+        int checksum = buf.getInt();
+        buf.get(data);
+
+        return new Record(transactionId, reqId, header, data, checksum);
+    }
+
+    /**
+     * Decodes all records.
+     * @return the list of records
+     */
+    public ArrayList<Record> toRecords() {
+        int numRecords = numRecords();
+        ArrayList<Record> records = new ArrayList<>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            records.add(record(i));
+        }
+        return records;
+    }
+
+    /**
+     * Encodes records into a batch.
+     * @param records the records
+     * @return the batch
+     */
+    public static RecordBatch encode(List<Record> records) {
+        int numRecords = records.size();
+        int[] offsets = new int[numRecords + 1];
+
+        int size = 0;
+        for (int i = 0; i < numRecords; i++) {
+            offsets[i] = size;
+            size += RECORD_HEADER_SIZE + records.get(i).data.length + RECORD_FOOTER_SIZE;
+        }
+        offsets[numRecords] = size;
+
+        byte[] bytes = new byte[size];
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        CRC32 crc32 = new CRC32();
+
+        for (int i = 0; i < numRecords; i++) {
+            Record record = records.get(i);
+            buf.putLong(record.transactionId);
+            buf.putLong(record.reqId.mostSigBits);
+            buf.putLong(record.reqId.leastSigBits);
+            buf.putInt(record.header);
+            buf.putInt(record.data.length);
+            buf.putInt(record.checksum);
+            buf.put(record.data);
+
+            crc32.reset();
+            crc32.update(bytes, offsets[i], buf.position() - offsets[i]);
+            buf.putInt((int) crc32.getValue());
+        }
+
+        return new RecordBatch(bytes, offsets);
+    }
+
+    /**
+     * Wraps raw bytes in the segment record format. Record boundaries are validated, checksums are not.
+     * @param bytes the raw bytes
+     * @return the batch
+     * @throws IllegalArgumentException if the bytes do not consist of whole records
+     */
+    public static RecordBatch wrap(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+
+        int numRecords = 0;
+        int position = 0;
+        while (position < bytes.length) {
+            position = nextOffset(buf, position);
+            numRecords++;
+        }
+
+        int[] offsets = new int[numRecords + 1];
+        position = 0;
+        for (int i = 0; i < numRecords; i++) {
+            offsets[i] = position;
+            position = nextOffset(buf, position);
+        }
+        offsets[numRecords] = position;
+
+        return new RecordBatch(bytes, offsets);
+    }
+
+    /**
+     * Concatenates batches into one batch.
+     * @param recordBatches the batches
+     * @return the batch
+     */
+    public static RecordBatch concat(List<RecordBatch> recordBatches) {
+        if (recordBatches.size() == 1) {
+            return recordBatches.get(0);
+        }
+
+        int size = 0;
+        int numRecords = 0;
+        for (RecordBatch recordBatch : recordBatches) {
+            size += recordBatch.bytes.length;
+            numRecords += recordBatch.numRecords();
+        }
+
+        byte[] bytes = new byte[size];
+        int[] offsets = new int[numRecords + 1];
+        int position = 0;
+        int i = 0;
+        for (RecordBatch recordBatch : recordBatches) {
+            System.arraycopy(recordBatch.bytes, 0, bytes, position, recordBatch.bytes.length);
+            for (int j = 0; j < recordBatch.numRecords(); j++) {
+                offsets[i++] = position + recordBatch.offsets[j];
+            }
+            position += recordBatch.bytes.length;
+        }
+        offsets[numRecords] = position;
+
+        return new RecordBatch(bytes, offsets);
+    }
+
+    private static int nextOffset(ByteBuffer buf, int position) {
+        if (buf.limit() - position < RECORD_HEADER_SIZE + RECORD_FOOTER_SIZE) {
+            throw new IllegalArgumentException("incomplete record: position=" + position);
+        }
+
+        int dataLen = buf.getInt(position + DATA_LEN_POSITION);
+        if (dataLen < 0 || buf.limit() - position - RECORD_HEADER_SIZE - RECORD_FOOTER_SIZE < dataLen) {
+            throw new IllegalArgumentException("incomplete record: position=" + position);
+        }
+
+        return position + RECORD_HEADER_SIZE + dataLen + RECORD_FOOTER_SIZE;
+    }
+
+    public String toString() {
+        return "RecordBatch(numRecords=" + numRecords() + ",size=" + bytes.length + ")";
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.wepay.waltz.storage.common;
+
+import com.wepay.riff.network.MessageAttributeReader;
+import com.wepay.riff.network.MessageAttributeWriter;
+
+/**
+ * Describes a sealed segment of a partition, i.e. a segment that no longer accepts appends.
+ */
+public class SegmentInfo {
+    public final long firstTransactionId;
+    public final long maxTransactionId;
+    public final long segmentSize;
+    public final long indexSize;
+
+    public SegmentInfo(final long firstTransactionId, final long maxTransactionId, final long segmentSize, final long indexSize) {
+        this.firstTransactionId = firstTransactionId;
+        this.maxTransactionId = maxTransactionId;
+        this.segmentSize = segmentSize;
+        this.indexSize = indexSize;
+    }
+
+    public void writeTo(MessageAttributeWriter writer) {
+        writer.writeLong(firstTransactionId);
+        writer.writeLong(maxTransactionId);
+        writer.writeLong(segmentSize);
+        writer.writeLong(indexSize);
+    }
+
+    public static SegmentInfo readFrom(MessageAttributeReader reader) {
+        return new SegmentInfo(reader.readLong(), reader.readLong(), reader.readLong(), reader.readLong());
+    }
+
+    public String toString() {
+        return "firstTransactionId=" + firstTransactionId + " maxTransactionId=" + maxTransactionId
+            + " segmentSize=" + segmentSize + " indexSize=" + indexSize;
+    }
+
+}
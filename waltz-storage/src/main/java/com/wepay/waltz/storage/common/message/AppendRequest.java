@@ -1,12 +1,15 @@
 package com.wepay.waltz.storage.common.message;
 
 import com.wepay.waltz.common.message.Record;
+import com.wepay.waltz.storage.common.RecordBatch;
 
 import java.util.ArrayList;
 
 public class AppendRequest extends StorageMessage {
 
-    public final ArrayList<Record> records;
+    // Either representation is converted to the other on demand, depending on the codec version in use.
+    private ArrayList<Record> records;
+    private RecordBatch recordBatch;
 
     public AppendRequest(long sessionId, long seqNum, int partitionId, ArrayList<Record> records) {
         this(sessionId, seqNum, partitionId, records, false);
@@ -16,6 +19,42 @@ public class AppendRequest extends StorageMessage {
         super(sessionId, seqNum, partitionId, usedByOfflineRecovery);
 
         this.records = records;
+        this.recordBatch = null;
+    }
+
+    public AppendRequest(long sessionId, long seqNum, int partitionId, RecordBatch recordBatch, boolean usedByOfflineRecovery) {
+        super(sessionId, seqNum, partitionId, usedByOfflineRecovery);
+
+        this.records = null;
+        this.recordBatch = recordBatch;
+    }
+
+    public ArrayList<Record> records() {
+        synchronized (this) {
+            if (records == null) {
+                records = recordBatch.toRecords();
+            }
+            return records;
+        }
+    }
+
+    public RecordBatch recordBatch() {
+        synchronized (this) {
+            if (recordBatch == null) {
+                recordBatch = RecordBatch.encode(records);
+            }
+            return recordBatch;
+        }
+    }
+
+    /**
+     * Returns true if this request was created from, or decoded as, a {@link RecordBatch}.
+     * @return true if a record batch is available without encoding records
+     */
+    public boolean hasRecordBatch() {
+        synchronized (this) {
+            return recordBatch != null;
+        }
     }
 
     @Override
@@ -1,17 +1,46 @@
 package com.wepay.waltz.storage.common.message;
 
 import com.wepay.waltz.common.message.Record;
+import com.wepay.waltz.storage.common.RecordBatch;
 
 import java.util.ArrayList;
 
 public class RecordListResponse extends StorageMessage {
 
-    public final ArrayList<Record> records;
+    // Either representation is converted to the other on demand, depending on the codec version in use.
+    private ArrayList<Record> records;
+    private RecordBatch recordBatch;
 
     public RecordListResponse(long sessionId, long seqNum, int partitionId, ArrayList<Record> records) {
         super(sessionId, seqNum, partitionId);
 
         this.records = records;
+        this.recordBatch = null;
+    }
+
+    public RecordListResponse(long sessionId, long seqNum, int partitionId, RecordBatch recordBatch) {
+        super(sessionId, seqNum, partitionId);
+
+        this.records = null;
+        this.recordBatch = recordBatch;
+    }
+
+    public ArrayList<Record> records() {
+        synchronized (this) {
+            if (records == null) {
+                records = recordBatch.toRecords();
+            }
+            return records;
+        }
+    }
+
+    public RecordBatch recordBatch() {
+        synchronized (this) {
+            if (recordBatch == null) {
+                recordBatch = RecordBatch.encode(records);
+            }
+            return recordBatch;
+        }
     }
 
     @Override
@@ -161,8 +161,8 @@ public class StorageMessageCodecV0 implements MessageCodec {
 
             case StorageMessageType.APPEND_REQUEST:
                 AppendRequest appendRequest = (AppendRequest) msg;
-                writer.writeInt(appendRequest.records.size());
-                for (Record record : appendRequest.records) {
+                writer.writeInt(appendRequest.records().size());
+                for (Record record : appendRequest.records()) {
                     record.writeTo(writer);
                 }
                 writer.writeBoolean(appendRequest.usedByOfflineRecovery);
@@ -240,7 +240,7 @@ public class StorageMessageCodecV0 implements MessageCodec {
 
             case StorageMessageType.RECORD_LIST_RESPONSE:
                 RecordListResponse recordListResponse = (RecordListResponse) msg;
-                ArrayList<Record> recordList = recordListResponse.records;
+                ArrayList<Record> recordList = recordListResponse.records();
                 int recordListSize = recordList.size();
                 writer.writeInt(recordListSize);
                 for (int i = 0; i < recordListSize; i++) {
@@ -5,6 +5,7 @@ import com.wepay.riff.network.MessageAttributeReader;
 import com.wepay.riff.network.MessageAttributeWriter;
 import com.wepay.riff.network.MessageCodec;
 import com.wepay.waltz.common.message.Record;
+import com.wepay.waltz.storage.common.SegmentInfo;
 import com.wepay.waltz.storage.common.SessionInfo;
 import com.wepay.waltz.storage.exception.StorageRpcException;
 
@@ -88,6 +89,33 @@ public class AdminMessageCodecV0 implements MessageCodec {
                 }
                 return new AssignedPartitionStatusResponse(seqNum, partitionStatusMap);
 
+            case AdminMessageType.SEGMENT_LIST_REQUEST:
+                return new SegmentListRequest(seqNum, reader.readInt());
+
+            case AdminMessageType.SEGMENT_LIST_RESPONSE:
+                ArrayList<SegmentInfo> segmentInfos = new ArrayList<>();
+                int segmentListPartitionId = reader.readInt();
+                int segmentListSize = reader.readInt();
+                for (int i = 0; i < segmentListSize; i++) {
+                    segmentInfos.add(SegmentInfo.readFrom(reader));
+                }
+                return new SegmentListResponse(seqNum, segmentListPartitionId, segmentInfos);
+
+            case AdminMessageType.SEGMENT_CHUNK_REQUEST:
+                return new SegmentChunkRequest(seqNum, reader.readInt(), reader.readLong(), reader.readBoolean(), reader.readLong(), reader.readInt());
+
+            case AdminMessageType.SEGMENT_CHUNK_RESPONSE:
+                return new SegmentChunkResponse(seqNum, reader.readInt(), reader.readByteArray(), reader.readInt());
+
+            case AdminMessageType.RECOVER_PARTITION_REQUEST:
+                return new RecoverPartitionRequest(seqNum, reader.readInt(), reader.readString(), reader.readInt(), reader.readInt());
+
+            case AdminMessageType.FLIGHT_RECORDING_REQUEST:
+                return new FlightRecordingRequest(seqNum, reader.readInt());
+
+            case AdminMessageType.FLIGHT_RECORDING_RESPONSE:
+                return new FlightRecordingResponse(seqNum, reader.readByteArray());
+
             default:
                 throw new IllegalStateException("unknown message type: " + messageType);
         }
@@ -177,6 +205,54 @@ public class AdminMessageCodecV0 implements MessageCodec {
                 }
                 break;
 
+            case AdminMessageType.SEGMENT_LIST_REQUEST:
+                SegmentListRequest segmentListRequest = (SegmentListRequest) msg;
+                writer.writeInt(segmentListRequest.partitionId);
+                break;
+
+            case AdminMessageType.SEGMENT_LIST_RESPONSE:
+                SegmentListResponse segmentListResponse = (SegmentListResponse) msg;
+                writer.writeInt(segmentListResponse.partitionId);
+                writer.writeInt(segmentListResponse.segmentInfos.size());
+                for (SegmentInfo segmentInfo : segmentListResponse.segmentInfos) {
+                    segmentInfo.writeTo(writer);
+                }
+                break;
+
+            case AdminMessageType.SEGMENT_CHUNK_REQUEST:
+                SegmentChunkRequest segmentChunkRequest = (SegmentChunkRequest) msg;
+                writer.writeInt(segmentChunkRequest.partitionId);
+                writer.writeLong(segmentChunkRequest.firstTransactionId);
+                writer.writeBoolean(segmentChunkRequest.index);
+                writer.writeLong(segmentChunkRequest.position);
+                writer.writeInt(segmentChunkRequest.length);
+                break;
+
+            case AdminMessageType.SEGMENT_CHUNK_RESPONSE:
+                SegmentChunkResponse segmentChunkResponse = (SegmentChunkResponse) msg;
+                writer.writeInt(segmentChunkResponse.partitionId);
+                writer.writeByteArray(segmentChunkResponse.data);
+                writer.writeInt(segmentChunkResponse.checksum);
+                break;
+
+            case AdminMessageType.RECOVER_PARTITION_REQUEST:
+                RecoverPartitionRequest recoverPartitionRequest = (RecoverPartitionRequest) msg;
+                writer.writeInt(recoverPartitionRequest.partitionId);
+                writer.writeString(recoverPartitionRequest.sourceHost);
+                writer.writeInt(recoverPartitionRequest.sourceAdminPort);
+                writer.writeInt(recoverPartitionRequest.batchSize);
+                break;
+
+            case AdminMessageType.FLIGHT_RECORDING_REQUEST:
+                FlightRecordingRequest flightRecordingRequest = (FlightRecordingRequest) msg;
+                writer.writeInt(flightRecordingRequest.durationSecs);
+                break;
+
+            case AdminMessageType.FLIGHT_RECORDING_RESPONSE:
+                FlightRecordingResponse flightRecordingResponse = (FlightRecordingResponse) msg;
+                writer.writeByteArray(flightRecordingResponse.recording);
+                break;
+
             default:
                 throw new IllegalStateException("unknown message type: " + msg.type());
         }
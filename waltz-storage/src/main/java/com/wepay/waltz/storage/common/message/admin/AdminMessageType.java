@@ -19,5 +19,12 @@ public final class AdminMessageType {
     public static final int METRICS_RESPONSE = 12;
     public static final int ASSIGNED_PARTITION_STATUS_REQUEST = 13;
     public static final int ASSIGNED_PARTITION_STATUS_RESPONSE = 14;
+    public static final int SEGMENT_LIST_REQUEST = 15;
+    public static final int SEGMENT_LIST_RESPONSE = 16;
+    public static final int SEGMENT_CHUNK_REQUEST = 17;
+    public static final int SEGMENT_CHUNK_RESPONSE = 18;
+    public static final int RECOVER_PARTITION_REQUEST = 19;
+    public static final int FLIGHT_RECORDING_REQUEST = 20;
+    public static final int FLIGHT_RECORDING_RESPONSE = 21;
 
 }
@@ -0,0 +1,18 @@
+package com.wepay.waltz.storage.common.message.admin;
+
+public class FlightRecordingRequest extends AdminMessage {
+
+    public final int durationSecs;
+
+    public FlightRecordingRequest(long seqNum, int durationSecs) {
+        super(seqNum);
+
+        this.durationSecs = durationSecs;
+    }
+
+    @Override
+    public byte type() {
+        return AdminMessageType.FLIGHT_RECORDING_REQUEST;
+    }
+
+}
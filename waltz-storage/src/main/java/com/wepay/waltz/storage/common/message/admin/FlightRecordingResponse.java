@@ -0,0 +1,18 @@
+package com.wepay.waltz.storage.common.message.admin;
+
+public class FlightRecordingResponse extends AdminMessage {
+
+    public final byte[] recording;
+
+    public FlightRecordingResponse(long seqNum, byte[] recording) {
+        super(seqNum);
+
+        this.recording = recording;
+    }
+
+    @Override
+    public byte type() {
+        return AdminMessageType.FLIGHT_RECORDING_RESPONSE;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.wepay.waltz.storage.common.message.admin;
+
+public class RecoverPartitionRequest extends AdminMessage {
+
+    public final int partitionId;
+    public final String sourceHost;
+    public final int sourceAdminPort;
+    public final int batchSize;
+
+    public RecoverPartitionRequest(long seqNum, int partitionId, String sourceHost, int sourceAdminPort, int batchSize) {
+        super(seqNum);
+
+        this.partitionId = partitionId;
+        this.sourceHost = sourceHost;
+        this.sourceAdminPort = sourceAdminPort;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public byte type() {
+        return AdminMessageType.RECOVER_PARTITION_REQUEST;
+    }
+
+}
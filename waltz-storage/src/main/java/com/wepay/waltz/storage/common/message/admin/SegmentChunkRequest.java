@@ -0,0 +1,26 @@
+package com.wepay.waltz.storage.common.message.admin;
+
+public class SegmentChunkRequest extends AdminMessage {
+
+    public final int partitionId;
+    public final long firstTransactionId;
+    public final boolean index;
+    public final long position;
+    public final int length;
+
+    public SegmentChunkRequest(long seqNum, int partitionId, long firstTransactionId, boolean index, long position, int length) {
+        super(seqNum);
+
+        this.partitionId = partitionId;
+        this.firstTransactionId = firstTransactionId;
+        this.index = index;
+        this.position = position;
+        this.length = length;
+    }
+
+    @Override
+    public byte type() {
+        return AdminMessageType.SEGMENT_CHUNK_REQUEST;
+    }
+
+}
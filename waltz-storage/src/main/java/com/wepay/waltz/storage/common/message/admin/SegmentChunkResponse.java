@@ -0,0 +1,22 @@
+package com.wepay.waltz.storage.common.message.admin;
+
+public class SegmentChunkResponse extends AdminMessage {
+
+    public final int partitionId;
+    public final byte[] data;
+    public final int checksum;
+
+    public SegmentChunkResponse(long seqNum, int partitionId, byte[] data, int checksum) {
+        super(seqNum);
+
+        this.partitionId = partitionId;
+        this.data = data;
+        this.checksum = checksum;
+    }
+
+    @Override
+    public byte type() {
+        return AdminMessageType.SEGMENT_CHUNK_RESPONSE;
+    }
+
+}
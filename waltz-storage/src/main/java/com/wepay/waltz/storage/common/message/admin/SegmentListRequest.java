@@ -0,0 +1,18 @@
+package com.wepay.waltz.storage.common.message.admin;
+
+public class SegmentListRequest extends AdminMessage {
+
+    public final int partitionId;
+
+    public SegmentListRequest(long seqNum, int partitionId) {
+        super(seqNum);
+
+        this.partitionId = partitionId;
+    }
+
+    @Override
+    public byte type() {
+        return AdminMessageType.SEGMENT_LIST_REQUEST;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.wepay.waltz.storage.common.message.admin;
+
+import com.wepay.waltz.storage.common.SegmentInfo;
+
+import java.util.ArrayList;
+
+public class SegmentListResponse extends AdminMessage {
+
+    public final int partitionId;
+    public final ArrayList<SegmentInfo> segmentInfos;
+
+    public SegmentListResponse(long seqNum, int partitionId, ArrayList<SegmentInfo> segmentInfos) {
+        super(seqNum);
+
+        this.partitionId = partitionId;
+        this.segmentInfos = segmentInfos;
+    }
+
+    @Override
+    public byte type() {
+        return AdminMessageType.SEGMENT_LIST_RESPONSE;
+    }
+
+}
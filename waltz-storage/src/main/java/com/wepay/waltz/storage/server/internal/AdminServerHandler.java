@@ -5,9 +5,15 @@ import com.fasterxml.jackson.databind.ObjectWriter;
 import com.wepay.riff.metrics.core.MetricRegistry;
 import com.wepay.riff.network.Message;
 import com.wepay.riff.network.MessageCodec;
+import com.wepay.riff.network.ClientSSL;
 import com.wepay.riff.network.MessageHandler;
 import com.wepay.riff.util.Logging;
+import com.wepay.waltz.common.jfr.FlightRecording;
+import com.wepay.waltz.common.jfr.JfrSupport;
 import com.wepay.waltz.common.message.Record;
+import com.wepay.waltz.common.util.DaemonThreadFactory;
+import com.wepay.waltz.common.util.Utils;
+import com.wepay.waltz.storage.common.SegmentInfo;
 import com.wepay.waltz.storage.common.SessionInfo;
 import com.wepay.waltz.storage.common.message.admin.AdminFailureResponse;
 import com.wepay.waltz.storage.common.message.admin.AdminMessage;
@@ -16,6 +22,8 @@ import com.wepay.waltz.storage.common.message.admin.AdminMessageType;
 import com.wepay.waltz.storage.common.message.admin.AdminOpenRequest;
 import com.wepay.waltz.storage.common.message.admin.AdminSuccessResponse;
 import com.wepay.waltz.storage.common.message.admin.AssignedPartitionStatusResponse;
+import com.wepay.waltz.storage.common.message.admin.FlightRecordingRequest;
+import com.wepay.waltz.storage.common.message.admin.FlightRecordingResponse;
 import com.wepay.waltz.storage.common.message.admin.LastSessionInfoRequest;
 import com.wepay.waltz.storage.common.message.admin.LastSessionInfoResponse;
 import com.wepay.waltz.storage.common.message.admin.MetricsResponse;
@@ -23,16 +31,25 @@ import com.wepay.waltz.storage.common.message.admin.PartitionAssignmentRequest;
 import com.wepay.waltz.storage.common.message.admin.PartitionAvailableRequest;
 import com.wepay.waltz.storage.common.message.admin.RecordListRequest;
 import com.wepay.waltz.storage.common.message.admin.RecordListResponse;
+import com.wepay.waltz.storage.common.message.admin.RecoverPartitionRequest;
+import com.wepay.waltz.storage.common.message.admin.SegmentChunkRequest;
+import com.wepay.waltz.storage.common.message.admin.SegmentChunkResponse;
+import com.wepay.waltz.storage.common.message.admin.SegmentListRequest;
+import com.wepay.waltz.storage.common.message.admin.SegmentListResponse;
 import com.wepay.waltz.storage.exception.ConcurrentUpdateException;
 import com.wepay.waltz.storage.exception.StorageException;
 import com.wepay.waltz.storage.exception.StorageRpcException;
+import io.netty.handler.ssl.SslContext;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AdminServerHandler extends MessageHandler {
 
@@ -48,12 +65,26 @@ public class AdminServerHandler extends MessageHandler {
 
     private static final String HELLO_MESSAGE = "Waltz Storage Admin Server";
 
+    // Partition recoveries and flight recordings may take a long time. They run outside of the message handler thread.
+    private static final ExecutorService RECOVERY_EXECUTOR = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+
     private final StorageManager storageManager;
+    private final SslContext clientSslCtx;
 
     public AdminServerHandler(StorageManager storageManager) {
+        this(storageManager, null);
+    }
+
+    /**
+     * Class constructor.
+     * @param storageManager the storage manager
+     * @param clientSslCtx the SSL context used to connect to other storage nodes, or null to use an insecure context
+     */
+    public AdminServerHandler(StorageManager storageManager, SslContext clientSslCtx) {
         super(CODECS, HELLO_MESSAGE, null, QUEUE_LOW_WATER_MARK, QUEUE_HIGH_WATER_MARK);
 
         this.storageManager = storageManager;
+        this.clientSslCtx = clientSslCtx;
     }
 
     @Override
@@ -149,6 +180,83 @@ public class AdminServerHandler extends MessageHandler {
                 sendMessage(new AssignedPartitionStatusResponse(message.seqNum, partitionStatusMap), true);
                 break;
 
+            case AdminMessageType.SEGMENT_LIST_REQUEST:
+                try {
+                    SegmentListRequest segmentListRequest = (SegmentListRequest) message;
+                    Partition partition = storageManager.getPartition(segmentListRequest.partitionId);
+                    if (partition != null) {
+                        ArrayList<SegmentInfo> segmentInfos = partition.getSealedSegmentInfos();
+                        sendMessage(new SegmentListResponse(message.seqNum, segmentListRequest.partitionId, segmentInfos), true);
+                    } else {
+                        failure(new Exception("Partition:" + segmentListRequest.partitionId + " is not assigned."), message);
+                    }
+
+                } catch (StorageException ex) {
+                    failure(ex, message);
+                }
+                break;
+
+            case AdminMessageType.SEGMENT_CHUNK_REQUEST:
+                try {
+                    SegmentChunkRequest segmentChunkRequest = (SegmentChunkRequest) message;
+                    Partition partition = storageManager.getPartition(segmentChunkRequest.partitionId);
+                    if (partition != null) {
+                        byte[] data = partition.readSealedSegmentChunk(
+                            segmentChunkRequest.firstTransactionId,
+                            segmentChunkRequest.index,
+                            segmentChunkRequest.position,
+                            segmentChunkRequest.length
+                        );
+                        sendMessage(new SegmentChunkResponse(message.seqNum, segmentChunkRequest.partitionId, data, Utils.checksum(data)), true);
+                    } else {
+                        failure(new Exception("Partition:" + segmentChunkRequest.partitionId + " is not assigned."), message);
+                    }
+
+                } catch (IOException | StorageException ex) {
+                    failure(ex, message);
+                }
+                break;
+
+            case AdminMessageType.RECOVER_PARTITION_REQUEST:
+                RecoverPartitionRequest recoverPartitionRequest = (RecoverPartitionRequest) message;
+                RECOVERY_EXECUTOR.execute(() -> {
+                    try {
+                        storageManager.recoverPartition(
+                            recoverPartitionRequest.partitionId,
+                            recoverPartitionRequest.sourceHost,
+                            recoverPartitionRequest.sourceAdminPort,
+                            recoverPartitionRequest.batchSize,
+                            clientSslCtx != null ? clientSslCtx : ClientSSL.createInsecureContext()
+                        );
+                        success(message);
+
+                    } catch (Exception ex) {
+                        logger.error("failed to recover partition: partitionId=" + recoverPartitionRequest.partitionId, ex);
+                        failure(ex, message);
+                    }
+                });
+                break;
+
+            case AdminMessageType.FLIGHT_RECORDING_REQUEST:
+                FlightRecordingRequest flightRecordingRequest = (FlightRecordingRequest) message;
+                if (!JfrSupport.AVAILABLE) {
+                    failure(new UnsupportedOperationException("JFR is not available in this JDK"), message);
+                    break;
+                }
+                RECOVERY_EXECUTOR.execute(() -> {
+                    try {
+                        byte[] recording = flightRecordingRequest.durationSecs > 0
+                            ? FlightRecording.record(Duration.ofSeconds(flightRecordingRequest.durationSecs))
+                            : FlightRecording.snapshot();
+                        sendMessage(new FlightRecordingResponse(message.seqNum, recording), true);
+
+                    } catch (Exception ex) {
+                        logger.error("failed to get a flight recording", ex);
+                        failure(ex, message);
+                    }
+                });
+                break;
+
             default:
                 throw new IllegalStateException("unknown message type: " + msg.type());
         }
@@ -13,6 +13,8 @@ import com.wepay.waltz.common.message.Record;
 import com.wepay.waltz.common.message.RecordHeader;
 import com.wepay.waltz.common.util.LRUCache;
 import com.wepay.waltz.common.util.QueueConsumerTask;
+import com.wepay.waltz.storage.common.RecordBatch;
+import com.wepay.waltz.storage.common.SegmentInfo;
 import com.wepay.waltz.storage.common.SessionInfo;
 import com.wepay.waltz.storage.common.message.AppendRequest;
 import com.wepay.waltz.storage.common.message.FailureResponse;
@@ -41,6 +43,7 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.UUID;
@@ -62,6 +65,8 @@ public class Partition {
     private final RequestProcessingTask task;
     private final String metricsGroup;
     private final LRUCache<Segment, Object> segmentLRUCache;
+    private final SegmentMetrics segmentMetrics;
+    private final StorageFaultInjector faultInjector;
 
     private Meter appendMeter;
     private Timer appendLatencyTimer;
@@ -76,8 +81,20 @@ public class Partition {
 
     private Segment currentSegment;
     private volatile long sessionId;
+    private boolean recovering = false;
 
     Partition(UUID key, Path directory, PartitionInfo partitionInfo, long segmentSizeThreshold, int segmentCacheCapacity) {
+        this(key, directory, partitionInfo, segmentSizeThreshold, segmentCacheCapacity, new StorageFaultInjector());
+    }
+
+    Partition(
+        UUID key,
+        Path directory,
+        PartitionInfo partitionInfo,
+        long segmentSizeThreshold,
+        int segmentCacheCapacity,
+        StorageFaultInjector faultInjector
+    ) {
         this.key = key;
         this.directory = directory;
         this.partitionInfo = partitionInfo;
@@ -87,6 +104,8 @@ public class Partition {
         this.sessionId = partitionInfo.sessionId();
         this.segmentLRUCache = new LRUCache<>(segmentCacheCapacity, entry -> cleanupFunc(entry));
         this.metricsGroup = String.format("%s.partition-%d", MetricGroup.WALTZ_STORAGE_METRIC_GROUP, partitionInfo.partitionId);
+        this.segmentMetrics = new SegmentMetrics(metricsGroup);
+        this.faultInjector = faultInjector;
 
         // Register metrics
         registerMetrics();
@@ -114,7 +133,7 @@ public class Partition {
 
                     String idxName = segFileName.toString().replace(".seg", ".idx");
                     Path idxPath = directory.resolve(idxName);
-                    segments.add(new Segment(key, segPath, idxPath, partitionInfo, segmentSizeThreshold));
+                    segments.add(new Segment(key, segPath, idxPath, partitionInfo, segmentSizeThreshold, segmentMetrics, faultInjector));
                 }
             }
 
@@ -124,7 +143,7 @@ public class Partition {
                 Path segPath = directory.resolve(String.format(FILE_NAME_FORMAT, 0L, "seg"));
                 Path idxPath = directory.resolve(String.format(FILE_NAME_FORMAT, 0L, "idx"));
                 Segment.create(key, segPath, idxPath, partitionInfo.partitionId, 0L);
-                segments.add(new Segment(key, segPath, idxPath, partitionInfo, segmentSizeThreshold));
+                segments.add(new Segment(key, segPath, idxPath, partitionInfo, segmentSizeThreshold, segmentMetrics, faultInjector));
             }
 
             int size = segments.size();
@@ -246,6 +265,19 @@ public class Partition {
         }
     }
 
+    private void append(RecordBatch recordBatch) throws StorageException, IOException {
+        synchronized (segments) {
+            int off = 0;
+            while (off < recordBatch.numRecords()) {
+                if (currentSegment.size() > segmentSizeThreshold) {
+                    segmentLRUCache.putIfAbsent(currentSegment, null);
+                    addSegment();
+                }
+                off = currentSegment.append(recordBatch, off);
+            }
+        }
+    }
+
     private void addSegment() throws StorageException, IOException {
         logger.debug("adding a segment: partitionInfo[{}]", partitionInfo);
 
@@ -261,7 +293,7 @@ public class Partition {
         Path idxPath = directory.resolve(String.format(FILE_NAME_FORMAT, firstTransactionId, "idx"));
         Segment.create(key, segPath, idxPath, partitionInfo.partitionId, firstTransactionId);
 
-        Segment segment = new Segment(key, segPath, idxPath, partitionInfo, segmentSizeThreshold);
+        Segment segment = new Segment(key, segPath, idxPath, partitionInfo, segmentSizeThreshold, segmentMetrics, faultInjector);
         segment.setWritable();
         segments.add(segment);
         currentSegment = segment;
@@ -310,6 +342,212 @@ public class Partition {
         return recordList;
     }
 
+    /**
+     * Returns up to {@code maxNumRecords} records starting from {@code transactionId} as a {@link RecordBatch}.
+     * Records are read from segment files without being decoded.
+     */
+    RecordBatch getRecordBatch(long transactionId, int maxNumRecords) throws StorageException, IOException {
+        ArrayList<RecordBatch> recordBatches = new ArrayList<>();
+        int numRecords = 0;
+        while (numRecords < maxNumRecords) {
+            Segment segment = SegmentFinder.findSegment(segments, transactionId + numRecords);
+            if (segment == null) {
+                break;
+            }
+
+            RecordBatch recordBatch;
+            synchronized (segments) {
+                if (!segment.isWritable()) {
+                    segment.ensureChannelOpened();
+                    segmentLRUCache.putIfAbsent(segment, null);
+                }
+                recordBatch = segment.getRecordBatch(transactionId + numRecords, maxNumRecords - numRecords);
+            }
+
+            if (recordBatch == null || recordBatch.numRecords() == 0) {
+                break;
+            }
+            recordBatches.add(recordBatch);
+            numRecords += recordBatch.numRecords();
+        }
+
+        return recordBatches.isEmpty() ? RecordBatch.EMPTY : RecordBatch.concat(recordBatches);
+    }
+
+    /**
+     * Returns {@link SegmentInfo}s of sealed segments, i.e. all segments except the current writable segment.
+     * @return list of {@link SegmentInfo}s in the transaction id order.
+     */
+    ArrayList<SegmentInfo> getSealedSegmentInfos() {
+        synchronized (segments) {
+            ArrayList<SegmentInfo> segmentInfos = new ArrayList<>();
+            for (Segment segment : segments) {
+                if (segment != currentSegment) {
+                    segmentInfos.add(
+                        new SegmentInfo(segment.firstTransactionId(), segment.maxTransactionId(), segment.size(), segment.indexSize())
+                    );
+                }
+            }
+            return segmentInfos;
+        }
+    }
+
+    /**
+     * Reads raw bytes of a sealed segment file or its index file.
+     * @param firstTransactionId the first transaction id of the segment
+     * @param fromIndex whether to read the index file
+     * @param position the file position to start reading from
+     * @param maxLength the maximum number of bytes to read
+     * @return the bytes read
+     * @throws StorageException
+     * @throws IOException
+     */
+    byte[] readSealedSegmentChunk(long firstTransactionId, boolean fromIndex, long position, int maxLength) throws StorageException, IOException {
+        synchronized (segments) {
+            Segment segment = SegmentFinder.findSegment(segments, firstTransactionId);
+            if (segment == null || segment == currentSegment || segment.firstTransactionId() != firstTransactionId) {
+                throw new StorageException("sealed segment not found: firstTransactionId=" + firstTransactionId);
+            }
+
+            segment.ensureChannelOpened();
+            segmentLRUCache.putIfAbsent(segment, null);
+            return segment.readChunk(fromIndex, position, maxLength);
+        }
+    }
+
+    /**
+     * Prepares the partition for a recovery from another storage node. The partition must be unavailable.
+     * Transactions after the low-water mark are truncated since they may not have been committed.
+     * @return the max transaction id after the truncation
+     * @throws StorageException
+     * @throws IOException
+     */
+    long beginRecovery() throws StorageException, IOException {
+        synchronized (segments) {
+            if (recovering) {
+                throw new StorageException(String.format("partition %s is already being recovered", partitionInfo.partitionId));
+            }
+
+            if (PartitionInfo.Flags.isFlagSet(partitionInfo.getFlags(), PartitionInfo.Flags.PARTITION_IS_AVAILABLE)) {
+                throw new StorageException("cannot run offline recovery while partition is online");
+            }
+
+            long lowWaterMark = partitionInfo.getLowWaterMark();
+            if (getMaxTransactionId() > lowWaterMark) {
+                truncate(lowWaterMark);
+            }
+            recovering = true;
+
+            return getMaxTransactionId();
+        }
+    }
+
+    void endRecovery() {
+        synchronized (segments) {
+            recovering = false;
+        }
+    }
+
+    Path getTransferFile(long firstTransactionId, String extension) {
+        return directory.resolve(String.format(FILE_NAME_FORMAT, firstTransactionId, extension) + ".transfer");
+    }
+
+    /**
+     * Installs a sealed segment copied from another storage node, and starts a new writable segment after it.
+     * The copied segment must start at the next transaction id of this partition. The copied segment is verified
+     * before the current segment is touched, so that a failed installation leaves the partition as it was.
+     * @param segmentInfo the {@link SegmentInfo} of the copied segment
+     * @param segTransferFile the copied segment file
+     * @param idxTransferFile the copied index file
+     * @throws StorageException
+     * @throws IOException
+     */
+    void installSegment(SegmentInfo segmentInfo, Path segTransferFile, Path idxTransferFile) throws StorageException, IOException {
+        synchronized (segments) {
+            if (currentSegment.nextTransactionId() != segmentInfo.firstTransactionId) {
+                throw new StorageException(
+                    "segment does not start at the next transaction id: segment[" + segmentInfo + "] partitionInfo[" + partitionInfo + "]"
+                );
+            }
+
+            verifyCopiedSegment(segmentInfo, segTransferFile, idxTransferFile);
+
+            Segment previousSegment = currentSegment;
+            boolean previousSegmentEmpty = previousSegment.maxTransactionId() < previousSegment.firstTransactionId();
+
+            if (previousSegmentEmpty) {
+                // The current segment is empty. Replace it with the copied segment.
+                previousSegment.delete();
+                segmentLRUCache.remove(previousSegment);
+                segments.remove(segments.size() - 1);
+            } else {
+                previousSegment.flush();
+                previousSegment.setReadOnly();
+                segmentLRUCache.putIfAbsent(previousSegment, null);
+            }
+
+            Path segPath = directory.resolve(String.format(FILE_NAME_FORMAT, segmentInfo.firstTransactionId, "seg"));
+            Path idxPath = directory.resolve(String.format(FILE_NAME_FORMAT, segmentInfo.firstTransactionId, "idx"));
+            try {
+                Files.move(idxTransferFile, idxPath, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(segTransferFile, segPath, StandardCopyOption.ATOMIC_MOVE);
+
+                Segment segment = new Segment(key, segPath, idxPath, partitionInfo, segmentSizeThreshold, segmentMetrics, faultInjector);
+                segments.add(segment);
+                currentSegment = segment;
+
+            } catch (StorageException | IOException | RuntimeException ex) {
+                // Remove the copied segment, and restore the previous segment as the writable segment
+                Files.deleteIfExists(segPath);
+                Files.deleteIfExists(idxPath);
+                if (previousSegmentEmpty) {
+                    currentSegment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                    addSegment();
+                } else {
+                    segmentLRUCache.remove(previousSegment);
+                    previousSegment.ensureChannelOpened();
+                    previousSegment.setWritable();
+                }
+                throw ex;
+            }
+
+            addSegment();
+        }
+    }
+
+    private void verifyCopiedSegment(SegmentInfo segmentInfo, Path segTransferFile, Path idxTransferFile) throws StorageException {
+        // Opening the segment recovers it, which also verifies record checksums after the last checkpoint.
+        Segment copied = new Segment(key, segTransferFile, idxTransferFile, partitionInfo, segmentSizeThreshold);
+        try {
+            if (copied.firstTransactionId() != segmentInfo.firstTransactionId) {
+                throw new StorageException(
+                    "copied segment does not match: firstTransactionId=" + copied.firstTransactionId() + " segment[" + segmentInfo + "]"
+                );
+            }
+
+            if (copied.maxTransactionId() != segmentInfo.maxTransactionId) {
+                throw new StorageException(
+                    "copied segment is incomplete: maxTransactionId=" + copied.maxTransactionId() + " segment[" + segmentInfo + "]"
+                );
+            }
+        } finally {
+            copied.close();
+        }
+    }
+
+    void appendRecoveredRecords(ArrayList<Record> records) throws StorageException, IOException {
+        append(records);
+    }
+
+    void setRecoveredHighWaterMark(long highWaterMark) throws ConcurrentUpdateException, StorageException, IOException {
+        synchronized (segments) {
+            currentSegment.flush();
+            partitionInfo.setLowWaterMark(
+                partitionInfo.sessionId(), Math.max(highWaterMark, partitionInfo.getLowWaterMark()), highWaterMark
+            );
+        }
+    }
+
     private void deleteOrphanedStorageFiles() throws IOException {
         if (!PartitionInfo.Flags.isFlagSet(partitionInfo.getFlags(), PartitionInfo.Flags.PARTITION_IS_ASSIGNED)) {
             synchronized (segments) {
@@ -366,6 +604,7 @@ public class Partition {
         REGISTRY.remove(metricsGroup, "max-transaction-request");
         REGISTRY.remove(metricsGroup, "record-header-list-request");
         REGISTRY.remove(metricsGroup, "record-list-request");
+        segmentMetrics.close();
     }
 
     private static class RequestContext {
@@ -442,7 +681,11 @@ public class Partition {
                         appendMeter.mark();
                         appendLatencyTimer.time((Timer.CheckedRunnable<Exception>) () -> {
                             AppendRequest appendRequest = (AppendRequest) msg;
-                            append(appendRequest.records);
+                            if (appendRequest.hasRecordBatch()) {
+                                append(appendRequest.recordBatch());
+                            } else {
+                                append(appendRequest.records());
+                            }
                             success(requestContext);
                         });
                         break;
@@ -501,9 +744,9 @@ public class Partition {
                         recordListRequestCounter.inc();
 
                         RecordListRequest recordListRequest = (RecordListRequest) msg;
-                        ArrayList<Record> recordList = getRecords(recordListRequest.transactionId, recordListRequest.maxNumRecords);
+                        RecordBatch recordBatch = getRecordBatch(recordListRequest.transactionId, recordListRequest.maxNumRecords);
                         requestContext.client.sendMessage(
-                            new RecordListResponse(msg.sessionId, msg.seqNum, partitionInfo.partitionId, recordList),
+                            new RecordListResponse(msg.sessionId, msg.seqNum, partitionInfo.partitionId, recordBatch),
                             true
                         );
                         break;
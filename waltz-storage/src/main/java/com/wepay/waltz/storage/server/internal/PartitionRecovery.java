@@ -0,0 +1,174 @@
+package com.wepay.waltz.storage.server.internal;
+
+import com.wepay.riff.util.Logging;
+import com.wepay.waltz.common.message.Record;
+import com.wepay.waltz.storage.client.StorageAdminClient;
+import com.wepay.waltz.storage.common.SegmentInfo;
+import com.wepay.waltz.storage.common.SessionInfo;
+import com.wepay.waltz.storage.exception.StorageException;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Rebuilds a partition of this storage node by pulling data directly from a source storage node.
+ * Sealed segments of the source are copied as whole segment and index files in checksummed chunks,
+ * and only the records after the last copied segment are replayed record by record.
+ * Like the record based recovery, the target is the source node's local low-water mark at the start of the recovery.
+ */
+class PartitionRecovery {
+
+    private static final Logger logger = Logging.getLogger(PartitionRecovery.class);
+
+    static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int MAX_PENDING_CHUNKS = 4;
+
+    private final Partition partition;
+    private final int partitionId;
+    private final StorageAdminClient sourceClient;
+    private final int batchSize;
+
+    /**
+     * Class constructor.
+     * @param partition the partition to recover
+     * @param partitionId the partition id
+     * @param sourceClient the admin client connected to the source storage node
+     * @param batchSize the number of records to fetch per request when replaying records
+     */
+    PartitionRecovery(Partition partition, int partitionId, StorageAdminClient sourceClient, int batchSize) {
+        this.partition = partition;
+        this.partitionId = partitionId;
+        this.sourceClient = sourceClient;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs the recovery.
+     * @return the max transaction id of the partition after the recovery
+     * @throws Exception thrown if the recovery failed
+     */
+    @SuppressWarnings("unchecked")
+    long run() throws Exception {
+        long highWaterMark = partition.beginRecovery();
+        try {
+            SessionInfo sourceSessionInfo = (SessionInfo) sourceClient.lastSessionInfo(partitionId).get();
+            long targetLowWaterMark = sourceSessionInfo.localLowWaterMark;
+            logger.info("recovering partition: partitionId={} highWaterMark={} target={}", partitionId, highWaterMark, targetLowWaterMark);
+
+            ArrayList<SegmentInfo> segmentInfos = (ArrayList<SegmentInfo>) sourceClient.getSegmentList(partitionId).get();
+
+            for (SegmentInfo segmentInfo : segmentInfos) {
+                if (segmentInfo.maxTransactionId > targetLowWaterMark) {
+                    break;
+                }
+
+                if (segmentInfo.maxTransactionId <= highWaterMark) {
+                    continue;
+                }
+
+                if (segmentInfo.firstTransactionId <= highWaterMark) {
+                    // The local data ends in the middle of this segment. Replay the rest of it.
+                    highWaterMark = replay(highWaterMark, segmentInfo.maxTransactionId);
+                } else {
+                    copySegment(segmentInfo);
+                    highWaterMark = segmentInfo.maxTransactionId;
+                    partition.setRecoveredHighWaterMark(highWaterMark);
+                }
+            }
+
+            highWaterMark = replay(highWaterMark, targetLowWaterMark);
+            logger.info("recovered partition: partitionId={} highWaterMark={}", partitionId, highWaterMark);
+
+            return highWaterMark;
+
+        } finally {
+            partition.endRecovery();
+        }
+    }
+
+    private void copySegment(SegmentInfo segmentInfo) throws Exception {
+        Path segTransferFile = partition.getTransferFile(segmentInfo.firstTransactionId, "seg");
+        Path idxTransferFile = partition.getTransferFile(segmentInfo.firstTransactionId, "idx");
+
+        try {
+            copyFile(segmentInfo.firstTransactionId, false, segmentInfo.segmentSize, segTransferFile);
+            copyFile(segmentInfo.firstTransactionId, true, segmentInfo.indexSize, idxTransferFile);
+            partition.installSegment(segmentInfo, segTransferFile, idxTransferFile);
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("segment copied: partitionId={} segment[{}]", partitionId, segmentInfo);
+            }
+
+        } finally {
+            deleteIfExists(segTransferFile);
+            deleteIfExists(idxTransferFile);
+        }
+    }
+
+    private void copyFile(long firstTransactionId, boolean index, long size, Path file) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ArrayDeque<CompletableFuture<Object>> pendingChunks = new ArrayDeque<>();
+            ArrayDeque<Integer> pendingLengths = new ArrayDeque<>();
+            long requested = 0L;
+            long position = 0L;
+
+            while (position < size) {
+                // Keep a few chunk requests in flight to hide the round trip time
+                while (requested < size && pendingChunks.size() < MAX_PENDING_CHUNKS) {
+                    int length = (int) Math.min((long) CHUNK_SIZE, size - requested);
+                    pendingChunks.add(sourceClient.getSegmentChunk(partitionId, firstTransactionId, index, requested, length));
+                    pendingLengths.add(length);
+                    requested += length;
+                }
+
+                byte[] chunk = (byte[]) pendingChunks.poll().get();
+                if (chunk.length != pendingLengths.poll()) {
+                    throw new StorageException("unexpected end of file: position=" + position + " file=" + file);
+                }
+
+                ByteBuffer chunkBuf = ByteBuffer.wrap(chunk);
+                while (chunkBuf.remaining() > 0) {
+                    position += channel.write(chunkBuf, position);
+                }
+            }
+
+            channel.force(true);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long replay(long highWaterMark, long targetTransactionId) throws Exception {
+        while (highWaterMark < targetTransactionId) {
+            int maxNumRecords = (int) Math.min(targetTransactionId - highWaterMark, (long) batchSize);
+            ArrayList<Record> records =
+                (ArrayList<Record>) sourceClient.getRecordList(partitionId, highWaterMark + 1, maxNumRecords).get();
+
+            if (records.isEmpty()) {
+                throw new StorageException("no record found on the source: transactionId=" + (highWaterMark + 1));
+            }
+
+            partition.appendRecoveredRecords(records);
+            highWaterMark += records.size();
+            partition.setRecoveredHighWaterMark(highWaterMark);
+        }
+
+        return highWaterMark;
+    }
+
+    private static void deleteIfExists(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.error("failed to delete file: " + file.toString());
+        }
+    }
+
+}
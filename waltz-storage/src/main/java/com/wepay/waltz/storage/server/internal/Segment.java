@@ -1,9 +1,13 @@
 package com.wepay.waltz.storage.server.internal;
 
 import com.wepay.riff.util.Logging;
+import com.wepay.waltz.common.jfr.JfrSupport;
+import com.wepay.waltz.common.jfr.SegmentAppendEvent;
+import com.wepay.waltz.common.jfr.SegmentReadEvent;
 import com.wepay.waltz.common.message.Record;
 import com.wepay.waltz.common.message.RecordHeader;
 import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.storage.common.RecordBatch;
 import com.wepay.waltz.storage.exception.StorageException;
 import org.slf4j.Logger;
 
@@ -54,21 +58,39 @@ public class Segment {
     private final Path indexFile;
     private final SegmentFileHeader header;
     private final long segmentSizeThreshold;
+    private final SegmentMetrics metrics;
+    private final StorageFaultInjector faultInjector;
     public final Index index;
 
     private final byte[] ioBytes = new byte[IO_BUF_SIZE];
     private final ByteBuffer ioBuf = ByteBuffer.wrap(ioBytes);
+    private final CRC32 crc32 = new CRC32();
 
     private FileChannel channel;
     private long nextTransactionId;
     private volatile long nextOffset;
+    private int batchWrites; // the number of writes in the current append batch
     private boolean writable = false;
     private boolean closed = false;
 
     public Segment(UUID key, Path file, Path indexFile, PartitionInfo partitionInfo, long segmentSizeThreshold) throws StorageException {
+        this(key, file, indexFile, partitionInfo, segmentSizeThreshold, SegmentMetrics.DISABLED, new StorageFaultInjector());
+    }
+
+    public Segment(
+        UUID key,
+        Path file,
+        Path indexFile,
+        PartitionInfo partitionInfo,
+        long segmentSizeThreshold,
+        SegmentMetrics metrics,
+        StorageFaultInjector faultInjector
+    ) throws StorageException {
         this.file = file;
         this.indexFile = indexFile;
         this.segmentSizeThreshold = segmentSizeThreshold;
+        this.metrics = metrics;
+        this.faultInjector = faultInjector;
 
         try {
             channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
@@ -111,7 +133,7 @@ public class Segment {
             throw new StorageException("failed to open segment file: " + file.toString(), ex);
         }
 
-        index = new Index(key, indexFile, partitionInfo);
+        index = new Index(key, indexFile, partitionInfo, metrics, faultInjector);
 
         recover(partitionInfo.getLocalLowWaterMark());
     }
@@ -156,12 +178,17 @@ public class Segment {
                 } catch (IOException ex) {
                     throw new StorageException("failed to open a segment file: " + file.toString(), ex);
                 }
+                metrics.channelOpened();
             }
         }
     }
 
     public void closeChannel() {
         synchronized (this) {
+            if (channel.isOpen()) {
+                metrics.channelClosed();
+            }
+
             try {
                 index.close();
             } catch (IOException ex) {
@@ -192,6 +219,7 @@ public class Segment {
      * @throws StorageException
      */
     private void recover(long localLowWaterMark) throws StorageException {
+        long startNanos = System.nanoTime();
         try {
             synchronized (this) {
                 if (closed) {
@@ -261,6 +289,8 @@ public class Segment {
                 nextOffset = offset;
             }
 
+            metrics.recovered(System.nanoTime() - startNanos);
+
         } catch (IOException ex) {
             throw new StorageException("failed to recover segment: segment=" + file, ex);
         }
@@ -286,13 +316,60 @@ public class Segment {
         }
     }
 
+    public long indexSize() {
+        synchronized (this) {
+            return FILE_HEADER_SIZE + Index.OFFSET_SIZE * (nextTransactionId - header.firstTransactionId);
+        }
+    }
+
+    /**
+     * Reads raw bytes of the segment file, or of the index file if {@code fromIndex} is true.
+     * This is used to copy a sealed segment to another storage node without decoding records.
+     *
+     * @param fromIndex whether to read the index file
+     * @param position the file position to start reading from
+     * @param maxLength the maximum number of bytes to read
+     * @return the bytes read, which may be fewer than {@code maxLength} at the end of the file
+     * @throws StorageException
+     * @throws IOException
+     */
+    public byte[] readChunk(boolean fromIndex, long position, int maxLength) throws StorageException, IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new StorageException("segment closed");
+            }
+
+            long size = fromIndex ? indexSize() : nextOffset;
+            if (position < 0 || position > size) {
+                throw new StorageException("chunk position out of range: position=" + position + " size=" + size);
+            }
+
+            ByteBuffer chunkBuf = ByteBuffer.allocate((int) Math.min((long) maxLength, size - position));
+            if (fromIndex) {
+                index.read(position, chunkBuf);
+            } else {
+                read(channel, position, chunkBuf);
+            }
+
+            return chunkBuf.array();
+        }
+    }
+
     public void flush() throws IOException {
         synchronized (this) {
             index.flush();
-            channel.force(true);
+            force(true);
         }
     }
 
+    // Forces writes to the segment file to disk, and records the latency
+    private void force(boolean metaData) throws IOException {
+        long startNanos = System.nanoTime();
+        faultInjector.beforeFsync();
+        channel.force(metaData);
+        metrics.segmentForced(System.nanoTime() - startNanos);
+    }
+
     public void checksum(CRC32 crc32) throws IOException {
         ByteBuffer byteBuffer = ByteBuffer.allocate(LARGE_BUFFER_SIZE);
 
@@ -322,7 +399,7 @@ public class Segment {
             }
 
             try {
-                channel.force(true);
+                force(true);
             } catch (ClosedChannelException ex) {
                 // do nothing.
             } catch (IOException ex) {
@@ -361,7 +438,11 @@ public class Segment {
                 throw new StorageException("segment not writable");
             }
 
+            Object event = JfrSupport.isEnabled() ? SegmentEvents.beginAppend() : null;
             channel.position(nextOffset);
+            long startOffset = nextOffset;
+            long firstTransactionId = nextTransactionId;
+            batchWrites = 0;
             int cumulativeCount = off;
             while (cumulativeCount < records.size()) {
                 Record record = records.get(cumulativeCount);
@@ -369,7 +450,7 @@ public class Segment {
                     throw new StorageException("transaction out of order");
                 }
 
-                index.put(record.transactionId, nextOffset);
+                batchWrites += index.put(record.transactionId, nextOffset);
 
                 nextOffset += append(record);
                 nextTransactionId++;
@@ -383,12 +464,93 @@ public class Segment {
                     break;
                 }
             }
-            channel.force(false);
+            force(false);
+            metrics.appended(nextOffset - startOffset, batchWrites);
+            if (event != null) {
+                SegmentEvents.completeAppend(event, header.partitionId, firstTransactionId, cumulativeCount - off, nextOffset - startOffset);
+            }
 
             return cumulativeCount;
         }
     }
 
+    /**
+     * Appends records of a {@link RecordBatch} starting from the {@code off}-th record.
+     * The batch is in the segment record format, so the records are written as they are after validating
+     * transaction ids. Record checksums are not recomputed here. They were computed when the batch was encoded,
+     * and the batch as a whole is checked when it is received. Like {@link #append(ArrayList, int)}, this stops
+     * when the segment size exceeds the threshold.
+     *
+     * @param recordBatch the record batch
+     * @param off the index of the first record to append
+     * @return the index of the first record not appended
+     * @throws StorageException
+     * @throws IOException
+     */
+    public int append(RecordBatch recordBatch, int off) throws StorageException, IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new StorageException("segment closed");
+            }
+
+            if (!writable) {
+                throw new StorageException("segment not writable");
+            }
+
+            Object event = JfrSupport.isEnabled() ? SegmentEvents.beginAppend() : null;
+
+            // Find the records to write
+            int end = off;
+            long batchSize = 0;
+            while (end < recordBatch.numRecords()) {
+                if (recordBatch.transactionId(end) != nextTransactionId + (end - off)) {
+                    throw new StorageException("transaction out of order");
+                }
+
+                batchSize = recordBatch.offset(end + 1) - recordBatch.offset(off);
+                end++;
+
+                if (nextOffset + batchSize > segmentSizeThreshold) {
+                    break;
+                }
+            }
+
+            if (end == off) {
+                return off;
+            }
+
+            long[] offsets = new long[end - off];
+            for (int i = off; i < end; i++) {
+                offsets[i - off] = nextOffset + (recordBatch.offset(i) - recordBatch.offset(off));
+            }
+
+            ByteBuffer batchBuf = ByteBuffer.wrap(recordBatch.bytes(), recordBatch.offset(off), (int) batchSize);
+            long position = nextOffset;
+            batchWrites = 0;
+            while (batchBuf.remaining() > 0) {
+                position += channel.write(batchBuf, position);
+                batchWrites++;
+            }
+            batchWrites += index.put(nextTransactionId, offsets);
+
+            long prevTransactionId = nextTransactionId;
+            nextOffset += batchSize;
+            nextTransactionId += end - off;
+
+            // Flush if a checkpoint was crossed
+            if (nextTransactionId / CHECKPOINT_INTERVAL != prevTransactionId / CHECKPOINT_INTERVAL) {
+                flush();
+            }
+            force(false);
+            metrics.appended(batchSize, batchWrites);
+            if (event != null) {
+                SegmentEvents.completeAppend(event, header.partitionId, prevTransactionId, end - off, batchSize);
+            }
+
+            return end;
+        }
+    }
+
     private int append(Record record) throws StorageException, IOException {
         int amount = 0;
 
@@ -403,6 +565,7 @@ public class Segment {
 
         while (ioBuf.remaining() > 0) {
             amount += channel.write(ioBuf);
+            batchWrites++;
         }
 
         ioBuf.flip();
@@ -411,9 +574,10 @@ public class Segment {
 
         while (dataBuf.remaining() > 0) {
             amount += channel.write(dataBuf);
+            batchWrites++;
         }
 
-        CRC32 crc32 = new CRC32();
+        crc32.reset();
         crc32.update(ioBuf);
         crc32.update(record.data);
 
@@ -423,6 +587,7 @@ public class Segment {
 
         while (ioBuf.remaining() > 0) {
             amount += channel.write(ioBuf);
+            batchWrites++;
         }
 
         return amount;
@@ -456,6 +621,8 @@ public class Segment {
             ReqId reqId = new ReqId(ioBuf.getLong(), ioBuf.getLong());
             int transactionHeader = ioBuf.getInt();
 
+            metrics.read(Index.OFFSET_SIZE + RECORD_HEADER_SIZE - 8, RECORD_HEADER_SIZE - 8);
+
             return new RecordHeader(transactionId, reqId, transactionHeader);
         }
     }
@@ -466,6 +633,8 @@ public class Segment {
                 throw new StorageException("segment closed");
             }
 
+            Object event = JfrSupport.isEnabled() ? SegmentEvents.beginRead() : null;
+
             long offset = index.get(transactionId);
             if (offset < 0) {
                 return null; // not found
@@ -498,10 +667,66 @@ public class Segment {
                 }
             }
 
+            metrics.read(Index.OFFSET_SIZE + RECORD_HEADER_SIZE + dataLen, RECORD_HEADER_SIZE + dataLen);
+            if (event != null) {
+                SegmentEvents.completeRead(event, header.partitionId, transactionId, 1, RECORD_HEADER_SIZE + dataLen);
+            }
+
             return new Record(transactionId, reqId, transactionHeader, dataBytes, dataChecksum);
         }
     }
 
+    /**
+     * Reads up to {@code maxNumRecords} records starting from {@code transactionId} as a {@link RecordBatch}.
+     * The records are read from the segment file in one read without decoding.
+     *
+     * @param transactionId the transaction id of the first record
+     * @param maxNumRecords the maximum number of records
+     * @return the record batch, or null if the transaction is not found in this segment
+     * @throws StorageException
+     * @throws IOException
+     */
+    public RecordBatch getRecordBatch(long transactionId, int maxNumRecords) throws StorageException, IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new StorageException("segment closed");
+            }
+
+            if (transactionId < header.firstTransactionId || transactionId >= nextTransactionId) {
+                return null; // not found
+            }
+
+            Object event = JfrSupport.isEnabled() ? SegmentEvents.beginRead() : null;
+
+            long startOffset = index.get(transactionId);
+            if (startOffset < 0) {
+                return null; // not found
+            }
+
+            long nextId = Math.min(transactionId + maxNumRecords, nextTransactionId);
+            long endOffset = nextId < nextTransactionId ? index.get(nextId) : nextOffset;
+            if (endOffset < startOffset) {
+                throw new StorageException("segment corrupted: index corrupted");
+            }
+
+            ByteBuffer batchBuf = ByteBuffer.allocate((int) (endOffset - startOffset));
+            read(channel, startOffset, batchBuf);
+
+            int numIndexReads = nextId < nextTransactionId ? 2 : 1;
+            metrics.read(Index.OFFSET_SIZE * numIndexReads + batchBuf.capacity(), batchBuf.capacity());
+
+            RecordBatch recordBatch = RecordBatch.wrap(batchBuf.array());
+            if (recordBatch.numRecords() > 0 && recordBatch.transactionId(0) != transactionId) {
+                throw new StorageException("transaction id mismatch");
+            }
+            if (event != null) {
+                SegmentEvents.completeRead(event, header.partitionId, transactionId, recordBatch.numRecords(), batchBuf.capacity());
+            }
+
+            return recordBatch;
+        }
+    }
+
     // check the record at the offset. If valid, it returns the size, otherwise it returns -1.
     public int checkRecord(long offset, long transactionId) throws IOException {
         synchronized (this) {
@@ -516,7 +741,7 @@ public class Segment {
             }
             ioBuf.flip();
 
-            CRC32 crc32 = new CRC32();
+            crc32.reset();
             crc32.update(ioBuf);
 
             if (ioBuf.getLong(TRANSACTION_ID_POSITION) != transactionId) {
@@ -570,13 +795,24 @@ public class Segment {
             index.truncate(transactionId);
 
             channel.truncate(offset);
-            channel.force(true);
+            force(true);
 
             nextOffset = offset;
             nextTransactionId = transactionId + 1;
         }
     }
 
+    // Reads bytes at the given position without moving the channel position
+    private static void read(FileChannel channel, long position, ByteBuffer buf) throws StorageException, IOException {
+        while (buf.remaining() > 0) {
+            int n = channel.read(buf, position);
+            if (n < 0) {
+                throw new StorageException("end of file");
+            }
+            position += n;
+        }
+    }
+
     public String toString() {
         return "Segment[partitionId=" + header.partitionId + " file=" + file.toString() + "]";
     }
@@ -640,12 +876,16 @@ public class Segment {
 
         private final Path file;
         private final SegmentFileHeader header;
+        private final SegmentMetrics metrics;
+        private final StorageFaultInjector faultInjector;
         private final ByteBuffer offsetBuf = ByteBuffer.allocate(8);
 
         private FileChannel channel;
 
-        Index(UUID key, Path file, PartitionInfo partitionInfo) throws StorageException {
+        Index(UUID key, Path file, PartitionInfo partitionInfo, SegmentMetrics metrics, StorageFaultInjector faultInjector) throws StorageException {
             this.file = file;
+            this.metrics = metrics;
+            this.faultInjector = faultInjector;
 
             try {
                 channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
@@ -704,15 +944,39 @@ public class Segment {
             }
         }
 
-        void put(long transactionId, long offset) throws IOException {
+        // Writes the offset of the given transaction id. It returns the number of writes.
+        int put(long transactionId, long offset) throws IOException {
             synchronized (this) {
                 offsetBuf.clear();
                 offsetBuf.putLong(offset);
                 offsetBuf.flip();
                 channel.position(FILE_HEADER_SIZE + OFFSET_SIZE * (transactionId - header.firstTransactionId));
+                int numWrites = 0;
                 while (offsetBuf.remaining() > 0) {
                     channel.write(offsetBuf);
+                    numWrites++;
+                }
+                return numWrites;
+            }
+        }
+
+        // Writes offsets of consecutive transactions starting from the given transaction id in one write.
+        // It returns the number of writes.
+        int put(long firstTransactionId, long[] offsets) throws IOException {
+            synchronized (this) {
+                ByteBuffer buf = ByteBuffer.allocate(OFFSET_SIZE * offsets.length);
+                for (long offset : offsets) {
+                    buf.putLong(offset);
+                }
+                buf.flip();
+
+                long position = FILE_HEADER_SIZE + OFFSET_SIZE * (firstTransactionId - header.firstTransactionId);
+                int numWrites = 0;
+                while (buf.remaining() > 0) {
+                    position += channel.write(buf, position);
+                    numWrites++;
                 }
+                return numWrites;
             }
         }
 
@@ -722,7 +986,7 @@ public class Segment {
                 long size = FILE_HEADER_SIZE + OFFSET_SIZE * (transactionId + 1 - header.firstTransactionId);
                 if (channel.size() > size) {
                     channel.truncate(size);
-                    channel.force(true);
+                    force();
                 }
             }
         }
@@ -737,14 +1001,28 @@ public class Segment {
 
         void flush() throws IOException {
             synchronized (this) {
-                channel.force(true);
+                force();
+            }
+        }
+
+        // Forces writes to the index file to disk, and records the latency
+        private void force() throws IOException {
+            long startNanos = System.nanoTime();
+            faultInjector.beforeFsync();
+            channel.force(true);
+            metrics.indexForced(System.nanoTime() - startNanos);
+        }
+
+        void read(long position, ByteBuffer buf) throws StorageException, IOException {
+            synchronized (this) {
+                Segment.read(channel, position, buf);
             }
         }
 
         void close() throws IOException {
             synchronized (this) {
                 try {
-                    channel.force(true);
+                    force();
                 } catch (IOException ex) {
                     // ignore
                 }
@@ -775,4 +1053,26 @@ public class Segment {
         }
     }
 
+    /**
+     * Refers to {@link SegmentAppendEvent} and {@link SegmentReadEvent}, which require JFR. This class is loaded
+     * only when {@link JfrSupport#isEnabled()} is {@code true}, so that the storage runs on JDKs without JFR.
+     */
+    private static final class SegmentEvents {
+        static Object beginAppend() {
+            return new SegmentAppendEvent();
+        }
+
+        static void completeAppend(Object event, int partitionId, long firstTransactionId, int numRecords, long numBytes) {
+            ((SegmentAppendEvent) event).complete(partitionId, firstTransactionId, numRecords, numBytes);
+        }
+
+        static Object beginRead() {
+            return new SegmentReadEvent();
+        }
+
+        static void completeRead(Object event, int partitionId, long firstTransactionId, int numRecords, long numBytes) {
+            ((SegmentReadEvent) event).complete(partitionId, firstTransactionId, numRecords, numBytes);
+        }
+    }
+
 }
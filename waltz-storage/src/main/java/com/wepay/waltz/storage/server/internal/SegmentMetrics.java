@@ -0,0 +1,157 @@
+package com.wepay.waltz.storage.server.internal;
+
+import com.wepay.riff.metrics.core.Histogram;
+import com.wepay.riff.metrics.core.Meter;
+import com.wepay.riff.metrics.core.MetricRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * I/O metrics of the segments of a partition. Latencies are recorded in microseconds.
+ * <ul>
+ *     <li>segment-force-latency, index-force-latency: the time spent in {@code FileChannel.force()}</li>
+ *     <li>append-batch-bytes, append-batch-writes: the bytes and the write calls of an append batch, including index writes</li>
+ *     <li>read-bytes, read-returned-bytes: the bytes read from segment and index files to serve reads,
+ *     and the bytes of the records returned. read-amplification is the ratio of the two in percent for each read.</li>
+ *     <li>segment-channel-open, segment-channel-close: reopening and closing of segment files by the segment cache</li>
+ *     <li>segment-recovery-latency: the time spent in scanning a segment when it is opened</li>
+ * </ul>
+ */
+public final class SegmentMetrics {
+
+    private static final MetricRegistry REGISTRY = MetricRegistry.getInstance();
+
+    static final String SEGMENT_FORCE_LATENCY = "segment-force-latency";
+    static final String INDEX_FORCE_LATENCY = "index-force-latency";
+    static final String APPEND_BATCH_BYTES = "append-batch-bytes";
+    static final String APPEND_BATCH_WRITES = "append-batch-writes";
+    static final String READ_BYTES = "read-bytes";
+    static final String READ_RETURNED_BYTES = "read-returned-bytes";
+    static final String READ_AMPLIFICATION = "read-amplification";
+    static final String SEGMENT_CHANNEL_OPEN = "segment-channel-open";
+    static final String SEGMENT_CHANNEL_CLOSE = "segment-channel-close";
+    static final String SEGMENT_RECOVERY_LATENCY = "segment-recovery-latency";
+
+    /**
+     * Metrics which record nothing. This is used when a segment is opened outside of a storage node, e.g. by tools.
+     */
+    public static final SegmentMetrics DISABLED = new SegmentMetrics();
+
+    private final String metricsGroup;
+    private final boolean enabled;
+
+    final Histogram segmentForceLatencyHistogram;
+    final Histogram indexForceLatencyHistogram;
+    final Histogram appendBatchBytesHistogram;
+    final Histogram appendBatchWritesHistogram;
+    final Meter readBytesMeter;
+    final Meter readReturnedBytesMeter;
+    final Histogram readAmplificationHistogram;
+    final Meter segmentChannelOpenMeter;
+    final Meter segmentChannelCloseMeter;
+    final Histogram segmentRecoveryLatencyHistogram;
+
+    /**
+     * Class constructor.
+     * @param metricsGroup The metrics group of the partition.
+     */
+    public SegmentMetrics(String metricsGroup) {
+        this.metricsGroup = metricsGroup;
+        this.enabled = true;
+        this.segmentForceLatencyHistogram = REGISTRY.histogram(metricsGroup, SEGMENT_FORCE_LATENCY);
+        this.indexForceLatencyHistogram = REGISTRY.histogram(metricsGroup, INDEX_FORCE_LATENCY);
+        this.appendBatchBytesHistogram = REGISTRY.histogram(metricsGroup, APPEND_BATCH_BYTES);
+        this.appendBatchWritesHistogram = REGISTRY.histogram(metricsGroup, APPEND_BATCH_WRITES);
+        this.readBytesMeter = REGISTRY.meter(metricsGroup, READ_BYTES);
+        this.readReturnedBytesMeter = REGISTRY.meter(metricsGroup, READ_RETURNED_BYTES);
+        this.readAmplificationHistogram = REGISTRY.histogram(metricsGroup, READ_AMPLIFICATION);
+        this.segmentChannelOpenMeter = REGISTRY.meter(metricsGroup, SEGMENT_CHANNEL_OPEN);
+        this.segmentChannelCloseMeter = REGISTRY.meter(metricsGroup, SEGMENT_CHANNEL_CLOSE);
+        this.segmentRecoveryLatencyHistogram = REGISTRY.histogram(metricsGroup, SEGMENT_RECOVERY_LATENCY);
+    }
+
+    private SegmentMetrics() {
+        this.metricsGroup = null;
+        this.enabled = false;
+        this.segmentForceLatencyHistogram = null;
+        this.indexForceLatencyHistogram = null;
+        this.appendBatchBytesHistogram = null;
+        this.appendBatchWritesHistogram = null;
+        this.readBytesMeter = null;
+        this.readReturnedBytesMeter = null;
+        this.readAmplificationHistogram = null;
+        this.segmentChannelOpenMeter = null;
+        this.segmentChannelCloseMeter = null;
+        this.segmentRecoveryLatencyHistogram = null;
+    }
+
+    void segmentForced(long nanos) {
+        if (enabled) {
+            segmentForceLatencyHistogram.update(micros(nanos));
+        }
+    }
+
+    void indexForced(long nanos) {
+        if (enabled) {
+            indexForceLatencyHistogram.update(micros(nanos));
+        }
+    }
+
+    void appended(long bytes, int writes) {
+        if (enabled) {
+            appendBatchBytesHistogram.update(bytes);
+            appendBatchWritesHistogram.update(writes);
+        }
+    }
+
+    void read(long bytesRead, long bytesReturned) {
+        if (enabled) {
+            readBytesMeter.mark(bytesRead);
+            readReturnedBytesMeter.mark(bytesReturned);
+            if (bytesReturned > 0) {
+                readAmplificationHistogram.update(bytesRead * 100 / bytesReturned);
+            }
+        }
+    }
+
+    void channelOpened() {
+        if (enabled) {
+            segmentChannelOpenMeter.mark();
+        }
+    }
+
+    void channelClosed() {
+        if (enabled) {
+            segmentChannelCloseMeter.mark();
+        }
+    }
+
+    void recovered(long nanos) {
+        if (enabled) {
+            segmentRecoveryLatencyHistogram.update(micros(nanos));
+        }
+    }
+
+    /**
+     * Un-registers all metrics.
+     */
+    public void close() {
+        if (enabled) {
+            REGISTRY.remove(metricsGroup, SEGMENT_FORCE_LATENCY);
+            REGISTRY.remove(metricsGroup, INDEX_FORCE_LATENCY);
+            REGISTRY.remove(metricsGroup, APPEND_BATCH_BYTES);
+            REGISTRY.remove(metricsGroup, APPEND_BATCH_WRITES);
+            REGISTRY.remove(metricsGroup, READ_BYTES);
+            REGISTRY.remove(metricsGroup, READ_RETURNED_BYTES);
+            REGISTRY.remove(metricsGroup, READ_AMPLIFICATION);
+            REGISTRY.remove(metricsGroup, SEGMENT_CHANNEL_OPEN);
+            REGISTRY.remove(metricsGroup, SEGMENT_CHANNEL_CLOSE);
+            REGISTRY.remove(metricsGroup, SEGMENT_RECOVERY_LATENCY);
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
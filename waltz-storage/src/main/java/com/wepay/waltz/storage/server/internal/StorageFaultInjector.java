@@ -0,0 +1,49 @@
+package com.wepay.waltz.storage.server.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Injects faults into the storage for performance testing, e.g. to reproduce a slow disk on one of the replicas.
+ * No fault is injected by default. Faults can be changed while the storage is running.
+ */
+public final class StorageFaultInjector {
+
+    private volatile long fsyncDelayNanos = 0L;
+
+    /**
+     * Sets the delay added to every fsync of segment and index files. No delay is added if it is 0.
+     * @param delay the delay.
+     * @param unit the unit of the delay.
+     */
+    public void setFsyncDelay(long delay, TimeUnit unit) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("fsync delay must not be negative");
+        }
+        fsyncDelayNanos = unit.toNanos(delay);
+    }
+
+    /**
+     * @param unit the unit of the delay.
+     * @return the delay added to every fsync.
+     */
+    public long getFsyncDelay(TimeUnit unit) {
+        return unit.convert(fsyncDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Blocks the calling thread for the fsync delay. This is called right before a file is forced to the disk.
+     */
+    void beforeFsync() {
+        long delayNanos = fsyncDelayNanos;
+        if (delayNanos > 0) {
+            long deadline = System.nanoTime() + delayNanos;
+            long remaining = delayNanos;
+            while (remaining > 0 && !Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(remaining);
+                remaining = deadline - System.nanoTime();
+            }
+        }
+    }
+
+}
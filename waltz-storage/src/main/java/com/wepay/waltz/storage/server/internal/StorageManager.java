@@ -1,8 +1,10 @@
 package com.wepay.waltz.storage.server.internal;
 
 import com.wepay.riff.util.Logging;
+import com.wepay.waltz.storage.client.StorageAdminClient;
 import com.wepay.waltz.storage.exception.ConcurrentUpdateException;
 import com.wepay.waltz.storage.exception.StorageException;
+import io.netty.handler.ssl.SslContext;
 import org.slf4j.Logger;
 
 import java.io.IOException;
@@ -28,6 +30,7 @@ public class StorageManager {
     private final HashMap<Integer, Partition> partitions;
     private final long segmentSizeThreshold;
     private final int segmentCacheCapacity;
+    private final StorageFaultInjector faultInjector;
 
     private ControlFile controlFile = null;
     private boolean running = true;
@@ -39,15 +42,40 @@ public class StorageManager {
      * @param segmentSizeThreshold The maximum size of each Segment.
      * @param numPartitions The total number of partitions in the cluster.
      * @param key The cluster key.
+     * @param segmentCacheCapacity The maximum number of segments with open files per partition.
      * @throws StorageException
      * @throws IOException
      */
     public StorageManager(String directory, long segmentSizeThreshold, int numPartitions, UUID key, int segmentCacheCapacity) throws IOException, StorageException {
+        this(directory, segmentSizeThreshold, numPartitions, key, segmentCacheCapacity, new StorageFaultInjector());
+    }
+
+    /**
+     * This method initializes private data members of this class and also creates the Control File.
+     *
+     * @param directory The root directory of Storage where the transaction data is stored.
+     * @param segmentSizeThreshold The maximum size of each Segment.
+     * @param numPartitions The total number of partitions in the cluster.
+     * @param key The cluster key.
+     * @param segmentCacheCapacity The maximum number of segments with open files per partition.
+     * @param faultInjector The fault injector shared by all partitions.
+     * @throws StorageException
+     * @throws IOException
+     */
+    public StorageManager(
+        String directory,
+        long segmentSizeThreshold,
+        int numPartitions,
+        UUID key,
+        int segmentCacheCapacity,
+        StorageFaultInjector faultInjector
+    ) throws IOException, StorageException {
         logger.debug("StorageManager constructor is called");
         this.directory = FileSystems.getDefault().getPath(directory);
         this.partitions = new HashMap<>();
         this.segmentSizeThreshold = segmentSizeThreshold;
         this.segmentCacheCapacity = segmentCacheCapacity;
+        this.faultInjector = faultInjector;
 
         this.controlFile = new ControlFile(key, this.directory.resolve(ControlFile.FILE_NAME), numPartitions, true);
         logger.debug("storage opened: directory={}", directory);
@@ -117,7 +145,7 @@ public class StorageManager {
                         Files.createDirectory(partitionDir);
                     }
 
-                    Partition partition = new Partition(controlFile.key, partitionDir, partitionInfo, segmentSizeThreshold, segmentCacheCapacity);
+                    Partition partition = new Partition(controlFile.key, partitionDir, partitionInfo, segmentSizeThreshold, segmentCacheCapacity, faultInjector);
                     partition.open();
                     partitions.put(partitionId, partition);
                 } else {
@@ -184,6 +212,33 @@ public class StorageManager {
         }
     }
 
+    /**
+     * Rebuilds a partition by pulling its data directly from a source storage node. See {@link PartitionRecovery}.
+     *
+     * @param partitionId The id of the partition to recover.
+     * @param sourceHost The host of the source storage node.
+     * @param sourceAdminPort The admin port of the source storage node.
+     * @param batchSize The number of records to fetch per request when replaying records.
+     * @param sslCtx The SSL context used to connect to the source storage node.
+     * @return The max transaction id of the partition after the recovery.
+     * @throws Exception thrown if the recovery failed.
+     */
+    public long recoverPartition(int partitionId, String sourceHost, int sourceAdminPort, int batchSize, SslContext sslCtx) throws Exception {
+        Partition partition = getPartition(partitionId);
+        if (partition == null) {
+            throw new StorageException("Partition:" + partitionId + " is not assigned.");
+        }
+
+        StorageAdminClient sourceClient =
+            new StorageAdminClient(sourceHost, sourceAdminPort, sslCtx, controlFile.key, controlFile.getNumPartitions());
+        try {
+            sourceClient.open();
+            return new PartitionRecovery(partition, partitionId, sourceClient, batchSize).run();
+        } finally {
+            sourceClient.close();
+        }
+    }
+
     public int checksum(int partitionId) throws StorageException, IOException {
         Partition partition = getPartition(partitionId);
         return (partition != null) ? partition.checksum() : -1;
@@ -7,6 +7,7 @@ import com.wepay.waltz.common.metadata.StoreMetadata;
 import com.wepay.waltz.common.util.Utils;
 import com.wepay.waltz.storage.WaltzStorage;
 import com.wepay.waltz.storage.WaltzStorageConfig;
+import com.wepay.waltz.storage.common.SegmentInfo;
 import com.wepay.waltz.storage.common.SessionInfo;
 import com.wepay.waltz.storage.exception.StorageRpcException;
 import com.wepay.waltz.test.util.ClientUtil;
@@ -35,6 +36,7 @@ import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public final class StorageAdminClientTest {
@@ -52,6 +54,7 @@ public final class StorageAdminClientTest {
     private Path storageDir;
     private ZooKeeperServerRunner zkServerRunner;
     private WaltzStorageConfig waltzStorageConfig;
+    private Properties storageProps;
 
     @Before
     public void setup() throws Exception {
@@ -86,7 +89,7 @@ public final class StorageAdminClientTest {
         // Set cluster key
         key = new StoreMetadata(zkClient, new ZNode(clusterRoot, StoreMetadata.STORE_ZNODE_NAME)).getStoreParams().key;
 
-        Properties storageProps = new Properties();
+        storageProps = new Properties();
         storageProps.setProperty(WaltzStorageConfig.STORAGE_JETTY_PORT, String.valueOf(storageJettyPort));
         storageProps.setProperty(WaltzStorageConfig.SEGMENT_SIZE_THRESHOLD, String.valueOf(segmentSizeThreshold));
         storageProps.setProperty(WaltzStorageConfig.STORAGE_DIRECTORY, storageDir.toString());
@@ -228,6 +231,67 @@ public final class StorageAdminClientTest {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRecoverPartition() throws Exception {
+        Path destinationDir = storageDir.resolve("destination");
+        Files.createDirectory(destinationDir);
+        Properties destinationProps = new Properties();
+        destinationProps.putAll(storageProps);
+        destinationProps.setProperty(WaltzStorageConfig.STORAGE_JETTY_PORT, String.valueOf(portFinder.getPort()));
+        destinationProps.setProperty(WaltzStorageConfig.STORAGE_DIRECTORY, destinationDir.toString());
+
+        WaltzStorageRunner sourceRunner = new WaltzStorageRunner(portFinder, waltzStorageConfig, segmentSizeThreshold);
+        WaltzStorageRunner destinationRunner =
+            new WaltzStorageRunner(portFinder, new WaltzStorageConfig(destinationProps), segmentSizeThreshold);
+        try {
+            sourceRunner.startAsync();
+            WaltzStorage source = sourceRunner.awaitStart();
+            destinationRunner.startAsync();
+            WaltzStorage destination = destinationRunner.awaitStart();
+
+            List<Integer> partitionIds = IntStream.range(0, NUM_PARTITIONS).boxed().collect(Collectors.toList());
+            StorageAdminClient sourceAdminClient = new StorageAdminClient(host, source.adminPort, sslCtx, key, NUM_PARTITIONS);
+            sourceAdminClient.open();
+            sourceAdminClient.setPartitionAssignment(partitionIds, true, false).get();
+            StorageAdminClient destinationAdminClient = new StorageAdminClient(host, destination.adminPort, sslCtx, key, NUM_PARTITIONS);
+            destinationAdminClient.open();
+            destinationAdminClient.setPartitionAssignment(partitionIds, true, false).get();
+
+            // Write records spanning multiple segments to the source.
+            ArrayList<Record> records = ClientUtil.makeRecords(0, 50);
+            int numRecords = records.size();
+            StorageClient client = new StorageClient(host, source.port, sslCtx, key, NUM_PARTITIONS);
+            client.open();
+            client.appendRecords(SESSION_ID, 0, records).get();
+            client.setLowWaterMark(SESSION_ID, 0, numRecords - 1).get();
+            client.close();
+
+            ArrayList<SegmentInfo> segmentInfos = (ArrayList<SegmentInfo>) sourceAdminClient.getSegmentList(0).get();
+            assertTrue(segmentInfos.size() > 1);
+
+            // Sealed segments are copied, and the rest is replayed.
+            destinationAdminClient.recoverPartition(0, host, source.adminPort, 7).get();
+
+            ArrayList<Record> recovered = (ArrayList<Record>) destinationAdminClient.getRecordList(0, 0, numRecords + 1).get();
+            assertEquals(records, recovered);
+            assertEquals(numRecords - 1, ((SessionInfo) destinationAdminClient.lastSessionInfo(0).get()).localLowWaterMark);
+
+            ArrayList<SegmentInfo> copied = (ArrayList<SegmentInfo>) destinationAdminClient.getSegmentList(0).get();
+            assertTrue(copied.size() >= segmentInfos.size());
+            for (int i = 0; i < segmentInfos.size(); i++) {
+                assertEquals(segmentInfos.get(i).firstTransactionId, copied.get(i).firstTransactionId);
+                assertEquals(segmentInfos.get(i).maxTransactionId, copied.get(i).maxTransactionId);
+            }
+
+            sourceAdminClient.close();
+            destinationAdminClient.close();
+        } finally {
+            destinationRunner.stop();
+            sourceRunner.stop();
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void testLastSessionInfo() throws Exception {
@@ -93,7 +93,7 @@ public class StorageMessageCodecV0Test {
         assertEquals(appendRequest1.seqNum, appendRequest2.seqNum);
         assertEquals(appendRequest1.partitionId, appendRequest2.partitionId);
         assertEquals(appendRequest1.usedByOfflineRecovery, appendRequest2.usedByOfflineRecovery);
-        assertEquals(appendRequest1.records, appendRequest2.records);
+        assertEquals(appendRequest1.records(), appendRequest2.records());
 
     }
 
@@ -0,0 +1,207 @@
+package com.wepay.waltz.storage.common.message;
+
+import com.wepay.riff.message.ByteArrayMessageAttributeReader;
+import com.wepay.riff.message.ByteArrayMessageAttributeWriter;
+import com.wepay.riff.network.Message;
+import com.wepay.waltz.common.message.Record;
+import com.wepay.waltz.common.message.ReqId;
+import com.wepay.waltz.common.util.Utils;
+import com.wepay.waltz.storage.common.RecordBatch;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StorageMessageCodecV1Test {
+    private final StorageMessageCodecV1 codec = new StorageMessageCodecV1();
+    private final Random rand = new Random();
+
+    @Test
+    public void testCodecVersion() {
+        assertEquals(1, codec.version());
+    }
+
+    @Test
+    public void testOpenRequest() {
+        OpenRequest openRequest1 = new OpenRequest(new UUID(rand.nextLong(), rand.nextLong()), rand.nextInt());
+        OpenRequest openRequest2 = encodeThenDecode(openRequest1);
+        assertEquals(StorageMessageType.OPEN_REQUEST, openRequest2.type());
+        assertEquals(openRequest1.type(), openRequest2.type());
+        assertEquals(openRequest1.sessionId, openRequest2.sessionId);
+        assertEquals(openRequest1.seqNum, openRequest2.seqNum);
+        assertEquals(openRequest1.partitionId, openRequest2.partitionId);
+        assertEquals(openRequest1.key, openRequest2.key);
+        assertEquals(openRequest1.numPartitions, openRequest2.numPartitions);
+    }
+
+    @Test
+    public void testLastSessionInfoRequest() {
+        LastSessionInfoRequest lastSessionInfoRequest1 = new LastSessionInfoRequest(rand.nextLong(), rand.nextLong(), rand.nextInt(), true);
+        LastSessionInfoRequest lastSessionInfoRequest2 = encodeThenDecode(lastSessionInfoRequest1);
+        assertEquals(StorageMessageType.LAST_SESSION_INFO_REQUEST, lastSessionInfoRequest2.type());
+        assertEquals(lastSessionInfoRequest1.type(), lastSessionInfoRequest2.type());
+        assertEquals(lastSessionInfoRequest1.sessionId, lastSessionInfoRequest2.sessionId);
+        assertEquals(lastSessionInfoRequest1.seqNum, lastSessionInfoRequest2.seqNum);
+        assertEquals(lastSessionInfoRequest1.partitionId, lastSessionInfoRequest2.partitionId);
+        assertEquals(lastSessionInfoRequest1.usedByOfflineRecovery, lastSessionInfoRequest2.usedByOfflineRecovery);
+    }
+
+    @Test
+    public void testSetLowWaterMarkRequest() {
+        SetLowWaterMarkRequest setLowWaterMarkRequest1 = new SetLowWaterMarkRequest(rand.nextLong(), rand.nextLong(), rand.nextInt(), rand.nextLong(), true);
+        SetLowWaterMarkRequest setLowWaterMarkRequest2 = encodeThenDecode(setLowWaterMarkRequest1);
+        assertEquals(StorageMessageType.SET_LOW_WATER_MARK_REQUEST, setLowWaterMarkRequest2.type());
+        assertEquals(setLowWaterMarkRequest1.type(), setLowWaterMarkRequest2.type());
+        assertEquals(setLowWaterMarkRequest1.sessionId, setLowWaterMarkRequest2.sessionId);
+        assertEquals(setLowWaterMarkRequest1.seqNum, setLowWaterMarkRequest2.seqNum);
+        assertEquals(setLowWaterMarkRequest1.partitionId, setLowWaterMarkRequest2.partitionId);
+        assertEquals(setLowWaterMarkRequest1.usedByOfflineRecovery, setLowWaterMarkRequest2.usedByOfflineRecovery);
+        assertEquals(setLowWaterMarkRequest1.lowWaterMark, setLowWaterMarkRequest2.lowWaterMark);
+    }
+
+    @Test
+    public void testTruncateRequest() {
+        TruncateRequest truncateRequest1 = new TruncateRequest(rand.nextLong(), rand.nextLong(), rand.nextInt(), rand.nextLong(), true);
+        TruncateRequest truncateRequest2 = encodeThenDecode(truncateRequest1);
+        assertEquals(StorageMessageType.TRUNCATE_REQUEST, truncateRequest2.type());
+        assertEquals(truncateRequest1.type(), truncateRequest2.type());
+        assertEquals(truncateRequest1.sessionId, truncateRequest2.sessionId);
+        assertEquals(truncateRequest1.seqNum, truncateRequest2.seqNum);
+        assertEquals(truncateRequest1.partitionId, truncateRequest2.partitionId);
+        assertEquals(truncateRequest1.usedByOfflineRecovery, truncateRequest2.usedByOfflineRecovery);
+        assertEquals(truncateRequest1.transactionId, truncateRequest2.transactionId);
+    }
+
+    @Test
+    public void testAppendRequest() {
+        ReqId reqId = new ReqId(rand.nextLong(), rand.nextLong());
+        byte[] randBytes1 = new byte[32];
+        byte[] randBytes2 = new byte[32];
+        rand.nextBytes(randBytes1);
+        rand.nextBytes(randBytes2);
+        Record record1 = new Record(rand.nextLong(), reqId, rand.nextInt(), randBytes1, Utils.checksum(randBytes1));
+        Record record2 = new Record(rand.nextLong(), reqId, rand.nextInt(), randBytes2, Utils.checksum(randBytes2));
+        ArrayList<Record> records = new ArrayList<>(Arrays.asList(record1, record2));
+        AppendRequest appendRequest1 = new AppendRequest(rand.nextLong(), rand.nextLong(), rand.nextInt(), records, true);
+        AppendRequest appendRequest2 = encodeThenDecode(appendRequest1);
+        assertEquals(StorageMessageType.APPEND_REQUEST, appendRequest2.type());
+        assertEquals(appendRequest1.type(), appendRequest2.type());
+        assertEquals(appendRequest1.sessionId, appendRequest2.sessionId);
+        assertEquals(appendRequest1.seqNum, appendRequest2.seqNum);
+        assertEquals(appendRequest1.partitionId, appendRequest2.partitionId);
+        assertEquals(appendRequest1.usedByOfflineRecovery, appendRequest2.usedByOfflineRecovery);
+        assertTrue(appendRequest2.hasRecordBatch());
+        assertEquals(appendRequest1.records(), appendRequest2.records());
+    }
+
+    @Test
+    public void testRecordListResponse() {
+        ReqId reqId = new ReqId(rand.nextLong(), rand.nextLong());
+        byte[] randBytes1 = new byte[32];
+        byte[] randBytes2 = new byte[0];
+        rand.nextBytes(randBytes1);
+        Record record1 = new Record(rand.nextLong(), reqId, rand.nextInt(), randBytes1, Utils.checksum(randBytes1));
+        Record record2 = new Record(rand.nextLong(), reqId, rand.nextInt(), randBytes2, Utils.checksum(randBytes2));
+        ArrayList<Record> records = new ArrayList<>(Arrays.asList(record1, record2));
+        RecordListResponse recordListResponse1 = new RecordListResponse(rand.nextLong(), rand.nextLong(), rand.nextInt(), records);
+        RecordListResponse recordListResponse2 = encodeThenDecode(recordListResponse1);
+        assertEquals(StorageMessageType.RECORD_LIST_RESPONSE, recordListResponse2.type());
+        assertEquals(recordListResponse1.sessionId, recordListResponse2.sessionId);
+        assertEquals(recordListResponse1.seqNum, recordListResponse2.seqNum);
+        assertEquals(recordListResponse1.partitionId, recordListResponse2.partitionId);
+        assertEquals(2, recordListResponse2.recordBatch().numRecords());
+        assertTrue(recordListResponse2.recordBatch().isValid(0));
+        assertTrue(recordListResponse2.recordBatch().isValid(1));
+        assertEquals(records, recordListResponse2.records());
+    }
+
+    @Test
+    public void testRecordBatchChecksum() {
+        byte[] data = new byte[32];
+        rand.nextBytes(data);
+        Record record = new Record(rand.nextLong(), new ReqId(rand.nextLong(), rand.nextLong()), rand.nextInt(), data, Utils.checksum(data));
+        AppendRequest appendRequest = new AppendRequest(rand.nextLong(), rand.nextLong(), rand.nextInt(), new ArrayList<>(Arrays.asList(record)), false);
+
+        ByteArrayMessageAttributeWriter writer = new ByteArrayMessageAttributeWriter();
+        codec.encode(appendRequest, writer);
+        byte[] bytes = writer.toByteArray();
+
+        // Corrupt the last byte of the record data
+        int dataEnd = indexOf(bytes, data) + data.length;
+        bytes[dataEnd - 1] ^= 1;
+
+        try {
+            codec.decode(new ByteArrayMessageAttributeReader(bytes));
+            fail();
+        } catch (IllegalStateException ex) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testCorruptedRecordBatch() {
+        long startTransactionId = rand.nextInt(1000);
+        ArrayList<Record> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            byte[] data = new byte[rand.nextInt(32) + 1];
+            rand.nextBytes(data);
+            records.add(new Record(startTransactionId + i, new ReqId(rand.nextLong(), rand.nextLong()), rand.nextInt(), data, Utils.checksum(data)));
+        }
+
+        // A batch with a corrupted record header must be rejected, both in an append request and in a record list response
+        assertCorruptedBatchRejected(new AppendRequest(rand.nextLong(), rand.nextLong(), rand.nextInt(), records, false), records);
+        assertCorruptedBatchRejected(new RecordListResponse(rand.nextLong(), rand.nextLong(), rand.nextInt(), records), records);
+    }
+
+    @Test
+    public void testMaxTransactionIdRequest() {
+        MaxTransactionIdRequest maxTransactionIdRequest1 = new MaxTransactionIdRequest(rand.nextLong(), rand.nextLong(), rand.nextInt(), true);
+        MaxTransactionIdRequest maxTransactionIdRequest2 = encodeThenDecode(maxTransactionIdRequest1);
+        assertEquals(StorageMessageType.MAX_TRANSACTION_ID_REQUEST, maxTransactionIdRequest2.type());
+        assertEquals(maxTransactionIdRequest1.type(), maxTransactionIdRequest2.type());
+        assertEquals(maxTransactionIdRequest1.sessionId, maxTransactionIdRequest2.sessionId);
+        assertEquals(maxTransactionIdRequest1.seqNum, maxTransactionIdRequest2.seqNum);
+        assertEquals(maxTransactionIdRequest1.partitionId, maxTransactionIdRequest2.partitionId);
+        assertEquals(maxTransactionIdRequest1.usedByOfflineRecovery, maxTransactionIdRequest2.usedByOfflineRecovery);
+    }
+
+    private void assertCorruptedBatchRejected(Message message, ArrayList<Record> records) {
+        ByteArrayMessageAttributeWriter writer = new ByteArrayMessageAttributeWriter();
+        codec.encode(message, writer);
+        byte[] bytes = writer.toByteArray();
+
+        // Corrupt the last byte of the first record header
+        int batchStart = indexOf(bytes, RecordBatch.encode(records).bytes());
+        bytes[batchStart + RecordBatch.RECORD_HEADER_SIZE - 1] ^= 1;
+
+        try {
+            codec.decode(new ByteArrayMessageAttributeReader(bytes));
+            fail();
+        } catch (IllegalStateException ex) {
+            // OK
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        for (int i = 0; i <= bytes.length - target.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + target.length), target)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("not found");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Message> T encodeThenDecode(T message) {
+        ByteArrayMessageAttributeWriter writer = new ByteArrayMessageAttributeWriter();
+        codec.encode(message, writer);
+        ByteArrayMessageAttributeReader reader = new ByteArrayMessageAttributeReader(writer.toByteArray());
+        return (T) codec.decode(reader);
+    }
+}
@@ -6,6 +6,7 @@ import com.wepay.riff.network.Message;
 import com.wepay.waltz.common.message.Record;
 import com.wepay.waltz.common.message.ReqId;
 import com.wepay.waltz.common.util.Utils;
+import com.wepay.waltz.storage.common.SegmentInfo;
 import com.wepay.waltz.storage.common.SessionInfo;
 import org.junit.Test;
 
@@ -13,6 +14,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -103,6 +105,95 @@ public class AdminMessageCodecV0Test {
         assertEquals(sessionInfo.sessionId, lastSessionInfoResponse2.lastSessionInfo.sessionId);
     }
 
+    @Test
+    public void testSegmentListRequest() {
+        SegmentListRequest segmentListRequest1 = new SegmentListRequest(rand.nextLong(), rand.nextInt());
+        SegmentListRequest segmentListRequest2 = encodeThenDecode(segmentListRequest1);
+        assertEquals(AdminMessageType.SEGMENT_LIST_REQUEST, segmentListRequest1.type());
+        assertEquals(segmentListRequest1.partitionId, segmentListRequest2.partitionId);
+        assertEquals(segmentListRequest1.seqNum, segmentListRequest2.seqNum);
+    }
+
+    @Test
+    public void testSegmentListResponse() {
+        SegmentInfo segmentInfo1 = new SegmentInfo(0L, 99L, rand.nextLong(), rand.nextLong());
+        SegmentInfo segmentInfo2 = new SegmentInfo(100L, 199L, rand.nextLong(), rand.nextLong());
+        ArrayList<SegmentInfo> segmentInfos = new ArrayList<>(Arrays.asList(segmentInfo1, segmentInfo2));
+        SegmentListResponse segmentListResponse1 = new SegmentListResponse(rand.nextLong(), rand.nextInt(), segmentInfos);
+        SegmentListResponse segmentListResponse2 = encodeThenDecode(segmentListResponse1);
+        assertEquals(AdminMessageType.SEGMENT_LIST_RESPONSE, segmentListResponse1.type());
+        assertEquals(segmentListResponse1.partitionId, segmentListResponse2.partitionId);
+        assertEquals(segmentListResponse1.seqNum, segmentListResponse2.seqNum);
+        assertEquals(2, segmentListResponse2.segmentInfos.size());
+        for (int i = 0; i < segmentInfos.size(); i++) {
+            assertEquals(segmentInfos.get(i).firstTransactionId, segmentListResponse2.segmentInfos.get(i).firstTransactionId);
+            assertEquals(segmentInfos.get(i).maxTransactionId, segmentListResponse2.segmentInfos.get(i).maxTransactionId);
+            assertEquals(segmentInfos.get(i).segmentSize, segmentListResponse2.segmentInfos.get(i).segmentSize);
+            assertEquals(segmentInfos.get(i).indexSize, segmentListResponse2.segmentInfos.get(i).indexSize);
+        }
+    }
+
+    @Test
+    public void testSegmentChunkRequest() {
+        SegmentChunkRequest segmentChunkRequest1 = new SegmentChunkRequest(
+                rand.nextLong(), rand.nextInt(), rand.nextLong(), rand.nextBoolean(), rand.nextLong(), rand.nextInt());
+        SegmentChunkRequest segmentChunkRequest2 = encodeThenDecode(segmentChunkRequest1);
+        assertEquals(AdminMessageType.SEGMENT_CHUNK_REQUEST, segmentChunkRequest1.type());
+        assertEquals(segmentChunkRequest1.partitionId, segmentChunkRequest2.partitionId);
+        assertEquals(segmentChunkRequest1.seqNum, segmentChunkRequest2.seqNum);
+        assertEquals(segmentChunkRequest1.firstTransactionId, segmentChunkRequest2.firstTransactionId);
+        assertEquals(segmentChunkRequest1.index, segmentChunkRequest2.index);
+        assertEquals(segmentChunkRequest1.position, segmentChunkRequest2.position);
+        assertEquals(segmentChunkRequest1.length, segmentChunkRequest2.length);
+    }
+
+    @Test
+    public void testSegmentChunkResponse() {
+        byte[] data = new byte[128];
+        rand.nextBytes(data);
+        SegmentChunkResponse segmentChunkResponse1 = new SegmentChunkResponse(
+                rand.nextLong(), rand.nextInt(), data, Utils.checksum(data));
+        SegmentChunkResponse segmentChunkResponse2 = encodeThenDecode(segmentChunkResponse1);
+        assertEquals(AdminMessageType.SEGMENT_CHUNK_RESPONSE, segmentChunkResponse1.type());
+        assertEquals(segmentChunkResponse1.partitionId, segmentChunkResponse2.partitionId);
+        assertEquals(segmentChunkResponse1.seqNum, segmentChunkResponse2.seqNum);
+        assertArrayEquals(data, segmentChunkResponse2.data);
+        assertEquals(segmentChunkResponse1.checksum, segmentChunkResponse2.checksum);
+    }
+
+    @Test
+    public void testRecoverPartitionRequest() {
+        RecoverPartitionRequest recoverPartitionRequest1 = new RecoverPartitionRequest(
+                rand.nextLong(), rand.nextInt(), "host" + rand.nextInt(), rand.nextInt(), rand.nextInt());
+        RecoverPartitionRequest recoverPartitionRequest2 = encodeThenDecode(recoverPartitionRequest1);
+        assertEquals(AdminMessageType.RECOVER_PARTITION_REQUEST, recoverPartitionRequest1.type());
+        assertEquals(recoverPartitionRequest1.partitionId, recoverPartitionRequest2.partitionId);
+        assertEquals(recoverPartitionRequest1.seqNum, recoverPartitionRequest2.seqNum);
+        assertEquals(recoverPartitionRequest1.sourceHost, recoverPartitionRequest2.sourceHost);
+        assertEquals(recoverPartitionRequest1.sourceAdminPort, recoverPartitionRequest2.sourceAdminPort);
+        assertEquals(recoverPartitionRequest1.batchSize, recoverPartitionRequest2.batchSize);
+    }
+
+    @Test
+    public void testFlightRecordingRequest() {
+        FlightRecordingRequest flightRecordingRequest1 = new FlightRecordingRequest(rand.nextLong(), rand.nextInt());
+        FlightRecordingRequest flightRecordingRequest2 = encodeThenDecode(flightRecordingRequest1);
+        assertEquals(AdminMessageType.FLIGHT_RECORDING_REQUEST, flightRecordingRequest1.type());
+        assertEquals(flightRecordingRequest1.seqNum, flightRecordingRequest2.seqNum);
+        assertEquals(flightRecordingRequest1.durationSecs, flightRecordingRequest2.durationSecs);
+    }
+
+    @Test
+    public void testFlightRecordingResponse() {
+        byte[] recording = new byte[128];
+        rand.nextBytes(recording);
+        FlightRecordingResponse flightRecordingResponse1 = new FlightRecordingResponse(rand.nextLong(), recording);
+        FlightRecordingResponse flightRecordingResponse2 = encodeThenDecode(flightRecordingResponse1);
+        assertEquals(AdminMessageType.FLIGHT_RECORDING_RESPONSE, flightRecordingResponse1.type());
+        assertEquals(flightRecordingResponse1.seqNum, flightRecordingResponse2.seqNum);
+        assertArrayEquals(recording, flightRecordingResponse2.recording);
+    }
+
     @SuppressWarnings("unchecked")
     private <T extends Message> T encodeThenDecode(T message) {
         ByteArrayMessageAttributeWriter writer = new ByteArrayMessageAttributeWriter();
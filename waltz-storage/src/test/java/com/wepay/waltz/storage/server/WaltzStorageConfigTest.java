@@ -22,6 +22,8 @@ public class WaltzStorageConfigTest {
         map.put(WaltzStorageConfig.STORAGE_ADMIN_PORT, "8100");
         map.put(WaltzStorageConfig.STORAGE_DIRECTORY, "/storage/dir");
         map.put(WaltzStorageConfig.STORAGE_JETTY_PORT, "9000");
+        map.put(WaltzStorageConfig.STORAGE_FLIGHT_RECORDING_ENABLED, "true");
+        map.put(WaltzStorageConfig.STORAGE_FAULT_FSYNC_DELAY_MS, "20");
 
         WaltzStorageConfig config = new WaltzStorageConfig(map);
         Object value;
@@ -42,6 +44,13 @@ public class WaltzStorageConfigTest {
         assertTrue(value instanceof Integer);
         assertEquals(9000, value);
 
+        value = config.get(WaltzStorageConfig.STORAGE_FLIGHT_RECORDING_ENABLED);
+        assertTrue(value instanceof Boolean);
+        assertEquals(true, value);
+
+        value = config.get(WaltzStorageConfig.STORAGE_FAULT_FSYNC_DELAY_MS);
+        assertTrue(value instanceof Long);
+        assertEquals(20L, value);
     }
 
     @Test
@@ -88,6 +97,14 @@ public class WaltzStorageConfigTest {
         value = config.get(WaltzStorageConfig.SEGMENT_SIZE_THRESHOLD);
         assertTrue(value instanceof Long);
         assertEquals(WaltzStorageConfig.DEFAULT_SEGMENT_SIZE_THRESHOLD, value);
+
+        value = config.get(WaltzStorageConfig.STORAGE_FLIGHT_RECORDING_ENABLED);
+        assertTrue(value instanceof Boolean);
+        assertEquals(WaltzStorageConfig.DEFAULT_STORAGE_FLIGHT_RECORDING_ENABLED, value);
+
+        value = config.get(WaltzStorageConfig.STORAGE_FAULT_FSYNC_DELAY_MS);
+        assertTrue(value instanceof Long);
+        assertEquals(WaltzStorageConfig.DEFAULT_STORAGE_FAULT_FSYNC_DELAY_MS, value);
     }
 
     @Test
@@ -3,8 +3,10 @@ package com.wepay.waltz.storage.server.internal;
 import com.wepay.riff.network.Message;
 import com.wepay.waltz.common.message.Record;
 import com.wepay.waltz.common.util.Utils;
+import com.wepay.waltz.storage.common.SegmentInfo;
 import com.wepay.waltz.storage.common.message.AppendRequest;
 import com.wepay.waltz.storage.common.message.SuccessResponse;
+import com.wepay.waltz.storage.exception.StorageException;
 import com.wepay.waltz.test.util.ClientUtil;
 import com.wepay.zktools.util.Uninterruptibly;
 import org.junit.After;
@@ -28,6 +30,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.CRC32;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -140,6 +143,167 @@ public class PartitionTest {
         assertTrue(partition.evictedEntrylist.size() > 1);
     }
 
+    @Test
+    public void testInstallSegment() throws Exception {
+        UUID key = UUID.randomUUID();
+        Partition source = openPartition(key, "source");
+        Partition destination = openPartition(key, "destination");
+        try {
+            ArrayList<Record> records = ClientUtil.makeRecords(0, 31);
+            source.appendRecoveredRecords(records);
+
+            ArrayList<SegmentInfo> segmentInfos = source.getSealedSegmentInfos();
+            assertTrue(segmentInfos.size() > 1);
+
+            for (SegmentInfo segmentInfo : segmentInfos) {
+                Path segTransferFile = destination.getTransferFile(segmentInfo.firstTransactionId, "seg");
+                Path idxTransferFile = destination.getTransferFile(segmentInfo.firstTransactionId, "idx");
+                copySegment(source, segmentInfo, segTransferFile, idxTransferFile, 0);
+
+                destination.installSegment(segmentInfo, segTransferFile, idxTransferFile);
+
+                assertFalse(Files.exists(segTransferFile));
+                assertFalse(Files.exists(idxTransferFile));
+            }
+
+            assertSegmentInfos(segmentInfos, destination.getSealedSegmentInfos());
+
+            // The rest is appended to the new writable segment
+            long nextTransactionId = segmentInfos.get(segmentInfos.size() - 1).maxTransactionId + 1;
+            destination.appendRecoveredRecords(new ArrayList<>(records.subList((int) nextTransactionId, records.size())));
+            assertEquals(records, destination.getRecords(0, records.size() + 1));
+
+        } finally {
+            source.close();
+            destination.close();
+        }
+    }
+
+    @Test
+    public void testInstallIncompleteSegment() throws Exception {
+        UUID key = UUID.randomUUID();
+        Partition source = openPartition(key, "source");
+        Partition destination = openPartition(key, "destination");
+        try {
+            ArrayList<Record> records = ClientUtil.makeRecords(0, 61);
+            source.appendRecoveredRecords(records);
+
+            ArrayList<SegmentInfo> segmentInfos = source.getSealedSegmentInfos();
+            assertTrue(segmentInfos.size() > 2);
+            SegmentInfo first = segmentInfos.get(0);
+            SegmentInfo second = segmentInfos.get(1);
+
+            // The current segment is empty
+            installIncompleteSegment(source, destination, first);
+            assertTrue(destination.getSealedSegmentInfos().isEmpty());
+            assertTrue(destination.getRecords(0, 1).isEmpty());
+
+            // The installation can be retried
+            Path segTransferFile = destination.getTransferFile(first.firstTransactionId, "seg");
+            Path idxTransferFile = destination.getTransferFile(first.firstTransactionId, "idx");
+            copySegment(source, first, segTransferFile, idxTransferFile, 0);
+            destination.installSegment(first, segTransferFile, idxTransferFile);
+
+            // The current segment has records
+            ArrayList<Record> replayed = new ArrayList<>(records.subList((int) second.firstTransactionId, (int) second.maxTransactionId + 1));
+            destination.appendRecoveredRecords(replayed);
+            installIncompleteSegment(source, destination, segmentInfos.get(2));
+
+            // The current segment is still writable
+            destination.appendRecoveredRecords(new ArrayList<>(records.subList((int) second.maxTransactionId + 1, records.size())));
+            assertEquals(records, destination.getRecords(0, records.size() + 1));
+
+        } finally {
+            source.close();
+            destination.close();
+        }
+    }
+
+    @Test
+    public void testInstallMismatchedSegment() throws Exception {
+        UUID key = UUID.randomUUID();
+        Partition source = openPartition(key, "source");
+        Partition destination = openPartition(key, "destination");
+        try {
+            ArrayList<Record> records = ClientUtil.makeRecords(0, 31);
+            source.appendRecoveredRecords(records);
+
+            ArrayList<SegmentInfo> segmentInfos = source.getSealedSegmentInfos();
+            assertTrue(segmentInfos.size() > 1);
+            SegmentInfo second = segmentInfos.get(1);
+
+            // The files of the second segment are installed as the first segment
+            SegmentInfo mismatched = new SegmentInfo(0L, second.maxTransactionId, second.segmentSize, second.indexSize);
+            Path segTransferFile = destination.getTransferFile(0L, "seg");
+            Path idxTransferFile = destination.getTransferFile(0L, "idx");
+            copySegment(source, second, segTransferFile, idxTransferFile, 0);
+
+            try {
+                destination.installSegment(mismatched, segTransferFile, idxTransferFile);
+                fail();
+            } catch (StorageException ex) {
+                assertTrue(ex.getMessage().contains("does not match"));
+            }
+
+            // A segment which does not start at the next transaction id is rejected
+            try {
+                destination.installSegment(second, segTransferFile, idxTransferFile);
+                fail();
+            } catch (StorageException ex) {
+                assertTrue(ex.getMessage().contains("does not start at the next transaction id"));
+            }
+
+            // The partition is intact
+            assertTrue(destination.getSealedSegmentInfos().isEmpty());
+            destination.appendRecoveredRecords(records);
+            assertEquals(records, destination.getRecords(0, records.size() + 1));
+
+        } finally {
+            source.close();
+            destination.close();
+        }
+    }
+
+    private Partition openPartition(UUID key, String name) throws Exception {
+        Path directory = partitionDir.resolve(name);
+        Files.createDirectory(directory);
+
+        PartitionInfo partitionInfo = new PartitionInfo(ByteBuffer.allocate(1000), 0, null, PARTITION_ID, true);
+        partitionInfo.setFlags(PartitionInfo.Flags.PARTITION_IS_ASSIGNED);
+
+        Partition partition = new Partition(key, directory, partitionInfo, 400L, 10);
+        partition.open();
+        return partition;
+    }
+
+    private void installIncompleteSegment(Partition source, Partition destination, SegmentInfo segmentInfo) throws Exception {
+        Path segTransferFile = destination.getTransferFile(segmentInfo.firstTransactionId, "seg");
+        Path idxTransferFile = destination.getTransferFile(segmentInfo.firstTransactionId, "idx");
+        copySegment(source, segmentInfo, segTransferFile, idxTransferFile, 10);
+
+        try {
+            destination.installSegment(segmentInfo, segTransferFile, idxTransferFile);
+            fail();
+        } catch (StorageException ex) {
+            assertTrue(ex.getMessage().contains("incomplete"));
+        }
+    }
+
+    private static void copySegment(Partition source, SegmentInfo segmentInfo, Path segFile, Path idxFile, int numMissingBytes) throws Exception {
+        byte[] seg = source.readSealedSegmentChunk(segmentInfo.firstTransactionId, false, 0L, (int) segmentInfo.segmentSize);
+        byte[] idx = source.readSealedSegmentChunk(segmentInfo.firstTransactionId, true, 0L, (int) segmentInfo.indexSize);
+        Files.write(segFile, Arrays.copyOf(seg, seg.length - numMissingBytes));
+        Files.write(idxFile, idx);
+    }
+
+    private static void assertSegmentInfos(List<SegmentInfo> expected, List<SegmentInfo> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).firstTransactionId, actual.get(i).firstTransactionId);
+            assertEquals(expected.get(i).maxTransactionId, actual.get(i).maxTransactionId);
+        }
+    }
+
     public static class TestPartitionClass extends Partition {
 
         public final List<Segment> evictedEntrylist;
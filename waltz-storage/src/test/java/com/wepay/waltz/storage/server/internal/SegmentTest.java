@@ -1,8 +1,10 @@
 package com.wepay.waltz.storage.server.internal;
 
+import com.wepay.waltz.common.jfr.JfrSupport;
 import com.wepay.waltz.common.message.Record;
 import com.wepay.waltz.common.message.ReqId;
 import com.wepay.waltz.common.util.Utils;
+import com.wepay.waltz.storage.common.RecordBatch;
 import com.wepay.waltz.storage.exception.StorageException;
 import org.junit.After;
 import org.junit.Before;
@@ -16,12 +18,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -177,6 +182,111 @@ public class SegmentTest {
         assertTrue(segment.size() >= segmentSizeThreshold);
     }
 
+    @Test
+    public void testRecordBatch() throws Exception {
+        long startTransactionId = rand.nextInt(1000);
+        long segmentSizeThreshold = 100000;
+        int numRecords = 20;
+
+        Segment.create(key, segmentPath, indexPath, 0, startTransactionId);
+        Segment segment = new Segment(key, segmentPath, indexPath, controlFile.getPartitionInfo(0), segmentSizeThreshold);
+        segment.setWritable();
+
+        ArrayList<Record> records = new ArrayList<>();
+        for (int i = 0; i < numRecords; i++) {
+            byte[] data = new byte[rand.nextInt(200)];
+            rand.nextBytes(data);
+            records.add(new Record(startTransactionId + i, reqId(), rand.nextInt(), data, Utils.checksum(data)));
+        }
+
+        assertEquals(numRecords, segment.append(RecordBatch.encode(records), 0));
+        assertEquals(startTransactionId + numRecords - 1, segment.maxTransactionId());
+
+        for (Record record : records) {
+            assertEquals(record, segment.getRecord(record.transactionId));
+        }
+
+        RecordBatch recordBatch = segment.getRecordBatch(startTransactionId + 5, 10);
+        assertEquals(records.subList(5, 15), recordBatch.toRecords());
+
+        recordBatch = segment.getRecordBatch(startTransactionId + 15, 10);
+        assertEquals(records.subList(15, 20), recordBatch.toRecords());
+
+        assertNull(segment.getRecordBatch(startTransactionId + numRecords, 10));
+
+        segment.close();
+
+        // The batch must be in the same format as records appended one by one
+        segment = new Segment(key, segmentPath, indexPath, controlFile.getPartitionInfo(0), segmentSizeThreshold);
+        assertEquals(startTransactionId + numRecords - 1, segment.maxTransactionId());
+        for (Record record : records) {
+            assertEquals(record, segment.getRecord(record.transactionId));
+        }
+        for (int i = 0; i < numRecords; i++) {
+            assertTrue(segment.checkRecord(segment.index.get(startTransactionId + i), startTransactionId + i) > 0);
+        }
+        segment.close();
+    }
+
+    @Test
+    public void testWithoutFlightRecorderEvents() throws Exception {
+        long segmentSizeThreshold = 100000;
+        int numRecords = 10;
+
+        // Appends and reads run the way they run on a JDK without JFR
+        JfrSupport.setEnabled(false);
+        try {
+            Segment.create(key, segmentPath, indexPath, 0, 0L);
+            Segment segment = new Segment(key, segmentPath, indexPath, controlFile.getPartitionInfo(0), segmentSizeThreshold);
+            segment.setWritable();
+
+            ArrayList<Record> records = new ArrayList<>();
+            for (int i = 0; i < numRecords * 2; i++) {
+                byte[] data = new byte[rand.nextInt(200)];
+                rand.nextBytes(data);
+                records.add(new Record(i, reqId(), rand.nextInt(), data, Utils.checksum(data)));
+            }
+
+            assertEquals(numRecords, segment.append(new ArrayList<>(records.subList(0, numRecords)), 0));
+            assertEquals(numRecords, segment.append(RecordBatch.encode(records.subList(numRecords, numRecords * 2)), 0));
+
+            for (Record record : records) {
+                assertEquals(record, segment.getRecord(record.transactionId));
+            }
+            assertEquals(records, segment.getRecordBatch(0L, numRecords * 2).toRecords());
+
+            segment.close();
+
+        } finally {
+            JfrSupport.setEnabled(JfrSupport.AVAILABLE);
+        }
+    }
+
+    @Test
+    public void testRecordBatchThreshold() throws Exception {
+        long startTransactionId = rand.nextInt(1000);
+        long segmentSizeThreshold = 1000;
+
+        Segment.create(key, segmentPath, indexPath, 0, startTransactionId);
+        Segment segment = new Segment(key, segmentPath, indexPath, controlFile.getPartitionInfo(0), segmentSizeThreshold);
+        segment.setWritable();
+
+        ArrayList<Record> records = new ArrayList<>();
+        byte[] data = new byte[100];
+        for (int i = 0; i < 20; i++) {
+            records.add(new Record(startTransactionId + i, reqId(), 0, data, Utils.checksum(data)));
+        }
+
+        int count = segment.append(RecordBatch.encode(records), 0);
+
+        assertTrue(count > 0 && count < records.size());
+        assertTrue(segment.size() > segmentSizeThreshold);
+        assertEquals(startTransactionId + count - 1, segment.maxTransactionId());
+        assertEquals(Arrays.asList(records.get(count - 1)), segment.getRecordBatch(startTransactionId + count - 1, 10).toRecords());
+
+        segment.close();
+    }
+
     @Test
     public void testTruncate() throws Exception {
         long startTransactionId = rand.nextInt(1000);
@@ -413,6 +523,92 @@ public class SegmentTest {
         }
     }
 
+    @Test
+    public void testMetrics() throws Exception {
+        long segmentSizeThreshold = 100000;
+        int numRecords = 10;
+        int dataSize = 100;
+        int recordHeaderSize = 36;
+        int recordSize = recordHeaderSize + dataSize + 4;
+
+        SegmentMetrics metrics = new SegmentMetrics("waltz-storage.segment-test");
+        try {
+            Segment.create(key, segmentPath, indexPath, 0, 0L);
+            Segment segment = new Segment(key, segmentPath, indexPath, controlFile.getPartitionInfo(0), segmentSizeThreshold, metrics, new StorageFaultInjector());
+            segment.setWritable();
+
+            assertEquals(1, metrics.segmentRecoveryLatencyHistogram.getCount());
+
+            ArrayList<Record> records = new ArrayList<>();
+            for (int i = 0; i < numRecords; i++) {
+                byte[] data = new byte[dataSize];
+                rand.nextBytes(data);
+                records.add(new Record(i, reqId(), 0, data, Utils.checksum(data)));
+            }
+
+            long numForces = metrics.segmentForceLatencyHistogram.getCount();
+            segment.append(records, 0);
+
+            assertEquals(numForces + 1, metrics.segmentForceLatencyHistogram.getCount());
+            assertEquals(1, metrics.appendBatchBytesHistogram.getCount());
+            assertEquals(numRecords * recordSize, metrics.appendBatchBytesHistogram.getSnapshot().getMax());
+            // Each record is written in three writes, and its offset in one write to the index
+            assertEquals(numRecords * 4, metrics.appendBatchWritesHistogram.getSnapshot().getMax());
+
+            assertEquals(records.get(0), segment.getRecord(0));
+            assertEquals(8 + recordHeaderSize + dataSize, metrics.readBytesMeter.getCount());
+            assertEquals(recordHeaderSize + dataSize, metrics.readReturnedBytesMeter.getCount());
+            assertEquals(1, metrics.readAmplificationHistogram.getCount());
+
+            segment.setReadOnly();
+            segment.closeChannel();
+            assertEquals(1, metrics.segmentChannelCloseMeter.getCount());
+
+            segment.ensureChannelOpened();
+            assertEquals(1, metrics.segmentChannelOpenMeter.getCount());
+
+            segment.close();
+
+        } finally {
+            metrics.close();
+        }
+    }
+
+    @Test
+    public void testFsyncDelay() throws Exception {
+        long segmentSizeThreshold = 100000;
+        long delayMillis = 50;
+
+        SegmentMetrics metrics = new SegmentMetrics("waltz-storage.segment-test");
+        StorageFaultInjector faultInjector = new StorageFaultInjector();
+        try {
+            Segment.create(key, segmentPath, indexPath, 0, 0L);
+            Segment segment = new Segment(key, segmentPath, indexPath, controlFile.getPartitionInfo(0), segmentSizeThreshold, metrics, faultInjector);
+            segment.setWritable();
+
+            faultInjector.setFsyncDelay(delayMillis, TimeUnit.MILLISECONDS);
+            assertEquals(delayMillis, faultInjector.getFsyncDelay(TimeUnit.MILLISECONDS));
+
+            byte[] data = new byte[100];
+            rand.nextBytes(data);
+            ArrayList<Record> records = new ArrayList<>();
+            records.add(new Record(0, reqId(), 0, data, Utils.checksum(data)));
+
+            long startNanos = System.nanoTime();
+            segment.append(records, 0);
+            assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(delayMillis));
+            assertTrue(metrics.segmentForceLatencyHistogram.getSnapshot().getMax() >= TimeUnit.MILLISECONDS.toMicros(delayMillis));
+
+            faultInjector.setFsyncDelay(0, TimeUnit.MILLISECONDS);
+            assertEquals(0, faultInjector.getFsyncDelay(TimeUnit.MILLISECONDS));
+
+            segment.close();
+
+        } finally {
+            metrics.close();
+        }
+    }
+
     private ReqId reqId() {
         return new ReqId(rand.nextLong(), rand.nextLong());
     }
@@ -0,0 +1,60 @@
+package com.wepay.waltz.test.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shaping of traffic in one direction of a {@link ProxyServer} link. Each chunk of data is held for the delay plus
+ * a random jitter between 0 and the jitter, and the link transmits at most the given bytes per second.
+ * Chunks are delivered in order.
+ */
+public final class NetworkShaping {
+
+    /** No shaping. Data is forwarded as soon as it is read. */
+    public static final NetworkShaping NONE = new NetworkShaping(0L, 0L, 0L);
+
+    public final long delayMillis;
+    public final long jitterMillis;
+    public final long bytesPerSecond;
+
+    /**
+     * Class Constructor.
+     * @param delayMillis the delay in milliseconds.
+     * @param jitterMillis the maximum random delay in milliseconds added to the delay.
+     * @param bytesPerSecond the maximum throughput in bytes per second. The throughput is not limited if it is 0.
+     */
+    public NetworkShaping(long delayMillis, long jitterMillis, long bytesPerSecond) {
+        if (delayMillis < 0 || jitterMillis < 0 || bytesPerSecond < 0) {
+            throw new IllegalArgumentException("shaping parameters must not be negative");
+        }
+        this.delayMillis = delayMillis;
+        this.jitterMillis = jitterMillis;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    boolean isNone() {
+        return delayMillis == 0L && jitterMillis == 0L && bytesPerSecond == 0L;
+    }
+
+    /**
+     * @param numBytes the number of bytes.
+     * @return the time in nanoseconds to transmit the bytes at the throughput limit.
+     */
+    long transmissionNanos(int numBytes) {
+        return bytesPerSecond > 0 ? numBytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond : 0L;
+    }
+
+    /**
+     * @return the delay in nanoseconds of a chunk including a random jitter.
+     */
+    long delayNanos() {
+        long jitterNanos = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(jitterMillis) + 1) : 0L;
+        return TimeUnit.MILLISECONDS.toNanos(delayMillis) + jitterNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkShaping[delayMillis=" + delayMillis + " jitterMillis=" + jitterMillis + " bytesPerSecond=" + bytesPerSecond + "]";
+    }
+
+}
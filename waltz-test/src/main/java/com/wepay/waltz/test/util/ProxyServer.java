@@ -2,6 +2,7 @@ package com.wepay.waltz.test.util;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
@@ -10,6 +11,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
@@ -19,7 +21,12 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * A TCP proxy for tests. It can disconnect all connections, and shape the traffic in each direction with
+ * {@link NetworkShaping} to emulate a slow or distant server.
+ */
 public class ProxyServer {
 
     private final String remoteHost;
@@ -30,6 +37,9 @@ public class ProxyServer {
 
     private final IdentityHashMap<Channel, Channel> channels = new IdentityHashMap<>();
 
+    private volatile NetworkShaping upstreamShaping = NetworkShaping.NONE;
+    private volatile NetworkShaping downstreamShaping = NetworkShaping.NONE;
+
     public ProxyServer(int localPort, String remoteHost, int remotePort) throws UnknownHostException {
         this.remoteHost = remoteHost;
         this.remotePort = remotePort;
@@ -71,6 +81,22 @@ public class ProxyServer {
         }
     }
 
+    /**
+     * Sets the shaping of traffic from clients to the remote server. This applies to existing connections too.
+     * @param shaping the shaping.
+     */
+    public void setUpstreamShaping(NetworkShaping shaping) {
+        this.upstreamShaping = shaping;
+    }
+
+    /**
+     * Sets the shaping of traffic from the remote server to clients. This applies to existing connections too.
+     * @param shaping the shaping.
+     */
+    public void setDownstreamShaping(NetworkShaping shaping) {
+        this.downstreamShaping = shaping;
+    }
+
     private static void flushAndClose(Channel ch) {
         if (ch.isActive()) {
             ch.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
@@ -92,6 +118,8 @@ public class ProxyServer {
         // the outboundChannel will use the same EventLoop (and therefore Thread) as the inboundChannel.
         private Channel outboundChannel;
 
+        private final Link upstreamLink = new Link(true);
+
         @Override
         public void channelActive(ChannelHandlerContext ctx) {
             final Channel inboundChannel = ctx.channel();
@@ -100,7 +128,7 @@ public class ProxyServer {
             Bootstrap b = new Bootstrap();
             b.group(inboundChannel.eventLoop())
                 .channel(ctx.channel().getClass())
-                .handler(new ProxyBackendHandler(inboundChannel))
+                .handler(new ProxyBackendHandler(inboundChannel, new Link(false)))
                 .option(ChannelOption.AUTO_READ, false);
             ChannelFuture f = b.connect(remoteHost, remotePort);
             synchronized (this) {
@@ -126,14 +154,7 @@ public class ProxyServer {
         public void channelRead(final ChannelHandlerContext ctx, Object msg) {
             synchronized (this) {
                 if (outboundChannel.isActive()) {
-                    outboundChannel.writeAndFlush(msg).addListener((ChannelFuture future) -> {
-                        if (future.isSuccess()) {
-                            // was able to flush out data, start to read the next chunk
-                            ctx.channel().read();
-                        } else {
-                            future.channel().close();
-                        }
-                    });
+                    upstreamLink.forward(ctx.channel(), outboundChannel, msg);
                 }
             }
         }
@@ -157,9 +178,11 @@ public class ProxyServer {
     public static class ProxyBackendHandler extends ChannelInboundHandlerAdapter {
 
         private final Channel inboundChannel;
+        private final Link downstreamLink;
 
-        ProxyBackendHandler(Channel inboundChannel) {
+        ProxyBackendHandler(Channel inboundChannel, Link downstreamLink) {
             this.inboundChannel = inboundChannel;
+            this.downstreamLink = downstreamLink;
         }
 
         @Override
@@ -169,13 +192,7 @@ public class ProxyServer {
 
         @Override
         public void channelRead(final ChannelHandlerContext ctx, Object msg) {
-            inboundChannel.writeAndFlush(msg).addListener((ChannelFuture future) -> {
-                if (future.isSuccess()) {
-                    ctx.channel().read();
-                } else {
-                    future.channel().close();
-                }
-            });
+            downstreamLink.forward(ctx.channel(), inboundChannel, msg);
         }
 
         @Override
@@ -190,4 +207,64 @@ public class ProxyServer {
 
     }
 
+    /**
+     * Forwards data in one direction of a connection. Both channels of a connection run on the same event loop,
+     * so the state of a link is accessed by a single thread.
+     */
+    private final class Link {
+
+        private final boolean upstream;
+
+        // The time the link finishes transmitting the data already forwarded
+        private long transmittedNanos = 0L;
+        // The time the data already forwarded is delivered
+        private long deliveredNanos = 0L;
+
+        Link(boolean upstream) {
+            this.upstream = upstream;
+        }
+
+        void forward(Channel source, Channel target, Object msg) {
+            NetworkShaping shaping = upstream ? upstreamShaping : downstreamShaping;
+            long now = System.nanoTime();
+
+            if (shaping.isNone() && deliveredNanos <= now) {
+                target.writeAndFlush(msg).addListener((ChannelFuture future) -> {
+                    if (future.isSuccess()) {
+                        // was able to flush out data, start to read the next chunk
+                        source.read();
+                    } else {
+                        future.channel().close();
+                    }
+                });
+                return;
+            }
+
+            // The chunk is transmitted after the data already forwarded, and delivered after the delay without reordering
+            int numBytes = msg instanceof ByteBuf ? ((ByteBuf) msg).readableBytes() : 0;
+            transmittedNanos = Math.max(now, transmittedNanos) + shaping.transmissionNanos(numBytes);
+            deliveredNanos = Math.max(transmittedNanos + shaping.delayNanos(), deliveredNanos);
+
+            long chunkTransmittedNanos = transmittedNanos;
+            EventLoop eventLoop = source.eventLoop();
+            eventLoop.schedule(() -> {
+                target.writeAndFlush(msg).addListener((ChannelFuture future) -> {
+                    if (future.isSuccess()) {
+                        // Take the next chunk only after this chunk is written out and its transmission time has passed,
+                        // so a slow receiver pushes back on the sender as it does without shaping
+                        long remainingNanos = chunkTransmittedNanos - System.nanoTime();
+                        if (remainingNanos > 0) {
+                            eventLoop.schedule(source::read, remainingNanos, TimeUnit.NANOSECONDS);
+                        } else {
+                            source.read();
+                        }
+                    } else {
+                        future.channel().close();
+                    }
+                });
+            }, deliveredNanos - now, TimeUnit.NANOSECONDS);
+        }
+
+    }
+
 }
@@ -0,0 +1,125 @@
+package com.wepay.waltz.test.util;
+
+import com.wepay.riff.util.PortFinder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProxyServerTest {
+
+    private static final int TIMEOUT = 10000;
+
+    private ServerSocket echoServer;
+    private Thread echoThread;
+    private ProxyServer proxyServer;
+    private int proxyPort;
+
+    @Before
+    public void setup() throws Exception {
+        echoServer = new ServerSocket(0);
+        echoThread = new Thread(this::echo);
+        echoThread.setDaemon(true);
+        echoThread.start();
+
+        String localhost = InetAddress.getLocalHost().getCanonicalHostName();
+        proxyPort = new PortFinder().getPort();
+        proxyServer = new ProxyServer(proxyPort, localhost, echoServer.getLocalPort());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        proxyServer.close();
+        echoServer.close();
+        echoThread.join(TIMEOUT);
+    }
+
+    @Test
+    public void testDelay() throws Exception {
+        proxyServer.setUpstreamShaping(new NetworkShaping(200L, 0L, 0L));
+        proxyServer.setDownstreamShaping(new NetworkShaping(100L, 0L, 0L));
+
+        try (Socket socket = connect()) {
+            // The first round trip includes the connection to the echo server
+            roundTrip(socket, new byte[1]);
+
+            long elapsedMillis = roundTrip(socket, new byte[]{1, 2, 3});
+            assertTrue("elapsed=" + elapsedMillis, elapsedMillis >= 300L);
+            assertTrue("elapsed=" + elapsedMillis, elapsedMillis < TIMEOUT);
+        }
+    }
+
+    @Test
+    public void testBandwidth() throws Exception {
+        try (Socket socket = connect()) {
+            roundTrip(socket, new byte[1]);
+
+            proxyServer.setUpstreamShaping(new NetworkShaping(0L, 0L, 100000L));
+
+            byte[] data = new byte[50000];
+            new Random().nextBytes(data);
+
+            long elapsedMillis = roundTrip(socket, data);
+            assertTrue("elapsed=" + elapsedMillis, elapsedMillis >= 500L);
+            assertTrue("elapsed=" + elapsedMillis, elapsedMillis < TIMEOUT);
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLocalHost(), proxyPort);
+        socket.setSoTimeout(TIMEOUT);
+        return socket;
+    }
+
+    // Sends the data to the echo server through the proxy and returns the time in milliseconds until it comes back.
+    private static long roundTrip(Socket socket, byte[] data) throws IOException {
+        long start = System.nanoTime();
+
+        OutputStream out = socket.getOutputStream();
+        out.write(data);
+        out.flush();
+
+        byte[] echoed = new byte[data.length];
+        new DataInputStream(socket.getInputStream()).readFully(echoed);
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertArrayEquals(data, echoed);
+        return elapsedMillis;
+    }
+
+    private void echo() {
+        try {
+            while (true) {
+                try (Socket socket = echoServer.accept()) {
+                    InputStream in = socket.getInputStream();
+                    OutputStream out = socket.getOutputStream();
+                    byte[] buffer = new byte[4096];
+                    int length;
+                    while ((length = in.read(buffer)) >= 0) {
+                        out.write(buffer, 0, length);
+                        out.flush();
+                    }
+                } catch (IOException ex) {
+                    if (echoServer.isClosed()) {
+                        return;
+                    }
+                }
+            }
+        } catch (Throwable ex) {
+            // Ignore. The test fails with a timeout.
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ import com.wepay.waltz.client.TransactionContext;
 import com.wepay.waltz.client.WaltzClient;
 import com.wepay.waltz.client.WaltzClientCallbacks;
 import com.wepay.waltz.client.WaltzClientConfig;
+import com.wepay.waltz.client.internal.WorkloadCapture;
 import com.wepay.waltz.common.util.Cli;
 import com.wepay.waltz.common.util.SubcommandCli;
 import com.wepay.waltz.exception.SubCommandFailedException;
@@ -16,11 +17,17 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.yaml.snakeyaml.Yaml;
 
+import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Random;
@@ -28,6 +35,7 @@ import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -44,7 +52,8 @@ public final class PerformanceCli extends SubcommandCli {
     private PerformanceCli(String[] args, boolean useByTest) {
         super(args, useByTest, Arrays.asList(
                 new Subcommand(RunProducers.NAME, RunProducers.DESCRIPTION, RunProducers::new),
-                new Subcommand(RunConsumers.NAME, RunConsumers.DESCRIPTION, RunConsumers::new)
+                new Subcommand(RunConsumers.NAME, RunConsumers.DESCRIPTION, RunConsumers::new),
+                new Subcommand(ReplayProducers.NAME, ReplayProducers.DESCRIPTION, ReplayProducers::new)
         ));
     }
 
@@ -55,6 +64,7 @@ public final class PerformanceCli extends SubcommandCli {
         private static final int LAMBDA = 1;
         private static final int EXTRA_TRANSACTION_PER_THREAD = 1;
         private static final int DEFAULT_LOCK_POOL_SIZE = 0;
+        private static final double DEFAULT_ZIPF_EXPONENT = 0.0;
 
         private final AtomicLong totalResponseTimeMilli;
         private final Set<Integer> toMountClients;
@@ -63,6 +73,7 @@ public final class PerformanceCli extends SubcommandCli {
         private int numThread;
         private int avgInterval;
         private int lockPoolSize;
+        private ZipfianGenerator lockIdGenerator;
         private int totalRetry;
         private CountDownLatch allClientsReady;
         private CountDownLatch allMountComplete;
@@ -113,6 +124,13 @@ public final class PerformanceCli extends SubcommandCli {
                             + "No transaction gets rejected when size is 0. Default to %d", DEFAULT_LOCK_POOL_SIZE))
                     .hasArg()
                     .build();
+            Option zipfExponentOption = Option.builder("z")
+                    .longOpt("zipf-exponent")
+                    .desc(String.format("Specify exponent of the Zipfian distribution of lock ids in the lock pool. Lock id k is picked "
+                            + "with probability proportional to 1/(k+1)^exponent, so greater the exponent, hotter the first locks. "
+                            + "Lock ids are uniformly distributed when exponent is 0. Default to %.1f", DEFAULT_ZIPF_EXPONENT))
+                    .hasArg()
+                    .build();
             Option mountFromLatestHighWaterMark = Option.builder("ml")
                     .longOpt("mount_from_latest")
                     .desc(String.format("Waltz Client would be mounted from the latest HighWaterMark (for a partition) on Waltz"))
@@ -125,6 +143,7 @@ public final class PerformanceCli extends SubcommandCli {
             cliCfgOption.setRequired(true);
             numActivePartitionOption.setRequired(false);
             lockPoolSizeOption.setRequired(false);
+            zipfExponentOption.setRequired(false);
             mountFromLatestHighWaterMark.setRequired(false);
 
             options.addOption(txnSizeOption);
@@ -134,6 +153,7 @@ public final class PerformanceCli extends SubcommandCli {
             options.addOption(cliCfgOption);
             options.addOption(numActivePartitionOption);
             options.addOption(lockPoolSizeOption);
+            options.addOption(zipfExponentOption);
             options.addOption(mountFromLatestHighWaterMark);
         }
 
@@ -173,6 +193,16 @@ public final class PerformanceCli extends SubcommandCli {
                         throw new IllegalArgumentException("Found negative: lock-pool-size must be greater or equals to 0");
                     }
                 }
+                double zipfExponent = DEFAULT_ZIPF_EXPONENT;
+                if (cmd.hasOption("zipf-exponent")) {
+                    zipfExponent = Double.parseDouble(cmd.getOptionValue("zipf-exponent"));
+                    if (zipfExponent < 0) {
+                        throw new IllegalArgumentException("Found negative: zipf-exponent must be greater or equals to 0");
+                    }
+                }
+                if (lockPoolSize != 0) {
+                    lockIdGenerator = new ZipfianGenerator(lockPoolSize, zipfExponent);
+                }
                 Map<Integer, Long> partitionHighWaterMarkMap = cmd.hasOption("mount_from_latest")
                         ? getHighWaterMarkPerPartition(waltzClientConfig, numActivePartitions)
                         : new HashMap<>();
@@ -269,7 +299,7 @@ public final class PerformanceCli extends SubcommandCli {
                 // Write dummy data
                 builder.setTransactionData(data, DummySerializer.INSTANCE);
                 if (lockPoolSize != 0) {
-                    int lockId = RANDOM.nextInt(lockPoolSize);
+                    int lockId = lockIdGenerator.next(RANDOM);
                     builder.setWriteLocks(Collections.singletonList(new PartitionLocalLock(LOCK_NAME, lockId)));
                 }
                 return true;
@@ -368,6 +398,326 @@ public final class PerformanceCli extends SubcommandCli {
         }
     }
 
+    private static final class ReplayProducers extends PerformanceBase {
+        private static final String NAME = "replay-producers";
+        private static final String DESCRIPTION = "Replay a workload captured by a Waltz client with "
+                + WaltzClientConfig.WORKLOAD_CAPTURE_PATH;
+
+        private static final String LOCK_NAME = "workload_replay_lock";
+        private static final double DEFAULT_TIME_SCALE = 1.0;
+        private static final int DEFAULT_NUM_CLIENTS = 1;
+        private static final int PERCENT = 100;
+
+        private final AtomicLong totalResponseTimeNanos;
+        private final AtomicLong numCommitted;
+        private final AtomicLong numRejected;
+        private final AtomicLong numFailed;
+        private final AtomicLong totalBytesCommitted;
+
+        private List<WorkloadCapture.Entry> entries;
+        private double timeScale;
+        private int numClients;
+        private CountDownLatch allWarmUpReceived;
+
+        private ReplayProducers(String[] args) {
+            super(args);
+            this.totalResponseTimeNanos = new AtomicLong(0);
+            this.numCommitted = new AtomicLong(0);
+            this.numRejected = new AtomicLong(0);
+            this.numFailed = new AtomicLong(0);
+            this.totalBytesCommitted = new AtomicLong(0);
+            this.timeScale = DEFAULT_TIME_SCALE;
+            this.numClients = DEFAULT_NUM_CLIENTS;
+        }
+
+        @Override
+        protected void configureOptions(Options options) {
+            Option workloadPathOption = Option.builder("w")
+                    .longOpt("workload-path")
+                    .desc("Specify the path of the workload captured by a Waltz client")
+                    .hasArg()
+                    .build();
+            Option cliCfgOption = Option.builder("c")
+                    .longOpt("cli-config-path")
+                    .desc("Specify the cli config file path required for zooKeeper connection string, zooKeeper root path and SSL config")
+                    .hasArg()
+                    .build();
+            Option timeScaleOption = Option.builder("x")
+                    .longOpt("time-scale")
+                    .desc(String.format("Specify how many times faster than captured the workload is replayed. For example, if set to 2, "
+                            + "transactions are sent at twice the captured rate. Default to %.1f", DEFAULT_TIME_SCALE))
+                    .hasArg()
+                    .build();
+            Option numClientsOption = Option.builder("n")
+                    .longOpt("num-clients")
+                    .desc(String.format("Specify number of clients the transactions are sent from in turn. Default to %d", DEFAULT_NUM_CLIENTS))
+                    .hasArg()
+                    .build();
+
+            workloadPathOption.setRequired(true);
+            cliCfgOption.setRequired(true);
+            timeScaleOption.setRequired(false);
+            numClientsOption.setRequired(false);
+
+            options.addOption(workloadPathOption);
+            options.addOption(cliCfgOption);
+            options.addOption(timeScaleOption);
+            options.addOption(numClientsOption);
+        }
+
+        @Override
+        protected void processCmd(CommandLine cmd) throws SubCommandFailedException {
+            List<WaltzClient> clients = new ArrayList<>();
+            try {
+                // check required arguments
+                entries = readWorkload(cmd.getOptionValue("workload-path"));
+                waltzClientConfig = getWaltzClientConfig(cmd.getOptionValue("cli-config-path"));
+
+                // check optional arguments
+                if (cmd.hasOption("time-scale")) {
+                    timeScale = Double.parseDouble(cmd.getOptionValue("time-scale"));
+                    if (timeScale <= 0) {
+                        throw new IllegalArgumentException("time-scale must be greater than 0");
+                    }
+                }
+                if (cmd.hasOption("num-clients")) {
+                    numClients = Integer.parseInt(cmd.getOptionValue("num-clients"));
+                    if (numClients < 1) {
+                        throw new IllegalArgumentException("Number of clients must be greater or equals to 1");
+                    }
+                }
+
+                for (int i = 0; i < numClients; i++) {
+                    clients.add(new WaltzClient(new ProducerCallbacks(), waltzClientConfig));
+                }
+
+                // mount partitions of all clients before the clock starts, warm up transactions are excluded from statistics
+                Set<Integer> partitionIds = new HashSet<>();
+                int numPartitions = clients.get(0).getNumPartitions();
+                for (WorkloadCapture.Entry entry : entries) {
+                    partitionIds.add(entry.partitionId % numPartitions);
+                }
+                allWarmUpReceived = new CountDownLatch(numClients * partitionIds.size());
+                for (WaltzClient client : clients) {
+                    for (int partitionId : partitionIds) {
+                        client.submit(new WarmUpTxnContext(partitionId));
+                    }
+                }
+                allWarmUpReceived.await();
+
+                allTxnReceived = new CountDownLatch(entries.size());
+                long maxLagNanos = replay(clients);
+
+                // wait until all transactions complete
+                allTxnReceived.await();
+                printStatistic(maxLagNanos);
+
+            } catch (Exception e) {
+                throw new SubCommandFailedException(String.format("Failed to replay workload: %s", e.getMessage()));
+            } finally {
+                for (WaltzClient client : clients) {
+                    client.close();
+                }
+            }
+        }
+
+        protected String getUsage() {
+            return buildUsage(NAME, DESCRIPTION, getOptions());
+        }
+
+        /**
+         * Sends transactions at the captured times divided by the time scale regardless of responses (open loop),
+         * so that a slow cluster does not slow down the arrival of transactions.
+         *
+         * @return the maximum lag in nanoseconds of sending a transaction behind its schedule.
+         */
+        private long replay(List<WaltzClient> clients) throws InterruptedException {
+            long firstOffsetMicros = entries.isEmpty() ? 0L : entries.get(0).offsetMicros;
+            long maxLagNanos = 0L;
+
+            startTime.set(System.currentTimeMillis());
+            long startNanos = System.nanoTime();
+
+            for (int i = 0; i < entries.size(); i++) {
+                WorkloadCapture.Entry entry = entries.get(i);
+                long scheduledNanos = startNanos + (long) (TimeUnit.MICROSECONDS.toNanos(entry.offsetMicros - firstOffsetMicros) / timeScale);
+
+                long delayNanos = scheduledNanos - System.nanoTime();
+                if (delayNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delayNanos);
+                } else {
+                    maxLagNanos = Math.max(maxLagNanos, -delayNanos);
+                }
+
+                clients.get(i % clients.size()).submitAsync(new ReplayTxnContext(entry));
+            }
+
+            return maxLagNanos;
+        }
+
+        private void printStatistic(long maxLagNanos) {
+            long totalTxnSent = entries.size();
+            long committed = numCommitted.get();
+            long capturedMicros = entries.isEmpty() ? 0L : entries.get(entries.size() - 1).offsetMicros - entries.get(0).offsetMicros;
+            double duration = 1.0 * (System.currentTimeMillis() - startTime.get()) / MILLISECONDS_IN_SECOND;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Replayed %d transactions captured in %.2f secs, in %.2f secs%n",
+                    totalTxnSent, capturedMicros / (double) TimeUnit.SECONDS.toMicros(1), duration));
+            sb.append(String.format("Distinct locks: %d, hottest lock in %.2f%% of transactions%n", numDistinctLocks(), hottestLockPercent()));
+            sb.append(String.format("Committed: %d, rejected: %d, failed: %d%n", committed, numRejected.get(), numFailed.get()));
+            sb.append(String.format("Transaction/sec: %.4f%n", (1.0 * committed / duration)));
+            sb.append(String.format("MB/sec: %.4f%n", totalBytesCommitted.get() / duration / BYTES_IN_MEGABYTE));
+            sb.append(String.format("Max lag behind schedule(millisecond): %.4f%n", maxLagNanos / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+            sb.append(String.format("MilliSec/Transaction: %.4f",
+                    committed > 0 ? totalResponseTimeNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1) / committed : 0.0));
+            System.out.println(sb);
+        }
+
+        private int numDistinctLocks() {
+            Set<Integer> locks = new HashSet<>();
+            for (WorkloadCapture.Entry entry : entries) {
+                for (int[] ids : Arrays.asList(entry.writeLocks(), entry.readLocks(), entry.appendLocks())) {
+                    for (int id : ids) {
+                        locks.add(id);
+                    }
+                }
+            }
+            return locks.size();
+        }
+
+        private double hottestLockPercent() {
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (WorkloadCapture.Entry entry : entries) {
+                Set<Integer> locks = new HashSet<>();
+                for (int[] ids : Arrays.asList(entry.writeLocks(), entry.readLocks(), entry.appendLocks())) {
+                    for (int id : ids) {
+                        locks.add(id);
+                    }
+                }
+                for (int id : locks) {
+                    counts.merge(id, 1, Integer::sum);
+                }
+            }
+            int max = counts.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+            return entries.isEmpty() ? 0.0 : PERCENT * (double) max / entries.size();
+        }
+
+        private List<PartitionLocalLock> locks(int[] ids) {
+            List<PartitionLocalLock> locks = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                locks.add(new PartitionLocalLock(LOCK_NAME, id));
+            }
+            return locks;
+        }
+
+        /**
+         * This class extends {@link TransactionContext}, which builds a transaction of the captured shape with dummy data.
+         * A transaction rejected due to a lock failure is not retried, since retries are captured as separate transactions.
+         */
+        private final class ReplayTxnContext extends TransactionContext {
+
+            private final WorkloadCapture.Entry entry;
+            private int execCount;
+            private long timestampNanos;
+
+            ReplayTxnContext(WorkloadCapture.Entry entry) {
+                this.entry = entry;
+                this.execCount = 0;
+            }
+
+            @Override
+            public int partitionId(int numPartitions) {
+                return entry.partitionId % numPartitions;
+            }
+
+            @Override
+            public boolean execute(TransactionBuilder builder) {
+                if (execCount++ > 0) {
+                    numRejected.incrementAndGet();
+                    return false;
+                }
+                builder.setTransactionData(new byte[entry.dataSize], DummySerializer.INSTANCE);
+                builder.setWriteLocks(locks(entry.writeLocks()));
+                builder.setReadLocks(locks(entry.readLocks()));
+                builder.setAppendLocks(locks(entry.appendLocks()));
+                timestampNanos = System.nanoTime();
+                return true;
+            }
+
+            @Override
+            public void onCompletion(boolean result) {
+                if (result) {
+                    totalResponseTimeNanos.addAndGet(System.nanoTime() - timestampNanos);
+                    totalBytesCommitted.addAndGet(entry.dataSize);
+                    numCommitted.incrementAndGet();
+                }
+                allTxnReceived.countDown();
+            }
+
+            @Override
+            public void onException(Throwable ex) {
+                numFailed.incrementAndGet();
+                System.out.println(ex);
+                allTxnReceived.countDown();
+            }
+        }
+
+        /**
+         * This class extends {@link TransactionContext}, which builds an empty transaction to mount a partition.
+         */
+        private final class WarmUpTxnContext extends TransactionContext {
+
+            private final int partitionId;
+
+            WarmUpTxnContext(int partitionId) {
+                this.partitionId = partitionId;
+            }
+
+            @Override
+            public int partitionId(int numPartitions) {
+                return partitionId;
+            }
+
+            @Override
+            public boolean execute(TransactionBuilder builder) {
+                builder.setTransactionData(new byte[0], DummySerializer.INSTANCE);
+                return true;
+            }
+
+            @Override
+            public void onCompletion(boolean result) {
+                allWarmUpReceived.countDown();
+            }
+
+            @Override
+            public void onException(Throwable ex) {
+                System.out.println(ex);
+                allWarmUpReceived.countDown();
+            }
+        }
+
+        /**
+         * This class implements {@link BaseCallbacks}. Abstract method applyTransaction(Transaction transaction)
+         * is implemented to update client side high water mark.
+         */
+        private final class ProducerCallbacks extends BaseCallbacks {
+
+            private ProducerCallbacks() {
+                super(Collections.emptyMap());
+            }
+
+            @Override
+            public void applyTransaction(Transaction transaction) {
+                // update client side high water mark
+                int partition = transaction.reqId.partitionId();
+                if (transaction.transactionId - 1 == partitionHighWaterMarkMap.getOrDefault(partition, -1L)) {
+                    partitionHighWaterMarkMap.put(partition, transaction.transactionId);
+                }
+            }
+        }
+    }
+
     private static final class RunConsumers extends PerformanceBase {
         private static final String NAME = "test-consumers";
         private static final String DESCRIPTION = "Test and analyze performance of Waltz consumer";
@@ -706,6 +1056,25 @@ public final class PerformanceCli extends SubcommandCli {
         }
     }
 
+    /**
+     * Return the entries of a workload captured by a Waltz client.
+     * @param workloadPath the path to the captured workload
+     * @return the list of entries in the order of capture
+     * @throws IOException
+     */
+    private static List<WorkloadCapture.Entry> readWorkload(String workloadPath) throws IOException {
+        List<WorkloadCapture.Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(workloadPath), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    entries.add(WorkloadCapture.Entry.parse(line));
+                }
+            }
+        }
+        return entries;
+    }
+
     private static Map<Integer, Long> getHighWaterMarkPerPartition(WaltzClientConfig config, int numActivePartitions) throws Exception {
         Map<Integer, Long> partitionHighWaterMarkMap = new HashMap<>();
         WaltzClient client = null;
@@ -0,0 +1,42 @@
+package com.wepay.waltz.tools.performance;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates integers in [0, n) following a Zipfian distribution. The probability of k is proportional to
+ * {@code 1 / (k + 1)^exponent}, thus 0 is the most frequent. An exponent of 0 gives a uniform distribution,
+ * and a greater exponent gives a more skewed one.
+ */
+final class ZipfianGenerator {
+
+    private final double[] cumulativeProbabilities;
+
+    ZipfianGenerator(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be greater or equals to 1");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Found negative: exponent must be greater or equals to 0");
+        }
+
+        cumulativeProbabilities = new double[n];
+
+        double sum = 0.0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cumulativeProbabilities[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulativeProbabilities[k] /= sum;
+        }
+        // Guard against rounding errors
+        cumulativeProbabilities[n - 1] = 1.0;
+    }
+
+    int next(Random random) {
+        int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+        return index >= 0 ? index : -index - 1;
+    }
+
+}
@@ -8,6 +8,7 @@ import com.wepay.waltz.common.util.SubcommandCli;
 import com.wepay.waltz.common.util.Utils;
 import com.wepay.waltz.exception.SubCommandFailedException;
 import com.wepay.waltz.server.WaltzServerConfig;
+import com.wepay.waltz.storage.WaltzStorageConfig;
 import com.wepay.waltz.storage.client.StorageAdminClient;
 import com.wepay.waltz.storage.client.StorageClient;
 import com.wepay.waltz.storage.common.SessionInfo;
@@ -34,6 +35,8 @@ import org.apache.commons.cli.Options;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -59,7 +62,8 @@ public final class StorageCli extends SubcommandCli {
                 new Subcommand(RecoverPartition.NAME, RecoverPartition.DESCRIPTION, RecoverPartition::new),
                 new Subcommand(SyncPartitionAssignments.NAME, SyncPartitionAssignments.DESCRIPTION, SyncPartitionAssignments::new),
                 new Subcommand(Validate.NAME, Validate.DESCRIPTION, Validate::new),
-                new Subcommand(MaxTransactionId.NAME, MaxTransactionId.DESCRIPTION, MaxTransactionId::new)
+                new Subcommand(MaxTransactionId.NAME, MaxTransactionId.DESCRIPTION, MaxTransactionId::new),
+                new Subcommand(FlightRecording.NAME, FlightRecording.DESCRIPTION, FlightRecording::new)
         ));
     }
 
@@ -572,6 +576,8 @@ public final class StorageCli extends SubcommandCli {
      * The command operates by connecting to Waltz server as a consumer, consuming data for the partition,
      * and inserting it into the storage node via a {@code StorageClient}. If the storage node already has
      * some data for the partition on it, the recovery will pick up from the node's low watermark.
+     * With {@code --stream-segments}, the destination storage node pulls sealed segment files directly from
+     * the source storage node instead, and only the remaining records are replayed.
      */
     private static final class RecoverPartition extends Cli {
         private static final String NAME = "recover-partition";
@@ -623,6 +629,11 @@ public final class StorageCli extends SubcommandCli {
                     .desc("Specify the SSL config file path required for the destination storage node")
                     .hasArg()
                     .build();
+            Option streamSegmentsOption = Option.builder("ss")
+                    .longOpt("stream-segments")
+                    .desc("Let the destination storage node copy sealed segments directly from the source storage node")
+                    .hasArg(false)
+                    .build();
 
             sourceStorageOption.setRequired(true);
             destinationStorageOption.setRequired(true);
@@ -632,6 +643,7 @@ public final class StorageCli extends SubcommandCli {
             cliCfgOption.setRequired(true);
             sourceSslOption.setRequired(false);
             destinationSslOption.setRequired(false);
+            streamSegmentsOption.setRequired(false);
 
             options.addOption(sourceStorageOption);
             options.addOption(destinationStorageOption);
@@ -641,6 +653,7 @@ public final class StorageCli extends SubcommandCli {
             options.addOption(cliCfgOption);
             options.addOption(sourceSslOption);
             options.addOption(destinationSslOption);
+            options.addOption(streamSegmentsOption);
         }
 
         @Override
@@ -653,6 +666,7 @@ public final class StorageCli extends SubcommandCli {
             String cliConfigPath = cmd.getOptionValue("cli-config-path");
             String sourceSslConfigPath = cmd.getOptionValue("source-ssl-config-path");
             String destinationSslConfigPath = cmd.getOptionValue("destination-ssl-config-path");
+            boolean streamSegments = cmd.hasOption("stream-segments");
 
             try {
                 String[] sourceHostAndAdminPortArray = sourceHostAndAdminPort.split(":");
@@ -675,7 +689,7 @@ public final class StorageCli extends SubcommandCli {
 
                 recoverPartition(sourceStorageHost, Integer.parseInt(sourceStorageAdminPort), destinationStorageHost, Integer.parseInt(destinationStorageAdminPort),
                                  Integer.parseInt(destinationStoragePort), Integer.parseInt(partitionId), Integer.parseInt(batchSize), cliConfigPath,
-                                 sourceSslConfigPath, destinationSslConfigPath);
+                                 sourceSslConfigPath, destinationSslConfigPath, streamSegments);
            } catch (Exception e) {
                 throw new SubCommandFailedException(String.format("Partition %s failed to recover. %n%s", partitionId, e.getMessage()));
             }
@@ -695,11 +709,12 @@ public final class StorageCli extends SubcommandCli {
          * @param cliConfigPath                 the cli config file path required for ZooKeeper connection string, ZooKeeper root path
          * @param sourceSslConfigPath           the SSL config file path required for the source storage node
          * @param destinationSslConfigPath      the SSL config file path required for the destination storage node
+         * @param streamSegments                whether the destination storage node copies sealed segments directly from the source storage node
          * @throws Exception
          */
         private void recoverPartition(String sourceStorageHost, int sourceStorageAdminPort, String destinationStorageHost, int destinationStorageAdminPort,
                                       int destinationStoragePort, int partitionId, int batchSize, String cliConfigPath, String sourceSslConfigPath,
-                                      String destinationSslConfigPath) throws Exception {
+                                      String destinationSslConfigPath, boolean streamSegments) throws Exception {
             ZooKeeperClient zkClient = null;
             StorageAdminClient sourceStorageAdminClient = null;
             StorageClient destinationStorageClient = null;
@@ -716,13 +731,18 @@ public final class StorageCli extends SubcommandCli {
                 SslContext destinationSslContext = Utils.getSslContext(destinationSslConfigPath, WaltzServerConfig.SERVER_SSL_CONFIG_PREFIX);
 
                 zkClient = new ZooKeeperClientImpl(zkConnectString, zkSessionTimeout, zkConnectTimeout);
-                sourceStorageAdminClient = openStorageAdminClient(sourceStorageHost, sourceStorageAdminPort, sourceSslContext, zkClient, zkRoot);
-                destinationStorageClient = openStorageClient(destinationStorageHost, destinationStoragePort, destinationSslContext, zkClient, zkRoot, true);
                 destinationStorageAdminClient = openStorageAdminClient(destinationStorageHost, destinationStorageAdminPort, destinationSslContext, zkClient, zkRoot);
 
-                StorageRecoveryRunnable storageRecoveryRunnable = new StorageRecoveryRunnable(sourceStorageAdminClient, destinationStorageAdminClient, destinationStorageClient, partitionId, batchSize);
+                if (streamSegments) {
+                    // The destination storage node connects to the source storage node by itself
+                    destinationStorageAdminClient.recoverPartition(partitionId, sourceStorageHost, sourceStorageAdminPort, batchSize).get();
+                } else {
+                    sourceStorageAdminClient = openStorageAdminClient(sourceStorageHost, sourceStorageAdminPort, sourceSslContext, zkClient, zkRoot);
+                    destinationStorageClient = openStorageClient(destinationStorageHost, destinationStoragePort, destinationSslContext, zkClient, zkRoot, true);
+                    StorageRecoveryRunnable storageRecoveryRunnable = new StorageRecoveryRunnable(sourceStorageAdminClient, destinationStorageAdminClient, destinationStorageClient, partitionId, batchSize);
 
-                storageRecoveryRunnable.run();
+                    storageRecoveryRunnable.run();
+                }
             } finally {
                 if (zkClient != null) {
                     zkClient.close();
@@ -1085,6 +1105,109 @@ public final class StorageCli extends SubcommandCli {
         }
     }
 
+    /**
+     * The {@code FlightRecording} command gets a JDK Flight Recorder recording from a storage node and writes it to a file.
+     */
+    private static final class FlightRecording extends Cli {
+        private static final String NAME = "flight-recording";
+        private static final String DESCRIPTION = "Get a JDK Flight Recorder recording with Waltz events from a storage node";
+
+        private FlightRecording(String[] args) {
+            super(args);
+        }
+
+        @Override
+        protected void configureOptions(Options options) {
+            Option storageOption = Option.builder("s")
+                    .longOpt("storage")
+                    .desc("Specify storage in format of host:admin_port")
+                    .hasArg()
+                    .build();
+            Option durationOption = Option.builder("d")
+                    .longOpt("duration")
+                    .desc("Specify the duration of a new recording in seconds. If 0, dumps the recordings running on the storage node, "
+                        + "e.g. the continuous recording enabled by " + WaltzStorageConfig.STORAGE_FLIGHT_RECORDING_ENABLED + ". Default to 0")
+                    .hasArg()
+                    .build();
+            Option outputOption = Option.builder("o")
+                    .longOpt("output-path")
+                    .desc("Specify the path of the JFR file to write")
+                    .hasArg()
+                    .build();
+            Option cliCfgOption = Option.builder("c")
+                    .longOpt("cli-config-path")
+                    .desc("Specify the cli config file path required for zooKeeper connection string, zooKeeper root path and SSL config")
+                    .hasArg()
+                    .build();
+            storageOption.setRequired(true);
+            durationOption.setRequired(false);
+            outputOption.setRequired(true);
+            cliCfgOption.setRequired(true);
+
+            options.addOption(storageOption);
+            options.addOption(durationOption);
+            options.addOption(outputOption);
+            options.addOption(cliCfgOption);
+        }
+
+        @Override
+        protected void processCmd(CommandLine cmd) throws SubCommandFailedException {
+            String hostAndPort = cmd.getOptionValue("storage");
+            String outputPath = cmd.getOptionValue("output-path");
+            String cliConfigPath = cmd.getOptionValue("cli-config-path");
+
+            try {
+                String[] hostAndPortArray = hostAndPort.split(":");
+                if (hostAndPortArray.length != 2) {
+                    throw new IllegalArgumentException("Storage must be in format of host:admin_port");
+                }
+                String storageHost = hostAndPortArray[0];
+                int storageAdminPort = Integer.parseInt(hostAndPortArray[1]);
+                int durationSecs = Integer.parseInt(cmd.getOptionValue("duration", "0"));
+                if (durationSecs < 0) {
+                    throw new IllegalArgumentException("Duration must not be negative");
+                }
+
+                byte[] recording = getFlightRecording(storageHost, storageAdminPort, durationSecs, cliConfigPath);
+                Files.write(Paths.get(outputPath), recording);
+                System.out.println(String.format("Wrote %d bytes to %s", recording.length, outputPath));
+            } catch (Exception e) {
+                throw new SubCommandFailedException(String.format("Failed to get flight recording from storage %s. %n%s", hostAndPort, e.getMessage()));
+            }
+        }
+
+        private byte[] getFlightRecording(String storageHost, int storageAdminPort, int durationSecs, String cliConfigPath) throws Exception {
+            ZooKeeperClient zkClient = null;
+            StorageAdminClient storageAdminClient = null;
+
+            CliConfig cliConfig = CliConfig.parseCliConfigFile(cliConfigPath);
+            String zkConnectString = (String) cliConfig.get(CliConfig.ZOOKEEPER_CONNECT_STRING);
+            String zkRoot = (String) cliConfig.get(CliConfig.CLUSTER_ROOT);
+            int zkSessionTimeout = (int) cliConfig.get(CliConfig.ZOOKEEPER_SESSION_TIMEOUT);
+            int zkConnectTimeout = (int) cliConfig.get(CliConfig.ZOOKEEPER_CONNECT_TIMEOUT);
+            try {
+                SslContext sslContext = Utils.getSslContext(cliConfigPath, CliConfig.SSL_CONFIG_PREFIX);
+                zkClient = new ZooKeeperClientImpl(zkConnectString, zkSessionTimeout, zkConnectTimeout);
+                storageAdminClient = openStorageAdminClient(storageHost, storageAdminPort, sslContext, zkClient, zkRoot);
+
+                return (byte[]) storageAdminClient.getFlightRecording(durationSecs).get();
+
+            } finally {
+                if (zkClient != null) {
+                    zkClient.close();
+                }
+                if (storageAdminClient != null) {
+                    storageAdminClient.close();
+                }
+            }
+        }
+
+        @Override
+        protected String getUsage() {
+            return buildUsage(NAME, DESCRIPTION, getOptions());
+        }
+    }
+
     /**
      * Helper method to create and open a StorageClient
      *
@@ -10,6 +10,10 @@ import org.junit.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Properties;
 
 import static org.junit.Assert.assertTrue;
@@ -89,6 +93,53 @@ public class PerformanceCliTest {
         }
     }
 
+    @Test
+    public void testReplayProducer() throws Exception {
+        Properties properties =  new Properties();
+        properties.setProperty(IntegrationTestHelper.Config.ZNODE_PATH, "/producer/replay/cli/test");
+        properties.setProperty(IntegrationTestHelper.Config.NUM_PARTITIONS, "3");
+        properties.setProperty(IntegrationTestHelper.Config.ZK_SESSION_TIMEOUT, "30000");
+
+        IntegrationTestHelper helper = new IntegrationTestHelper(properties);
+        Properties cfgProperties = createProperties(helper.getZkConnectString(), helper.getZnodePath(),
+                helper.getZkSessionTimeout(), helper.getSslSetup());
+        String configFilePath = IntegrationTestHelper.createYamlConfigFile(DIR_NAME, CONFIG_FILE_NAME, cfgProperties);
+
+        Path workloadPath = Files.createTempFile("workload", ".txt");
+        Files.write(workloadPath, Arrays.asList(
+                "0 0 128 0 - -",
+                "1000 1 64 1,2 - -",
+                "2000 2 0 - 0 -",
+                "3000 0 256 - - 3"
+        ), StandardCharsets.UTF_8);
+
+        String[] args = {
+                "replay-producers",
+                "--workload-path",
+                workloadPath.toString(),
+                "--cli-config-path",
+                configFilePath,
+                "--time-scale",
+                "2",
+                "--num-clients",
+                "2"
+        };
+        try {
+            helper.startZooKeeperServer();
+            helper.startWaltzStorage(true);
+            helper.setWaltzStorageAssignment(true);
+            helper.startWaltzServer(true);
+
+            PerformanceCli.testMain(args);
+
+            String expectedCmdOutput = "Replayed 4 transactions";
+            assertTrue(outContent.toString("UTF-8").contains(expectedCmdOutput));
+        } finally {
+            helper.closeAll();
+            Files.deleteIfExists(workloadPath);
+        }
+    }
+
     @Test
     public void testRunConsumer() throws Exception {
         Properties properties =  new Properties();
@@ -0,0 +1,80 @@
+package com.wepay.waltz.tools.performance;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ZipfianGeneratorTest {
+
+    private static final int NUM_SAMPLES = 100000;
+
+    @Test
+    public void testDistribution() {
+        int n = 10;
+        int[] counts = sample(new ZipfianGenerator(n, 1.0), n);
+
+        // P(k) = (1 / (k + 1)) / H(n), where H(n) is the n-th harmonic number
+        double harmonic = 0.0;
+        for (int k = 0; k < n; k++) {
+            harmonic += 1.0 / (k + 1);
+        }
+        for (int k = 0; k < n; k++) {
+            double expected = (double) NUM_SAMPLES / (k + 1) / harmonic;
+            assertEquals(expected, counts[k], expected * 0.1);
+        }
+    }
+
+    @Test
+    public void testUniform() {
+        int n = 10;
+        int[] counts = sample(new ZipfianGenerator(n, 0.0), n);
+
+        for (int k = 0; k < n; k++) {
+            assertEquals(NUM_SAMPLES / n, counts[k], NUM_SAMPLES / n * 0.1);
+        }
+    }
+
+    @Test
+    public void testSkew() {
+        int n = 1000;
+        int[] counts = sample(new ZipfianGenerator(n, 2.0), n);
+
+        // With exponent 2, more than half of samples are 0
+        assertTrue(counts[0] > NUM_SAMPLES / 2);
+        assertTrue(counts[0] > counts[1]);
+        assertTrue(counts[1] > counts[2]);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        try {
+            new ZipfianGenerator(0, 1.0);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Ignore
+        }
+
+        try {
+            new ZipfianGenerator(10, -1.0);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Ignore
+        }
+    }
+
+    private static int[] sample(ZipfianGenerator generator, int n) {
+        Random random = new Random(0);
+        int[] counts = new int[n];
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            int value = generator.next(random);
+            assertTrue(value >= 0 && value < n);
+            counts[value]++;
+        }
+        return counts;
+    }
+
+}